@@ -0,0 +1,14 @@
+package android.content;
+
+/**
+ * JVM stand-in for the Android ActivityNotFoundException.
+ */
+public class ActivityNotFoundException extends RuntimeException {
+
+    public ActivityNotFoundException() {
+    }
+
+    public ActivityNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package android.content;
+
+/**
+ * JVM stand-in for the Android BroadcastReceiver.
+ */
+public abstract class BroadcastReceiver {
+
+    public abstract void onReceive(Context context, Intent intent);
+}
@@ -0,0 +1,21 @@
+package android.content;
+
+/**
+ * JVM stand-in for the Android Context. Outgoing intents are counted and dropped.
+ */
+public class Context {
+
+    private int sentIntentCount = 0;
+
+    public void sendBroadcast(Intent intent) {
+        sentIntentCount++;
+    }
+
+    public void startActivity(Intent intent) {
+        sentIntentCount++;
+    }
+
+    public int getSentIntentCount() {
+        return sentIntentCount;
+    }
+}
@@ -0,0 +1,102 @@
+package android.content;
+
+import android.os.Bundle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the Android Intent, covering the subset of the API used by the sample code.
+ */
+public class Intent {
+
+    public static final String CATEGORY_DEFAULT = "android.intent.category.DEFAULT";
+
+    private final Map<String, Object> extras = new HashMap<>();
+    private String action;
+    private ComponentName component;
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Intent setAction(String action) {
+        this.action = action;
+        return this;
+    }
+
+    public ComponentName getComponent() {
+        return component;
+    }
+
+    public Intent setComponent(ComponentName component) {
+        this.component = component;
+        return this;
+    }
+
+    public boolean hasExtra(String name) {
+        return extras.containsKey(name);
+    }
+
+    public Intent putExtra(String name, String value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, String[] value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, boolean value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, int value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, float value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, Bundle value) {
+        extras.put(name, value);
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        Object value = extras.get(name);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public String[] getStringArrayExtra(String name) {
+        Object value = extras.get(name);
+        return value instanceof String[] ? (String[]) value : null;
+    }
+
+    public boolean getBooleanExtra(String name, boolean defaultValue) {
+        Object value = extras.get(name);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    public int getIntExtra(String name, int defaultValue) {
+        Object value = extras.get(name);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public Bundle getBundleExtra(String name) {
+        Object value = extras.get(name);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+}
@@ -0,0 +1,25 @@
+package android.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stand-in for the Android IntentFilter.
+ */
+public class IntentFilter {
+
+    private final List<String> actions = new ArrayList<>();
+    private final List<String> categories = new ArrayList<>();
+
+    public final void addAction(String action) {
+        actions.add(action);
+    }
+
+    public final void addCategory(String category) {
+        categories.add(category);
+    }
+
+    public final boolean hasAction(String action) {
+        return actions.contains(action);
+    }
+}
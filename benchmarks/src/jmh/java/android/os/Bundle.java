@@ -0,0 +1,30 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the Android Bundle.
+ */
+public final class Bundle {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        Object value = values.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+}
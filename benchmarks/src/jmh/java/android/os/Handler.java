@@ -0,0 +1,30 @@
+package android.os;
+
+/**
+ * JVM stand-in for the Android Handler. Immediate posts run on the calling thread, delayed posts are dropped, so
+ * benchmarks have to flush time based work explicitly.
+ */
+public class Handler {
+
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+    }
+}
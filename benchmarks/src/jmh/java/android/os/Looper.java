@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * JVM stand-in for the Android Looper. There is a single main looper and no message loop.
+ */
+public final class Looper {
+
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+}
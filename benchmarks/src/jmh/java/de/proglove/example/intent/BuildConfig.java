@@ -0,0 +1,12 @@
+package de.proglove.example.intent;
+
+/**
+ * Stand-in for the generated BuildConfig of pgIntentSampleApp. Benchmarks measure the release configuration.
+ */
+public final class BuildConfig {
+
+    public static final boolean DEBUG = false;
+
+    private BuildConfig() {
+    }
+}
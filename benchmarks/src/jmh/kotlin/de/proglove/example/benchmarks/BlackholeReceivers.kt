@@ -0,0 +1,68 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.intent.enums.DeviceConnectionStatus
+import de.proglove.example.intent.enums.DisplayDeviceType
+import de.proglove.example.intent.interfaces.IIntentDisplayOutput
+import de.proglove.example.intent.interfaces.IIntentScannerOutput
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Scanner receiver that only hands the received values to the [blackhole], so the benchmark measures the dispatch.
+ */
+class BlackholeScannerOutput(private val blackhole: Blackhole) : IIntentScannerOutput {
+
+    override var defaultFeedbackEnabled: Boolean = true
+
+    override fun onBarcodeScanned(barcode: String, symbology: String, screenContext: String, scanToken: Long) {
+        blackhole.consume(barcode)
+        blackhole.consume(symbology)
+        blackhole.consume(screenContext)
+        blackhole.consume(scanToken)
+    }
+
+    override fun onScannerStateChanged(status: DeviceConnectionStatus) {
+        blackhole.consume(status)
+    }
+
+    override fun onConfigProfilesReceived(profileIds: Array<String>, activeProfileId: String) {
+        blackhole.consume(profileIds)
+        blackhole.consume(activeProfileId)
+    }
+
+    override fun onDeviceVisibilityInfoReceived(
+        serialNumber: String,
+        firmwareRevision: String,
+        batteryLevel: Int,
+        bceRevision: String,
+        modelNumber: String,
+        manufacturer: String,
+        deviceBluetoothMacAddress: String,
+        appVersion: String
+    ) {
+        blackhole.consume(serialNumber)
+    }
+}
+
+/**
+ * Display receiver counterpart of [BlackholeScannerOutput].
+ */
+class BlackholeDisplayOutput(private val blackhole: Blackhole) : IIntentDisplayOutput {
+
+    override fun onButtonPressed(buttonId: String, screenContext: String) {
+        blackhole.consume(buttonId)
+        blackhole.consume(screenContext)
+    }
+
+    override fun onDisplayStateChanged(status: DeviceConnectionStatus) {
+        blackhole.consume(status)
+    }
+
+    override fun onDisplayDeviceTypeChanged(displayType: DisplayDeviceType) {
+        blackhole.consume(displayType)
+    }
+
+    override fun onDisplayEventReceived(event: String, context: String) {
+        blackhole.consume(event)
+        blackhole.consume(context)
+    }
+}
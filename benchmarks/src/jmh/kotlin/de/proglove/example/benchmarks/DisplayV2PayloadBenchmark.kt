@@ -0,0 +1,41 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.intent.DisplayV2Examples
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.lang.reflect.Constructor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Construction of the Display V2 intents including their JSON payloads.
+ *
+ * The examples are singletons, so each invocation creates a fresh instance through the private constructor to repeat
+ * the work done on first use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class DisplayV2PayloadBenchmark {
+
+    @Param("PgNtfT5", "PgWork3Btn2T1", "PgListT1", "TimerScreen")
+    @JvmField
+    var screen = ""
+
+    private lateinit var constructor: Constructor<out DisplayV2Examples>
+
+    @Setup
+    fun setUp() {
+        val screenClass = Class.forName("${DisplayV2Examples::class.java.name}\$$screen")
+            .asSubclass(DisplayV2Examples::class.java)
+        constructor = screenClass.getDeclaredConstructor().apply { isAccessible = true }
+    }
+
+    @Benchmark
+    fun build(): DisplayV2Examples = constructor.newInstance()
+}
@@ -0,0 +1,65 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.stream.EventStream
+import de.proglove.example.common.stream.EventSubscriber
+import de.proglove.example.common.stream.EventSubscription
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Publishing one item through an [EventStream] to all of its subscribers, per [EventStream.Overflow] strategy.
+ *
+ * Subscribers are drained on the emitting thread, so the numbers are the queueing and demand bookkeeping of the
+ * stream itself without any thread hand-over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class EventStreamBenchmark {
+
+    @Param("1", "8")
+    @JvmField
+    var subscriberCount = 0
+
+    @Param("BUFFER", "DROP_OLDEST", "LATEST")
+    @JvmField
+    var overflow = ""
+
+    private val stream = EventStream<String>(Executor { it.run() })
+
+    @Setup
+    fun setUp(blackhole: Blackhole) {
+        repeat(subscriberCount) {
+            stream.subscribe(Subscriber(blackhole), EventStream.Overflow.valueOf(overflow))
+        }
+    }
+
+    @Benchmark
+    fun emit(): Boolean {
+        return stream.emit(EVENT)
+    }
+
+    class Subscriber(private val blackhole: Blackhole) : EventSubscriber<String> {
+
+        override fun onSubscribe(subscription: EventSubscription) {
+            subscription.request(Long.MAX_VALUE)
+        }
+
+        override fun onNext(item: String) {
+            blackhole.consume(item)
+        }
+    }
+
+    companion object {
+        private const val EVENT = "4006381333931"
+    }
+}
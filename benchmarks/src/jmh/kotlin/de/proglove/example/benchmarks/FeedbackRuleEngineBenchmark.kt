@@ -0,0 +1,75 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.feedback.FeedbackRuleEngine
+import de.proglove.example.common.feedback.ScanOutcome
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of picking the feedback for a scan with the [FeedbackRuleEngine], for growing rule tables. The time should
+ * not grow with [ruleCount] and `gc.alloc.rate.norm` of the gc profiler should stay at zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class FeedbackRuleEngineBenchmark {
+
+    @Param("10", "1000", "10000")
+    @JvmField
+    var ruleCount = 0
+
+    private lateinit var engine: FeedbackRuleEngine<Int>
+
+    @Setup
+    fun setUp() {
+        val builder = FeedbackRuleEngine.Builder<Int>()
+            .add(FeedbackRuleEngine.Rule(FEEDBACK_ERROR, FeedbackRuleEngine.PRIORITY_HIGH, ScanOutcome.REJECTED))
+            .add(FeedbackRuleEngine.Rule(FEEDBACK_INFO, FeedbackRuleEngine.PRIORITY_NORMAL, ScanOutcome.DUPLICATE))
+            .replaceQueueFrom(FeedbackRuleEngine.PRIORITY_HIGH)
+        // one rule per storage location, like a table of locations that need a special confirmation
+        for (i in 0 until ruleCount) {
+            builder.add(
+                FeedbackRuleEngine.Rule(
+                    feedback = FEEDBACK_LOCATION,
+                    priority = FeedbackRuleEngine.PRIORITY_NORMAL + i % 10,
+                    requiredOutcomes = ScanOutcome.ACCEPTED,
+                    symbology = SYMBOLOGIES[i % SYMBOLOGIES.size],
+                    barcodePrefix = "LOC-%05d".format(i)
+                )
+            )
+        }
+        engine = builder.build()
+        check(engine.evaluate(SYMBOLOGIES[1], "LOC-00001-A", ScanOutcome.ACCEPTED)?.feedback == FEEDBACK_LOCATION)
+        check(engine.evaluate(SYMBOLOGIES[0], "LOC-00001-A", ScanOutcome.ACCEPTED) == null)
+        check(engine.evaluate(SYMBOLOGIES[1], "LOC-00001-A", ScanOutcome.REJECTED)?.feedback == FEEDBACK_ERROR)
+    }
+
+    @Benchmark
+    fun prefixHit(): FeedbackRuleEngine.Rule<Int>? {
+        return engine.evaluate(SYMBOLOGIES[1], "LOC-00001-A", ScanOutcome.ACCEPTED)
+    }
+
+    @Benchmark
+    fun outcomeOnly(): FeedbackRuleEngine.Rule<Int>? {
+        return engine.evaluate(SYMBOLOGIES[0], "4006381333931", ScanOutcome.DUPLICATE)
+    }
+
+    @Benchmark
+    fun noMatch(): FeedbackRuleEngine.Rule<Int>? {
+        return engine.evaluate(SYMBOLOGIES[0], "4006381333931", ScanOutcome.ACCEPTED)
+    }
+
+    companion object {
+        private const val FEEDBACK_ERROR = 2
+        private const val FEEDBACK_INFO = 3
+        private const val FEEDBACK_LOCATION = 4
+        private val SYMBOLOGIES = arrayOf("EAN-13", "CODE 128", "DATA MATRIX", "QR CODE")
+    }
+}
@@ -0,0 +1,66 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.pipeline.Gs1Elements
+import de.proglove.example.common.pipeline.Gs1Parser
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of parsing typical GS1 element strings with the [Gs1Parser]. `gc.alloc.rate.norm` of the gc profiler should
+ * stay at zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class Gs1ParserBenchmark {
+
+    private val elements = Gs1Elements()
+
+    @Setup
+    fun checkSamples() {
+        check(Gs1Parser.parse(GS1_128, SYMBOLOGY_GS1_128, elements) == Gs1Parser.Result.OK)
+        check(elements.toString() == "(00)340123450000000000(01)04006381333931(17)251231(10)LOT4711") { "$elements" }
+        check(Gs1Parser.parse(DATA_MATRIX, SYMBOLOGY_DATA_MATRIX, elements) == Gs1Parser.Result.OK)
+        check(elements.count == 5) { "$elements" }
+        check(Gs1Parser.parse(EAN_13, SYMBOLOGY_EAN_13, elements) == Gs1Parser.Result.NOT_GS1)
+    }
+
+    @Benchmark
+    fun gs1128(): Gs1Parser.Result {
+        return Gs1Parser.parse(GS1_128, SYMBOLOGY_GS1_128, elements)
+    }
+
+    @Benchmark
+    fun dataMatrix(): Gs1Parser.Result {
+        return Gs1Parser.parse(DATA_MATRIX, SYMBOLOGY_DATA_MATRIX, elements)
+    }
+
+    @Benchmark
+    fun notGs1(): Gs1Parser.Result {
+        return Gs1Parser.parse(EAN_13, SYMBOLOGY_EAN_13, elements)
+    }
+
+    companion object {
+        // FNC1 as transmitted, see Gs1Parser.GROUP_SEPARATOR
+        private const val GS = "\u001D"
+
+        // SSCC, GTIN, best before date and batch, as printed on a logistics label
+        private const val GS1_128 = "]C1" + "00340123450000000000" + "0104006381333931" + "17251231" + "10LOT4711"
+
+        // GTIN, expiry, batch, serial and net weight, with separators behind the variable length values
+        private const val DATA_MATRIX =
+            "]d2" + "0104006381333931" + "17260630" + "10B12" + GS + "21SN000123456" + GS + "3103001250"
+
+        private const val EAN_13 = "4006381333931"
+
+        private const val SYMBOLOGY_GS1_128 = "GS1-128"
+        private const val SYMBOLOGY_DATA_MATRIX = "DATA MATRIX"
+        private const val SYMBOLOGY_EAN_13 = "EAN-13"
+    }
+}
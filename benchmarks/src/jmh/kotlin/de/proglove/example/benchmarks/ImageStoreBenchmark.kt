@@ -0,0 +1,60 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.storage.ImageStore
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+import java.nio.file.Files
+import java.util.Random
+import java.util.concurrent.TimeUnit
+
+/**
+ * Saving captured images to the [ImageStore], checksum and fsync included.
+ *
+ * The sizes are typical JPEGs of the low and the high image resolution. The store is bounded by count, so the
+ * benchmark also covers evicting the oldest capture once the queue is full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ImageStoreBenchmark {
+
+    @Param("20000", "400000")
+    @JvmField
+    var imageSize = 0
+
+    private lateinit var directory: File
+    private lateinit var store: ImageStore
+    private lateinit var image: ByteArray
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        directory = Files.createTempDirectory("image-store").toFile()
+        store = ImageStore.open(directory, MAX_COUNT)
+        image = ByteArray(imageSize).also { Random(SEED).nextBytes(it) }
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        store.close()
+        directory.deleteRecursively()
+    }
+
+    @Benchmark
+    fun save(): ImageStore.Capture {
+        return store.save(image)
+    }
+
+    companion object {
+        private const val MAX_COUNT = 32
+        private const val SEED = 42L
+    }
+}
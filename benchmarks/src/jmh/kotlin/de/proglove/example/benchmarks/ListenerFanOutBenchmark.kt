@@ -0,0 +1,79 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.dispatch.ListenerRegistry
+import de.proglove.example.common.dispatch.WeakListenerRegistry
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+
+/**
+ * Notifying all registered listeners, [ListenerRegistry] compared to the synchronized list with a snapshot copy per
+ * notification that it replaced, and to the [WeakListenerRegistry] of the SDK event hub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ListenerFanOutBenchmark {
+
+    @Param("1", "8", "64")
+    @JvmField
+    var listenerCount = 0
+
+    private val registry = ListenerRegistry<Listener>()
+    private val weakRegistry = WeakListenerRegistry<Listener>()
+    // keeps the weakly registered listeners reachable
+    private val listeners = mutableListOf<Listener>()
+    private val synchronizedList = Collections.synchronizedList(mutableListOf<Listener>())
+    private val extraListener = Listener(null)
+
+    @Setup
+    fun setUp(blackhole: Blackhole) {
+        repeat(listenerCount) {
+            val listener = Listener(blackhole)
+            registry.add(listener)
+            weakRegistry.add(listener)
+            listeners.add(listener)
+            synchronizedList.add(listener)
+        }
+    }
+
+    @Benchmark
+    fun listenerRegistry() {
+        registry.forEach { it.onEvent(EVENT) }
+    }
+
+    @Benchmark
+    fun weakListenerRegistry() {
+        weakRegistry.forEach { it.onEvent(EVENT) }
+    }
+
+    @Benchmark
+    fun synchronizedListSnapshot() {
+        val snapshot = synchronized(synchronizedList) { synchronizedList.toList() }
+        snapshot.forEach { it.onEvent(EVENT) }
+    }
+
+    @Benchmark
+    fun addRemove(): Boolean {
+        registry.add(extraListener)
+        return registry.remove(extraListener)
+    }
+
+    class Listener(private val blackhole: Blackhole?) {
+        fun onEvent(event: String) {
+            blackhole?.consume(event)
+        }
+    }
+
+    companion object {
+        private const val EVENT = "4006381333931"
+    }
+}
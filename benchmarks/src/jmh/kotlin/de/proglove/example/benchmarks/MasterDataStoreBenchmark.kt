@@ -0,0 +1,94 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.storage.MasterDataStore
+import de.proglove.example.common.storage.MasterDataWriter
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of opening a [MasterDataStore] of [recordCount] items and of looking items up in it. Opening should not grow
+ * with the file size, lookups should stay in the low microseconds and `gc.alloc.rate.norm` of the gc profiler should
+ * stay at zero for [findHit] and [findMiss].
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class MasterDataStoreBenchmark {
+
+    // 5M items make a file of about 400 MB
+    @Param("100000", "5000000")
+    @JvmField
+    var recordCount = 0
+
+    private lateinit var file: File
+    private lateinit var store: MasterDataStore
+    private lateinit var record: MasterDataStore.Record
+    private lateinit var expected: Array<String>
+    private lateinit var unknown: Array<String>
+    private val description = StringBuilder()
+    private var next = 0
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        file = File.createTempFile("master-data", ".bin")
+        MasterDataWriter(file, FIELD_NAMES).use { writer ->
+            for (i in 0 until recordCount) {
+                val location = "01-%03d-%03d".format(i % 1000, i % 397)
+                writer.add(barcode(i), listOf("Engine part ${i % 9973} Ø ${i % 97} mm", location))
+            }
+        }
+        store = MasterDataStore.open(file)
+        record = store.newRecord()
+        expected = Array(SAMPLE_COUNT) { barcode((it * 7919L % recordCount).toInt()) }
+        unknown = Array(SAMPLE_COUNT) { barcode(recordCount + it) }
+        check(store.recordCount == recordCount)
+        check(store.find(barcode(42), record) && record.field(0) == "Engine part 42 Ø 42 mm")
+        check(record.field(1) == "01-042-042")
+        check(!store.find(unknown[0], record))
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        file.delete()
+    }
+
+    @Benchmark
+    fun findHit(): StringBuilder {
+        next = (next + 1) and (SAMPLE_COUNT - 1)
+        description.setLength(0)
+        if (store.find(expected[next], record)) {
+            record.appendField(0, description)
+        }
+        return description
+    }
+
+    @Benchmark
+    fun findMiss(): Boolean {
+        next = (next + 1) and (SAMPLE_COUNT - 1)
+        return store.find(unknown[next], record)
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    fun open(): MasterDataStore {
+        return MasterDataStore.open(file)
+    }
+
+    companion object {
+        private const val SAMPLE_COUNT = 1 shl 12
+        private val FIELD_NAMES = listOf("Item", "Location")
+
+        private fun barcode(item: Int): String = (4006381000000L + item).toString()
+    }
+}
@@ -0,0 +1,82 @@
+package de.proglove.example.benchmarks
+
+import android.content.Context
+import android.content.Intent
+import de.proglove.example.common.ApiConstants
+import de.proglove.example.intent.MessageHandler
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Action routing of [MessageHandler.handleNewIntent], from a received intent to the registered receivers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class MessageHandlerBenchmark {
+
+    @Param("1", "4", "16")
+    @JvmField
+    var receiverCount = 0
+
+    private lateinit var messageHandler: MessageHandler
+    private lateinit var barcodeIntent: Intent
+    private lateinit var scannerStateIntent: Intent
+    private lateinit var buttonPressedIntent: Intent
+    private lateinit var unknownIntent: Intent
+
+    @Setup
+    fun setUp(blackhole: Blackhole) {
+        messageHandler = MessageHandler(Context())
+        repeat(receiverCount) {
+            messageHandler.registerScannerOutput(BlackholeScannerOutput(blackhole))
+            messageHandler.registerDisplayOutput(BlackholeDisplayOutput(blackhole))
+        }
+
+        barcodeIntent = Intent(ApiConstants.ACTION_BARCODE_INTENT).apply {
+            putExtra(ApiConstants.EXTRA_DATA_STRING_PG, "4006381333931")
+            putExtra(ApiConstants.EXTRA_SYMBOLOGY_STRING_PG, "EAN-13")
+            putExtra(ApiConstants.EXTRA_DISPLAY_SCREEN_CONTEXT, SCREEN_CONTEXT)
+        }
+        scannerStateIntent = Intent(ApiConstants.ACTION_SCANNER_STATE_INTENT).apply {
+            putExtra(ApiConstants.EXTRA_SCANNER_STATE, "CONNECTED")
+        }
+        buttonPressedIntent = Intent(ApiConstants.ACTION_BUTTON_PRESSED_INTENT).apply {
+            putExtra(ApiConstants.EXTRA_DISPLAY_BUTTON, "BUTTON_PRIMARY")
+            putExtra(ApiConstants.EXTRA_DISPLAY_SCREEN_CONTEXT, SCREEN_CONTEXT)
+        }
+        unknownIntent = Intent("de.proglove.example.UNKNOWN")
+    }
+
+    @Benchmark
+    fun routeBarcode() {
+        messageHandler.handleNewIntent(barcodeIntent)
+    }
+
+    @Benchmark
+    fun routeScannerState() {
+        messageHandler.handleNewIntent(scannerStateIntent)
+    }
+
+    @Benchmark
+    fun routeButtonPressed() {
+        messageHandler.handleNewIntent(buttonPressedIntent)
+    }
+
+    @Benchmark
+    fun routeUnknownAction() {
+        messageHandler.handleNewIntent(unknownIntent)
+    }
+
+    companion object {
+        private const val SCREEN_CONTEXT = """{"ref_id":"SCREEN_VIEW_1"}"""
+    }
+}
@@ -0,0 +1,79 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.picking.PickListIndex
+import de.proglove.example.common.picking.PickListLoader
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.io.StringReader
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of verifying a pick against a [PickListIndex] loaded from a manifest of [manifestSize] lines, and of loading
+ * the manifest. Verifying should take the same time for every size and `gc.alloc.rate.norm` of the gc profiler should
+ * stay at zero for it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class PickListIndexBenchmark {
+
+    @Param("10000", "1000000")
+    @JvmField
+    var manifestSize = 0
+
+    private lateinit var manifest: String
+    private lateinit var index: PickListIndex
+    private lateinit var expected: Array<String>
+    private lateinit var unexpected: Array<String>
+    private var next = 0
+
+    @Setup
+    fun setUp() {
+        val builder = StringBuilder(manifestSize * 24).append("barcode,quantity\n")
+        for (i in 0 until manifestSize) {
+            // high quantities, so repeated picks of the same item keep taking the decrement path
+            builder.append(barcode(i)).append(',').append(QUANTITY).append('\n')
+        }
+        manifest = builder.toString()
+        index = PickListLoader.loadCsv(StringReader(manifest), manifestSize)
+        expected = Array(SAMPLE_COUNT) { barcode((it * 7919L % manifestSize).toInt()) }
+        unexpected = Array(SAMPLE_COUNT) { barcode(manifestSize + it) }
+        check(index.size == manifestSize)
+        check(index.verify(expected[1]) == PickListIndex.Result.PICKED)
+        check(index.verify(unexpected[1]) == PickListIndex.Result.NOT_EXPECTED)
+        check(index.remaining(expected[1]) == QUANTITY - 1)
+        index.reset()
+    }
+
+    @Benchmark
+    fun verifyExpected(): PickListIndex.Result {
+        next = (next + 1) and (SAMPLE_COUNT - 1)
+        return index.verify(expected[next])
+    }
+
+    @Benchmark
+    fun verifyUnexpected(): PickListIndex.Result {
+        next = (next + 1) and (SAMPLE_COUNT - 1)
+        return index.verify(unexpected[next])
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    fun loadManifest(): PickListIndex {
+        return PickListLoader.loadCsv(StringReader(manifest), manifestSize)
+    }
+
+    companion object {
+        private const val SAMPLE_COUNT = 1 shl 12
+        private const val QUANTITY = 1_000_000_000
+
+        private fun barcode(item: Int): String = (4006381000000L + item).toString()
+    }
+}
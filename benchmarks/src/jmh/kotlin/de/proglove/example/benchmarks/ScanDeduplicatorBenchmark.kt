@@ -0,0 +1,52 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.scan.ScanDeduplicator
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of the [ScanDeduplicator] per scan, for a stream of distinct labels and for a label scanned over and over.
+ * `gc.alloc.rate.norm` of the gc profiler should stay at zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ScanDeduplicatorBenchmark {
+
+    private val deduplicator = ScanDeduplicator()
+    private lateinit var barcodes: Array<String>
+    private var next = 0
+    private var nowNanos = 0L
+
+    @Setup
+    fun setUp() {
+        barcodes = Array(BARCODE_COUNT) { (4006381333000L + it).toString() }
+    }
+
+    @Benchmark
+    fun distinctScans(): Boolean {
+        next = (next + 1) and (BARCODE_COUNT - 1)
+        // 1 ms between scans, every barcode comes back well after the window
+        nowNanos += SCAN_INTERVAL_NANOS
+        return deduplicator.isDuplicate(barcodes[next], SYMBOLOGY, SCANNER, nowNanos)
+    }
+
+    @Benchmark
+    fun repeatedScan(): Boolean {
+        nowNanos += SCAN_INTERVAL_NANOS
+        return deduplicator.isDuplicate(barcodes[0], SYMBOLOGY, SCANNER, nowNanos)
+    }
+
+    companion object {
+        private const val BARCODE_COUNT = 1 shl 14
+        private const val SCAN_INTERVAL_NANOS = 1_000_000L
+        private const val SYMBOLOGY = "EAN-13"
+        private const val SCANNER = "com.proglove.api.BARCODE"
+    }
+}
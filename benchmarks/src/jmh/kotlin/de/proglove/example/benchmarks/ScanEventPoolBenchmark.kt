@@ -0,0 +1,44 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.scan.ScanEvent
+import de.proglove.example.common.scan.ScanEventPool
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Per scan allocations of the intent receive path. Compare `gc.alloc.rate.norm` of the gc profiler: the pooled
+ * variant should not allocate at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ScanEventPoolBenchmark {
+
+    private val pool = ScanEventPool()
+
+    @Benchmark
+    fun pooled(blackhole: Blackhole) {
+        val event = pool.acquire().set(BARCODE, SYMBOLOGY, "", System.nanoTime(), ACTION)
+        blackhole.consume(event)
+        pool.release(event)
+    }
+
+    @Benchmark
+    fun allocated(blackhole: Blackhole) {
+        // baseline without the pool, the constructor is internal to common which is compiled into this module
+        val event = ScanEvent().set(BARCODE, SYMBOLOGY, "", System.nanoTime(), ACTION)
+        blackhole.consume(event)
+    }
+
+    companion object {
+        private const val BARCODE = "4006381333931"
+        private const val SYMBOLOGY = "EAN-13"
+        private const val ACTION = "com.proglove.api.BARCODE"
+    }
+}
@@ -0,0 +1,113 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.storage.ScanJournal
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sustained append throughput of the [ScanJournal] and the time of its recovery from a torn tail.
+ *
+ * [append] measures the callback thread side while the writer thread group-commits in the background. It returns
+ * false for every scan dropped because the queue ran full. Whether recovery restores the right records is covered by
+ * the unit tests, not measured here.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class ScanJournalBenchmark {
+
+    private lateinit var appendDirectory: File
+    private lateinit var journal: ScanJournal
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        appendDirectory = Files.createTempDirectory("scan-journal-append").toFile()
+        journal = ScanJournal.open(appendDirectory)
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        journal.close()
+        appendDirectory.deleteRecursively()
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    fun append(): Boolean {
+        return journal.append(BARCODE, SYMBOLOGY, SOURCE)
+    }
+
+    /**
+     * Journal with [RECORD_COUNT] complete records followed by a torn one, as left behind by a crash mid-write.
+     */
+    @State(Scope.Thread)
+    open class TornJournal {
+
+        lateinit var directory: File
+
+        @Setup(Level.Invocation)
+        fun setUp() {
+            directory = Files.createTempDirectory("scan-journal-torn").toFile()
+            val journal = ScanJournal.open(directory)
+            var appended = 0
+            while (appended < RECORD_COUNT) {
+                if (journal.append(BARCODE, SYMBOLOGY, SOURCE)) {
+                    appended++
+                } else {
+                    Thread.yield()
+                }
+            }
+            journal.close()
+            tearTail(directory.listFiles()!!.single { it.name.endsWith(".journal") })
+        }
+
+        @TearDown(Level.Invocation)
+        fun tearDown() {
+            directory.deleteRecursively()
+        }
+
+        private fun tearTail(segment: File) {
+            RandomAccessFile(segment, "rw").use { file ->
+                var position = 0L
+                while (true) {
+                    file.seek(position)
+                    val length = file.readInt()
+                    if (length == 0) {
+                        break
+                    }
+                    position += 8 + length
+                }
+                // header of a record whose payload never made it to disk
+                file.seek(position)
+                file.writeInt(64)
+                file.writeInt(0x5ca1ab1e)
+                file.write(ByteArray(17) { 0x7f })
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    fun recoverTornTail(tornJournal: TornJournal): Int {
+        ScanJournal.open(tornJournal.directory).use { recovered ->
+            return recovered.replay { }
+        }
+    }
+
+    companion object {
+        private const val BARCODE = "4006381333931"
+        private const val SYMBOLOGY = "EAN-13"
+        private const val SOURCE = "com.proglove.api.BARCODE"
+        private const val RECORD_COUNT = 10_000
+    }
+}
@@ -0,0 +1,29 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.metrics.ScanLatencyTracker
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of the latency instrumentation on the scan path. `gc.alloc.rate.norm` of the gc profiler should stay at zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ScanLatencyTrackerBenchmark {
+
+    private val tracker = ScanLatencyTracker()
+
+    @Benchmark
+    fun scanToFeedback(): Boolean {
+        val token = tracker.scanReceived()
+        tracker.record(token, ScanLatencyTracker.Stage.PROCESSED)
+        tracker.record(token, ScanLatencyTracker.Stage.FEEDBACK_SENT)
+        return tracker.record(token, ScanLatencyTracker.Stage.FEEDBACK_ACKED)
+    }
+}
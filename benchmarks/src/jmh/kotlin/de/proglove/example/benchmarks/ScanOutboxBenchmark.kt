@@ -0,0 +1,123 @@
+package de.proglove.example.benchmarks
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import de.proglove.example.common.outbox.Backoff
+import de.proglove.example.common.outbox.HttpScanSink
+import de.proglove.example.common.outbox.ScanOutbox
+import de.proglove.example.common.storage.ScanJournal
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.GZIPInputStream
+
+/**
+ * Time for the [ScanOutbox] to deliver a backlog of journaled scans to an in-process HTTP stand-in of a backend.
+ *
+ * The stand-in stores every batch, but answers every [FAILURE_INTERVAL]th request with 503 as if the answer got lost
+ * on the way. The outbox then delivers the batch again with the same id, which the stand-in answers with 409, so the
+ * time includes the retries. That every scan arrives exactly once is checked by the unit tests of the outbox.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class ScanOutboxBenchmark {
+
+    @Param("1000", "10000")
+    @JvmField
+    var scanCount = 0
+
+    @Param("100")
+    @JvmField
+    var maxBatchCount = 0
+
+    private lateinit var directory: File
+    private lateinit var journal: ScanJournal
+    private lateinit var server: HttpServer
+    private lateinit var outbox: ScanOutbox
+
+    private val batches = ConcurrentHashMap<String, List<Long>>()
+    private val requests = AtomicInteger()
+
+    @Setup(Level.Trial)
+    fun startServer() {
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/scans") { exchange -> receive(exchange) }
+        server.start()
+    }
+
+    @TearDown(Level.Trial)
+    fun stopServer() {
+        server.stop(0)
+    }
+
+    @Setup(Level.Invocation)
+    fun setUp() {
+        batches.clear()
+        requests.set(0)
+        directory = Files.createTempDirectory("scan-outbox").toFile()
+        journal = ScanJournal.open(directory)
+        var appended = 0
+        while (appended < scanCount) {
+            if (journal.append("400638133${appended % 10_000}", SYMBOLOGY, SOURCE)) {
+                appended++
+            } else {
+                Thread.yield()
+            }
+        }
+        val url = URL("http://127.0.0.1:${server.address.port}/scans")
+        outbox = ScanOutbox(journal, HttpScanSink(url), maxBatchCount, backoff = Backoff(1L, 10L))
+    }
+
+    @TearDown(Level.Invocation)
+    fun tearDown() {
+        outbox.close()
+        journal.close()
+        directory.deleteRecursively()
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    fun deliverBacklog(): ScanOutbox.Metrics {
+        outbox.start()
+        while (outbox.metrics().acknowledgedSequence < scanCount) {
+            Thread.sleep(1L)
+        }
+        return outbox.metrics()
+    }
+
+    private fun receive(exchange: HttpExchange) {
+        val batchId = exchange.requestHeaders.getFirst(HttpScanSink.BATCH_ID_HEADER)
+        val json = GZIPInputStream(exchange.requestBody).use { it.readBytes() }.toString(Charsets.UTF_8)
+        val scans = JSONObject(json).getJSONArray("scans")
+        val sequences = List(scans.length()) { scans.getJSONObject(it).getLong("sequence") }
+        val known = batches.putIfAbsent(batchId, sequences) != null
+        val status = when {
+            known -> 409
+            requests.incrementAndGet() % FAILURE_INTERVAL == 0 -> 503
+            else -> 200
+        }
+        exchange.sendResponseHeaders(status, -1L)
+        exchange.close()
+    }
+
+    companion object {
+        private const val SYMBOLOGY = "EAN-13"
+        private const val SOURCE = "com.proglove.api.BARCODE"
+        private const val FAILURE_INTERVAL = 7
+    }
+}
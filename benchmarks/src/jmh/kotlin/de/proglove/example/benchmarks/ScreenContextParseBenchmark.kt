@@ -0,0 +1,54 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.ApiConstants
+import de.proglove.example.intent.getJSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Screen context and screen event parsing as done by the intent sample app for every scan and display event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ScreenContextParseBenchmark {
+
+    @Param("EMPTY", "SCREEN_CONTEXT", "COMPONENT_CLICKED")
+    @JvmField
+    var payload = ""
+
+    private lateinit var json: String
+
+    @Setup
+    fun setUp() {
+        json = when (payload) {
+            "EMPTY" -> ""
+            "SCREEN_CONTEXT" -> """{"ref_id":"SCREEN_VIEW_1","screen_id":"pg_work3_btn2_t1"}"""
+            else -> """{"component_clicked":{"ref_id":"BUTTON_PRIMARY","component":"button_primary"}}"""
+        }
+    }
+
+    @Benchmark
+    fun parse(): Any = json.getJSONObject()
+
+    @Benchmark
+    fun parseAndReadReferenceId(): String? {
+        val jsonObject = json.getJSONObject()
+        return when {
+            jsonObject.has(ApiConstants.EVENT_REFERENCE_ID) -> {
+                jsonObject.getString(ApiConstants.EVENT_REFERENCE_ID)
+            }
+            jsonObject.has(ApiConstants.EVENT_COMPONENT_CLICKED) -> {
+                jsonObject.getJSONObject(ApiConstants.EVENT_COMPONENT_CLICKED).getString(ApiConstants.EVENT_REFERENCE_ID)
+            }
+            else -> null
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.proglove.example.benchmarks
+
+import de.proglove.example.common.display.ScreenTemplateCache
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Building a workflow screen payload with a changed quantity: trimming the JSON literal on every send compared to
+ * rendering the cached template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ScreenTemplateBenchmark {
+
+    private val cache = ScreenTemplateCache()
+    private var quantity = 0
+
+    @Setup
+    fun setUp() {
+        cache.getOrCompile(SCREEN_ID) { SCREEN_VIEWS }
+    }
+
+    @Benchmark
+    fun trimIndent(): String = SCREEN_VIEWS.replace("{{quantity}}", nextQuantity()).trimIndent()
+
+    @Benchmark
+    fun cachedTemplate(): String = cache.getOrCompile(SCREEN_ID) { SCREEN_VIEWS }.render("quantity", nextQuantity())
+
+    private fun nextQuantity() = (quantity++ and 1023).toString()
+
+    companion object {
+        private const val SCREEN_ID = "pg_work3_btn2_t1"
+        private const val SCREEN_VIEWS = """
+            [
+              {
+                "ref_id": "SCREEN_VIEW_1",
+                "pg_work3_btn2_t1": {
+                  "field_top": {
+                    "ref_id": "field_top",
+                    "text_content": "Top Content",
+                    "text_header": "Top Header"
+                  },
+                  "field_middle_right": {
+                    "ref_id": "field_middle_right",
+                    "text_content": "{{quantity}}",
+                    "text_header": "Middle Right Header",
+                    "input_method": {
+                      "num_pad": {}
+                    }
+                  },
+                  "field_middle_left": {
+                    "ref_id": "field_middle_left",
+                    "text_content": "Middle Left Content",
+                    "text_header": "Middle Left Header"
+                  },
+                  "button_1": {
+                    "action_on_click": {
+                      "basic": "NOTIFY"
+                    },
+                    "ref_id": "BUTTON_1",
+                    "text": "Ok"
+                  },
+                  "button_2": {
+                    "action_on_click": {
+                      "basic": "NOTIFY"
+                    },
+                    "ref_id": "BUTTON_2",
+                    "text": "Cancel"
+                  }
+                }
+              }
+            ]
+        """
+    }
+}
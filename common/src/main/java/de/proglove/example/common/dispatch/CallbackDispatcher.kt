@@ -0,0 +1,252 @@
+package de.proglove.example.common.dispatch
+
+import java.util.ArrayDeque
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionHandler
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Bounded background executor for SDK and subscriber callbacks.
+ *
+ * All work runs on a fixed number of named threads sized by the number of cores, fed by a bounded queue. When the
+ * queue is full, the submitting thread runs the task itself. This slows the producer down instead of spawning more
+ * threads, and every such rejection is counted in [metrics].
+ *
+ * On top of the shared pool every [Lane] is a serial executor: tasks of one lane run one after another in submission
+ * order, while different lanes run in parallel. A lane buffers at most [laneCapacity] tasks. Submitting to a full lane
+ * blocks until the lane caught up, which keeps the order and slows the producer down, and is counted as a lane
+ * rejection in [metrics]. A lane occupies one pool thread while it has tasks and runs them in a loop, so a saturated
+ * pool running the lane on the submitting thread never nests one task inside another.
+ *
+ * Blocking I/O does not belong here, it would hold up the callbacks, use the [IoExecutor] instead.
+ *
+ * @param name prefix for the names of the pool threads.
+ * @param poolSize number of pool threads.
+ * @param queueCapacity capacity of the shared task queue.
+ * @param laneCapacity number of tasks a lane buffers before its producers block.
+ */
+class CallbackDispatcher(
+    private val name: String = DEFAULT_NAME,
+    poolSize: Int = defaultPoolSize(),
+    queueCapacity: Int = DEFAULT_QUEUE_CAPACITY,
+    private val laneCapacity: Int = DEFAULT_LANE_CAPACITY
+) {
+
+    /**
+     * Serial lanes, one per kind of callback.
+     */
+    enum class Lane {
+        /**
+         * Callbacks of the SDK itself, which only hand the events on to the other lanes.
+         */
+        SDK,
+
+        /**
+         * Scans and scanner connection changes.
+         */
+        SCANS,
+
+        /**
+         * Display connection changes and screen events.
+         */
+        DISPLAY,
+
+        /**
+         * Button presses.
+         */
+        BUTTONS
+    }
+
+    /**
+     * Point-in-time view of the dispatcher counters.
+     *
+     * [laneRejected] counts submissions that found their lane full and had to wait, [maxLaneDepth] is the most tasks
+     * any lane buffered.
+     */
+    data class Metrics(
+        val submitted: Long,
+        val completed: Long,
+        val rejected: Long,
+        val queueDepth: Int,
+        val maxQueueDepth: Int,
+        val activeThreads: Int,
+        val laneRejected: Long,
+        val maxLaneDepth: Int
+    )
+
+    private val submitted = AtomicLong()
+    private val rejected = AtomicLong()
+    private val maxQueueDepth = AtomicInteger()
+    private val laneRejected = AtomicLong()
+    private val maxLaneDepth = AtomicInteger()
+
+    private val threadFactory = object : ThreadFactory {
+        private val threadNumber = AtomicInteger(1)
+
+        override fun newThread(runnable: Runnable): Thread {
+            return Thread(runnable, "$name-${threadNumber.getAndIncrement()}")
+        }
+    }
+
+    private val rejectionHandler = RejectedExecutionHandler { task, executor ->
+        rejected.incrementAndGet()
+        if (!executor.isShutdown) {
+            task.run()
+        }
+    }
+
+    private val pool = object : ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        ArrayBlockingQueue(queueCapacity),
+        threadFactory,
+        rejectionHandler
+    ) {
+        override fun execute(command: Runnable) {
+            submitted.incrementAndGet()
+            super.execute(command)
+            updateMax(maxQueueDepth, queue.size)
+        }
+    }.also {
+        it.allowCoreThreadTimeOut(true)
+    }
+
+    private val lanes = Array(Lane.values().size) { SerialLane() }
+
+    /**
+     * The shared pool itself, without any ordering guarantee between tasks.
+     */
+    val executor: Executor
+        get() = pool
+
+    /**
+     * Returns the serial executor for [lane].
+     */
+    fun lane(lane: Lane): Executor = lanes[lane.ordinal]
+
+    /**
+     * Returns a snapshot of the dispatcher counters.
+     */
+    fun metrics(): Metrics {
+        return Metrics(
+            submitted = submitted.get(),
+            completed = pool.completedTaskCount,
+            rejected = rejected.get(),
+            queueDepth = pool.queue.size,
+            maxQueueDepth = maxQueueDepth.get(),
+            activeThreads = pool.activeCount,
+            laneRejected = laneRejected.get(),
+            maxLaneDepth = maxLaneDepth.get()
+        )
+    }
+
+    /**
+     * Stops accepting new work. Already queued tasks still run.
+     */
+    fun shutdown() {
+        pool.shutdown()
+    }
+
+    private fun updateMax(max: AtomicInteger, depth: Int) {
+        while (true) {
+            val current = max.get()
+            if (depth <= current || max.compareAndSet(current, depth)) {
+                return
+            }
+        }
+    }
+
+    /**
+     * Runs tasks strictly one after another on the shared pool. The lane itself is the pool task: it is submitted once
+     * when the lane gets work and runs the buffered tasks in a loop until the lane is empty.
+     */
+    private inner class SerialLane : Executor, Runnable {
+
+        private val lock = ReentrantLock()
+        private val notFull = lock.newCondition()
+        private val tasks = ArrayDeque<Runnable>()
+        private var scheduled = false
+        private var drainingThread: Thread? = null
+
+        override fun execute(command: Runnable) {
+            lock.withLock {
+                // a task of this lane submitting to it cannot wait for itself
+                if (tasks.size >= laneCapacity && drainingThread !== Thread.currentThread()) {
+                    laneRejected.incrementAndGet()
+                    while (tasks.size >= laneCapacity) {
+                        notFull.await()
+                    }
+                }
+                tasks.addLast(command)
+                updateMax(maxLaneDepth, tasks.size)
+                if (scheduled) {
+                    return
+                }
+                scheduled = true
+            }
+            pool.execute(this)
+        }
+
+        override fun run() {
+            lock.withLock { drainingThread = Thread.currentThread() }
+            var task = poll() ?: return
+            try {
+                while (true) {
+                    task.run()
+                    task = poll() ?: return
+                }
+            } catch (e: Throwable) {
+                // hand the remaining tasks to a fresh run, the lane must not stall on a failing task
+                val resubmit = lock.withLock {
+                    drainingThread = null
+                    scheduled = tasks.isNotEmpty()
+                    scheduled
+                }
+                if (resubmit) {
+                    pool.execute(this)
+                }
+                throw e
+            }
+        }
+
+        private fun poll(): Runnable? {
+            lock.withLock {
+                val next = tasks.pollFirst()
+                if (next == null) {
+                    scheduled = false
+                    drainingThread = null
+                } else {
+                    notFull.signal()
+                }
+                return next
+            }
+        }
+    }
+
+    companion object {
+
+        private const val DEFAULT_NAME = "pg-callbacks"
+        private const val DEFAULT_QUEUE_CAPACITY = 256
+        private const val DEFAULT_LANE_CAPACITY = 256
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        /**
+         * Process wide dispatcher shared by all PgManager instances of an app.
+         */
+        @JvmStatic
+        val shared: CallbackDispatcher by lazy { CallbackDispatcher() }
+
+        private fun defaultPoolSize(): Int {
+            return Runtime.getRuntime().availableProcessors().coerceIn(2, 4)
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.proglove.example.common.dispatch
+
+import android.os.Handler
+import android.os.Looper
+
+/**
+ * [Scheduler] backed by an Android [Handler]. Tasks run on the handler's looper thread, the main thread by default.
+ */
+class HandlerScheduler(private val handler: Handler = Handler(Looper.getMainLooper())) : Scheduler {
+
+    override fun schedule(delayMs: Long, task: Runnable) {
+        handler.postDelayed(task, delayMs)
+    }
+
+    override fun cancel(task: Runnable) {
+        handler.removeCallbacks(task)
+    }
+}
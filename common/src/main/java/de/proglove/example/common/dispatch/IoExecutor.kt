@@ -0,0 +1,68 @@
+package de.proglove.example.common.dispatch
+
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Background executor for blocking disk I/O, like replaying the scan journal, storing images or loading the pick list
+ * and master data.
+ *
+ * It runs on threads of its own, so slow storage never holds up the SDK callbacks on the [CallbackDispatcher]. The
+ * queue is unbounded: I/O tasks are few and must neither be dropped nor run on the submitting thread, which is often
+ * the main thread.
+ *
+ * @param name prefix for the names of the I/O threads.
+ * @param poolSize number of I/O threads.
+ */
+class IoExecutor(
+    private val name: String = DEFAULT_NAME,
+    poolSize: Int = DEFAULT_POOL_SIZE
+) : Executor {
+
+    private val threadFactory = object : ThreadFactory {
+        private val threadNumber = AtomicInteger(1)
+
+        override fun newThread(runnable: Runnable): Thread {
+            return Thread(runnable, "$name-${threadNumber.getAndIncrement()}")
+        }
+    }
+
+    private val pool = ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        LinkedBlockingQueue(),
+        threadFactory
+    ).also {
+        it.allowCoreThreadTimeOut(true)
+    }
+
+    override fun execute(command: Runnable) {
+        pool.execute(command)
+    }
+
+    /**
+     * Stops accepting new work. Already queued tasks still run.
+     */
+    fun shutdown() {
+        pool.shutdown()
+    }
+
+    companion object {
+
+        private const val DEFAULT_NAME = "pg-io"
+        private const val DEFAULT_POOL_SIZE = 2
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        /**
+         * Process wide I/O executor shared by the activities of an app.
+         */
+        @JvmStatic
+        val shared: IoExecutor by lazy { IoExecutor() }
+    }
+}
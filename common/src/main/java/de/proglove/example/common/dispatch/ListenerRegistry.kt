@@ -0,0 +1,104 @@
+package de.proglove.example.common.dispatch
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Copy-on-write set of listeners.
+ *
+ * Registering and unregistering replace an immutable snapshot array with a compare-and-set, notifying iterates over
+ * the current snapshot with an index loop. Notification therefore never takes a lock or allocates an iterator, and
+ * listeners added or removed during a notification only take effect for the next one.
+ */
+class ListenerRegistry<T : Any> {
+
+    private val listeners = AtomicReference(EMPTY)
+
+    /**
+     * Number of currently registered listeners.
+     */
+    val size: Int
+        get() = listeners.get().size
+
+    /**
+     * Registers [listener].
+     *
+     * @return true if the listener was added, false if it was already registered.
+     */
+    fun add(listener: T): Boolean {
+        while (true) {
+            val current = listeners.get()
+            if (indexOf(current, listener) >= 0) {
+                return false
+            }
+            val updated = arrayOfNulls<Any>(current.size + 1)
+            System.arraycopy(current, 0, updated, 0, current.size)
+            updated[current.size] = listener
+            @Suppress("UNCHECKED_CAST")
+            if (listeners.compareAndSet(current, updated as Array<Any>)) {
+                return true
+            }
+        }
+    }
+
+    /**
+     * Unregisters [listener].
+     *
+     * @return true if the listener was removed, false if it was not registered.
+     */
+    fun remove(listener: T): Boolean {
+        while (true) {
+            val current = listeners.get()
+            val index = indexOf(current, listener)
+            if (index < 0) {
+                return false
+            }
+            val updated = if (current.size == 1) {
+                EMPTY
+            } else {
+                val copy = arrayOfNulls<Any>(current.size - 1)
+                System.arraycopy(current, 0, copy, 0, index)
+                System.arraycopy(current, index + 1, copy, index, current.size - index - 1)
+                @Suppress("UNCHECKED_CAST")
+                copy as Array<Any>
+            }
+            if (listeners.compareAndSet(current, updated)) {
+                return true
+            }
+        }
+    }
+
+    /**
+     * Unregisters all listeners.
+     */
+    fun clear() {
+        listeners.set(EMPTY)
+    }
+
+    /**
+     * Calls [action] for every listener registered at the time of the call.
+     */
+    inline fun forEach(action: (T) -> Unit) {
+        val snapshot = snapshot()
+        for (i in snapshot.indices) {
+            @Suppress("UNCHECKED_CAST")
+            action(snapshot[i] as T)
+        }
+    }
+
+    @PublishedApi
+    internal fun snapshot(): Array<Any> = listeners.get()
+
+    private fun indexOf(array: Array<Any>, listener: T): Int {
+        for (i in array.indices) {
+            if (array[i] == listener) {
+                return i
+            }
+        }
+        return -1
+    }
+
+    private companion object {
+
+        val EMPTY = arrayOf<Any>()
+    }
+}
@@ -0,0 +1,129 @@
+package de.proglove.example.common.dispatch
+
+/**
+ * Tracks the one request in flight to the service, e.g. a display command or a profile fetch, and times the round
+ * trips of the answered ones.
+ *
+ * Every request gets a new id. An answer [matches] the request in flight by its id, or by [ANY_REQUEST] for answers
+ * that carry no id, like the Intent API broadcasts. When no answer arrives within [timeoutMs], [onTimeout] gets the
+ * id of the request. The request may have been answered right before, so check the id with [matches] first.
+ *
+ * Not thread-safe, use it under the lock of its owner. [onTimeout] runs on the [scheduler], without that lock.
+ *
+ * @param scheduler runs the timeouts.
+ * @param timeoutMs time to wait for the answer to a request.
+ * @param onTimeout called with the id of a request that was not answered in time.
+ */
+class RequestTracker(
+    private val scheduler: Scheduler,
+    private val timeoutMs: Long,
+    private val onTimeout: TimeoutListener
+) {
+
+    /**
+     * Receives the id of a request that was not answered in time.
+     */
+    fun interface TimeoutListener {
+
+        fun onTimeout(requestId: Long)
+    }
+
+    private var nextRequestId = 1L
+    private var sentAtNanos = 0L
+    private var timeout: Runnable? = null
+
+    private var answered = 0L
+    private var lastRoundTripNanos = 0L
+    private var totalRoundTripNanos = 0L
+    private var maxRoundTripNanos = 0L
+
+    /**
+     * Id of the request in flight, [NO_REQUEST] if there is none.
+     */
+    var inFlightId = NO_REQUEST
+        private set
+
+    /**
+     * True while a request waits for its answer.
+     */
+    val isInFlight: Boolean
+        get() = inFlightId != NO_REQUEST
+
+    /**
+     * Round trip time of the last answered request.
+     */
+    val lastRoundTripMs: Long
+        get() = lastRoundTripNanos / NANOS_PER_MS
+
+    /**
+     * Average round trip time of all answered requests, 0 if none was answered yet.
+     */
+    val averageRoundTripMs: Long
+        get() = if (answered == 0L) 0L else totalRoundTripNanos / answered / NANOS_PER_MS
+
+    /**
+     * Longest round trip time of all answered requests.
+     */
+    val maxRoundTripMs: Long
+        get() = maxRoundTripNanos / NANOS_PER_MS
+
+    /**
+     * Starts a new request and its timeout. Call only while no request is in flight.
+     *
+     * @return the id of the new request.
+     */
+    fun start(): Long {
+        val requestId = nextRequestId++
+        val task = Runnable { onTimeout.onTimeout(requestId) }
+        inFlightId = requestId
+        sentAtNanos = System.nanoTime()
+        timeout = task
+        scheduler.schedule(timeoutMs, task)
+        return requestId
+    }
+
+    /**
+     * Returns true if [requestId] is the request in flight, or [ANY_REQUEST] while a request is in flight.
+     */
+    fun matches(requestId: Long): Boolean {
+        return inFlightId != NO_REQUEST && (requestId == ANY_REQUEST || requestId == inFlightId)
+    }
+
+    /**
+     * Ends the request in flight with its answer and records its round trip time.
+     */
+    fun answered() {
+        val roundTripNanos = System.nanoTime() - sentAtNanos
+        clear()
+        answered++
+        lastRoundTripNanos = roundTripNanos
+        totalRoundTripNanos += roundTripNanos
+        if (roundTripNanos > maxRoundTripNanos) {
+            maxRoundTripNanos = roundTripNanos
+        }
+    }
+
+    /**
+     * Ends the request in flight without an answer, e.g. after its timeout, and cancels its timeout.
+     */
+    fun clear() {
+        timeout?.let { scheduler.cancel(it) }
+        timeout = null
+        inFlightId = NO_REQUEST
+    }
+
+    companion object {
+
+        /**
+         * Request id that never belongs to a request.
+         */
+        const val NO_REQUEST = 0L
+
+        /**
+         * Request id of an answer without id, it matches whatever request is in flight.
+         */
+        const val ANY_REQUEST = -1L
+
+        private const val NANOS_PER_MS = 1_000_000L
+    }
+}
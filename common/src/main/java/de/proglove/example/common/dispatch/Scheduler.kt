@@ -0,0 +1,18 @@
+package de.proglove.example.common.dispatch
+
+/**
+ * Minimal abstraction over delayed task execution, so time based logic can run on an Android [android.os.Handler]
+ * in the apps and on plain JVM threads elsewhere.
+ */
+interface Scheduler {
+
+    /**
+     * Runs [task] once after [delayMs] milliseconds.
+     */
+    fun schedule(delayMs: Long, task: Runnable)
+
+    /**
+     * Cancels a [task] previously passed to [schedule], if it did not run yet.
+     */
+    fun cancel(task: Runnable)
+}
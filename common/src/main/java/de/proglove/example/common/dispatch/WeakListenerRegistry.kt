@@ -0,0 +1,146 @@
+package de.proglove.example.common.dispatch
+
+import java.lang.ref.WeakReference
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Copy-on-write set of weakly referenced listeners.
+ *
+ * Works like [ListenerRegistry], but only holds [WeakReference]s to the listeners. A listener that is no longer
+ * referenced elsewhere, e.g. an activity that was destroyed without unregistering, is skipped by [forEach] and
+ * removed from the set instead of being leaked.
+ */
+class WeakListenerRegistry<T : Any> {
+
+    /**
+     * Called for each listener by [dispatch].
+     */
+    fun interface Action<T> {
+
+        fun invoke(listener: T)
+    }
+
+    private val listeners = AtomicReference(EMPTY)
+
+    /**
+     * Number of registered listeners, including ones collected but not removed yet.
+     */
+    val size: Int
+        get() = listeners.get().size
+
+    /**
+     * Registers [listener].
+     *
+     * @return true if the listener was added, false if it was already registered.
+     */
+    fun add(listener: T): Boolean {
+        while (true) {
+            val current = listeners.get()
+            if (indexOf(current, listener) >= 0) {
+                return false
+            }
+            val updated = arrayOfNulls<WeakReference<Any>>(current.size + 1)
+            System.arraycopy(current, 0, updated, 0, current.size)
+            updated[current.size] = WeakReference(listener)
+            @Suppress("UNCHECKED_CAST")
+            if (listeners.compareAndSet(current, updated as Array<WeakReference<Any>>)) {
+                return true
+            }
+        }
+    }
+
+    /**
+     * Unregisters [listener].
+     *
+     * @return true if the listener was removed, false if it was not registered.
+     */
+    fun remove(listener: T): Boolean {
+        while (true) {
+            val current = listeners.get()
+            val index = indexOf(current, listener)
+            if (index < 0) {
+                return false
+            }
+            if (listeners.compareAndSet(current, without(current, index))) {
+                return true
+            }
+        }
+    }
+
+    /**
+     * Unregisters all listeners.
+     */
+    fun clear() {
+        listeners.set(EMPTY)
+    }
+
+    /**
+     * Calls [action] for every listener registered at the time of the call and still reachable.
+     */
+    inline fun forEach(action: (T) -> Unit) {
+        val snapshot = snapshot()
+        var collected = false
+        for (i in snapshot.indices) {
+            val listener = snapshot[i].get()
+            if (listener == null) {
+                collected = true
+            } else {
+                @Suppress("UNCHECKED_CAST")
+                action(listener as T)
+            }
+        }
+        if (collected) {
+            removeCollected()
+        }
+    }
+
+    /**
+     * Same as [forEach], for callers written in Java.
+     */
+    fun dispatch(action: Action<T>) {
+        forEach { action.invoke(it) }
+    }
+
+    @PublishedApi
+    internal fun snapshot(): Array<WeakReference<Any>> = listeners.get()
+
+    /**
+     * Removes the references whose listener was garbage collected.
+     */
+    @PublishedApi
+    internal fun removeCollected() {
+        while (true) {
+            val current = listeners.get()
+            val index = current.indexOfFirst { it.get() == null }
+            if (index < 0) {
+                return
+            }
+            listeners.compareAndSet(current, without(current, index))
+        }
+    }
+
+    private fun without(array: Array<WeakReference<Any>>, index: Int): Array<WeakReference<Any>> {
+        if (array.size == 1) {
+            return EMPTY
+        }
+        val copy = arrayOfNulls<WeakReference<Any>>(array.size - 1)
+        System.arraycopy(array, 0, copy, 0, index)
+        System.arraycopy(array, index + 1, copy, index, array.size - index - 1)
+        @Suppress("UNCHECKED_CAST")
+        return copy as Array<WeakReference<Any>>
+    }
+
+    private fun indexOf(array: Array<WeakReference<Any>>, listener: T): Int {
+        for (i in array.indices) {
+            if (array[i].get() == listener) {
+                return i
+            }
+        }
+        return -1
+    }
+
+    private companion object {
+
+        val EMPTY = arrayOf<WeakReference<Any>>()
+    }
+}
@@ -0,0 +1,194 @@
+package de.proglove.example.common.display
+
+import de.proglove.example.common.dispatch.RequestTracker
+import de.proglove.example.common.dispatch.Scheduler
+
+/**
+ * Latest-wins queue for display commands.
+ *
+ * At most one command is in flight at a time. Commands submitted meanwhile replace each other, so once the display
+ * answers only the newest one is sent and the display never works through a backlog of stale screens.
+ *
+ * Every sent command gets a request id, which the [sender] attaches to its result callback and reports back with
+ * [onResult]. A result for any other id, e.g. a late answer to a timed out request, is ignored. The Intent API result
+ * broadcast carries no id, it is matched to the one command in flight with the id-less [onResult]. When no result
+ * arrives within [timeoutMs], the command counts as timed out and the pending one is sent.
+ *
+ * Replaced commands are dropped without any result.
+ *
+ * @param scheduler runs the result timeouts.
+ * @param timeoutMs time to wait for the result of a sent command.
+ * @param sender sends a command to the display.
+ */
+class DisplayCommandQueue<C : Any> @JvmOverloads constructor(
+    scheduler: Scheduler,
+    timeoutMs: Long = DEFAULT_TIMEOUT_MS,
+    private val sender: Sender<C>
+) {
+
+    /**
+     * Sends a command to the display and reports its result with [onResult] and the given request id.
+     */
+    fun interface Sender<C> {
+
+        fun send(requestId: Long, command: C)
+    }
+
+    /**
+     * Point-in-time view of the queue counters. Round trip times cover answered commands only, not timeouts.
+     */
+    data class Metrics(
+        val submitted: Long,
+        val sent: Long,
+        val superseded: Long,
+        val succeeded: Long,
+        val failed: Long,
+        val timedOut: Long,
+        val ignoredResults: Long,
+        val queueDepth: Int,
+        val lastRoundTripMs: Long,
+        val averageRoundTripMs: Long,
+        val maxRoundTripMs: Long
+    )
+
+    private val lock = Any()
+
+    private val requests = RequestTracker(scheduler, timeoutMs) { requestId -> complete(requestId, Outcome.TIMEOUT) }
+    private var pending: C? = null
+
+    private var submitted = 0L
+    private var sent = 0L
+    private var superseded = 0L
+    private var succeeded = 0L
+    private var failed = 0L
+    private var timedOut = 0L
+    private var ignoredResults = 0L
+
+    /**
+     * Number of commands in flight or waiting, at most 2.
+     */
+    val queueDepth: Int
+        get() = synchronized(lock) { queueDepthLocked() }
+
+    /**
+     * Sends [command] right away when nothing is in flight, otherwise keeps it as the pending command, replacing an
+     * older pending one.
+     *
+     * @return true if the command was sent right away.
+     */
+    fun submit(command: C): Boolean {
+        val requestId = synchronized(lock) {
+            submitted++
+            if (requests.isInFlight) {
+                if (pending != null) {
+                    superseded++
+                }
+                pending = command
+                return false
+            }
+            startLocked()
+        }
+        send(requestId, command)
+        return true
+    }
+
+    /**
+     * Reports the result of the command sent with [requestId]. Results for any other request are ignored.
+     */
+    fun onResult(requestId: Long, success: Boolean) {
+        complete(requestId, if (success) Outcome.SUCCESS else Outcome.FAILURE)
+    }
+
+    /**
+     * Reports the result of the command currently in flight, for results that carry no request id.
+     */
+    fun onResult(success: Boolean) {
+        complete(RequestTracker.ANY_REQUEST, if (success) Outcome.SUCCESS else Outcome.FAILURE)
+    }
+
+    /**
+     * Drops the pending command and stops waiting for the one in flight, e.g. when the display disconnected.
+     */
+    fun reset() {
+        synchronized(lock) {
+            requests.clear()
+            pending = null
+        }
+    }
+
+    /**
+     * Returns a snapshot of the queue counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(
+                submitted = submitted,
+                sent = sent,
+                superseded = superseded,
+                succeeded = succeeded,
+                failed = failed,
+                timedOut = timedOut,
+                ignoredResults = ignoredResults,
+                queueDepth = queueDepthLocked(),
+                lastRoundTripMs = requests.lastRoundTripMs,
+                averageRoundTripMs = requests.averageRoundTripMs,
+                maxRoundTripMs = requests.maxRoundTripMs
+            )
+        }
+    }
+
+    private fun queueDepthLocked(): Int {
+        return (if (requests.isInFlight) 1 else 0) + (if (pending != null) 1 else 0)
+    }
+
+    private fun startLocked(): Long {
+        sent++
+        return requests.start()
+    }
+
+    private fun send(requestId: Long, command: C) {
+        try {
+            sender.send(requestId, command)
+        } catch (e: RuntimeException) {
+            complete(requestId, Outcome.FAILURE)
+            throw e
+        }
+    }
+
+    private fun complete(requestId: Long, outcome: Outcome) {
+        var nextId = RequestTracker.NO_REQUEST
+        val next = synchronized(lock) {
+            if (!requests.matches(requestId)) {
+                ignoredResults++
+                return
+            }
+            if (outcome == Outcome.TIMEOUT) {
+                requests.clear()
+            } else {
+                requests.answered()
+            }
+            when (outcome) {
+                Outcome.SUCCESS -> succeeded++
+                Outcome.FAILURE -> failed++
+                Outcome.TIMEOUT -> timedOut++
+            }
+
+            val pendingCommand = pending ?: return
+            pending = null
+            nextId = startLocked()
+            pendingCommand
+        }
+        send(nextId, next)
+    }
+
+    private enum class Outcome {
+        SUCCESS,
+        FAILURE,
+        TIMEOUT
+    }
+
+    companion object {
+
+        const val DEFAULT_TIMEOUT_MS = 3000L
+    }
+}
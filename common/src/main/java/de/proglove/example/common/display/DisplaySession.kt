@@ -0,0 +1,104 @@
+package de.proglove.example.common.display
+
+/**
+ * Keeps track of the template screens sent to the display and decides how the next one has to be sent.
+ *
+ * The session remembers the fields last sent per template id and which template is currently shown. A screen for the
+ * template that is already shown only needs a [Decision.PARTIAL_REFRESH], and a screen whose fields did not change at
+ * all does not need to be sent. Any other screen is sent with the [Decision.DEFAULT] refresh.
+ *
+ * Fields are compared with `equals`, so callers can pass the SDK field objects or any value describing a field.
+ * Call [invalidate] whenever the display content is no longer known, e.g. after a failed send, a disconnect or after
+ * a screen that was not sent through this session.
+ */
+class DisplaySession {
+
+    /**
+     * How a screen should be sent.
+     */
+    enum class Decision(
+        /**
+         * Refresh type as used by the Intent API, null if nothing is sent.
+         */
+        val refreshType: String?
+    ) {
+        /**
+         * The display already shows exactly this screen, nothing needs to be sent.
+         */
+        SKIP(null),
+
+        /**
+         * Another template is shown or the display content is unknown.
+         */
+        DEFAULT("DEFAULT"),
+
+        /**
+         * The template is shown already and only some of its fields changed.
+         */
+        PARTIAL_REFRESH("PARTIAL_REFRESH")
+    }
+
+    private val lock = Any()
+    private val lastFields = HashMap<String, List<Any?>>()
+    private var shownTemplateId: String? = null
+
+    private var sent = 0L
+    private var partial = 0L
+    private var skipped = 0L
+
+    /**
+     * Number of screens sent with [Decision.DEFAULT] or [Decision.PARTIAL_REFRESH].
+     */
+    val sentCount: Long
+        get() = synchronized(lock) { sent }
+
+    /**
+     * Number of screens sent with [Decision.PARTIAL_REFRESH].
+     */
+    val partialRefreshCount: Long
+        get() = synchronized(lock) { partial }
+
+    /**
+     * Number of screens that did not need to be sent.
+     */
+    val skippedCount: Long
+        get() = synchronized(lock) { skipped }
+
+    /**
+     * Decides how the screen of [templateId] with [fields] has to be sent and records it as the shown screen, unless
+     * it is skipped.
+     */
+    fun decide(templateId: String, fields: List<*>): Decision {
+        synchronized(lock) {
+            val previous = lastFields[templateId]
+            val decision = when {
+                templateId != shownTemplateId || previous == null -> Decision.DEFAULT
+                previous == fields -> Decision.SKIP
+                else -> Decision.PARTIAL_REFRESH
+            }
+
+            when (decision) {
+                Decision.SKIP -> skipped++
+                Decision.PARTIAL_REFRESH -> {
+                    partial++
+                    sent++
+                }
+                Decision.DEFAULT -> sent++
+            }
+            if (decision != Decision.SKIP) {
+                lastFields[templateId] = fields.toList()
+                shownTemplateId = templateId
+            }
+            return decision
+        }
+    }
+
+    /**
+     * Forgets what the display shows, so the next screen is sent with [Decision.DEFAULT].
+     */
+    fun invalidate() {
+        synchronized(lock) {
+            shownTemplateId = null
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.proglove.example.common.display
+
+/**
+ * A minified JSON screen definition with `{{name}}` placeholders, compiled into literal segments and parameters.
+ *
+ * Rendering only splices the parameter values into the prebuilt segments, the JSON itself is never parsed again.
+ * Placeholders are meant to be used inside JSON string literals, values are escaped accordingly.
+ *
+ * Use [ScreenTemplateCache] to compile a definition once and share it.
+ */
+class ScreenTemplate private constructor(
+    /**
+     * Minified source of this template, placeholders included.
+     */
+    val source: String,
+    private val literals: Array<String>,
+    private val params: Array<String>
+) {
+
+    // literals.size == params.size + 1, the rendered string is literals[0] + value(params[0]) + literals[1] + ...
+    private val literalLength = literals.sumOf { it.length }
+
+    // templates without placeholders render to the same string every time
+    private val staticContent: String? = if (params.isEmpty()) literals[0] else null
+
+    /**
+     * Names of all placeholders in order of appearance, duplicates included.
+     */
+    val paramNames: List<String>
+        get() = params.asList()
+
+    /**
+     * Renders the template with [values] for its placeholders. Placeholders without a value render as empty text.
+     */
+    fun render(values: Map<String, String> = emptyMap()): String {
+        staticContent?.let { return it }
+
+        val builder = StringBuilder(literalLength + params.size * VALUE_LENGTH_HINT)
+        builder.append(literals[0])
+        for (i in params.indices) {
+            appendEscaped(builder, values[params[i]] ?: "")
+            builder.append(literals[i + 1])
+        }
+        return builder.toString()
+    }
+
+    /**
+     * Renders the template with a single placeholder [name] set to [value].
+     */
+    fun render(name: String, value: String): String = render(mapOf(name to value))
+
+    private fun appendEscaped(builder: StringBuilder, value: String) {
+        for (c in value) {
+            when {
+                c == '"' -> builder.append("\\\"")
+                c == '\\' -> builder.append("\\\\")
+                c == '\n' -> builder.append("\\n")
+                c == '\r' -> builder.append("\\r")
+                c == '\t' -> builder.append("\\t")
+                c < ' ' -> builder.append(String.format("\\u%04x", c.code))
+                else -> builder.append(c)
+            }
+        }
+    }
+
+    companion object {
+
+        private const val VALUE_LENGTH_HINT = 16
+        private const val PLACEHOLDER_START = "{{"
+        private const val PLACEHOLDER_END = "}}"
+
+        /**
+         * Minifies [json] and compiles its placeholders.
+         *
+         * @throws IllegalArgumentException if the JSON has an unterminated string or placeholder.
+         */
+        @JvmStatic
+        fun compile(json: String): ScreenTemplate {
+            val minified = minify(json)
+            val literals = ArrayList<String>()
+            val params = ArrayList<String>()
+
+            var start = 0
+            while (true) {
+                val open = minified.indexOf(PLACEHOLDER_START, start)
+                if (open < 0) {
+                    literals.add(minified.substring(start))
+                    break
+                }
+                val close = minified.indexOf(PLACEHOLDER_END, open + PLACEHOLDER_START.length)
+                require(close >= 0) { "Unterminated placeholder at index $open" }
+                literals.add(minified.substring(start, open))
+                params.add(minified.substring(open + PLACEHOLDER_START.length, close).trim())
+                start = close + PLACEHOLDER_END.length
+            }
+            return ScreenTemplate(minified, literals.toTypedArray(), params.toTypedArray())
+        }
+
+        /**
+         * Removes all whitespace outside of JSON string literals.
+         */
+        internal fun minify(json: String): String {
+            val builder = StringBuilder(json.length)
+            var inString = false
+            var escaped = false
+            for (c in json) {
+                if (inString) {
+                    builder.append(c)
+                    when {
+                        escaped -> escaped = false
+                        c == '\\' -> escaped = true
+                        c == '"' -> inString = false
+                    }
+                } else if (c == '"') {
+                    inString = true
+                    builder.append(c)
+                } else if (!c.isWhitespace()) {
+                    builder.append(c)
+                }
+            }
+            require(!inString) { "Unterminated string literal" }
+            return builder.toString()
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.proglove.example.common.display
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Compiled [ScreenTemplate]s keyed by screen id.
+ *
+ * Each definition is minified and compiled on first use only, later lookups for the same id return the cached template
+ * without evaluating the definition again.
+ */
+class ScreenTemplateCache {
+
+    private val templates = ConcurrentHashMap<String, ScreenTemplate>()
+
+    /**
+     * Number of cached templates.
+     */
+    val size: Int
+        get() = templates.size
+
+    /**
+     * Returns the template cached for [screenId], compiling the JSON returned by [definition] if there is none yet.
+     */
+    fun getOrCompile(screenId: String, definition: () -> String): ScreenTemplate {
+        templates[screenId]?.let { return it }
+        val compiled = ScreenTemplate.compile(definition())
+        return templates.putIfAbsent(screenId, compiled) ?: compiled
+    }
+
+    /**
+     * Returns the template cached for [screenId], null if there is none.
+     */
+    operator fun get(screenId: String): ScreenTemplate? = templates[screenId]
+
+    /**
+     * Drops the template cached for [screenId], e.g. after its definition changed.
+     */
+    fun invalidate(screenId: String) {
+        templates.remove(screenId)
+    }
+
+    companion object {
+
+        /**
+         * Process wide cache shared by the sample apps.
+         */
+        @JvmStatic
+        val shared: ScreenTemplateCache by lazy { ScreenTemplateCache() }
+    }
+}
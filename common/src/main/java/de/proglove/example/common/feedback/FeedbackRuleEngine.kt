@@ -0,0 +1,286 @@
+package de.proglove.example.common.feedback
+
+import java.util.TreeMap
+
+/**
+ * Picks the feedback for a scan from a table of [Rule]s.
+ *
+ * A rule matches a scan by its symbology, the [ScanOutcome] flags it requires and excludes, and a barcode prefix.
+ * Of all matching rules the one with the highest priority wins, on equal priority the one added first.
+ * [Builder.build] compiles the rules, so [evaluate] does not look at every rule:
+ *
+ * - Rules without prefix go into a dispatch table indexed by symbology and outcome combination. Each entry holds the
+ *   winning rule, found once at build time.
+ * - Rules with prefix hang off the nodes of a trie over the prefixes. Evaluation walks the barcode through the trie
+ *   once and only checks the few rules at the nodes passed.
+ *
+ * Evaluation thus depends on the length of the barcode, not on the number of rules, and does not allocate.
+ *
+ * @param F type of the feedback, e.g. the SDK's predefined feedback or an Intent API feedback sequence id.
+ */
+class FeedbackRuleEngine<F : Any> private constructor(
+    private val rules: List<Rule<F>>,
+    private val replaceQueuePriority: Int,
+    private val symbologyIndex: Map<String, Int>,
+    private val dispatch: IntArray,
+    private val trie: PrefixTrie,
+    private val nodeRules: Array<IntArray?>,
+    private val ruleSymbologies: IntArray
+) {
+
+    /**
+     * One rule of the table.
+     *
+     * @param feedback feedback to send when the rule wins.
+     * @param priority rules with higher priority win.
+     * @param requiredOutcomes [ScanOutcome] flags that must all be set, 0 for any.
+     * @param symbology symbology name the rule is limited to, null for any.
+     * @param barcodePrefix prefix the barcode must start with, null for any.
+     * @param excludedOutcomes [ScanOutcome] flags that must not be set.
+     * @param name name for logs.
+     */
+    class Rule<F : Any> @JvmOverloads constructor(
+        val feedback: F,
+        val priority: Int,
+        val requiredOutcomes: Int = 0,
+        val symbology: String? = null,
+        val barcodePrefix: String? = null,
+        val excludedOutcomes: Int = 0,
+        val name: String = ""
+    ) {
+
+        internal fun matchesOutcomes(outcomes: Int): Boolean {
+            return outcomes and requiredOutcomes == requiredOutcomes && outcomes and excludedOutcomes == 0
+        }
+
+        override fun toString(): String {
+            return "Rule(name=$name, feedback=$feedback, priority=$priority)"
+        }
+    }
+
+    /**
+     * Collects the rules and compiles them into an engine.
+     */
+    class Builder<F : Any> {
+
+        private val rules = ArrayList<Rule<F>>()
+        private var replaceQueuePriority = Int.MAX_VALUE
+
+        /**
+         * Adds [rule] to the table.
+         */
+        fun add(rule: Rule<F>): Builder<F> {
+            require(rule.requiredOutcomes and rule.excludedOutcomes == 0) {
+                "rule ${rule.name} requires and excludes the same outcome"
+            }
+            rules.add(rule)
+            return this
+        }
+
+        /**
+         * Lets the feedback of rules with at least [priority] replace the feedback queued on the scanner, e.g. an
+         * error that must not wait behind earlier success feedback. By default no rule replaces the queue.
+         */
+        fun replaceQueueFrom(priority: Int): Builder<F> {
+            replaceQueuePriority = priority
+            return this
+        }
+
+        /**
+         * Compiles the rules added so far.
+         */
+        fun build(): FeedbackRuleEngine<F> {
+            // sorting by priority makes the lowest index the winner, the sort is stable for equal priorities
+            val sorted = rules.sortedByDescending { it.priority }
+
+            // index 0 stands for all symbologies no rule names
+            val symbologyIndex = HashMap<String, Int>()
+            val ruleSymbologies = IntArray(sorted.size) { i ->
+                sorted[i].symbology?.let { symbologyIndex.getOrPut(it) { symbologyIndex.size + 1 } } ?: ANY
+            }
+            val symbologyCount = symbologyIndex.size + 1
+
+            val dispatch = IntArray(symbologyCount * OUTCOME_COMBINATIONS) { NO_RULE }
+            val trieBuilder = PrefixTrie.Builder()
+            val rulesByNode = HashMap<Int, MutableList<Int>>()
+            for (i in sorted.indices) {
+                val prefix = sorted[i].barcodePrefix
+                if (prefix.isNullOrEmpty()) {
+                    fillDispatch(dispatch, sorted[i], i, ruleSymbologies[i], symbologyCount)
+                } else {
+                    rulesByNode.getOrPut(trieBuilder.add(prefix)) { ArrayList() }.add(i)
+                }
+            }
+            val trie = trieBuilder.build()
+            val nodeRules = arrayOfNulls<IntArray>(trie.nodeCount)
+            for ((node, indices) in rulesByNode) {
+                nodeRules[trie.frozenNode(node)] = indices.toIntArray()
+            }
+            return FeedbackRuleEngine(
+                sorted,
+                replaceQueuePriority,
+                symbologyIndex,
+                dispatch,
+                trie,
+                nodeRules,
+                ruleSymbologies
+            )
+        }
+
+        private fun fillDispatch(dispatch: IntArray, rule: Rule<F>, index: Int, symbology: Int, symbologyCount: Int) {
+            for (outcomes in 0 until OUTCOME_COMBINATIONS) {
+                if (!rule.matchesOutcomes(outcomes)) {
+                    continue
+                }
+                // a rule for all symbologies applies to every row, a specific rule to its own row only
+                val rows = if (symbology == ANY) 0 until symbologyCount else symbology..symbology
+                for (row in rows) {
+                    val slot = row * OUTCOME_COMBINATIONS + outcomes
+                    if (dispatch[slot] == NO_RULE) {
+                        dispatch[slot] = index
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of rules in the table.
+     */
+    val size: Int
+        get() = rules.size
+
+    /**
+     * Returns true if the feedback of [rule] cancels all feedback still queued on the scanner, see
+     * [Builder.replaceQueueFrom].
+     */
+    fun replacesQueue(rule: Rule<F>): Boolean = rule.priority >= replaceQueuePriority
+
+    /**
+     * Returns the winning rule for a scan, or null if no rule matches.
+     *
+     * @param symbology symbology of the scan, empty if unknown.
+     * @param barcode content of the scan.
+     * @param outcomes [ScanOutcome] flags of the scan.
+     */
+    fun evaluate(symbology: String, barcode: CharSequence, outcomes: Int): Rule<F>? {
+        val symbologyRow = symbologyIndex[symbology] ?: ANY
+        var best = dispatch[symbologyRow * OUTCOME_COMBINATIONS + (outcomes and OUTCOME_MASK)]
+        var node = PrefixTrie.ROOT
+        for (i in 0 until barcode.length) {
+            node = trie.child(node, barcode[i])
+            if (node == PrefixTrie.NO_NODE) {
+                break
+            }
+            val candidates = nodeRules[node] ?: continue
+            for (candidate in candidates) {
+                // candidates are in priority order, the first match is the best of this node
+                if (best != NO_RULE && candidate > best) {
+                    break
+                }
+                val ruleSymbology = ruleSymbologies[candidate]
+                val symbologyMatches = ruleSymbology == ANY || ruleSymbology == symbologyRow
+                if (symbologyMatches && rules[candidate].matchesOutcomes(outcomes)) {
+                    best = candidate
+                    break
+                }
+            }
+        }
+        return if (best == NO_RULE) null else rules[best]
+    }
+
+    /**
+     * Trie over the rule prefixes, frozen into flat arrays. The children of a node are sorted by character, so a
+     * step is a binary search without allocation.
+     */
+    private class PrefixTrie private constructor(
+        private val childStart: IntArray,
+        private val childChars: CharArray,
+        private val childNodes: IntArray,
+        private val frozenIds: IntArray
+    ) {
+
+        val nodeCount: Int
+            get() = childStart.size - 1
+
+        fun frozenNode(builderNode: Int): Int = frozenIds[builderNode]
+
+        fun child(node: Int, c: Char): Int {
+            var low = childStart[node]
+            var high = childStart[node + 1] - 1
+            while (low <= high) {
+                val middle = (low + high) ushr 1
+                val middleChar = childChars[middle]
+                when {
+                    middleChar < c -> low = middle + 1
+                    middleChar > c -> high = middle - 1
+                    else -> return childNodes[middle]
+                }
+            }
+            return NO_NODE
+        }
+
+        class Builder {
+
+            private val children = ArrayList<TreeMap<Char, Int>>().also { it.add(TreeMap()) }
+
+            /**
+             * Adds [prefix] and returns its node in the builder.
+             */
+            fun add(prefix: String): Int {
+                var node = ROOT
+                for (c in prefix) {
+                    node = children[node].getOrPut(c) {
+                        children.add(TreeMap())
+                        children.size - 1
+                    }
+                }
+                return node
+            }
+
+            fun build(): PrefixTrie {
+                // number the nodes breadth first, the children of a node get consecutive slots
+                val frozenIds = IntArray(children.size)
+                val order = ArrayList<Int>(children.size)
+                order.add(ROOT)
+                var head = 0
+                while (head < order.size) {
+                    val node = order[head++]
+                    frozenIds[node] = head - 1
+                    order.addAll(children[node].values)
+                }
+                val childStart = IntArray(children.size + 1)
+                val childChars = CharArray(children.size - 1)
+                val childNodes = IntArray(children.size - 1)
+                var slot = 0
+                for (frozen in order.indices) {
+                    childStart[frozen] = slot
+                    for ((c, child) in children[order[frozen]]) {
+                        childChars[slot] = c
+                        childNodes[slot] = frozenIds[child]
+                        slot++
+                    }
+                }
+                childStart[children.size] = slot
+                return PrefixTrie(childStart, childChars, childNodes, frozenIds)
+            }
+        }
+
+        companion object {
+            const val ROOT = 0
+            const val NO_NODE = -1
+        }
+    }
+
+    companion object {
+
+        const val PRIORITY_LOW = 0
+        const val PRIORITY_NORMAL = 50
+        const val PRIORITY_HIGH = 100
+
+        private const val ANY = 0
+        private const val NO_RULE = -1
+        private const val OUTCOME_COMBINATIONS = 1 shl ScanOutcome.COUNT
+        private const val OUTCOME_MASK = OUTCOME_COMBINATIONS - 1
+    }
+}
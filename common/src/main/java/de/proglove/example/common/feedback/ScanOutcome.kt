@@ -0,0 +1,38 @@
+package de.proglove.example.common.feedback
+
+import de.proglove.example.common.pipeline.PipelineScan
+
+/**
+ * Bit flags describing what became of a scan, combined into one Int for [FeedbackRuleEngine.evaluate].
+ */
+object ScanOutcome {
+
+    const val ACCEPTED = 1
+    const val REJECTED = 1 shl 1
+    const val DUPLICATE = 1 shl 2
+    const val GS1 = 1 shl 3
+    const val LOOKUP_HIT = 1 shl 4
+    const val LOOKUP_MISS = 1 shl 5
+
+    /**
+     * Number of outcome bits, all combinations are below 1 shl [COUNT].
+     */
+    const val COUNT = 6
+
+    /**
+     * Returns the outcomes of a scan at the end of a [de.proglove.example.common.pipeline.ScanPipeline].
+     */
+    @JvmStatic
+    fun of(scan: PipelineScan): Int {
+        var outcomes = if (scan.isRejected) REJECTED else ACCEPTED
+        if (scan.gs1.count > 0) {
+            outcomes = outcomes or GS1
+        }
+        when (scan.lookup) {
+            PipelineScan.Lookup.HIT -> outcomes = outcomes or LOOKUP_HIT
+            PipelineScan.Lookup.MISS -> outcomes = outcomes or LOOKUP_MISS
+            PipelineScan.Lookup.NONE -> Unit
+        }
+        return outcomes
+    }
+}
@@ -0,0 +1,243 @@
+package de.proglove.example.common.image
+
+import de.proglove.example.common.metrics.LatencyHistogram
+import java.util.concurrent.TimeUnit
+
+/**
+ * Picks the image capture setting and timeout from the transfer times measured on this device.
+ *
+ * The [candidates] are ordered from the most to the least desirable setting, e.g. from high resolution and quality
+ * down to low resolution and quality. [next] returns the first candidate whose recent captures arrived within the
+ * [latencyBudgetMs], judged by the median of its last [WINDOW_SIZE] captures. A candidate without captures is
+ * assumed to be fast enough, so the controller starts at the top and steps down on a congested link. A failed
+ * capture puts its setting over budget right away, so the next capture steps down. Every [probeInterval] captures
+ * the candidate above the current one is tried again with a fresh window, so the controller steps up once the link
+ * got better.
+ *
+ * The timeout of a capture is [TIMEOUT_FACTOR] times the p99 of the last [TIMEOUT_WINDOW_SIZE] successful transfer
+ * times of its setting, within [minTimeoutMs] and [maxTimeoutMs]. Until a setting has [MIN_SAMPLES_FOR_TIMEOUT]
+ * successful captures, [defaultTimeoutMs] is used. Failed captures are left out, so a run of timeouts does not
+ * raise the timeout for good, and the timeout follows the link back down once it got faster.
+ *
+ * The controller is safe to use from any thread.
+ *
+ * @param R the type of the image resolution, e.g. the SDK's `ImageResolution`.
+ * @param candidates settings to choose from, most desirable first.
+ * @param latencyBudgetMs transfer time a capture should stay within.
+ */
+class AdaptiveCaptureController<R : Any> @JvmOverloads constructor(
+    candidates: List<Setting<R>>,
+    private val latencyBudgetMs: Long,
+    private val defaultTimeoutMs: Long = DEFAULT_TIMEOUT_MS,
+    private val minTimeoutMs: Long = DEFAULT_MIN_TIMEOUT_MS,
+    private val maxTimeoutMs: Long = DEFAULT_MAX_TIMEOUT_MS,
+    private val probeInterval: Int = DEFAULT_PROBE_INTERVAL
+) {
+
+    /**
+     * An image resolution and a JPEG quality from 0 to 100.
+     */
+    data class Setting<R>(val resolution: R, val quality: Int)
+
+    /**
+     * One capture requested with [setting] and [timeoutMs], to be reported with [onReceived] or [onFailed].
+     */
+    class Attempt<R> internal constructor(
+        val setting: Setting<R>,
+        val timeoutMs: Long,
+        internal val index: Int,
+        internal val startedAtNanos: Long
+    )
+
+    /**
+     * Measurements of one setting.
+     */
+    data class SettingMetrics<R>(
+        val setting: Setting<R>,
+        val received: Long,
+        val failed: Long,
+        val medianMs: Long,
+        val p99Ms: Long,
+        val averageBytes: Long,
+        val bytesPerSecond: Long
+    )
+
+    private val settings = candidates.toList()
+    private val stats = Array(settings.size) { SettingStats() }
+    private var current = 0
+    private var capturesSinceProbe = 0
+
+    init {
+        require(settings.isNotEmpty()) { "candidates must not be empty" }
+        require(latencyBudgetMs > 0) { "latencyBudgetMs must be positive, was $latencyBudgetMs" }
+        require(minTimeoutMs in 1..maxTimeoutMs) { "invalid timeout range $minTimeoutMs..$maxTimeoutMs" }
+        require(probeInterval > 0) { "probeInterval must be positive, was $probeInterval" }
+    }
+
+    /**
+     * Returns the setting and timeout for the next capture.
+     */
+    @Synchronized
+    fun next(): Attempt<R> {
+        current = settings.indices.firstOrNull { stats[it].withinBudget() } ?: settings.size - 1
+        var index = current
+        if (current > 0 && ++capturesSinceProbe >= probeInterval) {
+            // try the next better setting again, judged by this capture only
+            capturesSinceProbe = 0
+            index = current - 1
+            stats[index].clearWindow()
+        }
+        return Attempt(settings[index], timeoutFor(stats[index]), index, System.nanoTime())
+    }
+
+    /**
+     * Records that the image of [attempt] arrived with [byteCount] bytes.
+     */
+    @Synchronized
+    fun onReceived(attempt: Attempt<R>, byteCount: Int) {
+        val elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startedAtNanos)
+        stats[attempt.index].record(elapsedMs, byteCount)
+    }
+
+    /**
+     * Records that [attempt] failed, e.g. timed out. Its setting counts as over budget until it is probed again.
+     */
+    @Synchronized
+    fun onFailed(attempt: Attempt<R>) {
+        stats[attempt.index].recordFailure()
+    }
+
+    /**
+     * Returns the measurements of all candidates, in candidate order.
+     */
+    @Synchronized
+    fun metrics(): List<SettingMetrics<R>> {
+        return settings.indices.map { i ->
+            val stat = stats[i]
+            SettingMetrics(
+                setting = settings[i],
+                received = stat.received,
+                failed = stat.failed,
+                medianMs = stat.medianMs(),
+                p99Ms = if (stat.histogram.count > 0) stat.histogram.valueAtPercentile(99.0) else 0L,
+                averageBytes = if (stat.received > 0) stat.bytes / stat.received else 0L,
+                bytesPerSecond = if (stat.receivedMs > 0) stat.bytes * MILLIS_PER_SECOND / stat.receivedMs else 0L
+            )
+        }
+    }
+
+    private fun timeoutFor(stat: SettingStats): Long {
+        if (stat.transfers.count < MIN_SAMPLES_FOR_TIMEOUT) {
+            return defaultTimeoutMs
+        }
+        val p99 = stat.transfers.valueAtPercentile(99.0)
+        return (p99 * TIMEOUT_FACTOR).toLong().coerceIn(minTimeoutMs, maxTimeoutMs)
+    }
+
+    /**
+     * Transfer times of one setting: all of them in a histogram and the most recent ones in a ring for the budget and
+     * another for the timeout.
+     */
+    private inner class SettingStats {
+
+        val histogram = LatencyHistogram(HIGHEST_TRACKABLE_MS)
+        val transfers = RecentValues(TIMEOUT_WINDOW_SIZE)
+        private val window = RecentValues(WINDOW_SIZE)
+        private var failedSinceProbe = false
+
+        var received = 0L
+        var failed = 0L
+        var bytes = 0L
+        var receivedMs = 0L
+
+        fun record(elapsedMs: Long, byteCount: Int) {
+            received++
+            bytes += byteCount
+            receivedMs += elapsedMs
+            histogram.recordValue(elapsedMs)
+            transfers.add(elapsedMs)
+            window.add(elapsedMs)
+        }
+
+        fun recordFailure() {
+            failed++
+            failedSinceProbe = true
+        }
+
+        fun withinBudget(): Boolean = !failedSinceProbe && (window.count == 0 || medianMs() <= latencyBudgetMs)
+
+        fun medianMs(): Long = if (window.count == 0) 0L else window.valueAtPercentile(50.0)
+
+        fun clearWindow() {
+            window.clear()
+            failedSinceProbe = false
+        }
+    }
+
+    /**
+     * Ring of the last [capacity] values.
+     */
+    private class RecentValues(capacity: Int) {
+
+        private val values = LongArray(capacity)
+        private var next = 0
+
+        var count = 0
+            private set
+
+        fun add(value: Long) {
+            values[next] = value
+            next = (next + 1) % values.size
+            if (count < values.size) {
+                count++
+            }
+        }
+
+        /**
+         * Returns the smallest value that at least [percentile] percent of the values are less than or equal to.
+         * Call only while [count] is positive.
+         */
+        fun valueAtPercentile(percentile: Double): Long {
+            val sorted = values.copyOf(count)
+            sorted.sort()
+            val rank = Math.ceil(percentile / 100.0 * count).toInt()
+            return sorted[(rank - 1).coerceIn(0, count - 1)]
+        }
+
+        fun clear() {
+            count = 0
+            next = 0
+        }
+    }
+
+    companion object {
+
+        /**
+         * Number of recent captures a setting is judged by.
+         */
+        const val WINDOW_SIZE = 8
+
+        /**
+         * Number of recent successful transfers the timeout of a setting is derived from.
+         */
+        const val TIMEOUT_WINDOW_SIZE = 32
+
+        /**
+         * Captures of a setting before its timeout is derived from its transfer times.
+         */
+        const val MIN_SAMPLES_FOR_TIMEOUT = 5
+
+        /**
+         * Headroom of the timeout above the p99 transfer time.
+         */
+        const val TIMEOUT_FACTOR = 1.5
+
+        const val DEFAULT_TIMEOUT_MS = 10_000L
+        const val DEFAULT_MIN_TIMEOUT_MS = 2_000L
+        const val DEFAULT_MAX_TIMEOUT_MS = 30_000L
+        const val DEFAULT_PROBE_INTERVAL = 10
+
+        private const val HIGHEST_TRACKABLE_MS = 600_000L
+        private const val MILLIS_PER_SECOND = 1_000L
+    }
+}
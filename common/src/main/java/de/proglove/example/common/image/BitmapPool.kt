@@ -0,0 +1,162 @@
+package de.proglove.example.common.image
+
+import android.graphics.Bitmap
+import android.os.Build
+
+/**
+ * Pool of mutable bitmaps to decode into with `BitmapFactory.Options.inBitmap`, so repeated image captures reuse
+ * their pixel memory instead of allocating a new multi-megabyte bitmap each time.
+ *
+ * Bitmaps are kept in buckets by the power of two at or above their allocation size. From API 19 on a decode can
+ * reuse any bitmap at least as large as the result, so [get] takes the first bitmap of the smallest bucket that
+ * fits. Before API 19 only a bitmap of exactly the requested size and config can be reused.
+ *
+ * The pool holds at most [maxBytes] and evicts from its largest bucket first. It is safe to use from any thread.
+ *
+ * @param maxBytes maximum total allocation size of the pooled bitmaps.
+ */
+class BitmapPool(private val maxBytes: Long = DEFAULT_MAX_BYTES) {
+
+    /**
+     * Point-in-time view of the pool counters.
+     */
+    data class Metrics(
+        val pooledBitmaps: Int,
+        val pooledBytes: Long,
+        val hits: Long,
+        val misses: Long,
+        val evictions: Long
+    )
+
+    private val buckets = arrayOfNulls<ArrayDeque<Bitmap>>(BUCKET_COUNT)
+    private var pooledBitmaps = 0
+    private var pooledBytes = 0L
+    private var hits = 0L
+    private var misses = 0L
+    private var evictions = 0L
+
+    init {
+        require(maxBytes >= 0) { "maxBytes must not be negative, was $maxBytes" }
+    }
+
+    /**
+     * Removes and returns a bitmap that a decode of [width] x [height] pixels in [config] can reuse, or null if the
+     * pool has none.
+     */
+    @Synchronized
+    fun get(width: Int, height: Int, config: Bitmap.Config): Bitmap? {
+        val needed = byteCount(width, height, config)
+        val exactOnly = Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
+        for (index in bucketIndex(needed) until BUCKET_COUNT) {
+            val bucket = buckets[index] ?: continue
+            val iterator = bucket.iterator()
+            while (iterator.hasNext()) {
+                val bitmap = iterator.next()
+                val fits = if (exactOnly) {
+                    bitmap.width == width && bitmap.height == height && bitmap.config == config
+                } else {
+                    allocationSize(bitmap) >= needed
+                }
+                if (fits) {
+                    iterator.remove()
+                    pooledBitmaps--
+                    pooledBytes -= allocationSize(bitmap)
+                    hits++
+                    return bitmap
+                }
+            }
+            if (exactOnly) {
+                // an exact match can only be in the bucket of its own size
+                break
+            }
+        }
+        misses++
+        return null
+    }
+
+    /**
+     * Hands [bitmap] back for reuse. Immutable or recycled bitmaps and bitmaps larger than the pool are recycled
+     * instead. The caller must not use the bitmap afterwards.
+     */
+    @Synchronized
+    fun put(bitmap: Bitmap) {
+        val size = allocationSize(bitmap)
+        if (bitmap.isRecycled || !bitmap.isMutable || size > maxBytes) {
+            bitmap.recycle()
+            return
+        }
+        val index = bucketIndex(size)
+        val bucket = buckets[index] ?: ArrayDeque<Bitmap>().also { buckets[index] = it }
+        bucket.addLast(bitmap)
+        pooledBitmaps++
+        pooledBytes += size
+        trimTo(maxBytes)
+    }
+
+    /**
+     * Recycles all pooled bitmaps.
+     */
+    @Synchronized
+    fun clear() {
+        trimTo(0L)
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     */
+    @Synchronized
+    fun metrics(): Metrics = Metrics(pooledBitmaps, pooledBytes, hits, misses, evictions)
+
+    private fun trimTo(limit: Long) {
+        var index = BUCKET_COUNT - 1
+        while (pooledBytes > limit && index >= 0) {
+            val bitmap = buckets[index]?.removeFirstOrNull()
+            if (bitmap == null) {
+                index--
+                continue
+            }
+            pooledBitmaps--
+            pooledBytes -= allocationSize(bitmap)
+            evictions++
+            bitmap.recycle()
+        }
+    }
+
+    companion object {
+
+        /**
+         * Room for two captures at the highest image resolution of 1280 x 960 in ARGB_8888.
+         */
+        const val DEFAULT_MAX_BYTES = 2L * 1280 * 960 * 4
+
+        private const val BUCKET_COUNT = 32
+
+        /**
+         * Bytes a bitmap of [width] x [height] pixels in [config] needs.
+         */
+        @JvmStatic
+        fun byteCount(width: Int, height: Int, config: Bitmap.Config): Long {
+            val bytesPerPixel = when (config) {
+                Bitmap.Config.ALPHA_8 -> 1
+                Bitmap.Config.RGB_565, Bitmap.Config.ARGB_4444 -> 2
+                else -> 4
+            }
+            return width.toLong() * height * bytesPerPixel
+        }
+
+        private fun allocationSize(bitmap: Bitmap): Long {
+            return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                bitmap.allocationByteCount.toLong()
+            } else {
+                bitmap.byteCount.toLong()
+            }
+        }
+
+        private fun bucketIndex(bytes: Long): Int {
+            if (bytes <= 1L) {
+                return 0
+            }
+            return minOf(BUCKET_COUNT - 1, 64 - java.lang.Long.numberOfLeadingZeros(bytes - 1))
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package de.proglove.example.common.image
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.os.Build
+import android.util.Log
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Decodes captured JPEG images off the main thread, downsampled to the size they are shown at.
+ *
+ * Decoding runs on a dedicated thread, so neither the SDK callback lanes nor the main thread are blocked by it. The
+ * image is decoded with the largest power of two `inSampleSize` that keeps it at least as large as the target size,
+ * in RGB_565 since JPEGs have no alpha, and into a bitmap from the [pool] where possible. A 1280 x 960 capture shown
+ * in a small view thus needs a fraction of the memory of a full decode, and repeated captures reuse the same pixel
+ * memory instead of producing garbage.
+ *
+ * Only the newest request is decoded: a request still waiting when a newer one arrives is skipped and its callback
+ * receives null. Bitmaps no longer shown should be handed back with [release].
+ *
+ * @param pool pool the decoded bitmaps are taken from and [release]d to.
+ * @param executor executor decoding runs on, a dedicated single thread by default.
+ */
+class ScaledBitmapDecoder @JvmOverloads constructor(
+    private val pool: BitmapPool = BitmapPool(),
+    private val executor: Executor = newDecodeExecutor()
+) {
+
+    /**
+     * Receives the result of a [decode], on the decoding thread.
+     */
+    fun interface Callback {
+
+        /**
+         * Called with the decoded bitmap, or null if the image could not be decoded or a newer request replaced it.
+         */
+        fun onDecoded(bitmap: Bitmap?)
+    }
+
+    /**
+     * Point-in-time view of the decoder counters.
+     */
+    data class Metrics(
+        val decoded: Long,
+        val skipped: Long,
+        val failed: Long,
+        val pool: BitmapPool.Metrics
+    )
+
+    private val latestRequest = AtomicLong()
+    private val decoded = AtomicLong()
+    private val skipped = AtomicLong()
+    private val failed = AtomicLong()
+
+    /**
+     * Decodes the JPEG [bytes] to fit [targetWidth] x [targetHeight] pixels and passes the bitmap to [callback].
+     *
+     * The array is read on the decoding thread, so the caller must not modify it afterwards.
+     */
+    fun decode(bytes: ByteArray, targetWidth: Int, targetHeight: Int, callback: Callback) {
+        val request = latestRequest.incrementAndGet()
+        executor.execute {
+            if (request != latestRequest.get()) {
+                skipped.incrementAndGet()
+                callback.onDecoded(null)
+                return@execute
+            }
+            val bitmap = decodeNow(bytes, targetWidth, targetHeight)
+            if (bitmap == null) {
+                failed.incrementAndGet()
+            } else {
+                decoded.incrementAndGet()
+            }
+            callback.onDecoded(bitmap)
+        }
+    }
+
+    /**
+     * Hands a bitmap returned by [decode] back for reuse, once it is no longer shown.
+     */
+    fun release(bitmap: Bitmap) {
+        pool.put(bitmap)
+    }
+
+    /**
+     * Returns a snapshot of the decoder counters.
+     */
+    fun metrics(): Metrics = Metrics(decoded.get(), skipped.get(), failed.get(), pool.metrics())
+
+    /**
+     * Frees the pooled bitmaps.
+     */
+    fun clear() {
+        pool.clear()
+    }
+
+    private fun decodeNow(bytes: ByteArray, targetWidth: Int, targetHeight: Int): Bitmap? {
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.size, options)
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(TAG, "Image of ${bytes.size} bytes has no valid bounds")
+            return null
+        }
+
+        val sampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight)
+        options.inJustDecodeBounds = false
+        options.inSampleSize = sampleSize
+        options.inPreferredConfig = CONFIG
+        options.inMutable = true
+        // before API 19 inBitmap only works for decodes at full size
+        if (sampleSize == 1 || Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            options.inBitmap = pool.get(
+                ceilDiv(options.outWidth, sampleSize),
+                ceilDiv(options.outHeight, sampleSize),
+                CONFIG
+            )
+        }
+
+        val reused = options.inBitmap
+        return try {
+            decodeOrNull(bytes, options)
+        } catch (e: IllegalArgumentException) {
+            // the decoder did not accept the pooled bitmap, decode into a new one
+            Log.w(TAG, "Could not reuse pooled bitmap", e)
+            reused?.recycle()
+            options.inBitmap = null
+            decodeOrNull(bytes, options)
+        }
+    }
+
+    private fun decodeOrNull(bytes: ByteArray, options: BitmapFactory.Options): Bitmap? {
+        return try {
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.size, options)
+        } catch (e: OutOfMemoryError) {
+            Log.w(TAG, "Out of memory decoding image of ${bytes.size} bytes", e)
+            pool.clear()
+            null
+        }
+    }
+
+    companion object {
+
+        private const val TAG = "ScaledBitmapDecoder"
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        private val CONFIG = Bitmap.Config.RGB_565
+
+        /**
+         * Returns the largest power of two sample size that keeps an image of [width] x [height] pixels at least
+         * [targetWidth] x [targetHeight] large. Non-positive target dimensions do not limit the sample size.
+         */
+        @JvmStatic
+        fun calculateInSampleSize(width: Int, height: Int, targetWidth: Int, targetHeight: Int): Int {
+            if (targetWidth <= 0 && targetHeight <= 0) {
+                return 1
+            }
+            var sampleSize = 1
+            while (fits(width / (sampleSize * 2), targetWidth) && fits(height / (sampleSize * 2), targetHeight)) {
+                sampleSize *= 2
+            }
+            return sampleSize
+        }
+
+        private fun fits(size: Int, target: Int): Boolean = size > 0 && (target <= 0 || size >= target)
+
+        private fun ceilDiv(value: Int, divisor: Int): Int = (value + divisor - 1) / divisor
+
+        private fun newDecodeExecutor(): Executor {
+            return ThreadPoolExecutor(
+                1,
+                1,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                LinkedBlockingQueue()
+            ) { runnable ->
+                Thread(runnable, "image-decode").also { it.priority = Thread.NORM_PRIORITY - 1 }
+            }.also {
+                it.allowCoreThreadTimeOut(true)
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.proglove.example.common.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Fixed-memory latency histogram in the style of HdrHistogram.
+ *
+ * Values below 128 get a bucket each. Above that every power of two range is split into 64 linear sub-buckets, so a
+ * recorded value is off by at most 1/64 of itself. All buckets are allocated up front and recording only increments
+ * atomic counters, which keeps it allocation and lock free on the hot path.
+ *
+ * Values are plain numbers, callers decide on the unit. Values above [highestTrackableValue] count as that value.
+ *
+ * @param highestTrackableValue largest value the histogram tells apart.
+ */
+class LatencyHistogram(val highestTrackableValue: Long = DEFAULT_HIGHEST_TRACKABLE_VALUE) {
+
+    private val counts: AtomicLongArray
+    private val totalCount = AtomicLong()
+    private val maxValue = AtomicLong()
+
+    init {
+        require(highestTrackableValue >= SUB_BUCKET_COUNT) {
+            "highestTrackableValue must be at least $SUB_BUCKET_COUNT, was $highestTrackableValue"
+        }
+        counts = AtomicLongArray(indexOf(highestTrackableValue) + 1)
+    }
+
+    /**
+     * Number of recorded values.
+     */
+    val count: Long
+        get() = totalCount.get()
+
+    /**
+     * Largest recorded value, 0 if nothing was recorded yet.
+     */
+    val max: Long
+        get() = maxValue.get()
+
+    /**
+     * Records one [value]. Negative values count as 0.
+     */
+    fun recordValue(value: Long) {
+        val clamped = when {
+            value < 0 -> 0L
+            value > highestTrackableValue -> highestTrackableValue
+            else -> value
+        }
+        counts.incrementAndGet(indexOf(clamped))
+        totalCount.incrementAndGet()
+        updateMax(clamped)
+    }
+
+    /**
+     * Returns the value below or at which [percentile] percent of the recorded values lie, e.g. 99.9 for the p999.
+     * The result is the upper end of the matching bucket, capped at [max].
+     */
+    fun valueAtPercentile(percentile: Double): Long {
+        var total = 0L
+        for (i in 0 until counts.length()) {
+            total += counts.get(i)
+        }
+        if (total == 0L) {
+            return 0L
+        }
+        val target = Math.max(1L, Math.ceil(percentile.coerceIn(0.0, 100.0) / 100.0 * total).toLong())
+        var seen = 0L
+        for (i in 0 until counts.length()) {
+            seen += counts.get(i)
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max)
+            }
+        }
+        return max
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    fun reset() {
+        for (i in 0 until counts.length()) {
+            counts.set(i, 0L)
+        }
+        totalCount.set(0L)
+        maxValue.set(0L)
+    }
+
+    private fun updateMax(value: Long) {
+        while (true) {
+            val current = maxValue.get()
+            if (value <= current || maxValue.compareAndSet(current, value)) {
+                return
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * One minute in microseconds.
+         */
+        const val DEFAULT_HIGHEST_TRACKABLE_VALUE = 60_000_000L
+
+        private const val SUB_BUCKET_BITS = 7
+        private const val SUB_BUCKET_COUNT = 1 shl SUB_BUCKET_BITS
+        private const val SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2
+
+        internal fun indexOf(value: Long): Int {
+            if (value < SUB_BUCKET_COUNT) {
+                return value.toInt()
+            }
+            // shift the value into [SUB_BUCKET_HALF_COUNT, SUB_BUCKET_COUNT)
+            val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1)
+            val subBucket = (value ushr shift).toInt()
+            return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket - SUB_BUCKET_HALF_COUNT
+        }
+
+        internal fun highestEquivalentValue(index: Int): Long {
+            if (index < SUB_BUCKET_COUNT) {
+                return index.toLong()
+            }
+            val shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1
+            val subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT
+            return ((subBucket + 1).toLong() shl shift) - 1
+        }
+    }
+}
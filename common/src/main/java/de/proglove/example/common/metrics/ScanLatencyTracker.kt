@@ -0,0 +1,150 @@
+package de.proglove.example.common.metrics
+
+import android.util.Log
+import java.io.File
+import java.io.IOException
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Measures how long it takes from a received scan to the app's reaction to it.
+ *
+ * [scanReceived] takes a monotonic timestamp and returns a token for the scan. Each later [record] of a [Stage] for
+ * that token adds the time since receipt to the [LatencyHistogram] of the stage. Timestamps live in a fixed ring of
+ * [capacity] slots, so recording neither allocates nor locks; a token whose slot was reused by a newer scan is no
+ * longer recorded.
+ *
+ * [report] summarizes p50, p99 and p999 per stage in microseconds, [logReport] and [writeReport] dump it on demand.
+ *
+ * @param capacity number of scans tracked at the same time, a power of two.
+ */
+class ScanLatencyTracker(capacity: Int = DEFAULT_CAPACITY) {
+
+    /**
+     * Stages after the scan receipt. Each is measured from the receipt of the scan.
+     */
+    enum class Stage(val label: String) {
+        PROCESSED("scan -> processed"),
+        FEEDBACK_SENT("scan -> feedback sent"),
+        FEEDBACK_ACKED("scan -> feedback ack")
+    }
+
+    private val mask: Int
+    private val sequence = AtomicLong()
+    private val tokens = AtomicLongArray(capacity)
+    private val receivedAtNanos = AtomicLongArray(capacity)
+    private val stages = Stage.values()
+    private val histograms = Array(stages.size) { LatencyHistogram() }
+
+    init {
+        require(capacity > 0 && capacity and (capacity - 1) == 0) {
+            "capacity must be a power of two, was $capacity"
+        }
+        mask = capacity - 1
+    }
+
+    /**
+     * Stamps the receipt of a scan and returns its token for [record].
+     */
+    fun scanReceived(): Long {
+        val now = System.nanoTime()
+        val token = sequence.incrementAndGet()
+        val slot = (token and mask.toLong()).toInt()
+        // invalidate the slot while rewriting it, so a concurrent record never pairs the old token with the new time
+        tokens.set(slot, NO_SCAN)
+        receivedAtNanos.set(slot, now)
+        tokens.set(slot, token)
+        return token
+    }
+
+    /**
+     * Records the time since the receipt of the scan with [token] for [stage].
+     *
+     * @return false if the token is unknown or its slot was reused already.
+     */
+    fun record(token: Long, stage: Stage): Boolean {
+        if (token == NO_SCAN) {
+            return false
+        }
+        val now = System.nanoTime()
+        val slot = (token and mask.toLong()).toInt()
+        if (tokens.get(slot) != token) {
+            return false
+        }
+        val receivedAt = receivedAtNanos.get(slot)
+        if (tokens.get(slot) != token) {
+            return false
+        }
+        histograms[stage.ordinal].recordValue((now - receivedAt) / NANOS_PER_MICRO)
+        return true
+    }
+
+    /**
+     * Returns the histogram of [stage], in microseconds.
+     */
+    fun histogram(stage: Stage): LatencyHistogram = histograms[stage.ordinal]
+
+    /**
+     * Forgets all recorded latencies.
+     */
+    fun reset() {
+        histograms.forEach { it.reset() }
+    }
+
+    /**
+     * Returns a table of count, p50, p99, p999 and max per stage, in microseconds.
+     */
+    fun report(): String {
+        val builder = StringBuilder()
+        builder.append(String.format(Locale.US, REPORT_FORMAT, "stage", "count", "p50", "p99", "p999", "max"))
+        for (stage in stages) {
+            val histogram = histograms[stage.ordinal]
+            builder.append(
+                String.format(
+                    Locale.US,
+                    REPORT_FORMAT,
+                    stage.label,
+                    histogram.count.toString(),
+                    histogram.valueAtPercentile(50.0).toString(),
+                    histogram.valueAtPercentile(99.0).toString(),
+                    histogram.valueAtPercentile(99.9).toString(),
+                    histogram.max.toString()
+                )
+            )
+        }
+        return builder.toString()
+    }
+
+    /**
+     * Writes the [report] to logcat, one line per stage.
+     */
+    fun logReport() {
+        report().lineSequence().filter { it.isNotEmpty() }.forEach { Log.i(TAG, it) }
+    }
+
+    /**
+     * Writes the [report] to [file], replacing its content.
+     */
+    @Throws(IOException::class)
+    fun writeReport(file: File) {
+        file.writeText(report())
+    }
+
+    companion object {
+
+        private const val TAG = "ScanLatency"
+
+        const val NO_SCAN = 0L
+        const val DEFAULT_CAPACITY = 256
+
+        private const val NANOS_PER_MICRO = 1_000L
+        private const val REPORT_FORMAT = "%-24s %8s %10s %10s %10s %10s\n"
+
+        /**
+         * Process wide tracker shared by the scan and feedback paths of an app.
+         */
+        @JvmStatic
+        val shared: ScanLatencyTracker by lazy { ScanLatencyTracker() }
+    }
+}
@@ -0,0 +1,124 @@
+package de.proglove.example.common.metrics
+
+import android.util.Log
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Records when an app reaches the [Milestone]s of its start, from the creation of the application to the first scan.
+ *
+ * Each milestone is stamped once with a monotonic timestamp, later [mark]s of the same milestone are ignored. Times
+ * are reported relative to [Milestone.APPLICATION_CREATED], or to the earliest milestone reached if the application
+ * was not marked. Marking neither allocates nor locks, so it can be done from any callback thread.
+ */
+class StartupTrace {
+
+    /**
+     * Steps of an app start, in their usual order.
+     */
+    enum class Milestone(val label: String) {
+        APPLICATION_CREATED("application created"),
+        SERVICE_BIND_REQUESTED("service bind requested"),
+        ACTIVITY_CREATED("activity created"),
+        SERVICE_BOUND("service bound"),
+        SCANNER_CONNECTED("scanner connected"),
+        FIRST_SCAN("first scan")
+    }
+
+    private val milestones = Milestone.values()
+    private val reachedAtNanos = AtomicLongArray(milestones.size)
+
+    /**
+     * Stamps [milestone] with the current time, unless it was reached before.
+     *
+     * @return true if this call reached the milestone.
+     */
+    fun mark(milestone: Milestone): Boolean {
+        val now = System.nanoTime()
+        // 0 marks a milestone not reached yet
+        return reachedAtNanos.compareAndSet(milestone.ordinal, NOT_REACHED, if (now == NOT_REACHED) 1L else now)
+    }
+
+    /**
+     * True if [milestone] was reached.
+     */
+    fun isReached(milestone: Milestone): Boolean = reachedAtNanos.get(milestone.ordinal) != NOT_REACHED
+
+    /**
+     * Returns the milliseconds from the start of the trace to [milestone], or -1 if it was not reached.
+     */
+    fun elapsedMs(milestone: Milestone): Long {
+        val reachedAt = reachedAtNanos.get(milestone.ordinal)
+        if (reachedAt == NOT_REACHED) {
+            return -1L
+        }
+        return (reachedAt - originNanos()) / NANOS_PER_MILLI
+    }
+
+    /**
+     * Forgets all milestones, e.g. to trace the next start of an activity.
+     */
+    fun reset() {
+        for (i in milestones.indices) {
+            reachedAtNanos.set(i, NOT_REACHED)
+        }
+    }
+
+    /**
+     * Returns a table of the milliseconds to each milestone, "-" for milestones not reached.
+     *
+     * @param label headline of the report, e.g. the device model.
+     */
+    fun report(label: String = ""): String {
+        val builder = StringBuilder()
+        if (label.isNotEmpty()) {
+            builder.append(label).append('\n')
+        }
+        builder.append(String.format(Locale.US, REPORT_FORMAT, "milestone", "ms"))
+        for (milestone in milestones) {
+            val elapsed = elapsedMs(milestone)
+            builder.append(
+                String.format(Locale.US, REPORT_FORMAT, milestone.label, if (elapsed < 0) "-" else elapsed.toString())
+            )
+        }
+        return builder.toString()
+    }
+
+    /**
+     * Writes the [report] to logcat, one line per milestone.
+     */
+    @JvmOverloads
+    fun logReport(label: String = "") {
+        report(label).lineSequence().filter { it.isNotEmpty() }.forEach { Log.i(TAG, it) }
+    }
+
+    private fun originNanos(): Long {
+        val applicationCreated = reachedAtNanos.get(Milestone.APPLICATION_CREATED.ordinal)
+        if (applicationCreated != NOT_REACHED) {
+            return applicationCreated
+        }
+        var origin = Long.MAX_VALUE
+        for (i in milestones.indices) {
+            val reachedAt = reachedAtNanos.get(i)
+            if (reachedAt != NOT_REACHED && (origin == Long.MAX_VALUE || reachedAt - origin < 0)) {
+                origin = reachedAt
+            }
+        }
+        return origin
+    }
+
+    companion object {
+
+        private const val TAG = "StartupTrace"
+
+        private const val NOT_REACHED = 0L
+        private const val NANOS_PER_MILLI = 1_000_000L
+        private const val REPORT_FORMAT = "%-24s %8s\n"
+
+        /**
+         * Process wide trace of the app start.
+         */
+        @JvmStatic
+        val shared: StartupTrace by lazy { StartupTrace() }
+    }
+}
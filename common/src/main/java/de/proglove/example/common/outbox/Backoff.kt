@@ -0,0 +1,44 @@
+package de.proglove.example.common.outbox
+
+import java.util.Random
+
+/**
+ * Exponential backoff with full jitter.
+ *
+ * The delay before retry number `attempt` is drawn uniformly from 0 up to [initialDelayMs] * 2^attempt, capped at
+ * [maxDelayMs]. The jitter keeps many devices coming back from the same dead zone from retrying in lockstep.
+ *
+ * @param initialDelayMs upper bound of the first delay.
+ * @param maxDelayMs upper bound of all delays.
+ */
+class Backoff @JvmOverloads constructor(
+    private val initialDelayMs: Long = DEFAULT_INITIAL_DELAY_MS,
+    private val maxDelayMs: Long = DEFAULT_MAX_DELAY_MS,
+    private val random: Random = Random()
+) {
+
+    init {
+        require(initialDelayMs > 0) { "initialDelayMs must be positive, was $initialDelayMs" }
+        require(maxDelayMs >= initialDelayMs) { "maxDelayMs must not be below initialDelayMs, was $maxDelayMs" }
+    }
+
+    /**
+     * Returns the delay before retry number [attempt], counting from 0, in milliseconds.
+     */
+    fun delayMs(attempt: Int): Long {
+        val ceiling = if (attempt >= MAX_SHIFT || initialDelayMs > maxDelayMs shr attempt) {
+            maxDelayMs
+        } else {
+            initialDelayMs shl attempt
+        }
+        return 1L + (random.nextDouble() * ceiling).toLong()
+    }
+
+    companion object {
+
+        const val DEFAULT_INITIAL_DELAY_MS = 500L
+        const val DEFAULT_MAX_DELAY_MS = 60_000L
+
+        private const val MAX_SHIFT = 62
+    }
+}
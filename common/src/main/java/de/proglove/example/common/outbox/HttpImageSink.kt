@@ -0,0 +1,95 @@
+package de.proglove.example.common.outbox
+
+import de.proglove.example.common.storage.ImageStore
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+
+/**
+ * [ImageSink] posting each capture as `image/jpeg` to [url] with [HttpURLConnection].
+ *
+ * The file is streamed from disk in small chunks, so an upload does not load the image into memory. The capture name
+ * is sent in the [HttpScanSink.BATCH_ID_HEADER] header and its CRC32 in the [CHECKSUM_HEADER] header, for the
+ * receiver to detect repeated and damaged uploads. Answers are handled like in [HttpScanSink].
+ *
+ * @param url endpoint receiving the captures.
+ * @param connectTimeoutMs timeout for establishing the connection.
+ * @param readTimeoutMs timeout for the answer.
+ */
+class HttpImageSink @JvmOverloads constructor(
+    private val url: URL,
+    private val connectTimeoutMs: Int = HttpScanSink.DEFAULT_TIMEOUT_MS,
+    private val readTimeoutMs: Int = HttpScanSink.DEFAULT_TIMEOUT_MS
+) : ImageSink {
+
+    override fun deliver(capture: ImageStore.Capture) {
+        val connection = url.openConnection() as HttpURLConnection
+        var answerRead = false
+        try {
+            connection.requestMethod = "POST"
+            connection.doOutput = true
+            connection.connectTimeout = connectTimeoutMs
+            connection.readTimeout = readTimeoutMs
+            connection.setFixedLengthStreamingMode(capture.size.toInt())
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE)
+            connection.setRequestProperty(HttpScanSink.BATCH_ID_HEADER, capture.name)
+            connection.setRequestProperty(CHECKSUM_HEADER, java.lang.Long.toHexString(capture.crc32))
+            FileInputStream(capture.file).use { input ->
+                connection.outputStream.use { output ->
+                    val buffer = ByteArray(BUFFER_SIZE)
+                    while (true) {
+                        val read = input.read(buffer)
+                        if (read < 0) {
+                            break
+                        }
+                        output.write(buffer, 0, read)
+                    }
+                }
+            }
+
+            val status = connection.responseCode
+            when {
+                status in 200..299 -> drain(connection.inputStream)
+                // the error stream is null when the answer has no body
+                status == HTTP_CONFLICT -> connection.errorStream?.let { drain(it) }
+                status == HTTP_CLIENT_TIMEOUT || status == HTTP_TOO_MANY_REQUESTS || status >= 500 ->
+                    throw ScanSink.DeliveryException("capture ${capture.name} answered with HTTP $status", true)
+                else ->
+                    throw ScanSink.DeliveryException("capture ${capture.name} rejected with HTTP $status", false)
+            }
+            answerRead = true
+        } finally {
+            // a fully read answer leaves the connection to the keep-alive pool, anything else closes it
+            if (!answerRead) {
+                connection.disconnect()
+            }
+        }
+    }
+
+    /**
+     * Reads the answer to its end, which lets the connection be reused for the next capture.
+     */
+    @Throws(IOException::class)
+    private fun drain(stream: InputStream) {
+        stream.use { input ->
+            val buffer = ByteArray(DRAIN_BUFFER_SIZE)
+            while (input.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    companion object {
+
+        const val CHECKSUM_HEADER = "X-Checksum-CRC32"
+
+        private const val CONTENT_TYPE = "image/jpeg"
+        private const val HTTP_CLIENT_TIMEOUT = 408
+        private const val HTTP_CONFLICT = 409
+        private const val HTTP_TOO_MANY_REQUESTS = 429
+        private const val BUFFER_SIZE = 16 * 1024
+        private const val DRAIN_BUFFER_SIZE = 512
+    }
+}
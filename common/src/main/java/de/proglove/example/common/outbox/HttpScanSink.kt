@@ -0,0 +1,81 @@
+package de.proglove.example.common.outbox
+
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+
+/**
+ * [ScanSink] posting each batch to [url] with [HttpURLConnection].
+ *
+ * The batch id is sent in the [BATCH_ID_HEADER] header. Any 2xx answer accepts the batch, and so does 409 Conflict,
+ * which a receiver can answer for a batch id it already has. 408, 429 and 5xx answers and network errors are retried,
+ * all other answers drop the batch.
+ *
+ * @param url endpoint receiving the batches.
+ * @param connectTimeoutMs timeout for establishing the connection.
+ * @param readTimeoutMs timeout for the answer.
+ */
+class HttpScanSink @JvmOverloads constructor(
+    private val url: URL,
+    private val connectTimeoutMs: Int = DEFAULT_TIMEOUT_MS,
+    private val readTimeoutMs: Int = DEFAULT_TIMEOUT_MS
+) : ScanSink {
+
+    override fun deliver(batch: OutboxBatch) {
+        val connection = url.openConnection() as HttpURLConnection
+        var answerRead = false
+        try {
+            connection.requestMethod = "POST"
+            connection.doOutput = true
+            connection.connectTimeout = connectTimeoutMs
+            connection.readTimeout = readTimeoutMs
+            connection.setFixedLengthStreamingMode(batch.body.size)
+            connection.setRequestProperty("Content-Type", batch.contentType)
+            connection.setRequestProperty("Content-Encoding", batch.contentEncoding)
+            connection.setRequestProperty(BATCH_ID_HEADER, batch.id)
+            connection.outputStream.use { it.write(batch.body) }
+
+            val status = connection.responseCode
+            when {
+                status in 200..299 -> drain(connection.inputStream)
+                // the error stream is null when the answer has no body
+                status == HTTP_CONFLICT -> connection.errorStream?.let { drain(it) }
+                status == HTTP_CLIENT_TIMEOUT || status == HTTP_TOO_MANY_REQUESTS || status >= 500 ->
+                    throw ScanSink.DeliveryException("batch ${batch.id} answered with HTTP $status", true)
+                else ->
+                    throw ScanSink.DeliveryException("batch ${batch.id} rejected with HTTP $status", false)
+            }
+            answerRead = true
+        } finally {
+            // a fully read answer leaves the connection to the keep-alive pool, anything else closes it
+            if (!answerRead) {
+                connection.disconnect()
+            }
+        }
+    }
+
+    /**
+     * Reads the answer to its end, which lets the connection be reused for the next batch.
+     */
+    @Throws(IOException::class)
+    private fun drain(stream: InputStream) {
+        stream.use { input ->
+            val buffer = ByteArray(DRAIN_BUFFER_SIZE)
+            while (input.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    companion object {
+
+        const val BATCH_ID_HEADER = "Idempotency-Key"
+        const val DEFAULT_TIMEOUT_MS = 15_000
+
+        private const val HTTP_CLIENT_TIMEOUT = 408
+        private const val HTTP_CONFLICT = 409
+        private const val HTTP_TOO_MANY_REQUESTS = 429
+        private const val DRAIN_BUFFER_SIZE = 512
+    }
+}
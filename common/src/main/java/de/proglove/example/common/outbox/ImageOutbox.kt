@@ -0,0 +1,150 @@
+package de.proglove.example.common.outbox
+
+import android.util.Log
+import de.proglove.example.common.storage.ImageStore
+import java.io.Closeable
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * Uploads the captures of an [ImageStore] to an [ImageSink], oldest first, also across times without network.
+ *
+ * Works like [ScanOutbox]: a single thread takes the oldest capture, delivers it until the sink accepts it, with
+ * [backoff] delays between the attempts, and only then acknowledges it in the store. A capture the sink rejects for
+ * good is acknowledged as well and counted in [Metrics.rejected]. Captures the store evicts while they wait are not
+ * uploaded.
+ *
+ * @param store store to take the captures from and acknowledge them in.
+ * @param sink destination of the captures.
+ * @param backoff delays between the delivery attempts of a capture.
+ */
+class ImageOutbox @JvmOverloads constructor(
+    private val store: ImageStore,
+    private val sink: ImageSink,
+    private val backoff: Backoff = Backoff()
+) : Closeable {
+
+    /**
+     * Counters of an outbox, see [metrics].
+     */
+    data class Metrics(
+        val delivered: Long,
+        val deliveredBytes: Long,
+        val rejected: Long,
+        val failedAttempts: Long,
+        val lastDeliveryMs: Long
+    )
+
+    private val lock = Any()
+    private val worker = Thread({ run() }, THREAD_NAME)
+
+    @Volatile
+    private var closed = false
+
+    private var delivered = 0L
+    private var deliveredBytes = 0L
+    private var rejected = 0L
+    private var failedAttempts = 0L
+    private var lastDeliveryMs = 0L
+
+    /**
+     * Starts uploading, beginning with the oldest capture in the store.
+     */
+    fun start() {
+        worker.start()
+    }
+
+    /**
+     * Returns a snapshot of the outbox counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(delivered, deliveredBytes, rejected, failedAttempts, lastDeliveryMs)
+        }
+    }
+
+    /**
+     * Stops uploading. A capture in delivery is delivered again after the next start. Close the outbox before its
+     * store.
+     *
+     * Waits for the uploading thread to stop, which can take as long as the timeouts of the sink. Do not call it on the
+     * main thread.
+     */
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        worker.interrupt()
+        try {
+            worker.join()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    private fun run() {
+        try {
+            while (!closed) {
+                val capture = store.peek(IDLE_POLL_MS) ?: continue
+                deliver(capture)
+            }
+        } catch (e: InterruptedException) {
+            // closed
+        }
+    }
+
+    @Throws(InterruptedException::class)
+    private fun deliver(capture: ImageStore.Capture) {
+        var attempt = 0
+        while (true) {
+            if (closed) {
+                throw InterruptedException()
+            }
+            if (!capture.file.exists()) {
+                // evicted from the store meanwhile
+                store.acknowledge(capture)
+                return
+            }
+            val startedAt = System.nanoTime()
+            try {
+                sink.deliver(capture)
+                store.acknowledge(capture)
+                synchronized(lock) {
+                    delivered++
+                    deliveredBytes += capture.size
+                    lastDeliveryMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+                }
+                return
+            } catch (e: ScanSink.DeliveryException) {
+                if (!e.retryable) {
+                    Log.e(TAG, "Capture ${capture.name} rejected, dropping it", e)
+                    store.acknowledge(capture)
+                    synchronized(lock) {
+                        rejected++
+                    }
+                    return
+                }
+                onFailedAttempt(capture, e)
+            } catch (e: IOException) {
+                onFailedAttempt(capture, e)
+            }
+            Thread.sleep(backoff.delayMs(attempt++))
+        }
+    }
+
+    private fun onFailedAttempt(capture: ImageStore.Capture, e: IOException) {
+        synchronized(lock) {
+            failedAttempts++
+        }
+        Log.w(TAG, "Upload of capture ${capture.name} failed: ${e.message}")
+    }
+
+    companion object {
+
+        private const val TAG = "ImageOutbox"
+        private const val THREAD_NAME = "image-outbox"
+
+        private const val IDLE_POLL_MS = 1_000L
+    }
+}
@@ -0,0 +1,17 @@
+package de.proglove.example.common.outbox
+
+import de.proglove.example.common.storage.ImageStore
+import java.io.IOException
+
+/**
+ * Destination of the captures of an [ImageOutbox], e.g. a damage report service.
+ *
+ * [deliver] is called on the outbox thread and may block. It returns normally once the capture was accepted. Any
+ * [IOException] counts as a temporary failure and the same capture is delivered again after a backoff. A
+ * [ScanSink.DeliveryException] that is not retryable drops the capture.
+ */
+fun interface ImageSink {
+
+    @Throws(IOException::class)
+    fun deliver(capture: ImageStore.Capture)
+}
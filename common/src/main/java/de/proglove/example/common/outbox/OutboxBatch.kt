@@ -0,0 +1,74 @@
+package de.proglove.example.common.outbox
+
+import de.proglove.example.common.storage.ScanJournal
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.ByteArrayOutputStream
+import java.util.UUID
+import java.util.zip.GZIPOutputStream
+
+/**
+ * A gzip compressed batch of scans, ready for a [ScanSink].
+ *
+ * The [id] is created once per batch and stays the same for every delivery attempt, so the receiver can drop
+ * repeated deliveries of a batch it already accepted. The body is the JSON document
+ * `{"batchId": ..., "scans": [{"sequence", "timestamp", "barcode", "symbology", "source"}, ...]}`; the journal
+ * sequences in it allow deduplication of single scans as well, e.g. after an app restart re-batched them.
+ */
+class OutboxBatch private constructor(
+    val id: String,
+    val firstSequence: Long,
+    val lastSequence: Long,
+    val scanCount: Int,
+    val uncompressedSize: Int,
+    val body: ByteArray
+) {
+
+    val contentType: String
+        get() = CONTENT_TYPE
+
+    val contentEncoding: String
+        get() = CONTENT_ENCODING
+
+    companion object {
+
+        const val CONTENT_TYPE = "application/json; charset=utf-8"
+        const val CONTENT_ENCODING = "gzip"
+
+        /**
+         * Encodes and compresses [records], which must not be empty, into a new batch.
+         */
+        @JvmStatic
+        fun create(records: List<ScanJournal.Record>): OutboxBatch {
+            require(records.isNotEmpty()) { "a batch needs at least one scan" }
+            val id = UUID.randomUUID().toString()
+            val scans = JSONArray()
+            for (i in records.indices) {
+                val record = records[i]
+                scans.put(
+                    JSONObject()
+                        .put("sequence", record.sequence)
+                        .put("timestamp", record.timestampMillis)
+                        .put("barcode", record.barcode)
+                        .put("symbology", record.symbology)
+                        .put("source", record.source)
+                )
+            }
+            val json = JSONObject()
+                .put("batchId", id)
+                .put("scans", scans)
+                .toString()
+                .toByteArray(Charsets.UTF_8)
+            val compressed = ByteArrayOutputStream(json.size / 4 + 64)
+            GZIPOutputStream(compressed).use { it.write(json) }
+            return OutboxBatch(
+                id = id,
+                firstSequence = records[0].sequence,
+                lastSequence = records[records.size - 1].sequence,
+                scanCount = records.size,
+                uncompressedSize = json.size,
+                body = compressed.toByteArray()
+            )
+        }
+    }
+}
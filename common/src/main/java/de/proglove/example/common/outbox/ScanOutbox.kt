@@ -0,0 +1,209 @@
+package de.proglove.example.common.outbox
+
+import android.util.Log
+import de.proglove.example.common.storage.ScanJournal
+import java.io.Closeable
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * Delivers the scans of a [ScanJournal] to a [ScanSink] in batches, also across times without network.
+ *
+ * The outbox keeps no scans of its own: a single thread follows the journal with a [ScanJournal.Cursor] and collects
+ * records into a batch until it holds [maxBatchCount] scans, about [maxBatchBytes] bytes of scan data or its first
+ * scan is [maxBatchAgeMs] old. The batch is compressed once into an [OutboxBatch] and delivered until the sink
+ * accepts it, with [backoff] delays between the attempts. Only then the journal is acknowledged up to the last scan
+ * of the batch, so scans survive an app restart until they were delivered, and they are delivered in order.
+ *
+ * A batch the sink rejects for good is acknowledged as well and counted in [Metrics.rejectedBatches], retrying it
+ * would block all scans behind it.
+ *
+ * @param journal journal to read the scans from and acknowledge them in.
+ * @param sink destination of the batches.
+ * @param maxBatchCount maximum number of scans per batch.
+ * @param maxBatchBytes size of the scan data at which a batch is sent, before compression.
+ * @param maxBatchAgeMs time after the first scan of a batch at which the batch is sent.
+ * @param backoff delays between the delivery attempts of a batch.
+ */
+class ScanOutbox @JvmOverloads constructor(
+    private val journal: ScanJournal,
+    private val sink: ScanSink,
+    private val maxBatchCount: Int = DEFAULT_MAX_BATCH_COUNT,
+    private val maxBatchBytes: Int = DEFAULT_MAX_BATCH_BYTES,
+    private val maxBatchAgeMs: Long = DEFAULT_MAX_BATCH_AGE_MS,
+    private val backoff: Backoff = Backoff()
+) : Closeable {
+
+    /**
+     * Counters of an outbox, see [metrics].
+     *
+     * [compressedBytes] relates to [uncompressedBytes] as the compression ratio of the delivered batches.
+     */
+    data class Metrics(
+        val deliveredBatches: Long,
+        val deliveredScans: Long,
+        val rejectedBatches: Long,
+        val failedAttempts: Long,
+        val uncompressedBytes: Long,
+        val compressedBytes: Long,
+        val lastDeliveryMs: Long,
+        val acknowledgedSequence: Long
+    )
+
+    private val lock = Any()
+    private val worker = Thread({ run() }, THREAD_NAME)
+
+    @Volatile
+    private var closed = false
+
+    private var deliveredBatches = 0L
+    private var deliveredScans = 0L
+    private var rejectedBatches = 0L
+    private var failedAttempts = 0L
+    private var uncompressedBytes = 0L
+    private var compressedBytes = 0L
+    private var lastDeliveryMs = 0L
+    private var acknowledgedSequence = 0L
+
+    init {
+        require(maxBatchCount > 0) { "maxBatchCount must be positive, was $maxBatchCount" }
+        require(maxBatchBytes > 0) { "maxBatchBytes must be positive, was $maxBatchBytes" }
+        require(maxBatchAgeMs >= 0) { "maxBatchAgeMs must not be negative, was $maxBatchAgeMs" }
+    }
+
+    /**
+     * Starts delivering, beginning with the scans not acknowledged yet.
+     */
+    fun start() {
+        worker.start()
+    }
+
+    /**
+     * Returns a snapshot of the outbox counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(
+                deliveredBatches = deliveredBatches,
+                deliveredScans = deliveredScans,
+                rejectedBatches = rejectedBatches,
+                failedAttempts = failedAttempts,
+                uncompressedBytes = uncompressedBytes,
+                compressedBytes = compressedBytes,
+                lastDeliveryMs = lastDeliveryMs,
+                acknowledgedSequence = acknowledgedSequence
+            )
+        }
+    }
+
+    /**
+     * Stops delivering. A batch in delivery is abandoned and delivered again after the next start, with a new id.
+     * Close the outbox before its journal.
+     *
+     * Waits for the delivering thread to stop. A delivery in progress is not interrupted by that, so this can take as
+     * long as the timeouts of the sink. Do not call it on the main thread.
+     */
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        worker.interrupt()
+        try {
+            worker.join()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    private fun run() {
+        val cursor = journal.openCursor()
+        val records = ArrayList<ScanJournal.Record>(maxBatchCount)
+        try {
+            while (!closed) {
+                val first = cursor.poll(IDLE_POLL_MS) ?: continue
+                records.add(first)
+                var bytes = estimateSize(first)
+                val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchAgeMs)
+                while (records.size < maxBatchCount && bytes < maxBatchBytes) {
+                    val remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())
+                    // scans already journaled are taken without waiting, even when the batch is due
+                    val record = cursor.poll() ?: (if (remainingMs > 0L) cursor.poll(remainingMs) else null) ?: break
+                    records.add(record)
+                    bytes += estimateSize(record)
+                }
+                deliver(OutboxBatch.create(records))
+                records.clear()
+            }
+        } catch (e: InterruptedException) {
+            // closed
+        } catch (e: IOException) {
+            Log.e(TAG, "Could not acknowledge delivered scans, outbox stopped", e)
+        }
+    }
+
+    @Throws(InterruptedException::class, IOException::class)
+    private fun deliver(batch: OutboxBatch) {
+        var attempt = 0
+        while (true) {
+            if (closed) {
+                throw InterruptedException()
+            }
+            val startedAt = System.nanoTime()
+            try {
+                sink.deliver(batch)
+                journal.acknowledge(batch.lastSequence)
+                synchronized(lock) {
+                    deliveredBatches++
+                    deliveredScans += batch.scanCount
+                    uncompressedBytes += batch.uncompressedSize
+                    compressedBytes += batch.body.size
+                    lastDeliveryMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+                    acknowledgedSequence = batch.lastSequence
+                }
+                return
+            } catch (e: ScanSink.DeliveryException) {
+                if (!e.retryable) {
+                    Log.e(TAG, "Batch ${batch.id} of ${batch.scanCount} scans rejected, dropping it", e)
+                    journal.acknowledge(batch.lastSequence)
+                    synchronized(lock) {
+                        rejectedBatches++
+                        acknowledgedSequence = batch.lastSequence
+                    }
+                    return
+                }
+                onFailedAttempt(batch, e)
+            } catch (e: IOException) {
+                onFailedAttempt(batch, e)
+            }
+            Thread.sleep(backoff.delayMs(attempt++))
+        }
+    }
+
+    private fun onFailedAttempt(batch: OutboxBatch, e: IOException) {
+        synchronized(lock) {
+            failedAttempts++
+        }
+        Log.w(TAG, "Delivery of batch ${batch.id} failed: ${e.message}")
+    }
+
+    /**
+     * Rough size of a scan in the batch body, the JSON keys and the sequence and timestamp included.
+     */
+    private fun estimateSize(record: ScanJournal.Record): Int {
+        return SCAN_OVERHEAD_BYTES + record.barcode.length + record.symbology.length + record.source.length
+    }
+
+    companion object {
+
+        private const val TAG = "ScanOutbox"
+        private const val THREAD_NAME = "scan-outbox"
+
+        const val DEFAULT_MAX_BATCH_COUNT = 100
+        const val DEFAULT_MAX_BATCH_BYTES = 64 * 1024
+        const val DEFAULT_MAX_BATCH_AGE_MS = 2_000L
+
+        private const val IDLE_POLL_MS = 1_000L
+        private const val SCAN_OVERHEAD_BYTES = 96
+    }
+}
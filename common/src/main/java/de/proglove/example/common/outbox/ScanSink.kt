@@ -0,0 +1,23 @@
+package de.proglove.example.common.outbox
+
+import java.io.IOException
+
+/**
+ * Destination of the batches of a [ScanOutbox], e.g. a warehouse management backend.
+ *
+ * [deliver] is called on the outbox thread and may block. It returns normally once the batch was accepted. Any
+ * [IOException] counts as a temporary failure and the same batch, with the same [OutboxBatch.id], is delivered again
+ * after a backoff. A [DeliveryException] that is not [DeliveryException.retryable] drops the batch.
+ */
+fun interface ScanSink {
+
+    @Throws(IOException::class)
+    fun deliver(batch: OutboxBatch)
+
+    /**
+     * Delivery failure with an explicit retry decision, e.g. derived from an HTTP status code.
+     *
+     * @param retryable false if delivering the same batch again cannot succeed.
+     */
+    class DeliveryException(message: String, val retryable: Boolean) : IOException(message)
+}
@@ -0,0 +1,329 @@
+package de.proglove.example.common.picking
+
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * In-memory index of the items expected in an order or wave, keyed by barcode, for verifying picks without a server
+ * round trip.
+ *
+ * The index is an open addressing hash table over primitive arrays: slots hold a 64 bit hash and the number of an
+ * entry, the barcodes of all entries share one char array. There is no object per entry, which keeps manifests with
+ * millions of lines compact and cheap for the garbage collector. [verify] hashes the scanned barcode, probes a few
+ * slots and compares characters in place, so it takes constant time and does not allocate.
+ *
+ * Remaining quantities are decremented atomically, scans from several threads never pick the same unit twice. The
+ * set of barcodes is fixed once [Builder.build] returned.
+ */
+class PickListIndex private constructor(
+    private val slotHashes: LongArray,
+    private val slotEntries: IntArray,
+    private val keyChars: CharArray,
+    private val keyStarts: IntArray,
+    private val expected: IntArray
+) {
+
+    /**
+     * Outcome of [verify].
+     */
+    enum class Result {
+
+        /**
+         * The barcode is expected and one unit was picked.
+         */
+        PICKED,
+
+        /**
+         * The barcode is expected, but all its units were picked already.
+         */
+        OVER_PICKED,
+
+        /**
+         * The barcode is not in the manifest.
+         */
+        NOT_EXPECTED
+    }
+
+    /**
+     * Counters of an index, see [metrics].
+     */
+    data class Metrics(
+        val entries: Int,
+        val expectedUnits: Long,
+        val remainingUnits: Long,
+        val picked: Long,
+        val overPicked: Long,
+        val notExpected: Long
+    )
+
+    private val mask = slotHashes.size - 1
+    private val remaining = AtomicIntegerArray(expected)
+    private val remainingUnits = AtomicLong(expected.fold(0L) { sum, quantity -> sum + quantity })
+    private val expectedUnits = remainingUnits.get()
+    private val picked = AtomicLong()
+    private val overPicked = AtomicLong()
+    private val notExpected = AtomicLong()
+
+    /**
+     * Number of distinct barcodes in the index.
+     */
+    val size: Int
+        get() = expected.size
+
+    /**
+     * True once every expected unit was picked.
+     */
+    val isComplete: Boolean
+        get() = remainingUnits.get() == 0L
+
+    /**
+     * Checks a scanned [barcode] against the manifest and picks one unit of it if some remain.
+     *
+     * [start] and [end] select a part of [barcode] to check, e.g. the GTIN element of a GS1 barcode.
+     */
+    @JvmOverloads
+    fun verify(barcode: CharSequence, start: Int = 0, end: Int = barcode.length): Result {
+        val entry = find(barcode, start, end)
+        if (entry < 0) {
+            notExpected.incrementAndGet()
+            return Result.NOT_EXPECTED
+        }
+        while (true) {
+            val current = remaining.get(entry)
+            if (current <= 0) {
+                overPicked.incrementAndGet()
+                return Result.OVER_PICKED
+            }
+            if (remaining.compareAndSet(entry, current, current - 1)) {
+                remainingUnits.decrementAndGet()
+                picked.incrementAndGet()
+                return Result.PICKED
+            }
+        }
+    }
+
+    /**
+     * Returns the units of [barcode] still to pick, or -1 if it is not in the manifest.
+     */
+    fun remaining(barcode: CharSequence): Int {
+        val entry = find(barcode, 0, barcode.length)
+        return if (entry < 0) -1 else remaining.get(entry)
+    }
+
+    /**
+     * Returns the units of [barcode] in the manifest, or -1 if it is not in the manifest.
+     */
+    fun expected(barcode: CharSequence): Int {
+        val entry = find(barcode, 0, barcode.length)
+        return if (entry < 0) -1 else expected[entry]
+    }
+
+    /**
+     * Restores the expected quantities of all barcodes, e.g. to pick the same wave again.
+     */
+    fun reset() {
+        for (i in expected.indices) {
+            remaining.set(i, expected[i])
+        }
+        remainingUnits.set(expectedUnits)
+    }
+
+    /**
+     * Returns a snapshot of the index counters.
+     */
+    fun metrics(): Metrics {
+        return Metrics(
+            entries = size,
+            expectedUnits = expectedUnits,
+            remainingUnits = remainingUnits.get(),
+            picked = picked.get(),
+            overPicked = overPicked.get(),
+            notExpected = notExpected.get()
+        )
+    }
+
+    private fun find(barcode: CharSequence, start: Int, end: Int): Int {
+        val hash = hash(barcode, start, end)
+        var slot = hash.toInt() and mask
+        while (true) {
+            val entry = slotEntries[slot]
+            if (entry == EMPTY) {
+                return -1
+            }
+            if (slotHashes[slot] == hash && keyEquals(entry, barcode, start, end)) {
+                return entry
+            }
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun keyEquals(entry: Int, barcode: CharSequence, start: Int, end: Int): Boolean {
+        val keyStart = keyStarts[entry]
+        val length = keyStarts[entry + 1] - keyStart
+        if (length != end - start) {
+            return false
+        }
+        for (i in 0 until length) {
+            if (keyChars[keyStart + i] != barcode[start + i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Collects the lines of a manifest and builds the index. Quantities of a barcode listed more than once are added
+     * up.
+     *
+     * @param expectedEntries number of manifest lines expected, to size the buffers up front.
+     */
+    class Builder @JvmOverloads constructor(expectedEntries: Int = DEFAULT_EXPECTED_ENTRIES) {
+
+        private var chars = CharArray(Math.max(expectedEntries, 1) * TYPICAL_BARCODE_LENGTH)
+        private var charCount = 0
+        private var starts = IntArray(Math.max(expectedEntries, 1) + 1)
+        private var quantities = IntArray(Math.max(expectedEntries, 1))
+        private var count = 0
+
+        /**
+         * Adds a manifest line.
+         *
+         * @param barcode barcode of the item.
+         * @param quantity units of the item to pick.
+         */
+        fun add(barcode: CharSequence, quantity: Int): Builder {
+            require(barcode.isNotEmpty()) { "barcode must not be empty" }
+            require(quantity > 0) { "quantity of $barcode must be positive, was $quantity" }
+            if (charCount + barcode.length > chars.size) {
+                chars = chars.copyOf(Math.max(chars.size * 2, charCount + barcode.length))
+            }
+            if (count + 1 >= starts.size) {
+                starts = starts.copyOf(starts.size * 2)
+                quantities = quantities.copyOf(starts.size - 1)
+            }
+            starts[count] = charCount
+            for (i in 0 until barcode.length) {
+                chars[charCount++] = barcode[i]
+            }
+            quantities[count] = quantity
+            count++
+            starts[count] = charCount
+            return this
+        }
+
+        /**
+         * Builds the index from the lines added so far.
+         */
+        fun build(): PickListIndex {
+            var capacity = Integer.highestOneBit(Math.max(count, 1)) shl 1
+            if (count > capacity * MAX_LOAD_FACTOR) {
+                capacity = capacity shl 1
+            }
+            val mask = capacity - 1
+            val slotHashes = LongArray(capacity)
+            val slotEntries = IntArray(capacity) { EMPTY }
+            // line number of the first line of each distinct barcode, and its summed quantity
+            val firstLines = IntArray(count)
+            val expected = IntArray(count)
+            var entries = 0
+            var keyLength = 0
+            val lines = CharArrayView(chars)
+            for (line in 0 until count) {
+                val start = starts[line]
+                val end = starts[line + 1]
+                val hash = hash(lines, start, end)
+                var slot = hash.toInt() and mask
+                while (true) {
+                    val entry = slotEntries[slot]
+                    if (entry == EMPTY) {
+                        slotHashes[slot] = hash
+                        slotEntries[slot] = entries
+                        firstLines[entries] = line
+                        expected[entries] = quantities[line]
+                        keyLength += end - start
+                        entries++
+                        break
+                    }
+                    if (slotHashes[slot] == hash && sameLine(firstLines[entry], line)) {
+                        val sum = expected[entry].toLong() + quantities[line]
+                        require(sum <= Int.MAX_VALUE) { "total quantity of a barcode exceeds ${Int.MAX_VALUE}" }
+                        expected[entry] = sum.toInt()
+                        break
+                    }
+                    slot = (slot + 1) and mask
+                }
+            }
+            // copy the distinct barcodes, in entry order, into the final char array
+            val keyChars = CharArray(keyLength)
+            val keyStarts = IntArray(entries + 1)
+            var offset = 0
+            for (entry in 0 until entries) {
+                val line = firstLines[entry]
+                val length = starts[line + 1] - starts[line]
+                System.arraycopy(chars, starts[line], keyChars, offset, length)
+                keyStarts[entry] = offset
+                offset += length
+            }
+            keyStarts[entries] = offset
+            return PickListIndex(slotHashes, slotEntries, keyChars, keyStarts, expected.copyOf(entries))
+        }
+
+        private fun sameLine(first: Int, second: Int): Boolean {
+            val firstStart = starts[first]
+            val secondStart = starts[second]
+            val length = starts[first + 1] - firstStart
+            if (length != starts[second + 1] - secondStart) {
+                return false
+            }
+            for (i in 0 until length) {
+                if (chars[firstStart + i] != chars[secondStart + i]) {
+                    return false
+                }
+            }
+            return true
+        }
+    }
+
+    /**
+     * Read-only [CharSequence] over a char array, to hash builder lines without copying them into strings.
+     */
+    private class CharArrayView(private val chars: CharArray) : CharSequence {
+
+        override val length: Int
+            get() = chars.size
+
+        override fun get(index: Int): Char = chars[index]
+
+        override fun subSequence(startIndex: Int, endIndex: Int): CharSequence {
+            return String(chars, startIndex, endIndex - startIndex)
+        }
+    }
+
+    companion object {
+
+        const val DEFAULT_EXPECTED_ENTRIES = 1024
+
+        private const val EMPTY = -1
+        private const val MAX_LOAD_FACTOR = 0.75
+        private const val TYPICAL_BARCODE_LENGTH = 14
+
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+
+        /**
+         * 64 bit FNV-1a over the characters from [start] to [end], finished with the MurmurHash3 mixer so the low
+         * bits used for the slot are well spread.
+         */
+        private fun hash(value: CharSequence, start: Int, end: Int): Long {
+            var hash = FNV_OFFSET_BASIS
+            for (i in start until end) {
+                hash = (hash xor value[i].code.toLong()) * FNV_PRIME
+            }
+            hash = hash xor (hash ushr 33)
+            hash *= -0xae502812aa7333L
+            hash = hash xor (hash ushr 33)
+            hash *= -0x3b314601e57a13adL
+            return hash xor (hash ushr 33)
+        }
+    }
+}
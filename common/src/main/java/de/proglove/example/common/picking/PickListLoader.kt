@@ -0,0 +1,116 @@
+package de.proglove.example.common.picking
+
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.BufferedReader
+import java.io.File
+import java.io.IOException
+import java.io.Reader
+
+/**
+ * Loads order or wave manifests into a [PickListIndex].
+ *
+ * CSV manifests have one item per line: the barcode, optionally followed by the quantity and further columns, separated
+ * by a comma or a semicolon. A first line whose quantity is not a number is taken as header. Lines without a quantity
+ * count as one unit, empty lines are skipped.
+ *
+ * JSON manifests are an array of items, or an object with the array in `items`. Each item has a `barcode` and an
+ * optional `quantity`, e.g. `{"items": [{"barcode": "04006381333931", "quantity": 2}]}`.
+ */
+object PickListLoader {
+
+    private const val ITEMS = "items"
+    private const val BARCODE = "barcode"
+    private const val QUANTITY = "quantity"
+
+    /**
+     * Loads a manifest [file], as JSON if its name ends with `.json` and as CSV otherwise.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun load(file: File): PickListIndex {
+        return file.bufferedReader().use { reader ->
+            if (file.name.endsWith(".json", ignoreCase = true)) loadJson(reader) else loadCsv(reader)
+        }
+    }
+
+    /**
+     * Loads a CSV manifest. The [reader] is not closed.
+     *
+     * @param expectedEntries number of items expected, to size the index buffers up front.
+     */
+    @JvmStatic
+    @JvmOverloads
+    @Throws(IOException::class)
+    fun loadCsv(reader: Reader, expectedEntries: Int = PickListIndex.DEFAULT_EXPECTED_ENTRIES): PickListIndex {
+        val lines = if (reader is BufferedReader) reader else BufferedReader(reader)
+        val builder = PickListIndex.Builder(expectedEntries)
+        var lineNumber = 0
+        while (true) {
+            val line = lines.readLine() ?: break
+            lineNumber++
+            if (line.isBlank()) {
+                continue
+            }
+            val separator = line.indexOfFirst { it == ',' || it == ';' }
+            val barcode = unquote(if (separator < 0) line else line.substring(0, separator))
+            val quantity = if (separator < 0) 1 else unquote(field(line, separator + 1)).toIntOrNull()
+            if (quantity == null) {
+                if (lineNumber == 1) {
+                    continue
+                }
+                throw IOException("invalid quantity in line $lineNumber: $line")
+            }
+            try {
+                builder.add(barcode, quantity)
+            } catch (e: IllegalArgumentException) {
+                throw IOException("invalid item in line $lineNumber: ${e.message}", e)
+            }
+        }
+        try {
+            return builder.build()
+        } catch (e: IllegalArgumentException) {
+            throw IOException("invalid CSV manifest: ${e.message}", e)
+        }
+    }
+
+    /**
+     * Loads a JSON manifest. The [reader] is not closed.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun loadJson(reader: Reader): PickListIndex {
+        try {
+            val text = reader.readText().trim()
+            val items = if (text.startsWith("[")) JSONArray(text) else JSONObject(text).getJSONArray(ITEMS)
+            val builder = PickListIndex.Builder(items.length())
+            for (i in 0 until items.length()) {
+                val item = items.getJSONObject(i)
+                builder.add(item.getString(BARCODE), item.optInt(QUANTITY, 1))
+            }
+            return builder.build()
+        } catch (e: JSONException) {
+            throw IOException("invalid JSON manifest", e)
+        } catch (e: IllegalArgumentException) {
+            throw IOException("invalid JSON manifest: ${e.message}", e)
+        }
+    }
+
+    private fun field(line: String, start: Int): String {
+        for (i in start until line.length) {
+            if (line[i] == ',' || line[i] == ';') {
+                return line.substring(start, i)
+            }
+        }
+        return line.substring(start)
+    }
+
+    private fun unquote(value: String): String {
+        val trimmed = value.trim()
+        if (trimmed.length >= 2 && trimmed.startsWith('"') && trimmed.endsWith('"')) {
+            return trimmed.substring(1, trimmed.length - 1)
+        }
+        return trimmed
+    }
+}
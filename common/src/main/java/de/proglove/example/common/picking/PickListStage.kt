@@ -0,0 +1,51 @@
+package de.proglove.example.common.picking
+
+import de.proglove.example.common.pipeline.PipelineScan
+import de.proglove.example.common.pipeline.ScanStage
+
+/**
+ * Verifies scans against the [PickListIndex] of the current order and sets [PipelineScan.lookup].
+ *
+ * GS1 barcodes are checked by the GTIN of their AI (01) element, parsed by an earlier
+ * [de.proglove.example.common.pipeline.Gs1ParseStage], other barcodes by their whole content. Scans pass unchanged
+ * while no [index] is set. A scan that is not expected is not rejected, the worker is told by the lookup result.
+ */
+class PickListStage : ScanStage {
+
+    /**
+     * Pick list of the current order or wave, null while none is loaded.
+     */
+    @Volatile
+    var index: PickListIndex? = null
+
+    override val name: String
+        get() = NAME
+
+    override fun process(scan: PipelineScan): Boolean {
+        val index = index ?: return true
+        val gtin = scan.gs1.indexOf(GTIN_AI)
+        val result = if (gtin >= 0) {
+            index.verify(scan.gs1.data, scan.gs1.valueStart(gtin), scan.gs1.valueEnd(gtin))
+        } else {
+            index.verify(scan.barcode)
+        }
+        scan.lookup = if (result == PickListIndex.Result.PICKED) PipelineScan.Lookup.HIT else PipelineScan.Lookup.MISS
+        return true
+    }
+
+    /**
+     * Returns the units still to pick of the item [scan] is checked by, or -1 if it is not on the pick list or no
+     * [index] is set.
+     */
+    fun remaining(scan: PipelineScan): Int {
+        val index = index ?: return -1
+        val gtin = scan.gs1.indexOf(GTIN_AI)
+        return if (gtin >= 0) index.remaining(scan.gs1.value(gtin)) else index.remaining(scan.barcode)
+    }
+
+    companion object {
+        const val NAME = "pick list"
+
+        private const val GTIN_AI = 1
+    }
+}
@@ -0,0 +1,56 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * Rejects scans with a wrong GS1 mod 10 check digit.
+ *
+ * Checked are the GS1 keys SSCC (00), GTIN (01, 02) and GLN (410 to 417) of parsed GS1 barcodes, and the whole
+ * content of barcodes whose symbology is in [symbologies], e.g. EAN-13.
+ *
+ * @param symbologies symbology names, as reported by the scanner, whose content ends with a check digit.
+ */
+class CheckDigitStage @JvmOverloads constructor(
+    private val symbologies: Set<String> = DEFAULT_SYMBOLOGIES
+) : ScanStage {
+
+    override val name: String
+        get() = NAME
+
+    override fun process(scan: PipelineScan): Boolean {
+        val gs1 = scan.gs1
+        for (i in 0 until gs1.count) {
+            val ai = gs1.ai(i)
+            if (hasCheckDigit(ai) && !Gs1Parser.isCheckDigitValid(gs1.data, gs1.valueStart(i), gs1.valueEnd(i))) {
+                scan.reject("invalid check digit in AI $ai")
+                return false
+            }
+        }
+        if (gs1.count == 0 && scan.symbology in symbologies &&
+            !Gs1Parser.isCheckDigitValid(scan.barcode, 0, scan.barcode.length)
+        ) {
+            scan.reject("invalid check digit")
+            return false
+        }
+        return true
+    }
+
+    private fun hasCheckDigit(ai: Int): Boolean {
+        return ai == AI_SSCC || ai == AI_GTIN || ai == AI_CONTENT || ai in AI_GLN_FIRST..AI_GLN_LAST
+    }
+
+    companion object {
+
+        const val NAME = "check digit"
+
+        /**
+         * Symbologies whose content is a GTIN with its check digit.
+         */
+        @JvmField
+        val DEFAULT_SYMBOLOGIES = setOf("EAN-8", "EAN-13", "UPC-A", "ITF-14")
+
+        private const val AI_SSCC = 0
+        private const val AI_GTIN = 1
+        private const val AI_CONTENT = 2
+        private const val AI_GLN_FIRST = 410
+        private const val AI_GLN_LAST = 417
+    }
+}
@@ -0,0 +1,128 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * Element strings of a GS1 barcode as found by [Gs1Parser]: Application Identifiers and where their values are in
+ * the [data].
+ *
+ * Values are kept as offsets into [data] instead of substrings, so parsing allocates nothing. [value] creates the
+ * string of a single value on demand.
+ *
+ * @param capacity maximum number of elements.
+ */
+class Gs1Elements(capacity: Int = DEFAULT_CAPACITY) {
+
+    private val ais = IntArray(capacity)
+    private val aiDigits = IntArray(capacity)
+    private val starts = IntArray(capacity)
+    private val ends = IntArray(capacity)
+
+    /**
+     * The parsed barcode content.
+     */
+    var data: CharSequence = ""
+        private set
+
+    /**
+     * Number of elements.
+     */
+    var count = 0
+        private set
+
+    /**
+     * Returns the Application Identifier of element [index] as a number, e.g. 1 for AI (01) and 3103 for AI (3103).
+     */
+    fun ai(index: Int): Int {
+        checkIndex(index)
+        return ais[index]
+    }
+
+    /**
+     * Returns the offset of the value of element [index] in [data].
+     */
+    fun valueStart(index: Int): Int {
+        checkIndex(index)
+        return starts[index]
+    }
+
+    /**
+     * Returns the offset behind the value of element [index] in [data].
+     */
+    fun valueEnd(index: Int): Int {
+        checkIndex(index)
+        return ends[index]
+    }
+
+    /**
+     * Returns the value of element [index].
+     */
+    fun value(index: Int): String {
+        checkIndex(index)
+        return data.subSequence(starts[index], ends[index]).toString()
+    }
+
+    /**
+     * Returns the index of the first element with Application Identifier [ai], or -1 if there is none.
+     */
+    fun indexOf(ai: Int): Int {
+        for (i in 0 until count) {
+            if (ais[i] == ai) {
+                return i
+            }
+        }
+        return -1
+    }
+
+    /**
+     * Appends the elements in human readable form to [builder], e.g. `(01)04006381333931(10)ABC123`.
+     */
+    fun appendTo(builder: StringBuilder): StringBuilder {
+        for (i in 0 until count) {
+            builder.append('(')
+            val ai = ais[i].toString()
+            for (pad in ai.length until aiDigits[i]) {
+                builder.append('0')
+            }
+            builder.append(ai).append(')')
+            builder.append(data, starts[i], ends[i])
+        }
+        return builder
+    }
+
+    internal fun reset(data: CharSequence) {
+        this.data = data
+        count = 0
+    }
+
+    internal fun clear() {
+        reset("")
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @return false if the capacity is exhausted.
+     */
+    internal fun add(ai: Int, digits: Int, start: Int, end: Int): Boolean {
+        if (count == ais.size) {
+            return false
+        }
+        ais[count] = ai
+        aiDigits[count] = digits
+        starts[count] = start
+        ends[count] = end
+        count++
+        return true
+    }
+
+    private fun checkIndex(index: Int) {
+        if (index < 0 || index >= count) {
+            throw IndexOutOfBoundsException("index $index, count $count")
+        }
+    }
+
+    override fun toString(): String = appendTo(StringBuilder()).toString()
+
+    companion object {
+        const val DEFAULT_CAPACITY = 16
+    }
+}
@@ -0,0 +1,26 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * Parses GS1 barcodes into [PipelineScan.gs1] with the [Gs1Parser]. Other barcodes pass unchanged.
+ *
+ * @param rejectMalformed true to reject GS1 barcodes the parser cannot read completely, false to pass them on with
+ * the elements parsed up to the error.
+ */
+class Gs1ParseStage @JvmOverloads constructor(private val rejectMalformed: Boolean = true) : ScanStage {
+
+    override val name: String
+        get() = NAME
+
+    override fun process(scan: PipelineScan): Boolean {
+        val result = Gs1Parser.parse(scan.barcode, scan.symbology, scan.gs1)
+        if (result == Gs1Parser.Result.OK || result == Gs1Parser.Result.NOT_GS1 || !rejectMalformed) {
+            return true
+        }
+        scan.reject("malformed GS1 data: $result")
+        return false
+    }
+
+    companion object {
+        const val NAME = "gs1 parse"
+    }
+}
@@ -0,0 +1,215 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * Parser for the element strings of GS1-128, GS1 DataMatrix, GS1 QR Code and GS1 DataBar barcodes.
+ *
+ * The length of an Application Identifier and, for the predefined length AIs like (01) or (17), the length of its
+ * value follow from the first two digits, as in the tables of the GS1 General Specifications. Values of all other AIs
+ * end at the FNC1 separator, transmitted as the GS character, or at the end of the data. The parser walks the data
+ * once and writes offsets into a reused [Gs1Elements], without allocating.
+ *
+ * Data is taken as GS1 if it starts with a GS1 symbology identifier (`]C1`, `]d2`, `]Q3`, `]e0`, `]J1`) or a GS, or
+ * if the symbology name contains "GS1".
+ */
+object Gs1Parser {
+
+    /**
+     * Outcome of [parse].
+     */
+    enum class Result {
+        OK,
+        NOT_GS1,
+        INVALID_AI,
+        UNKNOWN_AI,
+        INVALID_LENGTH,
+        NOT_NUMERIC,
+        TOO_MANY_ELEMENTS
+    }
+
+    /**
+     * The GS character carrying FNC1 in transmitted GS1 data.
+     */
+    const val GROUP_SEPARATOR = '\u001D'
+
+    private const val VARIABLE = 0
+    private const val IDENTIFIER_LENGTH = 3
+    private val GS1_IDENTIFIERS = arrayOf("]C1", "]d2", "]Q3", "]e0", "]J1")
+
+    // AI length in digits by the first two digits of the AI, 0 for undefined prefixes
+    private val AI_LENGTH = IntArray(100).also { table ->
+        for (prefix in 0..22) table[prefix] = 2
+        for (prefix in 23..25) table[prefix] = 3
+        table[30] = 2
+        for (prefix in 31..36) table[prefix] = 4
+        table[37] = 2
+        table[39] = 4
+        for (prefix in 40..42) table[prefix] = 3
+        table[43] = 4
+        table[70] = 4
+        table[71] = 3
+        table[72] = 4
+        for (prefix in 80..82) table[prefix] = 4
+        for (prefix in 90..99) table[prefix] = 2
+    }
+
+    // value length of the predefined length AIs by the first two digits, VARIABLE for the others
+    private val FIXED_LENGTH = IntArray(100).also { table ->
+        table[0] = 18
+        for (prefix in 1..3) table[prefix] = 14
+        table[4] = 16
+        for (prefix in 11..19) table[prefix] = 6
+        table[20] = 2
+        for (prefix in 31..36) table[prefix] = 6
+        table[41] = 13
+    }
+
+    // upper bound of the value length of the variable length AIs sharing the first two digits
+    private val MAX_LENGTH = IntArray(100).also { table ->
+        for (prefix in table.indices) table[prefix] = 90
+        table[10] = 20
+        table[21] = 20
+        table[22] = 20
+        table[23] = 28
+        table[24] = 30
+        table[25] = 30
+        table[30] = 8
+        table[37] = 8
+        table[39] = 18
+        table[40] = 30
+        table[42] = 30
+        table[43] = 70
+        table[70] = 50
+        table[71] = 20
+        table[90] = 30
+    }
+
+    /**
+     * Parses [data] into [into], which is reset first.
+     *
+     * @param symbology symbology name reported with the data, used when the data carries no symbology identifier.
+     * @return [Result.OK] if the data is GS1 and all elements were parsed. On errors [into] holds the elements parsed
+     * before the error.
+     */
+    @JvmStatic
+    fun parse(data: CharSequence, symbology: CharSequence, into: Gs1Elements): Result {
+        into.reset(data)
+        val length = data.length
+        var position = when {
+            hasGs1Identifier(data) -> IDENTIFIER_LENGTH
+            length > 0 && data[0] == GROUP_SEPARATOR -> 1
+            containsGs1(symbology) -> 0
+            else -> return Result.NOT_GS1
+        }
+        if (position == length) {
+            return Result.INVALID_AI
+        }
+        while (position < length) {
+            if (data[position] == GROUP_SEPARATOR) {
+                position++
+                continue
+            }
+            if (position + 2 > length || !isDigit(data[position]) || !isDigit(data[position + 1])) {
+                return Result.INVALID_AI
+            }
+            val prefix = digit(data[position]) * 10 + digit(data[position + 1])
+            val aiLength = AI_LENGTH[prefix]
+            if (aiLength == 0) {
+                return Result.UNKNOWN_AI
+            }
+            if (position + aiLength > length) {
+                return Result.INVALID_AI
+            }
+            var ai = 0
+            for (i in position until position + aiLength) {
+                if (!isDigit(data[i])) {
+                    return Result.INVALID_AI
+                }
+                ai = ai * 10 + digit(data[i])
+            }
+            val start = position + aiLength
+            val end: Int
+            val fixedLength = FIXED_LENGTH[prefix]
+            if (fixedLength != VARIABLE) {
+                end = start + fixedLength
+                if (end > length) {
+                    return Result.INVALID_LENGTH
+                }
+                for (i in start until end) {
+                    if (!isDigit(data[i])) {
+                        return Result.NOT_NUMERIC
+                    }
+                }
+            } else {
+                end = indexOfSeparator(data, start)
+                if (end == start || end - start > MAX_LENGTH[prefix]) {
+                    return Result.INVALID_LENGTH
+                }
+            }
+            if (!into.add(ai, aiLength, start, end)) {
+                return Result.TOO_MANY_ELEMENTS
+            }
+            position = end
+        }
+        return Result.OK
+    }
+
+    /**
+     * Returns true if the digits of [data] from [start] to [end] end with a valid GS1 mod 10 check digit, as used by
+     * GTIN, SSCC and GLN.
+     */
+    @JvmStatic
+    fun isCheckDigitValid(data: CharSequence, start: Int, end: Int): Boolean {
+        if (end - start < 2) {
+            return false
+        }
+        var sum = 0
+        var weight = 3
+        for (i in end - 2 downTo start) {
+            val c = data[i]
+            if (!isDigit(c)) {
+                return false
+            }
+            sum += digit(c) * weight
+            weight = 4 - weight
+        }
+        val check = data[end - 1]
+        return isDigit(check) && (10 - sum % 10) % 10 == digit(check)
+    }
+
+    private fun hasGs1Identifier(data: CharSequence): Boolean {
+        if (data.length < IDENTIFIER_LENGTH || data[0] != ']') {
+            return false
+        }
+        for (identifier in GS1_IDENTIFIERS) {
+            if (data[1] == identifier[1] && data[2] == identifier[2]) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun containsGs1(symbology: CharSequence): Boolean {
+        for (i in 0..symbology.length - 3) {
+            if (symbology[i].uppercaseChar() == 'G' &&
+                symbology[i + 1].uppercaseChar() == 'S' &&
+                symbology[i + 2] == '1'
+            ) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun indexOfSeparator(data: CharSequence, from: Int): Int {
+        for (i in from until data.length) {
+            if (data[i] == GROUP_SEPARATOR) {
+                return i
+            }
+        }
+        return data.length
+    }
+
+    private fun isDigit(c: Char): Boolean = c in '0'..'9'
+
+    private fun digit(c: Char): Int = c - '0'
+}
@@ -0,0 +1,122 @@
+package de.proglove.example.common.pipeline
+
+import de.proglove.example.common.metrics.ScanLatencyTracker
+
+/**
+ * A scan on its way through a [ScanPipeline], together with what the stages found out about it.
+ *
+ * Instances are owned and reused by the pipeline. Stages and the [ScanPipeline.Listener] must not keep a reference to
+ * a scan after their call returned, copy the values they need instead.
+ */
+class PipelineScan internal constructor() {
+
+    /**
+     * Result of looking the barcode up in local data, e.g. a pick list.
+     */
+    enum class Lookup {
+
+        /**
+         * No stage looked the barcode up.
+         */
+        NONE,
+
+        /**
+         * The barcode was found and is expected.
+         */
+        HIT,
+
+        /**
+         * The barcode was not found or is not expected any more.
+         */
+        MISS
+    }
+
+    /**
+     * The scanned barcode content.
+     */
+    var barcode: String = ""
+        private set
+
+    /**
+     * Symbology of the barcode, empty if not supported.
+     */
+    var symbology: String = ""
+        private set
+
+    /**
+     * Where the scan came from, e.g. the intent action.
+     */
+    var source: String = ""
+        private set
+
+    /**
+     * Monotonic timestamp ([System.nanoTime]) taken when the scan was submitted.
+     */
+    var receivedAtNanos: Long = 0L
+        private set
+
+    /**
+     * Token of the scan in the [ScanLatencyTracker], [ScanLatencyTracker.NO_SCAN] if it is not tracked.
+     */
+    var scanToken: Long = ScanLatencyTracker.NO_SCAN
+        private set
+
+    /**
+     * GS1 Application Identifier elements, filled by [Gs1ParseStage]. Empty for other barcodes.
+     */
+    val gs1 = Gs1Elements()
+
+    /**
+     * Route picked for the scan, e.g. by [SymbologyRouteStage]. Empty while no route was picked.
+     */
+    var route: String = ""
+
+    /**
+     * Result of a lookup stage, e.g. [de.proglove.example.common.picking.PickListStage].
+     */
+    var lookup: Lookup = Lookup.NONE
+
+    /**
+     * Why a stage rejected the scan, null if it was not rejected.
+     */
+    var rejectReason: String? = null
+        private set
+
+    /**
+     * True if a stage rejected the scan.
+     */
+    val isRejected: Boolean
+        get() = rejectReason != null
+
+    /**
+     * Marks the scan as rejected for [reason]. The stage usually returns false afterwards.
+     */
+    fun reject(reason: String) {
+        rejectReason = reason
+    }
+
+    internal fun set(barcode: String, symbology: String, source: String, receivedAtNanos: Long, scanToken: Long) {
+        this.barcode = barcode
+        this.symbology = symbology
+        this.source = source
+        this.receivedAtNanos = receivedAtNanos
+        this.scanToken = scanToken
+    }
+
+    internal fun clear() {
+        barcode = ""
+        symbology = ""
+        source = ""
+        receivedAtNanos = 0L
+        scanToken = ScanLatencyTracker.NO_SCAN
+        gs1.clear()
+        route = ""
+        lookup = Lookup.NONE
+        rejectReason = null
+    }
+
+    override fun toString(): String {
+        return "PipelineScan(barcode=$barcode, symbology=$symbology, gs1=$gs1, route=$route, " +
+            "lookup=$lookup, rejectReason=$rejectReason)"
+    }
+}
@@ -0,0 +1,233 @@
+package de.proglove.example.common.pipeline
+
+import android.util.Log
+import de.proglove.example.common.metrics.LatencyHistogram
+import de.proglove.example.common.metrics.ScanLatencyTracker
+import java.io.Closeable
+import java.util.Locale
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs received scans through a chain of [ScanStage]s on a worker thread, off the UI and callback threads.
+ *
+ * [submit] only hands the scan to a bounded queue and never blocks. The scans are preallocated [PipelineScan]s,
+ * [queueCapacity] of them, reused for every scan. When all are in use, further scans are dropped and counted, the
+ * scan path keeps the pace of the scanner instead of piling up work.
+ *
+ * The worker runs the stages in order until one returns false, then passes the scan to the [listener], also when it
+ * was rejected. A stage throwing an exception rejects the scan. The time spent in every stage is recorded in a
+ * [LatencyHistogram], [report] breaks it down per stage.
+ *
+ * @param stages stages in the order they run.
+ * @param listener receives every processed scan on the worker thread.
+ * @param queueCapacity number of scans waiting for the worker before further scans are dropped.
+ * @param name name of the worker thread.
+ */
+class ScanPipeline @JvmOverloads constructor(
+    stages: List<ScanStage>,
+    private val listener: Listener,
+    queueCapacity: Int = DEFAULT_QUEUE_CAPACITY,
+    name: String = DEFAULT_NAME
+) : Closeable {
+
+    /**
+     * Receives the scans at the end of the pipeline.
+     */
+    fun interface Listener {
+
+        /**
+         * Called on the worker thread for every processed scan. [scan] is reused once this returns.
+         */
+        fun onScanProcessed(scan: PipelineScan)
+    }
+
+    /**
+     * Counters of a pipeline, see [metrics].
+     */
+    data class Metrics(
+        val submitted: Long,
+        val dropped: Long,
+        val processed: Long,
+        val rejected: Long,
+        val failed: Long,
+        val queueDepth: Int
+    )
+
+    private val stages = stages.toTypedArray()
+    private val stageTimes = Array(this.stages.size) { LatencyHistogram() }
+    private val totalTime = LatencyHistogram()
+    private val free = ArrayBlockingQueue<PipelineScan>(queueCapacity)
+    private val queue = ArrayBlockingQueue<PipelineScan>(queueCapacity + 1)
+    private val worker = Thread({ run() }, name)
+
+    private val submitted = AtomicLong()
+    private val dropped = AtomicLong()
+    private val processed = AtomicLong()
+    private val rejected = AtomicLong()
+    private val failed = AtomicLong()
+
+    @Volatile
+    private var closed = false
+
+    init {
+        require(queueCapacity > 0) { "queueCapacity must be positive, was $queueCapacity" }
+        for (i in 0 until queueCapacity) {
+            free.add(PipelineScan())
+        }
+        worker.start()
+    }
+
+    /**
+     * Queues a scan for the pipeline without blocking.
+     *
+     * @param scanToken token of the scan in the [ScanLatencyTracker], handed to the listener with the scan.
+     * @return false if the scan was dropped because the worker is behind or the pipeline is closed.
+     */
+    @JvmOverloads
+    fun submit(
+        barcode: String,
+        symbology: String,
+        source: String,
+        scanToken: Long = ScanLatencyTracker.NO_SCAN
+    ): Boolean {
+        val scan = if (closed) null else free.poll()
+        if (scan == null) {
+            dropped.incrementAndGet()
+            return false
+        }
+        scan.set(barcode, symbology, source, System.nanoTime(), scanToken)
+        submitted.incrementAndGet()
+        queue.offer(scan)
+        return true
+    }
+
+    /**
+     * Returns a snapshot of the pipeline counters.
+     */
+    fun metrics(): Metrics {
+        return Metrics(
+            submitted = submitted.get(),
+            dropped = dropped.get(),
+            processed = processed.get(),
+            rejected = rejected.get(),
+            failed = failed.get(),
+            queueDepth = queue.size
+        )
+    }
+
+    /**
+     * Returns the histogram of the time spent in the stage at [index], in microseconds.
+     */
+    fun stageTime(index: Int): LatencyHistogram = stageTimes[index]
+
+    /**
+     * Returns a table of count, p50, p99 and max per stage and for the whole pipeline, in microseconds.
+     */
+    fun report(): String {
+        val builder = StringBuilder()
+        builder.append(String.format(Locale.US, REPORT_FORMAT, "stage", "count", "p50", "p99", "max"))
+        for (i in stages.indices) {
+            appendRow(builder, stages[i].name, stageTimes[i])
+        }
+        appendRow(builder, "total", totalTime)
+        return builder.toString()
+    }
+
+    /**
+     * Writes the [report] to logcat, one line per stage.
+     */
+    fun logReport() {
+        report().lineSequence().filter { it.isNotEmpty() }.forEach { Log.i(TAG, it) }
+    }
+
+    /**
+     * Processes the scans queued so far and stops the worker. Later scans are dropped.
+     */
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            queue.put(CLOSE)
+            worker.join()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    private fun run() {
+        while (true) {
+            val scan = try {
+                queue.take()
+            } catch (e: InterruptedException) {
+                return
+            }
+            if (scan === CLOSE) {
+                return
+            }
+            process(scan)
+            scan.clear()
+            free.offer(scan)
+        }
+    }
+
+    private fun process(scan: PipelineScan) {
+        val startedAt = System.nanoTime()
+        var stageStartedAt = startedAt
+        for (i in stages.indices) {
+            val proceed = try {
+                stages[i].process(scan)
+            } catch (e: RuntimeException) {
+                Log.e(TAG, "Stage ${stages[i].name} failed for ${scan.barcode}", e)
+                failed.incrementAndGet()
+                scan.reject("${stages[i].name} failed: ${e.message}")
+                false
+            }
+            val now = System.nanoTime()
+            stageTimes[i].recordValue((now - stageStartedAt) / NANOS_PER_MICRO)
+            stageStartedAt = now
+            if (!proceed) {
+                break
+            }
+        }
+        totalTime.recordValue((stageStartedAt - startedAt) / NANOS_PER_MICRO)
+        processed.incrementAndGet()
+        if (scan.isRejected) {
+            rejected.incrementAndGet()
+        }
+        try {
+            listener.onScanProcessed(scan)
+        } catch (e: RuntimeException) {
+            Log.e(TAG, "Listener failed for ${scan.barcode}", e)
+        }
+    }
+
+    private fun appendRow(builder: StringBuilder, label: String, histogram: LatencyHistogram) {
+        builder.append(
+            String.format(
+                Locale.US,
+                REPORT_FORMAT,
+                label,
+                histogram.count.toString(),
+                histogram.valueAtPercentile(50.0).toString(),
+                histogram.valueAtPercentile(99.0).toString(),
+                histogram.max.toString()
+            )
+        )
+    }
+
+    companion object {
+
+        private const val TAG = "ScanPipeline"
+        private const val DEFAULT_NAME = "scan-pipeline"
+        private const val NANOS_PER_MICRO = 1_000L
+        private const val REPORT_FORMAT = "%-16s %8s %10s %10s %10s\n"
+
+        const val DEFAULT_QUEUE_CAPACITY = 64
+
+        // marks the end of the queue on close
+        private val CLOSE = PipelineScan()
+    }
+}
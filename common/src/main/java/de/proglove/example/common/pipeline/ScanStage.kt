@@ -0,0 +1,24 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * One step of a [ScanPipeline], e.g. parsing, validating or routing a scan.
+ *
+ * Stages run one after another on the pipeline thread and share the [PipelineScan], so a stage can build on the
+ * results of the stages before it. A stage must not keep the scan after [process] returned, it is reused for later
+ * scans.
+ */
+interface ScanStage {
+
+    /**
+     * Name of the stage in the timing report of the pipeline.
+     */
+    val name: String
+
+    /**
+     * Processes [scan].
+     *
+     * @return true to pass the scan on to the next stage, false to end the pipeline for it, e.g. after
+     * [PipelineScan.reject].
+     */
+    fun process(scan: PipelineScan): Boolean
+}
@@ -0,0 +1,33 @@
+package de.proglove.example.common.pipeline
+
+/**
+ * Picks the [PipelineScan.route] of a scan by its symbology.
+ *
+ * @param routes route by symbology name, as reported by the scanner.
+ * @param gs1Route route of scans with parsed GS1 elements, regardless of their symbology. Null to route them by
+ * symbology as well.
+ * @param defaultRoute route of all other scans.
+ */
+class SymbologyRouteStage @JvmOverloads constructor(
+    private val routes: Map<String, String>,
+    private val gs1Route: String? = null,
+    private val defaultRoute: String = DEFAULT_ROUTE
+) : ScanStage {
+
+    override val name: String
+        get() = NAME
+
+    override fun process(scan: PipelineScan): Boolean {
+        scan.route = if (gs1Route != null && scan.gs1.count > 0) {
+            gs1Route
+        } else {
+            routes[scan.symbology] ?: defaultRoute
+        }
+        return true
+    }
+
+    companion object {
+        const val NAME = "route"
+        const val DEFAULT_ROUTE = "default"
+    }
+}
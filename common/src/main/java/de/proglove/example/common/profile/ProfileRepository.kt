@@ -0,0 +1,261 @@
+package de.proglove.example.common.profile
+
+import de.proglove.example.common.dispatch.RequestTracker
+import de.proglove.example.common.dispatch.Scheduler
+
+/**
+ * In-memory cache of the configuration profiles and the active profile id.
+ *
+ * Profiles hardly ever change, so [get] answers from memory and only the first read after an [invalidate] asks the
+ * [fetcher] for them. The apps invalidate the cache when the scanner configuration changed and after a profile was
+ * changed successfully, nothing else makes it stale. Reads arriving while a fetch is in flight wait for that fetch
+ * instead of starting another one. If the cache is invalidated while a fetch is in flight, its answer may already be
+ * outdated, the waiting reads then get the answer of a new fetch.
+ *
+ * Every fetch gets a request id, which the [fetcher] reports back with [onFetched] or [onFetchFailed]. The Intent API
+ * answer carries no id, it completes the fetch in flight with the id-less [onFetched], or updates the cache if nothing
+ * is in flight. When no answer arrives within [timeoutMs], the waiting reads fail.
+ *
+ * Callbacks run on the thread that answered the fetch, or on the calling thread for reads served from memory.
+ *
+ * @param P the type of a profile, e.g. the SDK's `PgConfigProfile`.
+ * @param scheduler runs the fetch timeouts.
+ * @param timeoutMs time to wait for the answer of a fetch.
+ * @param fetcher asks for the profiles.
+ */
+class ProfileRepository<P : Any> @JvmOverloads constructor(
+    scheduler: Scheduler,
+    private val timeoutMs: Long = DEFAULT_TIMEOUT_MS,
+    private val fetcher: Fetcher<P>
+) {
+
+    /**
+     * Asks for the profiles and reports the answer to the repository with the given request id.
+     */
+    fun interface Fetcher<P : Any> {
+
+        fun fetch(requestId: Long, repository: ProfileRepository<P>)
+    }
+
+    /**
+     * Receives the result of a [get].
+     */
+    interface Callback<P : Any> {
+
+        fun onProfiles(profiles: Profiles<P>)
+
+        fun onError(message: String)
+    }
+
+    /**
+     * The profiles in the order the service reported them, and the id of the active one, null if none is active.
+     */
+    data class Profiles<P : Any>(val profiles: List<P>, val activeProfileId: String?)
+
+    /**
+     * Point-in-time view of the repository counters.
+     *
+     * Of all [reads], [cacheHits] were served from memory and [merged] joined a fetch in flight, the rest started a
+     * fetch. [roundTrips] counts the fetches sent to the service, round trip times cover answered fetches only.
+     */
+    data class Metrics(
+        val reads: Long,
+        val cacheHits: Long,
+        val merged: Long,
+        val roundTrips: Long,
+        val failed: Long,
+        val timedOut: Long,
+        val invalidations: Long,
+        val ignoredResults: Long,
+        val lastRoundTripMs: Long,
+        val averageRoundTripMs: Long,
+        val maxRoundTripMs: Long
+    )
+
+    private val lock = Any()
+
+    private var cached: Profiles<P>? = null
+    private var valid = false
+    private var generation = 0L
+    private val waiting = ArrayList<Callback<P>>()
+
+    private val requests = RequestTracker(scheduler, timeoutMs) { requestId -> timeOut(requestId) }
+    private var inFlightGeneration = 0L
+
+    private var reads = 0L
+    private var cacheHits = 0L
+    private var merged = 0L
+    private var roundTrips = 0L
+    private var failed = 0L
+    private var timedOut = 0L
+    private var invalidations = 0L
+    private var ignoredResults = 0L
+
+    /**
+     * Passes the profiles to [callback], from memory if they did not change since they were fetched.
+     */
+    fun get(callback: Callback<P>) {
+        var requestId = RequestTracker.NO_REQUEST
+        val profiles = synchronized(lock) {
+            reads++
+            val current = cached
+            if (valid && current != null) {
+                cacheHits++
+                current
+            } else {
+                waiting.add(callback)
+                if (requests.isInFlight) {
+                    merged++
+                    return
+                }
+                requestId = startLocked()
+                null
+            }
+        }
+        if (profiles != null) {
+            callback.onProfiles(profiles)
+        } else {
+            fetch(requestId)
+        }
+    }
+
+    /**
+     * Returns the profiles last fetched without asking for them, null if they were never fetched. They may be stale.
+     */
+    fun cached(): Profiles<P>? = synchronized(lock) { cached }
+
+    /**
+     * Marks the cached profiles as stale, e.g. after the scanner configuration or the active profile changed. The next
+     * [get] fetches them again.
+     */
+    fun invalidate() {
+        synchronized(lock) {
+            invalidations++
+            generation++
+            valid = false
+        }
+    }
+
+    /**
+     * Reports the answer to the fetch with [requestId]. Answers to any other fetch are ignored.
+     */
+    fun onFetched(requestId: Long, profiles: List<P>, activeProfileId: String?) {
+        complete(requestId, Profiles(profiles.toList(), activeProfileId), null)
+    }
+
+    /**
+     * Reports profiles that carry no request id. They answer the fetch in flight, or just update the cache.
+     *
+     * @return false if no fetch was in flight, so no read was passed the profiles.
+     */
+    fun onFetched(profiles: List<P>, activeProfileId: String?): Boolean {
+        return complete(RequestTracker.ANY_REQUEST, Profiles(profiles.toList(), activeProfileId), null)
+    }
+
+    /**
+     * Reports that the fetch with [requestId] failed with [message]. The waiting reads fail, the cache stays stale.
+     */
+    fun onFetchFailed(requestId: Long, message: String) {
+        complete(requestId, null, message)
+    }
+
+    /**
+     * Returns a snapshot of the repository counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(
+                reads = reads,
+                cacheHits = cacheHits,
+                merged = merged,
+                roundTrips = roundTrips,
+                failed = failed,
+                timedOut = timedOut,
+                invalidations = invalidations,
+                ignoredResults = ignoredResults,
+                lastRoundTripMs = requests.lastRoundTripMs,
+                averageRoundTripMs = requests.averageRoundTripMs,
+                maxRoundTripMs = requests.maxRoundTripMs
+            )
+        }
+    }
+
+    private fun startLocked(): Long {
+        inFlightGeneration = generation
+        roundTrips++
+        return requests.start()
+    }
+
+    private fun fetch(requestId: Long) {
+        try {
+            fetcher.fetch(requestId, this)
+        } catch (e: RuntimeException) {
+            complete(requestId, null, e.toString())
+            throw e
+        }
+    }
+
+    private fun timeOut(requestId: Long) {
+        val callbacks = synchronized(lock) {
+            if (!requests.matches(requestId)) {
+                return
+            }
+            timedOut++
+            requests.clear()
+            takeWaitingLocked()
+        }
+        callbacks.forEach { it.onError("No profiles received within $timeoutMs ms") }
+    }
+
+    private fun complete(requestId: Long, profiles: Profiles<P>?, error: String?): Boolean {
+        var refetchId = RequestTracker.NO_REQUEST
+        val callbacks = synchronized(lock) {
+            if (!requests.matches(requestId)) {
+                if (requestId == RequestTracker.ANY_REQUEST && profiles != null) {
+                    // an answer to a request of someone else, still the current profiles
+                    cached = profiles
+                    valid = true
+                } else {
+                    ignoredResults++
+                }
+                return false
+            }
+            requests.answered()
+            if (profiles == null) {
+                failed++
+                takeWaitingLocked()
+            } else {
+                cached = profiles
+                valid = inFlightGeneration == generation
+                if (!valid && waiting.isNotEmpty()) {
+                    // invalidated while in flight, the answer may predate the change
+                    refetchId = startLocked()
+                    emptyList()
+                } else {
+                    takeWaitingLocked()
+                }
+            }
+        }
+        if (refetchId != RequestTracker.NO_REQUEST) {
+            fetch(refetchId)
+            return true
+        }
+        if (profiles == null) {
+            callbacks.forEach { it.onError(error ?: "Fetching the profiles failed") }
+        } else {
+            callbacks.forEach { it.onProfiles(profiles) }
+        }
+        return true
+    }
+
+    private fun takeWaitingLocked(): List<Callback<P>> {
+        val callbacks = ArrayList(waiting)
+        waiting.clear()
+        return callbacks
+    }
+
+    companion object {
+
+        const val DEFAULT_TIMEOUT_MS = 5000L
+    }
+}
@@ -0,0 +1,6 @@
+package de.proglove.example.common.profile
+
+/**
+ * Profile data for displaying on UI.
+ */
+data class ProfileUiData(val profileId: String, val active: Boolean)
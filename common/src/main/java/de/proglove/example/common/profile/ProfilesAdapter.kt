@@ -0,0 +1,122 @@
+package de.proglove.example.common.profile
+
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.Button
+import android.widget.TextView
+import androidx.recyclerview.widget.AsyncDifferConfig
+import androidx.recyclerview.widget.AsyncListDiffer
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.RecyclerView
+import de.proglove.example.common.R
+
+/**
+ * Adapter that handles visual representation of the list of configuration profiles.
+ *
+ * [updateProfiles] diffs the new list against the shown one on a background thread and only rebinds the rows that
+ * changed, so switching the active profile rebinds the previously and the newly active row and nothing else. Rows have
+ * stable ids derived from the profile id. All rows share one click listener, which reads the profile id from the tag
+ * of the clicked button.
+ *
+ * @param onProfileClicked called with the id of the profile whose button was clicked.
+ */
+class ProfilesAdapter(
+    private val onProfileClicked: OnProfileClickListener
+) : RecyclerView.Adapter<ProfilesAdapter.ProfileViewHolder>() {
+
+    /**
+     * Receives clicks on the profile buttons.
+     */
+    fun interface OnProfileClickListener {
+
+        fun onProfileClicked(profileId: String)
+    }
+
+    private val differ = AsyncListDiffer(this, AsyncDifferConfig.Builder(DIFF_CALLBACK).build())
+
+    private val clickListener = View.OnClickListener { view ->
+        (view.tag as? String)?.let { onProfileClicked.onProfileClicked(it) }
+    }
+
+    // ids are handed out per profile id on the main thread, unlike hash codes they never collide
+    private val itemIds = HashMap<String, Long>()
+
+    init {
+        setHasStableIds(true)
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ProfileViewHolder {
+        val profileView = LayoutInflater.from(parent.context).inflate(R.layout.item_profile, parent, false)
+        return ProfileViewHolder(profileView, clickListener)
+    }
+
+    override fun onBindViewHolder(holder: ProfileViewHolder, position: Int) {
+        holder.bind(differ.currentList[position])
+    }
+
+    override fun onBindViewHolder(holder: ProfileViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.isNotEmpty() && payloads.all { it == PAYLOAD_ACTIVE }) {
+            holder.bindActive(differ.currentList[position])
+        } else {
+            onBindViewHolder(holder, position)
+        }
+    }
+
+    override fun getItemCount(): Int = differ.currentList.size
+
+    override fun getItemId(position: Int): Long {
+        val profileId = differ.currentList[position].profileId
+        return itemIds.getOrPut(profileId) { itemIds.size.toLong() }
+    }
+
+    /**
+     * Shows [profiles] once they are diffed against the current list. Call on the main thread and do not modify the
+     * list afterwards.
+     */
+    fun updateProfiles(profiles: List<ProfileUiData>) {
+        differ.submitList(profiles)
+    }
+
+    /**
+     * ViewHolder for displaying configuration profile's overview.
+     */
+    class ProfileViewHolder(view: View, clickListener: View.OnClickListener) : RecyclerView.ViewHolder(view) {
+
+        private val profileActivateButton: Button = view.findViewById(R.id.profileActivateButton)
+        private val profileActiveLabel: TextView = view.findViewById(R.id.profileActiveLabel)
+
+        init {
+            profileActivateButton.setOnClickListener(clickListener)
+        }
+
+        fun bind(profile: ProfileUiData) {
+            profileActivateButton.text = profile.profileId
+            profileActivateButton.tag = profile.profileId
+            bindActive(profile)
+        }
+
+        fun bindActive(profile: ProfileUiData) {
+            profileActiveLabel.visibility = if (profile.active) View.VISIBLE else View.INVISIBLE
+        }
+    }
+
+    companion object {
+
+        private const val PAYLOAD_ACTIVE = "active"
+
+        private val DIFF_CALLBACK = object : DiffUtil.ItemCallback<ProfileUiData>() {
+
+            override fun areItemsTheSame(oldItem: ProfileUiData, newItem: ProfileUiData): Boolean {
+                return oldItem.profileId == newItem.profileId
+            }
+
+            override fun areContentsTheSame(oldItem: ProfileUiData, newItem: ProfileUiData): Boolean {
+                return oldItem == newItem
+            }
+
+            // only the active flag can differ between items with the same id
+            override fun getChangePayload(oldItem: ProfileUiData, newItem: ProfileUiData): Any = PAYLOAD_ACTIVE
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.proglove.example.common.scan
+
+import de.proglove.example.common.dispatch.Scheduler
+
+/**
+ * Collects scans into a bounded buffer and hands them over in batches.
+ *
+ * A batch is delivered when [maxBatchSize] scans are buffered or [maxDelayMs] after the first scan of the batch,
+ * whichever comes first. Scans are always delivered in the order they were offered, so the order of scans coming
+ * from the same scanner is preserved.
+ *
+ * Batches are delivered on the thread that triggers the flush: the [scheduler] thread for time based flushes and the
+ * offering thread for size based flushes. If another thread is delivering at that moment, it delivers the new batch
+ * as well once its current one is done, so batches never overtake each other. [onBatch] runs without the batcher
+ * lock held, a slow receiver does not block [offer]. The list passed to [onBatch] is reused for a later batch, so it
+ * is only valid for the duration of the call.
+ *
+ * @param maxBatchSize maximum number of scans in a single batch, also the capacity of the buffer.
+ * @param maxDelayMs maximum time a scan waits in the buffer before its batch is delivered.
+ * @param scheduler used to trigger time based flushes.
+ * @param onBatch receives every non-empty batch.
+ */
+class ScanBatcher(
+    private val maxBatchSize: Int,
+    private val maxDelayMs: Long,
+    private val scheduler: Scheduler,
+    private val onBatch: (List<ScanEvent>) -> Unit
+) {
+
+    private val lock = Any()
+    private val buffer = arrayOfNulls<ScanEvent>(maxBatchSize)
+    private var size = 0
+    private var flushScheduled = false
+
+    // batches taken from the buffer and waiting for delivery, in order
+    private val ready = ArrayDeque<ArrayList<ScanEvent>>()
+    private var spare: ArrayList<ScanEvent>? = null
+    private var delivering = false
+
+    private val flushTask = Runnable { flush() }
+
+    init {
+        require(maxBatchSize > 0) { "maxBatchSize must be positive, was $maxBatchSize" }
+        require(maxDelayMs >= 0) { "maxDelayMs must not be negative, was $maxDelayMs" }
+    }
+
+    /**
+     * Adds a scan to the current batch. Delivers the batch right away if it reached [maxBatchSize].
+     */
+    fun offer(event: ScanEvent) {
+        synchronized(lock) {
+            buffer[size++] = event
+            if (size < maxBatchSize) {
+                if (!flushScheduled) {
+                    flushScheduled = true
+                    scheduler.schedule(maxDelayMs, flushTask)
+                }
+                return
+            }
+            takeBatchLocked()
+        }
+        deliverReady()
+    }
+
+    /**
+     * Delivers all buffered scans immediately, if there are any.
+     */
+    fun flush() {
+        synchronized(lock) {
+            if (size == 0) {
+                flushScheduled = false
+                return
+            }
+            takeBatchLocked()
+        }
+        deliverReady()
+    }
+
+    private fun takeBatchLocked() {
+        if (flushScheduled) {
+            scheduler.cancel(flushTask)
+            flushScheduled = false
+        }
+        val batch = spare ?: ArrayList(maxBatchSize)
+        spare = null
+        for (i in 0 until size) {
+            batch.add(buffer[i]!!)
+            buffer[i] = null
+        }
+        size = 0
+        ready.addLast(batch)
+    }
+
+    private fun deliverReady() {
+        synchronized(lock) {
+            if (delivering) {
+                // the delivering thread, possibly this one further up the stack, picks the batch up
+                return
+            }
+            delivering = true
+        }
+        var batch: ArrayList<ScanEvent>? = null
+        try {
+            while (true) {
+                batch = synchronized(lock) {
+                    batch?.let {
+                        it.clear()
+                        spare = it
+                    }
+                    ready.removeFirstOrNull() ?: run {
+                        delivering = false
+                        null
+                    }
+                } ?: return
+                onBatch(batch)
+            }
+        } catch (e: Throwable) {
+            synchronized(lock) {
+                // let the next flush deliver the remaining batches
+                delivering = false
+            }
+            throw e
+        }
+    }
+}
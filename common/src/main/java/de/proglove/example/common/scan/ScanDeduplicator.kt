@@ -0,0 +1,249 @@
+package de.proglove.example.common.scan
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Suppresses a scan of the same barcode, symbology and scanner within [windowMs] of the last accepted one, e.g. a
+ * worker scanning the same label twice.
+ *
+ * Memory is fixed up front and [isDuplicate] neither allocates nor takes longer with more scans. Each scan is reduced
+ * to a 64 bit fingerprint. A rotating Bloom filter of two generations, each covering one window, answers most new
+ * scans without further work. Only scans the filter may have seen are looked up in an exact table of the last
+ * [capacity] fingerprints and their times, which evicts the least recently accepted entry when full. A scan is
+ * suppressed only if the exact table confirms it, so filter false positives and evicted entries never drop a scan.
+ *
+ * @param windowMs time after an accepted scan during which the same scan is suppressed.
+ * @param capacity number of scans remembered exactly, a power of two. Should exceed the scans of one window.
+ */
+class ScanDeduplicator @JvmOverloads constructor(
+    val windowMs: Long = DEFAULT_WINDOW_MS,
+    private val capacity: Int = DEFAULT_CAPACITY
+) {
+
+    /**
+     * Counters of a deduplicator, see [metrics].
+     *
+     * [filterHits] counts scans the Bloom filter passed on to the exact table, [falsePositives] those of them the
+     * table did not confirm.
+     */
+    data class Metrics(
+        val checked: Long,
+        val suppressed: Long,
+        val filterHits: Long,
+        val falsePositives: Long,
+        val evictions: Long
+    )
+
+    private val lock = Any()
+    private val windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs)
+    private val mask: Int
+
+    // two Bloom filter generations, the older one is cleared and becomes the current one every window
+    private val filterBits = capacity * FILTER_BITS_PER_ENTRY
+    private var currentFilter = LongArray(filterBits / 64)
+    private var previousFilter = LongArray(filterBits / 64)
+    private var rotatedAtNanos = 0L
+    private var rotated = false
+
+    // exact table with linear probing, NO_FINGERPRINT marks free slots
+    private val fingerprints = LongArray(capacity)
+    private val acceptedAtNanos = LongArray(capacity)
+
+    private var checked = 0L
+    private var suppressed = 0L
+    private var filterHits = 0L
+    private var falsePositives = 0L
+    private var evictions = 0L
+
+    init {
+        require(windowMs > 0) { "windowMs must be positive, was $windowMs" }
+        require(capacity >= MAX_PROBES && capacity and (capacity - 1) == 0) {
+            "capacity must be a power of two of at least $MAX_PROBES, was $capacity"
+        }
+        mask = capacity - 1
+    }
+
+    /**
+     * Returns true if the same scan was accepted within the window, otherwise remembers the scan as accepted.
+     *
+     * @param barcode scanned barcode content.
+     * @param symbology symbology of the barcode, empty if unknown.
+     * @param scanner identifier of the scanner or source the scan came from.
+     * @param nowNanos monotonic time of the scan.
+     */
+    @JvmOverloads
+    fun isDuplicate(barcode: String, symbology: String, scanner: String, nowNanos: Long = System.nanoTime()): Boolean {
+        val fingerprint = fingerprint(barcode, symbology, scanner)
+        synchronized(lock) {
+            checked++
+            rotateFilters(nowNanos)
+            if (mightContain(fingerprint)) {
+                filterHits++
+                val slot = find(fingerprint)
+                if (slot >= 0 && nowNanos - acceptedAtNanos[slot] < windowNanos) {
+                    suppressed++
+                    return true
+                }
+                if (slot < 0) {
+                    falsePositives++
+                }
+            }
+            addToFilter(fingerprint)
+            remember(fingerprint, nowNanos)
+            return false
+        }
+    }
+
+    /**
+     * Forgets all scans, the counters are kept.
+     */
+    fun reset() {
+        synchronized(lock) {
+            currentFilter.fill(0L)
+            previousFilter.fill(0L)
+            fingerprints.fill(NO_FINGERPRINT)
+            acceptedAtNanos.fill(0L)
+            rotated = false
+        }
+    }
+
+    /**
+     * Returns a snapshot of the deduplicator counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(
+                checked = checked,
+                suppressed = suppressed,
+                filterHits = filterHits,
+                falsePositives = falsePositives,
+                evictions = evictions
+            )
+        }
+    }
+
+    private fun rotateFilters(nowNanos: Long) {
+        if (!rotated) {
+            rotatedAtNanos = nowNanos
+            rotated = true
+            return
+        }
+        val elapsed = nowNanos - rotatedAtNanos
+        if (elapsed < windowNanos) {
+            return
+        }
+        if (elapsed >= 2 * windowNanos) {
+            // idle for two windows, nothing in either generation can match any more
+            currentFilter.fill(0L)
+            previousFilter.fill(0L)
+        } else {
+            val cleared = previousFilter
+            cleared.fill(0L)
+            previousFilter = currentFilter
+            currentFilter = cleared
+        }
+        rotatedAtNanos = nowNanos
+    }
+
+    private fun mightContain(fingerprint: Long): Boolean {
+        return filterContains(currentFilter, fingerprint) || filterContains(previousFilter, fingerprint)
+    }
+
+    private fun filterContains(filter: LongArray, fingerprint: Long): Boolean {
+        val h1 = fingerprint.toInt()
+        val h2 = (fingerprint ushr 32).toInt()
+        for (i in 1..FILTER_HASHES) {
+            val bit = ((h1 + i * h2) and Int.MAX_VALUE) % filterBits
+            if (filter[bit ushr 6] and (1L shl bit) == 0L) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private fun addToFilter(fingerprint: Long) {
+        val h1 = fingerprint.toInt()
+        val h2 = (fingerprint ushr 32).toInt()
+        for (i in 1..FILTER_HASHES) {
+            val bit = ((h1 + i * h2) and Int.MAX_VALUE) % filterBits
+            currentFilter[bit ushr 6] = currentFilter[bit ushr 6] or (1L shl bit)
+        }
+    }
+
+    private fun find(fingerprint: Long): Int {
+        var slot = fingerprint.toInt() and mask
+        for (i in 0 until MAX_PROBES) {
+            if (fingerprints[slot] == fingerprint) {
+                return slot
+            }
+            slot = (slot + 1) and mask
+        }
+        return -1
+    }
+
+    private fun remember(fingerprint: Long, nowNanos: Long) {
+        var slot = fingerprint.toInt() and mask
+        var target = -1
+        var oldest = slot
+        for (i in 0 until MAX_PROBES) {
+            val stored = fingerprints[slot]
+            if (stored == fingerprint || stored == NO_FINGERPRINT) {
+                target = slot
+                break
+            }
+            if (acceptedAtNanos[slot] - acceptedAtNanos[oldest] < 0) {
+                oldest = slot
+            }
+            slot = (slot + 1) and mask
+        }
+        if (target < 0) {
+            // every slot in reach is taken, give up the least recently accepted scan
+            target = oldest
+            if (nowNanos - acceptedAtNanos[oldest] < windowNanos) {
+                evictions++
+            }
+        }
+        fingerprints[target] = fingerprint
+        acceptedAtNanos[target] = nowNanos
+    }
+
+    companion object {
+
+        const val DEFAULT_WINDOW_MS = 1_500L
+        const val DEFAULT_CAPACITY = 1024
+
+        private const val NO_FINGERPRINT = 0L
+        private const val MAX_PROBES = 8
+        private const val FILTER_BITS_PER_ENTRY = 8
+        private const val FILTER_HASHES = 4
+
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+
+        /**
+         * 64 bit FNV-1a over the characters and lengths of the three values, finished with the MurmurHash3 mixer.
+         */
+        internal fun fingerprint(barcode: String, symbology: String, scanner: String): Long {
+            var hash = FNV_OFFSET_BASIS
+            hash = hashChars(hash, barcode)
+            hash = hashChars(hash, symbology)
+            hash = hashChars(hash, scanner)
+            hash = hash xor (hash ushr 33)
+            hash *= -0xae502812aa7333L
+            hash = hash xor (hash ushr 33)
+            hash *= -0x3b314601e57a13adL
+            hash = hash xor (hash ushr 33)
+            // 0 marks a free slot of the exact table
+            return if (hash == NO_FINGERPRINT) 1L else hash
+        }
+
+        private fun hashChars(seed: Long, value: String): Long {
+            var hash = seed
+            for (i in 0 until value.length) {
+                hash = (hash xor value[i].code.toLong()) * FNV_PRIME
+            }
+            // the length separates ("ab", "c") from ("a", "bc")
+            return (hash xor value.length.toLong()) * FNV_PRIME
+        }
+    }
+}
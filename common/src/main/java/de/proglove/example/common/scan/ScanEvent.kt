@@ -0,0 +1,88 @@
+package de.proglove.example.common.scan
+
+import de.proglove.example.common.metrics.ScanLatencyTracker
+
+/**
+ * A single barcode scan as received from the scanner.
+ *
+ * Instances are reusable and owned by a [ScanEventPool]: obtain one with [ScanEventPool.acquire], fill it with [set]
+ * and hand it back with [ScanEventPool.release] once it was processed. Receivers must not keep a reference to an
+ * event after their callback returned, copy the values they need instead.
+ */
+class ScanEvent internal constructor() {
+
+    /**
+     * The scanned barcode content.
+     */
+    var barcode: String = ""
+        private set
+
+    /**
+     * Symbology of the barcode, empty if not supported.
+     */
+    var symbology: String = ""
+        private set
+
+    /**
+     * Screen context from which the barcode was scanned, empty if there is none.
+     */
+    var screenContext: String = ""
+        private set
+
+    /**
+     * Monotonic timestamp ([System.nanoTime]) taken when the scan was received.
+     */
+    var receivedAtNanos: Long = 0L
+        private set
+
+    /**
+     * Intent action (or other source identifier) the scan was delivered with.
+     */
+    var sourceAction: String = ""
+        private set
+
+    /**
+     * Token of the scan in the [ScanLatencyTracker], [ScanLatencyTracker.NO_SCAN] if it is not tracked.
+     */
+    var scanToken: Long = ScanLatencyTracker.NO_SCAN
+        private set
+
+    // true while the event sits in the pool, guards against double release
+    internal var pooled = false
+
+    /**
+     * Fills this event with the values of a new scan.
+     *
+     * @return this event.
+     */
+    @JvmOverloads
+    fun set(
+        barcode: String,
+        symbology: String,
+        screenContext: String,
+        receivedAtNanos: Long,
+        sourceAction: String,
+        scanToken: Long = ScanLatencyTracker.NO_SCAN
+    ): ScanEvent {
+        this.barcode = barcode
+        this.symbology = symbology
+        this.screenContext = screenContext
+        this.receivedAtNanos = receivedAtNanos
+        this.sourceAction = sourceAction
+        this.scanToken = scanToken
+        return this
+    }
+
+    internal fun clear() {
+        barcode = ""
+        symbology = ""
+        screenContext = ""
+        receivedAtNanos = 0L
+        sourceAction = ""
+        scanToken = ScanLatencyTracker.NO_SCAN
+    }
+
+    override fun toString(): String {
+        return "ScanEvent(barcode=$barcode, symbology=$symbology, sourceAction=$sourceAction)"
+    }
+}
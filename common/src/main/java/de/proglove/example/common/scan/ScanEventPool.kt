@@ -0,0 +1,77 @@
+package de.proglove.example.common.scan
+
+/**
+ * Bounded pool of reusable [ScanEvent]s.
+ *
+ * In steady state every [acquire] is served by an event returned through [release] before, so scanning does not
+ * allocate new event objects. The pool keeps at most [capacity] idle events, additional released events are left to
+ * the garbage collector. [createdCount] and [reusedCount] show how well the pool absorbs the scan rate.
+ *
+ * @param capacity maximum number of idle events kept for reuse.
+ */
+class ScanEventPool(private val capacity: Int = DEFAULT_CAPACITY) {
+
+    private val lock = Any()
+    private val idle = arrayOfNulls<ScanEvent>(capacity)
+    private var idleCount = 0
+    private var created = 0L
+    private var reused = 0L
+
+    init {
+        require(capacity > 0) { "capacity must be positive, was $capacity" }
+    }
+
+    /**
+     * Number of events allocated by this pool so far.
+     */
+    val createdCount: Long
+        get() = synchronized(lock) { created }
+
+    /**
+     * Number of [acquire] calls served by a recycled event.
+     */
+    val reusedCount: Long
+        get() = synchronized(lock) { reused }
+
+    /**
+     * Returns an empty event, recycled if possible.
+     */
+    fun acquire(): ScanEvent {
+        synchronized(lock) {
+            if (idleCount > 0) {
+                val event = idle[--idleCount]!!
+                idle[idleCount] = null
+                event.pooled = false
+                reused++
+                return event
+            }
+            created++
+        }
+        return ScanEvent()
+    }
+
+    /**
+     * Hands [event] back to the pool. The event must not be used by the caller afterwards.
+     */
+    fun release(event: ScanEvent) {
+        synchronized(lock) {
+            check(!event.pooled) { "$event was already released" }
+            event.clear()
+            event.pooled = true
+            if (idleCount < capacity) {
+                idle[idleCount++] = event
+            }
+        }
+    }
+
+    companion object {
+
+        private const val DEFAULT_CAPACITY = 64
+
+        /**
+         * Process wide pool used by the intent receive paths of the sample apps.
+         */
+        @JvmStatic
+        val shared: ScanEventPool by lazy { ScanEventPool() }
+    }
+}
@@ -0,0 +1,283 @@
+package de.proglove.example.common.storage
+
+import android.util.Log
+import java.io.Closeable
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import java.util.zip.CRC32
+import kotlin.concurrent.withLock
+
+/**
+ * Directory of captured JPEG images waiting for upload, oldest first.
+ *
+ * [save] writes the encoded bytes straight to a file through a [java.nio.channels.FileChannel], in chunks that also
+ * feed a CRC32, so an image is never decoded and never copied on its way to disk. The file is forced to disk under a
+ * temporary name and renamed once complete, its final name carries the sequence and the checksum. After a restart
+ * [open] picks the complete captures up again and deletes torn temporary files.
+ *
+ * The queue is bounded by [maxCount] captures and [maxBytes] on disk. When a new capture exceeds a bound, the oldest
+ * captures are evicted, the newest capture is always kept. An uploader takes captures with [peek] and removes them
+ * with [acknowledge] once they were delivered.
+ *
+ * @param directory directory of the capture files, used by this store only.
+ * @param maxCount maximum number of captures kept.
+ * @param maxBytes maximum total size of the captures kept.
+ */
+class ImageStore private constructor(
+    private val directory: File,
+    private val maxCount: Int,
+    private val maxBytes: Long
+) : Closeable {
+
+    /**
+     * One stored capture.
+     *
+     * @param crc32 CRC32 of the file content.
+     * @param capturedAtMillis wall clock time the capture was saved.
+     */
+    data class Capture(
+        val sequence: Long,
+        val file: File,
+        val size: Long,
+        val crc32: Long,
+        val capturedAtMillis: Long
+    ) {
+
+        /**
+         * Unique name of the capture, its file name without extension.
+         */
+        val name: String
+            get() = file.name.removeSuffix(EXTENSION)
+    }
+
+    /**
+     * Point-in-time view of the store counters.
+     *
+     * [bytesPerSecond] is the write throughput of [save], [peakHeapBytes] the highest heap use seen while saving.
+     */
+    data class Metrics(
+        val saved: Long,
+        val savedBytes: Long,
+        val bytesPerSecond: Long,
+        val peakHeapBytes: Long,
+        val pending: Int,
+        val pendingBytes: Long,
+        val acknowledged: Long,
+        val evicted: Long
+    )
+
+    private val lock = ReentrantLock()
+    private val notEmpty = lock.newCondition()
+    private val pending = ArrayDeque<Capture>()
+    private var pendingBytes = 0L
+    private var nextSequence = 1L
+
+    private var saved = 0L
+    private var savedBytes = 0L
+    private var writeNanos = 0L
+    private var peakHeapBytes = 0L
+    private var acknowledged = 0L
+    private var evicted = 0L
+
+    @Volatile
+    private var closed = false
+
+    /**
+     * Writes [length] bytes of the encoded image in [bytes] from [offset] to a new capture and queues it for upload.
+     *
+     * Safe to call from several threads, the files are written concurrently.
+     */
+    @JvmOverloads
+    @Throws(IOException::class)
+    fun save(bytes: ByteArray, offset: Int = 0, length: Int = bytes.size - offset): Capture {
+        check(!closed) { "store is closed" }
+        require(offset >= 0 && length >= 0 && offset + length <= bytes.size) { "invalid range $offset+$length" }
+        val sequence = lock.withLock { nextSequence++ }
+        val startedAt = System.nanoTime()
+        val temporary = File(directory, String.format(Locale.US, TEMPORARY_FORMAT, sequence))
+        val crc = CRC32()
+        try {
+            FileOutputStream(temporary).channel.use { channel ->
+                var position = offset
+                val end = offset + length
+                while (position < end) {
+                    val chunk = minOf(CHUNK_SIZE, end - position)
+                    crc.update(bytes, position, chunk)
+                    val buffer = ByteBuffer.wrap(bytes, position, chunk)
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer)
+                    }
+                    position += chunk
+                }
+                channel.force(false)
+            }
+            val file = File(directory, fileName(sequence, crc.value))
+            if (!temporary.renameTo(file)) {
+                throw IOException("could not rename ${temporary.name} to ${file.name}")
+            }
+            val capture = Capture(sequence, file, length.toLong(), crc.value, System.currentTimeMillis())
+            val elapsed = System.nanoTime() - startedAt
+            val heap = Runtime.getRuntime().let { it.totalMemory() - it.freeMemory() }
+            lock.withLock {
+                saved++
+                savedBytes += length
+                writeNanos += elapsed
+                peakHeapBytes = maxOf(peakHeapBytes, heap)
+                enqueueLocked(capture)
+            }
+            return capture
+        } catch (e: IOException) {
+            temporary.delete()
+            throw e
+        }
+    }
+
+    /**
+     * Returns the oldest capture without removing it, waiting up to [timeoutMs] for one.
+     *
+     * @return the capture, or null if none was saved in time.
+     */
+    @Throws(InterruptedException::class)
+    fun peek(timeoutMs: Long): Capture? {
+        var remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+        lock.withLock {
+            while (pending.isEmpty()) {
+                if (remainingNanos <= 0L) {
+                    return null
+                }
+                remainingNanos = notEmpty.awaitNanos(remainingNanos)
+            }
+            return pending.first()
+        }
+    }
+
+    /**
+     * Removes [capture] and its files, e.g. after it was uploaded. Captures evicted meanwhile are ignored.
+     */
+    fun acknowledge(capture: Capture) {
+        lock.withLock {
+            if (!pending.remove(capture)) {
+                return
+            }
+            pendingBytes -= capture.size
+            acknowledged++
+        }
+        delete(capture)
+    }
+
+    /**
+     * Returns the captures waiting for upload, oldest first.
+     */
+    fun pendingCaptures(): List<Capture> = lock.withLock { pending.toList() }
+
+    /**
+     * Returns a snapshot of the store counters.
+     */
+    fun metrics(): Metrics {
+        lock.withLock {
+            return Metrics(
+                saved = saved,
+                savedBytes = savedBytes,
+                bytesPerSecond = if (writeNanos > 0L) savedBytes * NANOS_PER_SECOND / writeNanos else 0L,
+                peakHeapBytes = peakHeapBytes,
+                pending = pending.size,
+                pendingBytes = pendingBytes,
+                acknowledged = acknowledged,
+                evicted = evicted
+            )
+        }
+    }
+
+    /**
+     * Stops accepting captures. The captures stay on disk for the next [open].
+     */
+    override fun close() {
+        closed = true
+    }
+
+    private fun enqueueLocked(capture: Capture) {
+        pending.addLast(capture)
+        pendingBytes += capture.size
+        while (pending.size > 1 && (pending.size > maxCount || pendingBytes > maxBytes)) {
+            val oldest = pending.removeFirst()
+            pendingBytes -= oldest.size
+            evicted++
+            Log.w(TAG, "Upload queue full, evicted capture ${oldest.name}")
+            delete(oldest)
+        }
+        notEmpty.signalAll()
+    }
+
+    private fun delete(capture: Capture) {
+        capture.file.delete()
+    }
+
+    private fun load() {
+        val files = directory.listFiles() ?: throw IOException("cannot list ${directory.path}")
+        val captures = ArrayList<Capture>()
+        for (file in files) {
+            val name = file.name
+            if (name.endsWith(TEMPORARY_EXTENSION)) {
+                // torn by a crash while saving
+                file.delete()
+                continue
+            }
+            if (!name.endsWith(EXTENSION)) {
+                continue
+            }
+            val parts = name.removeSuffix(EXTENSION).split('-')
+            val sequence = parts.getOrNull(0)?.toLongOrNull()
+            val crc = parts.getOrNull(1)?.toLongOrNull(16)
+            if (parts.size != 2 || sequence == null || crc == null) {
+                Log.w(TAG, "Ignoring unknown file $name")
+                continue
+            }
+            captures.add(Capture(sequence, file, file.length(), crc, file.lastModified()))
+        }
+        captures.sortBy { it.sequence }
+        lock.withLock {
+            for (capture in captures) {
+                enqueueLocked(capture)
+            }
+            nextSequence = (captures.lastOrNull()?.sequence ?: 0L) + 1L
+        }
+    }
+
+    companion object {
+
+        private const val TAG = "ImageStore"
+
+        const val DEFAULT_MAX_COUNT = 200
+        const val DEFAULT_MAX_BYTES = 64L * 1024 * 1024
+
+        private const val EXTENSION = ".jpg"
+        private const val TEMPORARY_EXTENSION = ".tmp"
+        private const val TEMPORARY_FORMAT = "%016d$TEMPORARY_EXTENSION"
+        private const val CHUNK_SIZE = 64 * 1024
+        private const val NANOS_PER_SECOND = 1_000_000_000L
+
+        /**
+         * Opens the store in [directory], creating the directory if needed, and queues the captures found in it.
+         */
+        @JvmStatic
+        @JvmOverloads
+        @Throws(IOException::class)
+        fun open(directory: File, maxCount: Int = DEFAULT_MAX_COUNT, maxBytes: Long = DEFAULT_MAX_BYTES): ImageStore {
+            require(maxCount > 0) { "maxCount must be positive, was $maxCount" }
+            require(maxBytes > 0) { "maxBytes must be positive, was $maxBytes" }
+            if (!directory.isDirectory && !directory.mkdirs()) {
+                throw IOException("cannot create ${directory.path}")
+            }
+            return ImageStore(directory, maxCount, maxBytes).also { it.load() }
+        }
+
+        private fun fileName(sequence: Long, crc: Long): String {
+            return String.format(Locale.US, "%016d-%08x%s", sequence, crc, EXTENSION)
+        }
+    }
+}
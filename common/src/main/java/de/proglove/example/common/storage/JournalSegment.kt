@@ -0,0 +1,215 @@
+package de.proglove.example.common.storage
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.util.Locale
+import java.util.zip.CRC32
+
+/**
+ * One memory-mapped segment file of the [ScanJournal].
+ *
+ * A segment is a fixed size, zero-filled file holding records back to back. Every record is a header of payload
+ * length and CRC32 of the payload, followed by the payload, which starts with the record sequence. The length is
+ * written last, so a record cut short by a crash usually still reads as the zero length marking the end. Whatever
+ * else a crash leaves behind fails the length or CRC check and is cut off by [recover].
+ *
+ * Only the journal writer thread appends to a segment, readers work on their own views of the mapping.
+ */
+internal class JournalSegment private constructor(
+    val file: File,
+    val baseSequence: Long,
+    private val buffer: MappedByteBuffer
+) {
+
+    // the writer's own view, so appends do not move the position of the shared buffer
+    private val writeView = buffer.duplicate()
+
+    /**
+     * Offset at which the next record is written.
+     */
+    var writePosition = 0
+        private set
+
+    /**
+     * Sequence of the last valid record, [baseSequence] - 1 while the segment is empty.
+     */
+    var lastSequence = baseSequence - 1
+        private set
+
+    /**
+     * Returns true if a record with [payloadLength] bytes of payload still fits.
+     */
+    fun hasRoom(payloadLength: Int): Boolean {
+        return writePosition + HEADER_SIZE + payloadLength <= buffer.capacity()
+    }
+
+    /**
+     * Appends a record. The caller checked [hasRoom] before.
+     */
+    fun append(sequence: Long, payload: ByteArray, length: Int, crc: Int) {
+        val position = writePosition
+        writeView.position(position + HEADER_SIZE)
+        writeView.put(payload, 0, length)
+        buffer.putInt(position + CRC_OFFSET, crc)
+        // the length goes last, it makes the record visible to readers and to recovery
+        buffer.putInt(position, length)
+        writePosition = position + HEADER_SIZE + length
+        lastSequence = sequence
+    }
+
+    /**
+     * Writes the mapped pages to the file.
+     */
+    fun force() {
+        buffer.force()
+    }
+
+    /**
+     * Returns a read-only view of the mapping for [readRecord].
+     */
+    fun readView(): ByteBuffer = buffer.asReadOnlyBuffer()
+
+    /**
+     * Finds the end of the valid records and zeroes a torn tail behind them.
+     *
+     * @return true if a torn tail was cut off.
+     */
+    private fun recover(): Boolean {
+        val view = buffer.duplicate()
+        val payload = ByteArray(MAX_PAYLOAD_SIZE)
+        val crc = CRC32()
+        var position = 0
+        while (true) {
+            val length = readRecord(view, position, payload, crc)
+            if (length <= 0) {
+                writePosition = position
+                if (length == CORRUPT) {
+                    zeroFrom(position)
+                    return true
+                }
+                return false
+            }
+            lastSequence = readSequence(payload)
+            position += HEADER_SIZE + length
+        }
+    }
+
+    private fun zeroFrom(position: Int) {
+        var offset = position
+        val end = buffer.capacity()
+        while (offset + 8 <= end) {
+            buffer.putLong(offset, 0L)
+            offset += 8
+        }
+        while (offset < end) {
+            buffer.put(offset, 0)
+            offset++
+        }
+        buffer.force()
+    }
+
+    companion object {
+
+        const val HEADER_SIZE = 8
+        const val MAX_PAYLOAD_SIZE = 16 * 1024
+
+        /**
+         * [readRecord] result for the end of the records.
+         */
+        const val END = 0
+
+        /**
+         * [readRecord] result for a record failing the length or CRC check.
+         */
+        const val CORRUPT = -1
+
+        private const val CRC_OFFSET = 4
+        private const val FILE_SUFFIX = ".journal"
+
+        /**
+         * Creates a new segment whose first record will get [baseSequence].
+         */
+        @Throws(IOException::class)
+        fun create(directory: File, baseSequence: Long, size: Int): JournalSegment {
+            val file = File(directory, String.format(Locale.US, "%020d%s", baseSequence, FILE_SUFFIX))
+            return JournalSegment(file, baseSequence, map(file, size))
+        }
+
+        /**
+         * Opens an existing segment for appending and recovers its end.
+         *
+         * @param onTornTail called when a torn tail was cut off.
+         */
+        @Throws(IOException::class)
+        fun openForAppend(file: File, baseSequence: Long, size: Int, onTornTail: () -> Unit): JournalSegment {
+            val mapSize = if (file.length() > 0L) file.length().toInt() else size
+            val segment = JournalSegment(file, baseSequence, map(file, mapSize))
+            if (segment.recover()) {
+                onTornTail()
+            }
+            return segment
+        }
+
+        /**
+         * Returns the base sequence encoded in the name of a segment [file], or null if it is no segment.
+         */
+        fun baseSequenceOf(file: File): Long? {
+            if (!file.name.endsWith(FILE_SUFFIX)) {
+                return null
+            }
+            return file.name.removeSuffix(FILE_SUFFIX).toLongOrNull()
+        }
+
+        /**
+         * Reads the record at [position] of [view] and copies its payload into [payload].
+         *
+         * @return the payload length, [END] at the end of the records or [CORRUPT] for a damaged record.
+         */
+        fun readRecord(view: ByteBuffer, position: Int, payload: ByteArray, crc: CRC32): Int {
+            if (position + HEADER_SIZE > view.capacity()) {
+                return END
+            }
+            val length = view.getInt(position)
+            if (length == 0) {
+                return END
+            }
+            if (length < 0 || length > payload.size || position + HEADER_SIZE + length > view.capacity()) {
+                return CORRUPT
+            }
+            val expectedCrc = view.getInt(position + CRC_OFFSET)
+            view.position(position + HEADER_SIZE)
+            view.get(payload, 0, length)
+            crc.reset()
+            crc.update(payload, 0, length)
+            if (crc.value.toInt() != expectedCrc) {
+                return CORRUPT
+            }
+            return length
+        }
+
+        /**
+         * Returns the sequence a record payload starts with.
+         */
+        fun readSequence(payload: ByteArray): Long {
+            var sequence = 0L
+            for (i in 0 until 8) {
+                sequence = (sequence shl 8) or (payload[i].toLong() and 0xFF)
+            }
+            return sequence
+        }
+
+        private fun map(file: File, size: Int): MappedByteBuffer {
+            RandomAccessFile(file, "rw").use { raf ->
+                if (raf.length() < size) {
+                    raf.setLength(size.toLong())
+                }
+                // the mapping stays valid after the channel is closed
+                return raf.channel.map(FileChannel.MapMode.READ_WRITE, 0L, size.toLong())
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package de.proglove.example.common.storage
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Read-only product master data, e.g. item description and storage location, looked up by barcode on the device.
+ *
+ * The data is an immutable file built offline with [MasterDataWriter] and memory-mapped as a whole, so [open] only
+ * checks the header and takes milliseconds no matter how large the file is. Pages are loaded by the OS on first
+ * access. The file ends with an open addressing hash table of the barcodes, [find] probes it and compares the
+ * barcode with the record bytes in place. The found record is bound to a reusable [Record], which reads its fields
+ * straight from the mapping, so lookups neither copy nor allocate.
+ *
+ * File layout, all numbers big-endian:
+ * - header: magic, version, record count, slot count, table offset, field count, 8 reserved bytes
+ * - field names: per field a 16 bit length and the UTF-8 bytes
+ * - records: 16 bit key length, the ASCII key, then per field a 16 bit length and the UTF-8 bytes
+ * - hash table: per slot the 32 bit hash of the key and the offset of its record, 0 for a free slot
+ *
+ * A store can be shared by any number of threads, each using its own [Record].
+ */
+class MasterDataStore private constructor(
+    private val buffer: ByteBuffer,
+    /**
+     * Number of records in the store.
+     */
+    val recordCount: Int,
+    /**
+     * Names of the fields every record has, e.g. to title them on the display.
+     */
+    val fieldNames: List<String>,
+    private val slotCount: Int,
+    private val tableOffset: Int
+) {
+
+    private val mask = slotCount - 1
+
+    /**
+     * Number of fields every record has.
+     */
+    val fieldCount: Int
+        get() = fieldNames.size
+
+    /**
+     * Creates a record to bind lookups to. A record must only be used by one thread at a time.
+     */
+    fun newRecord(): Record = Record()
+
+    /**
+     * Looks up the record of [barcode] and binds [into] to it.
+     *
+     * [start] and [end] select a part of [barcode] to look up, e.g. the GTIN element of a GS1 barcode.
+     *
+     * @return false if there is no record for the barcode, [into] is unbound then.
+     */
+    @JvmOverloads
+    fun find(barcode: CharSequence, into: Record, start: Int = 0, end: Int = barcode.length): Boolean {
+        require(into.store === this) { "record belongs to another store" }
+        val hash = hash(barcode, start, end)
+        var slot = hash and mask
+        while (true) {
+            val position = tableOffset + slot * SLOT_SIZE
+            val offset = buffer.getInt(position + SLOT_OFFSET)
+            if (offset == NO_RECORD) {
+                into.unbind()
+                return false
+            }
+            if (buffer.getInt(position) == hash && keyEquals(offset, barcode, start, end)) {
+                into.bind(offset)
+                return true
+            }
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun keyEquals(offset: Int, barcode: CharSequence, start: Int, end: Int): Boolean {
+        val length = readLength(offset)
+        if (length != end - start) {
+            return false
+        }
+        val keyStart = offset + LENGTH_SIZE
+        for (i in 0 until length) {
+            if (buffer.get(keyStart + i).toInt() and 0xFF != barcode[start + i].code) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private fun readLength(position: Int): Int = buffer.getShort(position).toInt() and 0xFFFF
+
+    /**
+     * Flyweight view of one record of the store. Field values are decoded from the mapping on access.
+     */
+    inner class Record internal constructor() {
+
+        internal val store: MasterDataStore
+            get() = this@MasterDataStore
+
+        // offset of the length prefix of each field of the bound record
+        private val fieldOffsets = IntArray(fieldNames.size)
+        private var bound = false
+
+        /**
+         * True while the record is bound to a found barcode.
+         */
+        val isBound: Boolean
+            get() = bound
+
+        /**
+         * Returns the length of field [index] in bytes.
+         */
+        fun fieldLength(index: Int): Int {
+            checkBound()
+            return readLength(fieldOffsets[index])
+        }
+
+        /**
+         * Appends the value of field [index] to [builder] without creating intermediate objects.
+         */
+        fun appendField(index: Int, builder: StringBuilder): StringBuilder {
+            checkBound()
+            val offset = fieldOffsets[index]
+            return decodeUtf8(offset + LENGTH_SIZE, readLength(offset), builder)
+        }
+
+        /**
+         * Returns the value of field [index] as a new string.
+         */
+        fun field(index: Int): String {
+            checkBound()
+            val offset = fieldOffsets[index]
+            val length = readLength(offset)
+            return decodeUtf8(offset + LENGTH_SIZE, length, StringBuilder(length)).toString()
+        }
+
+        internal fun bind(recordOffset: Int) {
+            var position = recordOffset + LENGTH_SIZE + readLength(recordOffset)
+            for (i in fieldOffsets.indices) {
+                fieldOffsets[i] = position
+                position += LENGTH_SIZE + readLength(position)
+            }
+            bound = true
+        }
+
+        internal fun unbind() {
+            bound = false
+        }
+
+        private fun checkBound() {
+            check(bound) { "record is not bound to a barcode" }
+        }
+    }
+
+    private fun decodeUtf8(start: Int, length: Int, builder: StringBuilder): StringBuilder {
+        var position = start
+        val end = start + length
+        while (position < end) {
+            val first = buffer.get(position++).toInt() and 0xFF
+            when {
+                first < 0x80 -> builder.append(first.toChar())
+                first < 0xC0 -> builder.append(REPLACEMENT_CHARACTER)
+                first < 0xE0 && position < end -> {
+                    builder.append((((first and 0x1F) shl 6) or continuation(position++)).toChar())
+                }
+                first < 0xF0 && position + 1 < end -> {
+                    val code = ((first and 0x0F) shl 12) or (continuation(position) shl 6) or continuation(position + 1)
+                    position += 2
+                    builder.append(code.toChar())
+                }
+                position + 2 < end -> {
+                    val code = ((first and 0x07) shl 18) or (continuation(position) shl 12) or
+                        (continuation(position + 1) shl 6) or continuation(position + 2)
+                    position += 3
+                    val supplementary = code - 0x10000
+                    builder.append((0xD800 + (supplementary shr 10)).toChar())
+                    builder.append((0xDC00 + (supplementary and 0x3FF)).toChar())
+                }
+                else -> {
+                    // truncated sequence at the end of the value
+                    builder.append(REPLACEMENT_CHARACTER)
+                    position = end
+                }
+            }
+        }
+        return builder
+    }
+
+    private fun continuation(position: Int): Int = buffer.get(position).toInt() and 0x3F
+
+    companion object {
+
+        internal const val MAGIC = 0x50474D44 // "PGMD"
+        internal const val VERSION = 1
+        internal const val HEADER_SIZE = 32
+        internal const val LENGTH_SIZE = 2
+        internal const val SLOT_SIZE = 8
+        internal const val NO_RECORD = 0
+        internal const val MAX_LENGTH = 0xFFFF
+
+        private const val SLOT_OFFSET = 4
+        private const val REPLACEMENT_CHARACTER = '\uFFFD'
+
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+
+        /**
+         * Maps the master data [file] read-only.
+         *
+         * @throws IOException if the file cannot be read or is no complete master data file.
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun open(file: File): MasterDataStore {
+            val buffer = RandomAccessFile(file, "r").use { raf ->
+                if (raf.length() < HEADER_SIZE || raf.length() > Int.MAX_VALUE) {
+                    throw IOException("${file.name} is no master data file, size ${raf.length()}")
+                }
+                // the mapping stays valid after the channel is closed
+                raf.channel.map(FileChannel.MapMode.READ_ONLY, 0L, raf.length())
+            }
+            if (buffer.getInt(0) != MAGIC) {
+                throw IOException("${file.name} is no master data file or was not written completely")
+            }
+            val version = buffer.getInt(4)
+            if (version != VERSION) {
+                throw IOException("${file.name} has unsupported version $version")
+            }
+            val recordCount = buffer.getInt(8)
+            val slotCount = buffer.getInt(12)
+            val tableOffset = buffer.getInt(16)
+            val fieldCount = buffer.getInt(20)
+            if (slotCount <= recordCount || slotCount and (slotCount - 1) != 0 || tableOffset < HEADER_SIZE ||
+                tableOffset.toLong() + slotCount.toLong() * SLOT_SIZE != buffer.capacity().toLong() || fieldCount < 0
+            ) {
+                throw IOException("${file.name} has an invalid header")
+            }
+            val fieldNames = ArrayList<String>(fieldCount)
+            var position = HEADER_SIZE
+            for (i in 0 until fieldCount) {
+                val length = buffer.getShort(position).toInt() and 0xFFFF
+                val bytes = ByteArray(length)
+                buffer.position(position + LENGTH_SIZE)
+                buffer.get(bytes)
+                fieldNames.add(String(bytes, Charsets.UTF_8))
+                position += LENGTH_SIZE + length
+            }
+            return MasterDataStore(buffer, recordCount, fieldNames, slotCount, tableOffset)
+        }
+
+        /**
+         * Hash of the key stored in the hash table, [hash64] folded to 32 bits.
+         */
+        internal fun hash(value: CharSequence, start: Int, end: Int): Int = fold(hash64(value, start, end))
+
+        /**
+         * Folds a [hash64] to the 32 bits stored in the hash table.
+         */
+        internal fun fold(hash: Long): Int = (hash xor (hash ushr 32)).toInt()
+
+        /**
+         * 64 bit FNV-1a over the characters from [start] to [end], finished with the MurmurHash3 mixer.
+         */
+        internal fun hash64(value: CharSequence, start: Int, end: Int): Long {
+            var hash = FNV_OFFSET_BASIS
+            for (i in start until end) {
+                hash = (hash xor value[i].code.toLong()) * FNV_PRIME
+            }
+            hash = hash xor (hash ushr 33)
+            hash *= -0xae502812aa7333L
+            hash = hash xor (hash ushr 33)
+            hash *= -0x3b314601e57a13adL
+            return hash xor (hash ushr 33)
+        }
+    }
+}
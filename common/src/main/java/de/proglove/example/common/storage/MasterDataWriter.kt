@@ -0,0 +1,158 @@
+package de.proglove.example.common.storage
+
+import java.io.BufferedOutputStream
+import java.io.Closeable
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+
+/**
+ * Builds a [MasterDataStore] file, typically offline on a backend or build machine.
+ *
+ * Records are streamed to the file as they are [add]ed, only the hash and offset of each record are kept in memory.
+ * [close] appends the hash table and writes the header last, so a file whose writer did not finish is never opened
+ * as a store.
+ *
+ * @param file file to create, replaced if it exists.
+ * @param fieldNames names of the fields every record has, e.g. "Description" and "Location".
+ */
+class MasterDataWriter @Throws(IOException::class) constructor(
+    private val file: File,
+    private val fieldNames: List<String>
+) : Closeable {
+
+    private val output = DataOutputStream(BufferedOutputStream(FileOutputStream(file), BUFFER_SIZE))
+    private var position = 0L
+    private var hashes = LongArray(INITIAL_CAPACITY)
+    private var offsets = IntArray(INITIAL_CAPACITY)
+    private var count = 0
+    private var closed = false
+
+    init {
+        // placeholder for the header, written by close
+        output.write(ByteArray(MasterDataStore.HEADER_SIZE))
+        position = MasterDataStore.HEADER_SIZE.toLong()
+        for (name in fieldNames) {
+            writeValue(name)
+        }
+    }
+
+    /**
+     * Adds the record of [key] with one value per field name.
+     *
+     * @throws IllegalArgumentException if the key is not ASCII, a value is longer than 65535 bytes or the number of
+     * values does not match the field names.
+     */
+    @Throws(IOException::class)
+    fun add(key: String, values: List<String>) {
+        check(!closed) { "writer is closed" }
+        require(key.isNotEmpty() && key.length <= MasterDataStore.MAX_LENGTH) { "invalid key length ${key.length}" }
+        require(key.all { it.code < 0x80 }) { "key $key is not ASCII" }
+        require(values.size == fieldNames.size) { "expected ${fieldNames.size} values for $key, got ${values.size}" }
+        if (count == hashes.size) {
+            hashes = hashes.copyOf(count * 2)
+            offsets = offsets.copyOf(count * 2)
+        }
+        if (position > Int.MAX_VALUE) {
+            throw IOException("master data exceeds ${Int.MAX_VALUE} bytes")
+        }
+        hashes[count] = MasterDataStore.hash64(key, 0, key.length)
+        offsets[count] = position.toInt()
+        count++
+        writeValue(key)
+        for (value in values) {
+            writeValue(value)
+        }
+    }
+
+    /**
+     * Appends the hash table and the header.
+     *
+     * @throws IllegalArgumentException if a key was added twice.
+     */
+    @Throws(IOException::class)
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            val slotCount = slotCountFor(count)
+            val mask = slotCount - 1
+            val slotHashes = LongArray(slotCount)
+            val slotOffsets = IntArray(slotCount)
+            for (i in 0 until count) {
+                val hash = hashes[i]
+                var slot = MasterDataStore.fold(hash) and mask
+                while (slotOffsets[slot] != MasterDataStore.NO_RECORD) {
+                    // keys are not kept in memory, equal 64 bit hashes are taken as the same key
+                    require(slotHashes[slot] != hash) { "duplicate key in record ${i + 1}" }
+                    slot = (slot + 1) and mask
+                }
+                slotHashes[slot] = hash
+                slotOffsets[slot] = offsets[i]
+            }
+            // align the table to its slot size
+            while (position % MasterDataStore.SLOT_SIZE != 0L) {
+                output.writeByte(0)
+                position++
+            }
+            val tableOffset = position
+            if (tableOffset + slotCount.toLong() * MasterDataStore.SLOT_SIZE > Int.MAX_VALUE) {
+                throw IOException("master data exceeds ${Int.MAX_VALUE} bytes")
+            }
+            for (slot in 0 until slotCount) {
+                output.writeInt(MasterDataStore.fold(slotHashes[slot]))
+                output.writeInt(slotOffsets[slot])
+            }
+            output.close()
+            writeHeader(count, slotCount, tableOffset.toInt())
+        } finally {
+            output.close()
+        }
+    }
+
+    private fun writeValue(value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        require(bytes.size <= MasterDataStore.MAX_LENGTH) { "value of ${bytes.size} bytes is too long" }
+        output.writeShort(bytes.size)
+        output.write(bytes)
+        position += MasterDataStore.LENGTH_SIZE + bytes.size
+    }
+
+    private fun writeHeader(recordCount: Int, slotCount: Int, tableOffset: Int) {
+        RandomAccessFile(file, "rw").use { raf ->
+            raf.seek(4L)
+            raf.writeInt(MasterDataStore.VERSION)
+            raf.writeInt(recordCount)
+            raf.writeInt(slotCount)
+            raf.writeInt(tableOffset)
+            raf.writeInt(fieldNames.size)
+            raf.fd.sync()
+            // the magic goes last, it marks the file as complete
+            raf.seek(0L)
+            raf.writeInt(MasterDataStore.MAGIC)
+            raf.fd.sync()
+        }
+    }
+
+    companion object {
+
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val INITIAL_CAPACITY = 1024
+        private const val MIN_SLOTS = 16
+
+        /**
+         * Table slots for [count] records, a power of two keeping the load factor at or below one half.
+         */
+        private fun slotCountFor(count: Int): Int {
+            var slots = MIN_SLOTS
+            while (slots < count * 2L) {
+                slots = slots shl 1
+            }
+            return slots
+        }
+    }
+}
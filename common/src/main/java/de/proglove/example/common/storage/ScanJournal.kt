@@ -0,0 +1,571 @@
+package de.proglove.example.common.storage
+
+import android.util.Log
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import java.util.zip.CRC32
+
+/**
+ * Crash-safe, append-only journal of received scans.
+ *
+ * Scans are appended to memory-mapped segment files of [segmentSize] bytes. Every record carries its length and a
+ * CRC32, so after a crash [open] finds the last complete record and cuts off a torn tail. A full segment is sealed
+ * and a new one is started; at most [maxSegments] are kept, the oldest are dropped first. Eviction does not wait for
+ * [acknowledge]: when scans arrive faster than they are handled, e.g. while the backend is unreachable for long, the
+ * oldest unacknowledged records are lost. Such losses are logged and counted in [Metrics.lostRecords].
+ *
+ * [append] only hands the scan to a bounded queue and never blocks the calling callback thread. A single writer
+ * thread drains the queue and forces each drained batch to disk at once (group commit), so under load many scans
+ * share one fsync. When the queue is full, scans are dropped and counted.
+ *
+ * Records stay in the journal until they are [acknowledge]d, e.g. after they were posted to the backend. [replay]
+ * runs through the unacknowledged records, typically right after the start of the app, while a [Cursor] from
+ * [openCursor] keeps following the journal as new records are written. The acknowledged sequence is kept in a
+ * checkpoint file, and segments holding only acknowledged records are deleted.
+ *
+ * @param directory directory of the segment and checkpoint files, used by this journal only.
+ * @param segmentSize size of a segment file in bytes.
+ * @param maxSegments maximum number of segment files kept.
+ * @param queueCapacity number of scans waiting for the writer before further scans are dropped.
+ */
+class ScanJournal private constructor(
+    private val directory: File,
+    private val segmentSize: Int,
+    private val maxSegments: Int,
+    queueCapacity: Int
+) : Closeable {
+
+    /**
+     * One journaled scan.
+     */
+    data class Record(
+        val sequence: Long,
+        val timestampMillis: Long,
+        val barcode: String,
+        val symbology: String,
+        val source: String
+    )
+
+    /**
+     * Receives the records of a [replay].
+     */
+    fun interface Visitor {
+
+        fun onRecord(record: Record)
+    }
+
+    /**
+     * Point-in-time view of the journal counters.
+     *
+     * [lostRecords] counts unacknowledged records deleted together with an evicted segment.
+     */
+    data class Metrics(
+        val appended: Long,
+        val dropped: Long,
+        val written: Long,
+        val forces: Long,
+        val segments: Int,
+        val evictedSegments: Long,
+        val lostRecords: Long,
+        val tornTailsRecovered: Long,
+        val queueDepth: Int,
+        val durableSequence: Long,
+        val acknowledgedSequence: Long
+    )
+
+    private class PendingScan(
+        val timestampMillis: Long,
+        val barcode: String,
+        val symbology: String,
+        val source: String
+    )
+
+    private val lock = Any()
+    private val writeLock = ReentrantLock()
+    private val writeCondition = writeLock.newCondition()
+    private val queue = ArrayBlockingQueue<PendingScan>(queueCapacity)
+    private val segments = ArrayList<JournalSegment>()
+    private val checkpointFile = File(directory, CHECKPOINT_FILE_NAME)
+
+    // touched by the writer thread only
+    private var activeSegment: JournalSegment? = null
+    private var nextSequence = 1L
+    private val payload = ByteArray(JournalSegment.MAX_PAYLOAD_SIZE)
+    private val payloadBuffer = ByteBuffer.wrap(payload)
+    private val writerCrc = CRC32()
+
+    private var acknowledgedSequence = 0L
+    private val appended = AtomicLong()
+    private val dropped = AtomicLong()
+    private val evictedSegments = AtomicLong()
+    private val lostRecords = AtomicLong()
+    private val tornTailsRecovered = AtomicLong()
+
+    @Volatile
+    private var written = 0L
+
+    @Volatile
+    private var forces = 0L
+
+    @Volatile
+    private var durableSequence = 0L
+
+    @Volatile
+    private var closed = false
+
+    private lateinit var writer: Thread
+
+    /**
+     * Queues a scan for the journal without blocking.
+     *
+     * @return false if the scan was dropped because the writer is behind or the journal is closed.
+     */
+    @JvmOverloads
+    fun append(
+        barcode: String,
+        symbology: String,
+        source: String,
+        timestampMillis: Long = System.currentTimeMillis()
+    ): Boolean {
+        if (closed || !queue.offer(PendingScan(timestampMillis, barcode, symbology, source))) {
+            dropped.incrementAndGet()
+            return false
+        }
+        appended.incrementAndGet()
+        return true
+    }
+
+    /**
+     * Passes all records after the acknowledged sequence to [visitor], in order, and returns their number. Segments
+     * holding acknowledged records only are skipped without reading them.
+     */
+    fun replay(visitor: Visitor): Int {
+        val cursor = openCursor()
+        var count = 0
+        while (true) {
+            val record = cursor.poll() ?: return count
+            visitor.onRecord(record)
+            count++
+        }
+    }
+
+    /**
+     * Returns a [Cursor] positioned after the acknowledged sequence.
+     */
+    fun openCursor(): Cursor {
+        return Cursor(synchronized(lock) { acknowledgedSequence })
+    }
+
+    /**
+     * Reads the journal in order, from a start sequence on, following the writer into new segments. A cursor is
+     * meant for a single reading thread.
+     *
+     * Records become visible to the cursor once the writer appended them, usually slightly before they are forced
+     * to disk.
+     */
+    inner class Cursor internal constructor(private var lastSequence: Long) {
+
+        private var segment: JournalSegment? = null
+        private var view: ByteBuffer? = null
+        private var position = 0
+        private val buffer = ByteArray(JournalSegment.MAX_PAYLOAD_SIZE)
+        private val crc = CRC32()
+
+        /**
+         * Sequence of the record returned last, or the start sequence.
+         */
+        val sequence: Long
+            get() = lastSequence
+
+        /**
+         * Returns the next record, or null if there is none yet.
+         */
+        fun poll(): Record? {
+            while (true) {
+                val current = segment ?: (firstSegmentAfter(lastSequence) ?: return null).also { moveTo(it) }
+                val length = JournalSegment.readRecord(view!!, position, buffer, crc)
+                if (length > 0) {
+                    position += JournalSegment.HEADER_SIZE + length
+                    val recordSequence = JournalSegment.readSequence(buffer)
+                    if (recordSequence <= lastSequence) {
+                        continue
+                    }
+                    lastSequence = recordSequence
+                    return decode(buffer, length)
+                }
+                // a newer segment only exists once the writer is done with this one
+                moveTo(segmentAfter(current.baseSequence) ?: return null)
+            }
+        }
+
+        /**
+         * Returns the next record, waiting up to [timeoutMs] for the writer to append one.
+         *
+         * @return the record or null if none was appended in time.
+         */
+        @Throws(InterruptedException::class)
+        fun poll(timeoutMs: Long): Record? {
+            val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+            while (true) {
+                val seenWrites = written
+                poll()?.let { return it }
+                val remaining = deadline - System.nanoTime()
+                if (remaining <= 0L) {
+                    return null
+                }
+                awaitWrite(seenWrites, remaining)
+            }
+        }
+
+        private fun moveTo(next: JournalSegment) {
+            segment = next
+            view = next.readView()
+            position = 0
+        }
+    }
+
+    /**
+     * Marks all records up to [sequence] as handled. They are not replayed any more and segments holding only such
+     * records are deleted.
+     */
+    @Throws(IOException::class)
+    fun acknowledge(sequence: Long) {
+        synchronized(lock) {
+            if (sequence <= acknowledgedSequence) {
+                return
+            }
+            acknowledgedSequence = sequence
+            writeCheckpoint(sequence)
+            // a sealed segment is done when the next one starts at or before the first unacknowledged record
+            while (segments.size > 1 && segments[1].baseSequence <= sequence + 1) {
+                deleteOldestSegmentLocked()
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the journal counters.
+     */
+    fun metrics(): Metrics {
+        synchronized(lock) {
+            return Metrics(
+                appended = appended.get(),
+                dropped = dropped.get(),
+                written = written,
+                forces = forces,
+                segments = segments.size,
+                evictedSegments = evictedSegments.get(),
+                lostRecords = lostRecords.get(),
+                tornTailsRecovered = tornTailsRecovered.get(),
+                queueDepth = queue.size,
+                durableSequence = durableSequence,
+                acknowledgedSequence = acknowledgedSequence
+            )
+        }
+    }
+
+    /**
+     * Writes all scans queued so far and stops the writer. Later appends are dropped.
+     */
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            queue.put(CLOSE)
+            writer.join()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    private fun firstSegmentAfter(sequence: Long): JournalSegment? {
+        synchronized(lock) {
+            // skip segments whose records all lie at or before the sequence, the next one starts early enough
+            for (i in segments.indices) {
+                if (i + 1 == segments.size || segments[i + 1].baseSequence > sequence + 1) {
+                    return segments[i]
+                }
+            }
+            return null
+        }
+    }
+
+    private fun segmentAfter(baseSequence: Long): JournalSegment? {
+        synchronized(lock) {
+            for (i in segments.indices) {
+                if (segments[i].baseSequence > baseSequence) {
+                    return segments[i]
+                }
+            }
+            return null
+        }
+    }
+
+    private fun awaitWrite(seenWrites: Long, timeoutNanos: Long) {
+        writeLock.lock()
+        try {
+            var remaining = timeoutNanos
+            while (written == seenWrites && remaining > 0L) {
+                remaining = writeCondition.awaitNanos(remaining)
+            }
+        } finally {
+            writeLock.unlock()
+        }
+    }
+
+    private fun signalWrite() {
+        writeLock.lock()
+        try {
+            writeCondition.signalAll()
+        } finally {
+            writeLock.unlock()
+        }
+    }
+
+    private fun recover() {
+        directory.mkdirs()
+        acknowledgedSequence = readCheckpoint()
+        val files = directory.listFiles().orEmpty()
+            .mapNotNull { file -> JournalSegment.baseSequenceOf(file)?.let { base -> base to file } }
+            .sortedBy { it.first }
+        for ((base, file) in files) {
+            segments.add(
+                JournalSegment.openForAppend(file, base, segmentSize) { tornTailsRecovered.incrementAndGet() }
+            )
+        }
+        activeSegment = segments.lastOrNull()
+        val lastSequence = activeSegment?.lastSequence ?: 0L
+        nextSequence = maxOf(lastSequence, acknowledgedSequence) + 1
+        durableSequence = lastSequence
+    }
+
+    private fun startWriter() {
+        writer = Thread(Runnable { runWriter() }, WRITER_THREAD_NAME).apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    private fun runWriter() {
+        val batch = ArrayList<PendingScan>(WRITER_BATCH_SIZE)
+        var running = true
+        while (running) {
+            try {
+                batch.add(queue.take())
+            } catch (e: InterruptedException) {
+                break
+            }
+            queue.drainTo(batch, WRITER_BATCH_SIZE - 1)
+            var lastWritten = NO_SEQUENCE
+            for (i in batch.indices) {
+                val scan = batch[i]
+                if (scan === CLOSE) {
+                    running = false
+                    break
+                }
+                val sequence = write(scan)
+                if (sequence != NO_SEQUENCE) {
+                    lastWritten = sequence
+                }
+            }
+            batch.clear()
+            if (lastWritten != NO_SEQUENCE) {
+                // group commit: one force for the whole batch
+                activeSegment?.force()
+                forces++
+                durableSequence = lastWritten
+                signalWrite()
+            }
+        }
+    }
+
+    private fun write(scan: PendingScan): Long {
+        val length = encode(nextSequence, scan)
+        if (length < 0) {
+            Log.w(TAG, "scan too large for the journal, dropped")
+            dropped.incrementAndGet()
+            return NO_SEQUENCE
+        }
+        writerCrc.reset()
+        writerCrc.update(payload, 0, length)
+        try {
+            val segment = segmentWithRoom(length)
+            val sequence = nextSequence++
+            segment.append(sequence, payload, length, writerCrc.value.toInt())
+            written++
+            return sequence
+        } catch (e: IOException) {
+            Log.e(TAG, "could not start a new journal segment, scan dropped", e)
+            dropped.incrementAndGet()
+            return NO_SEQUENCE
+        }
+    }
+
+    private fun segmentWithRoom(length: Int): JournalSegment {
+        val current = activeSegment
+        if (current != null && current.hasRoom(length)) {
+            return current
+        }
+        // seal the full segment before records go to the next one
+        current?.force()
+        val segment = JournalSegment.create(directory, nextSequence, segmentSize)
+        synchronized(lock) {
+            segments.add(segment)
+            while (segments.size > maxSegments) {
+                evictOldestSegmentLocked()
+            }
+        }
+        activeSegment = segment
+        return segment
+    }
+
+    private fun evictOldestSegmentLocked() {
+        // the oldest segment ends right before the next one starts
+        val lastSequence = segments[1].baseSequence - 1
+        val firstUnacknowledged = maxOf(segments[0].baseSequence, acknowledgedSequence + 1)
+        val lost = lastSequence - firstUnacknowledged + 1
+        if (lost > 0) {
+            lostRecords.addAndGet(lost)
+            Log.w(TAG, "journal full, $lost unacknowledged scans up to sequence $lastSequence evicted")
+        }
+        deleteOldestSegmentLocked()
+        evictedSegments.incrementAndGet()
+    }
+
+    private fun deleteOldestSegmentLocked() {
+        val segment = segments.removeAt(0)
+        if (!segment.file.delete()) {
+            Log.w(TAG, "could not delete journal segment ${segment.file}")
+        }
+    }
+
+    /**
+     * Encodes [scan] into [payload] and returns the payload length, or -1 if it does not fit.
+     */
+    private fun encode(sequence: Long, scan: PendingScan): Int {
+        val barcode = scan.barcode.toByteArray(Charsets.UTF_8)
+        val symbology = scan.symbology.toByteArray(Charsets.UTF_8)
+        val source = scan.source.toByteArray(Charsets.UTF_8)
+        val length = 8 + 8 + 3 * 2 + barcode.size + symbology.size + source.size
+        if (length > payload.size || barcode.size > MAX_FIELD_SIZE || symbology.size > MAX_FIELD_SIZE ||
+            source.size > MAX_FIELD_SIZE
+        ) {
+            return -1
+        }
+        payloadBuffer.clear()
+        payloadBuffer.putLong(sequence)
+        payloadBuffer.putLong(scan.timestampMillis)
+        putField(barcode)
+        putField(symbology)
+        putField(source)
+        return length
+    }
+
+    private fun putField(bytes: ByteArray) {
+        payloadBuffer.putShort(bytes.size.toShort())
+        payloadBuffer.put(bytes)
+    }
+
+    private fun readCheckpoint(): Long {
+        if (!checkpointFile.exists()) {
+            return 0L
+        }
+        return try {
+            DataInputStream(FileInputStream(checkpointFile)).use { input ->
+                val sequence = input.readLong()
+                val checksum = input.readLong()
+                if (checksum == checkpointChecksum(sequence)) sequence else 0L
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "could not read the journal checkpoint, replaying everything", e)
+            0L
+        }
+    }
+
+    private fun writeCheckpoint(sequence: Long) {
+        val tmp = File(directory, "$CHECKPOINT_FILE_NAME.tmp")
+        FileOutputStream(tmp).use { stream ->
+            DataOutputStream(stream).apply {
+                writeLong(sequence)
+                writeLong(checkpointChecksum(sequence))
+                flush()
+            }
+            stream.fd.sync()
+        }
+        if (!tmp.renameTo(checkpointFile)) {
+            throw IOException("could not replace $checkpointFile")
+        }
+    }
+
+    companion object {
+
+        private const val TAG = "ScanJournal"
+
+        const val DEFAULT_SEGMENT_SIZE = 1024 * 1024
+        const val DEFAULT_MAX_SEGMENTS = 16
+        const val DEFAULT_QUEUE_CAPACITY = 1024
+
+        private const val WRITER_THREAD_NAME = "scan-journal"
+        private const val WRITER_BATCH_SIZE = 256
+        private const val CHECKPOINT_FILE_NAME = "checkpoint"
+        private const val MAX_FIELD_SIZE = 0xFFFF
+        private const val NO_SEQUENCE = -1L
+        private val CLOSE = PendingScan(0L, "", "", "")
+
+        /**
+         * Opens the journal in [directory], recovering it after a crash, and starts its writer thread.
+         */
+        @JvmStatic
+        @JvmOverloads
+        @Throws(IOException::class)
+        fun open(
+            directory: File,
+            segmentSize: Int = DEFAULT_SEGMENT_SIZE,
+            maxSegments: Int = DEFAULT_MAX_SEGMENTS,
+            queueCapacity: Int = DEFAULT_QUEUE_CAPACITY
+        ): ScanJournal {
+            require(segmentSize > JournalSegment.HEADER_SIZE + JournalSegment.MAX_PAYLOAD_SIZE) {
+                "segmentSize must hold at least one record, was $segmentSize"
+            }
+            require(maxSegments > 0) { "maxSegments must be positive, was $maxSegments" }
+            return ScanJournal(directory, segmentSize, maxSegments, queueCapacity).apply {
+                recover()
+                startWriter()
+            }
+        }
+
+        private fun checkpointChecksum(sequence: Long): Long {
+            val crc = CRC32()
+            for (shift in 56 downTo 0 step 8) {
+                crc.update((sequence ushr shift).toInt())
+            }
+            return crc.value
+        }
+
+        private fun decode(payload: ByteArray, length: Int): Record {
+            val buffer = ByteBuffer.wrap(payload, 0, length)
+            val sequence = buffer.long
+            val timestampMillis = buffer.long
+            return Record(sequence, timestampMillis, getField(buffer), getField(buffer), getField(buffer))
+        }
+
+        private fun getField(buffer: ByteBuffer): String {
+            val size = buffer.short.toInt() and MAX_FIELD_SIZE
+            val value = String(buffer.array(), buffer.position(), size, Charsets.UTF_8)
+            buffer.position(buffer.position() + size)
+            return value
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.proglove.example.common.stream
+
+import java.util.concurrent.Executor
+
+/**
+ * Scans and connection changes of the ProGlove devices as [EventStream]s, independent of the API they came from.
+ *
+ * The SDK apps feed the streams from their `PgConnectionManager` and the intent app from its `MessageHandler`, so
+ * business logic subscribing to [scans] and [connections] runs unchanged on top of either API. The items are
+ * immutable and may be kept, unlike the pooled scan events of the callbacks.
+ *
+ * @param executor default executor subscribers are drained on.
+ */
+class DeviceEventStreams @JvmOverloads constructor(
+    executor: Executor = EventStream.defaultExecutor
+) {
+
+    /**
+     * A received barcode scan.
+     *
+     * @param symbology symbology of the barcode, empty if not supported.
+     * @param screenContext screen context from which the barcode was scanned, empty if there is none.
+     * @param receivedAtNanos monotonic timestamp ([System.nanoTime]) taken when the scan was received.
+     * @param source API or intent action the scan was delivered with.
+     */
+    data class Scan(
+        val barcode: String,
+        val symbology: String,
+        val screenContext: String,
+        val receivedAtNanos: Long,
+        val source: String
+    )
+
+    /**
+     * Kind of device a [Connection] change is about.
+     */
+    enum class Device {
+        SCANNER,
+        DISPLAY
+    }
+
+    /**
+     * A device connected or disconnected.
+     */
+    data class Connection(val device: Device, val connected: Boolean)
+
+    /**
+     * All scans, in the order they were received.
+     */
+    val scans = EventStream<Scan>(executor)
+
+    /**
+     * Connection changes of the scanner and the display. Repeated reports of the same state are published once.
+     */
+    val connections = EventStream<Connection>(executor)
+
+    private val connected = BooleanArray(Device.values().size)
+
+    /**
+     * Publishes a scan received now.
+     */
+    fun onScan(barcode: String, symbology: String, screenContext: String, source: String) {
+        scans.emit(Scan(barcode, symbology, screenContext, System.nanoTime(), source))
+    }
+
+    /**
+     * Publishes the connection state of [device], if it changed.
+     */
+    fun onConnectionChanged(device: Device, connected: Boolean) {
+        synchronized(this.connected) {
+            if (this.connected[device.ordinal] == connected) {
+                return
+            }
+            this.connected[device.ordinal] = connected
+            // emit only queues the change, so it is safe under the lock and keeps the order
+            connections.emit(Connection(device, connected))
+        }
+    }
+
+    /**
+     * True if [device] was reported as connected last.
+     */
+    fun isConnected(device: Device): Boolean {
+        synchronized(connected) {
+            return connected[device.ordinal]
+        }
+    }
+}
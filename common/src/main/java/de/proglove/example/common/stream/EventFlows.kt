@@ -0,0 +1,70 @@
+@file:JvmName("EventFlows")
+
+package de.proglove.example.common.stream
+
+import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.launch
+
+/**
+ * Returns a cold [Flow] of the items of this publisher.
+ *
+ * Every collector subscribes on its own and cancels its subscription once it stops collecting. Items are requested
+ * one at a time as the buffer of the flow takes them, so a slow collector holds back the publisher instead of
+ * growing a queue. Change the buffer with `buffer()` or `conflate()` on the returned flow. [EventSubscriber.onError]
+ * fails the flow with the throwable, [EventSubscriber.onComplete] ends it.
+ */
+fun <T : Any> EventPublisher<T>.asFlow(): Flow<T> = callbackFlow {
+    val subscriber = FlowSubscriber(this)
+    subscribe(subscriber)
+    awaitClose { subscriber.cancel() }
+}
+
+/**
+ * Subscriber sending every item into the channel of a [callbackFlow], cancelable before it was subscribed.
+ */
+private class FlowSubscriber<T : Any>(private val scope: ProducerScope<T>) : EventSubscriber<T> {
+
+    @Volatile
+    private var upstream: EventSubscription? = null
+
+    @Volatile
+    private var cancelled = false
+
+    override fun onSubscribe(subscription: EventSubscription) {
+        upstream = subscription
+        if (cancelled) {
+            subscription.cancel()
+        } else {
+            subscription.request(1)
+        }
+    }
+
+    override fun onNext(item: T) {
+        val result = scope.trySend(item)
+        if (result.isSuccess) {
+            upstream?.request(1)
+        } else if (!result.isClosed) {
+            // the buffer is full, ask for the next item once this one got in
+            scope.launch {
+                scope.send(item)
+                upstream?.request(1)
+            }
+        }
+    }
+
+    override fun onError(throwable: Throwable) {
+        scope.close(throwable)
+    }
+
+    override fun onComplete() {
+        scope.close()
+    }
+
+    fun cancel() {
+        cancelled = true
+        upstream?.cancel()
+    }
+}
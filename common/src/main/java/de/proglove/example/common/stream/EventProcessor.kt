@@ -0,0 +1,70 @@
+package de.proglove.example.common.stream
+
+import java.util.concurrent.Executor
+
+/**
+ * Stage between a source [EventPublisher] and its own subscribers, the base of the operators in [EventStreams].
+ *
+ * A processor requests all items of its source and publishes its results through an [EventStream], so each of its
+ * subscribers picks its own [EventStream.Overflow] strategy. Processors are hot: they receive the items of the source
+ * from the moment they subscribed to it until the source terminates or the processor is [cancel]ed.
+ *
+ * @param executor default executor the subscribers of this processor are drained on.
+ */
+abstract class EventProcessor<T : Any, R : Any>(
+    executor: Executor = EventStream.defaultExecutor
+) : EventSubscriber<T>, EventPublisher<R> {
+
+    /**
+     * Publishes the results of this processor.
+     */
+    protected val output = EventStream<R>(executor)
+
+    @Volatile
+    private var upstream: EventSubscription? = null
+
+    @Volatile
+    private var cancelled = false
+
+    override fun onSubscribe(subscription: EventSubscription) {
+        upstream = subscription
+        if (cancelled) {
+            subscription.cancel()
+        } else {
+            subscription.request(Long.MAX_VALUE)
+        }
+    }
+
+    override fun onError(throwable: Throwable) {
+        output.fail(throwable)
+    }
+
+    override fun onComplete() {
+        output.complete()
+    }
+
+    override fun subscribe(subscriber: EventSubscriber<in R>) {
+        output.subscribe(subscriber)
+    }
+
+    /**
+     * Subscribes to the results with the given [overflow] strategy, see [EventStream.subscribe].
+     */
+    @JvmOverloads
+    fun subscribe(
+        subscriber: EventSubscriber<in R>,
+        overflow: EventStream.Overflow,
+        capacity: Int = EventStream.DEFAULT_CAPACITY
+    ) {
+        output.subscribe(subscriber, overflow, capacity)
+    }
+
+    /**
+     * Unsubscribes from the source and completes the subscribers of this processor.
+     */
+    open fun cancel() {
+        cancelled = true
+        upstream?.cancel()
+        output.complete()
+    }
+}
@@ -0,0 +1,64 @@
+package de.proglove.example.common.stream
+
+/**
+ * Source of a stream of items that [EventSubscriber]s receive with backpressure.
+ *
+ * Mirrors the publisher of the Reactive Streams specification, so an [EventPublisher] can be wrapped into a
+ * `java.util.concurrent.Flow.Publisher` or a Reactive Streams publisher in a few lines where those are available.
+ * Kotlin code collects it as a `Flow` with [asFlow].
+ */
+fun interface EventPublisher<T> {
+
+    /**
+     * Starts delivering items to [subscriber]. [EventSubscriber.onSubscribe] is called before any other method of the
+     * subscriber, and items are only delivered as far as the subscriber [requested][EventSubscription.request] them.
+     */
+    fun subscribe(subscriber: EventSubscriber<in T>)
+}
+
+/**
+ * Receives the items of an [EventPublisher].
+ *
+ * The methods of one subscriber are never called concurrently. After [onError] or [onComplete] no further methods are
+ * called.
+ */
+interface EventSubscriber<T> {
+
+    /**
+     * Called once before any item, with the [subscription] used to request items and to cancel.
+     */
+    fun onSubscribe(subscription: EventSubscription)
+
+    /**
+     * Called for every requested item, in the order the items were published.
+     */
+    fun onNext(item: T)
+
+    /**
+     * Called when the stream failed, either in the publisher or because [onNext] threw.
+     */
+    fun onError(throwable: Throwable) {
+    }
+
+    /**
+     * Called when the stream ended and all items were delivered.
+     */
+    fun onComplete() {
+    }
+}
+
+/**
+ * Link between an [EventPublisher] and one of its [EventSubscriber]s.
+ */
+interface EventSubscription {
+
+    /**
+     * Requests [n] more items. Demand adds up, [Long.MAX_VALUE] requests all items without limit.
+     */
+    fun request(n: Long)
+
+    /**
+     * Stops delivering items. Items queued but not delivered yet are discarded.
+     */
+    fun cancel()
+}
@@ -0,0 +1,331 @@
+package de.proglove.example.common.stream
+
+import de.proglove.example.common.dispatch.ListenerRegistry
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Hot [EventPublisher] that multicasts [emit]ted items to all current subscribers.
+ *
+ * [emit] never blocks and never calls a subscriber: the item is put into the queue of each subscriber, and each
+ * subscriber is drained one item after the other on its [Executor], as far as it requested items. This holds for
+ * executors that never run a task on the submitting thread, like the [defaultExecutor]. With an executor that does,
+ * e.g. a direct executor or a pool with a caller-runs rejection policy, subscribers may run inside [emit]. How a queue
+ * treats a subscriber that does not keep up is chosen per subscriber with an [Overflow] strategy, so a slow UI
+ * subscriber only ever sees the latest scan while an upload subscriber still gets every scan.
+ *
+ * Subscribers only receive items emitted after they subscribed. Once the stream is [complete]d or [fail]ed, every
+ * subscriber receives its remaining queued items and then the terminal signal, later subscribers receive the
+ * terminal signal right away.
+ *
+ * @param executor default executor subscribers are drained on.
+ */
+class EventStream<T : Any> @JvmOverloads constructor(
+    private val executor: Executor = defaultExecutor
+) : EventPublisher<T> {
+
+    /**
+     * How the queue of a subscriber handles items the subscriber did not request yet.
+     */
+    enum class Overflow {
+        /**
+         * Queues every item, nothing is dropped. For subscribers that must see each item and keep up on average.
+         */
+        BUFFER,
+
+        /**
+         * Queues up to the capacity of the subscriber and drops the oldest queued item to make room for a new one.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Only keeps the newest item, e.g. for a view showing the last scan.
+         */
+        LATEST
+    }
+
+    /**
+     * Point-in-time view of the stream counters.
+     */
+    data class Metrics(
+        val subscribers: Int,
+        val emitted: Long,
+        val delivered: Long,
+        val dropped: Long
+    )
+
+    private val subscriptions = ListenerRegistry<QueueSubscription>()
+    private val emitted = AtomicLong()
+    private val delivered = AtomicLong()
+    private val dropped = AtomicLong()
+
+    @Volatile
+    private var terminated = false
+
+    @Volatile
+    private var failure: Throwable? = null
+
+    /**
+     * Subscribes with [Overflow.BUFFER] on the default executor.
+     */
+    override fun subscribe(subscriber: EventSubscriber<in T>) {
+        subscribe(subscriber, Overflow.BUFFER)
+    }
+
+    /**
+     * Subscribes with the given [overflow] strategy.
+     *
+     * @param capacity maximum number of queued items for [Overflow.DROP_OLDEST], ignored otherwise.
+     * @param executor executor the subscriber is drained on.
+     */
+    @JvmOverloads
+    fun subscribe(
+        subscriber: EventSubscriber<in T>,
+        overflow: Overflow,
+        capacity: Int = DEFAULT_CAPACITY,
+        executor: Executor = this.executor
+    ) {
+        require(capacity > 0) { "capacity must be positive, was $capacity" }
+        val subscription = QueueSubscription(subscriber, overflow, capacity, executor)
+        subscriber.onSubscribe(subscription)
+        subscriptions.add(subscription)
+        // cancelled from onSubscribe or by another thread meanwhile
+        if (subscription.isCancelled) {
+            subscriptions.remove(subscription)
+        }
+        // terminated before or while subscribing
+        if (terminated) {
+            subscription.terminate(failure)
+        }
+    }
+
+    /**
+     * Publishes [item] to all current subscribers.
+     *
+     * @return false if the stream was terminated already.
+     */
+    fun emit(item: T): Boolean {
+        if (terminated) {
+            return false
+        }
+        emitted.incrementAndGet()
+        subscriptions.forEach { it.offer(item) }
+        return true
+    }
+
+    /**
+     * Ends the stream. Subscribers receive their queued items and then [EventSubscriber.onComplete].
+     */
+    fun complete() {
+        terminate(null)
+    }
+
+    /**
+     * Ends the stream with [throwable]. Subscribers receive their queued items and then [EventSubscriber.onError].
+     */
+    fun fail(throwable: Throwable) {
+        terminate(throwable)
+    }
+
+    /**
+     * Number of current subscribers.
+     */
+    val subscriberCount: Int
+        get() = subscriptions.size
+
+    /**
+     * Returns a snapshot of the stream counters.
+     */
+    fun metrics(): Metrics {
+        return Metrics(
+            subscribers = subscriptions.size,
+            emitted = emitted.get(),
+            delivered = delivered.get(),
+            dropped = dropped.get()
+        )
+    }
+
+    private fun terminate(throwable: Throwable?) {
+        synchronized(this) {
+            if (terminated) {
+                return
+            }
+            failure = throwable
+            terminated = true
+        }
+        subscriptions.forEach { it.terminate(throwable) }
+    }
+
+    /**
+     * Queue and demand of one subscriber, drained by running it on the subscriber's executor.
+     */
+    private inner class QueueSubscription(
+        private val subscriber: EventSubscriber<in T>,
+        private val overflow: Overflow,
+        private val capacity: Int,
+        private val executor: Executor
+    ) : EventSubscription, Runnable {
+
+        private val lock = Any()
+        private val queue = ArrayDeque<T>()
+        private var demand = 0L
+        private var draining = false
+        private var done = false
+        private var doneFailure: Throwable? = null
+
+        @Volatile
+        var isCancelled = false
+            private set
+
+        fun offer(item: T) {
+            synchronized(lock) {
+                if (isCancelled || done) {
+                    return
+                }
+                when (overflow) {
+                    Overflow.BUFFER -> Unit
+                    Overflow.DROP_OLDEST -> if (queue.size == capacity) {
+                        queue.removeFirst()
+                        dropped.incrementAndGet()
+                    }
+                    Overflow.LATEST -> if (queue.isNotEmpty()) {
+                        queue.clear()
+                        dropped.incrementAndGet()
+                    }
+                }
+                queue.addLast(item)
+                if (demand == 0L || draining) {
+                    return
+                }
+                draining = true
+            }
+            executor.execute(this)
+        }
+
+        fun terminate(throwable: Throwable?) {
+            synchronized(lock) {
+                if (isCancelled || done) {
+                    return
+                }
+                done = true
+                doneFailure = throwable
+                if (draining) {
+                    return
+                }
+                draining = true
+            }
+            executor.execute(this)
+        }
+
+        override fun request(n: Long) {
+            require(n > 0L) { "request must be positive, was $n" }
+            synchronized(lock) {
+                if (isCancelled) {
+                    return
+                }
+                demand = if (Long.MAX_VALUE - demand < n) Long.MAX_VALUE else demand + n
+                if (draining || (queue.isEmpty() && !done)) {
+                    return
+                }
+                draining = true
+            }
+            executor.execute(this)
+        }
+
+        override fun cancel() {
+            synchronized(lock) {
+                if (isCancelled) {
+                    return
+                }
+                isCancelled = true
+                queue.clear()
+            }
+            subscriptions.remove(this)
+        }
+
+        override fun run() {
+            // a bounded number of items per run keeps one busy subscriber from holding a pool thread
+            for (i in 0 until DRAIN_BATCH) {
+                val item: T?
+                var finished = false
+                synchronized(lock) {
+                    item = if (isCancelled || demand == 0L) null else queue.removeFirstOrNull()
+                    if (item == null) {
+                        draining = false
+                        if (!isCancelled && done && queue.isEmpty()) {
+                            isCancelled = true
+                            finished = true
+                        }
+                    } else if (demand != Long.MAX_VALUE) {
+                        demand--
+                    }
+                }
+                if (item == null) {
+                    if (finished) {
+                        finish()
+                    }
+                    return
+                }
+                try {
+                    subscriber.onNext(item)
+                    delivered.incrementAndGet()
+                } catch (e: Exception) {
+                    cancel()
+                    subscriber.onError(e)
+                    return
+                }
+            }
+            executor.execute(this)
+        }
+
+        private fun finish() {
+            subscriptions.remove(this)
+            val throwable = doneFailure
+            if (throwable == null) {
+                subscriber.onComplete()
+            } else {
+                subscriber.onError(throwable)
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * Default queue capacity of [Overflow.DROP_OLDEST] subscribers.
+         */
+        const val DEFAULT_CAPACITY = 64
+
+        private const val DRAIN_BATCH = 64
+        private const val THREAD_NAME = "pg-streams"
+        private const val POOL_SIZE = 2
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        /**
+         * Executor subscribers are drained on unless another one is given. Its threads serve the streams only and its
+         * queue is unbounded, which is safe because every subscriber has at most one drain task queued at a time.
+         */
+        @JvmStatic
+        val defaultExecutor: Executor by lazy {
+            val threadNumber = AtomicInteger(1)
+            val threadFactory = ThreadFactory { runnable ->
+                Thread(runnable, "$THREAD_NAME-${threadNumber.getAndIncrement()}").apply { isDaemon = true }
+            }
+            ThreadPoolExecutor(
+                POOL_SIZE,
+                POOL_SIZE,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                LinkedBlockingQueue(),
+                threadFactory
+            ).apply {
+                allowCoreThreadTimeOut(true)
+            }
+        }
+    }
+}
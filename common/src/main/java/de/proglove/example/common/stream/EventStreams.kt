@@ -0,0 +1,195 @@
+@file:JvmName("EventStreams")
+
+package de.proglove.example.common.stream
+
+import de.proglove.example.common.dispatch.Scheduler
+
+/**
+ * Receives every item of a stream, used with [observe].
+ */
+fun interface EventListener<T> {
+
+    fun onEvent(item: T)
+}
+
+/**
+ * Receives all items of this publisher in [listener], without backpressure.
+ *
+ * @return the subscription, to [cancel][EventSubscription.cancel] receiving items.
+ */
+fun <T> EventPublisher<T>.observe(listener: EventListener<in T>): EventSubscription {
+    val subscriber = ListenerSubscriber(listener)
+    subscribe(subscriber)
+    return subscriber
+}
+
+/**
+ * Publishes an item only once no newer item followed it for [quietMs] milliseconds, e.g. to act on the last of a
+ * burst of scans. A pending item is still published when the source completes.
+ *
+ * @param scheduler runs the quiet period timer.
+ */
+fun <T : Any> EventPublisher<T>.debounce(quietMs: Long, scheduler: Scheduler): EventProcessor<T, T> {
+    val processor = DebounceProcessor<T>(quietMs, scheduler)
+    subscribe(processor)
+    return processor
+}
+
+/**
+ * Collects items into windows and publishes each window as a list, oldest item first.
+ *
+ * A window is published when it holds [maxCount] items or [maxAgeMs] after its first item, whichever comes first, so
+ * no item waits longer than [maxAgeMs]. Empty windows are not published. Each published list is a new list owned by
+ * the subscribers.
+ *
+ * @param scheduler runs the window timer.
+ */
+fun <T : Any> EventPublisher<T>.window(
+    maxCount: Int,
+    maxAgeMs: Long,
+    scheduler: Scheduler
+): EventProcessor<T, List<T>> {
+    val processor = WindowProcessor<T>(maxCount, maxAgeMs, scheduler)
+    subscribe(processor)
+    return processor
+}
+
+/**
+ * Subscriber forwarding every item to an [EventListener], cancelable before it was subscribed.
+ */
+private class ListenerSubscriber<T>(private val listener: EventListener<in T>) : EventSubscriber<T>, EventSubscription {
+
+    @Volatile
+    private var upstream: EventSubscription? = null
+
+    @Volatile
+    private var cancelled = false
+
+    override fun onSubscribe(subscription: EventSubscription) {
+        upstream = subscription
+        if (cancelled) {
+            subscription.cancel()
+        } else {
+            subscription.request(Long.MAX_VALUE)
+        }
+    }
+
+    override fun onNext(item: T) {
+        if (!cancelled) {
+            listener.onEvent(item)
+        }
+    }
+
+    override fun request(n: Long) {
+        upstream?.request(n)
+    }
+
+    override fun cancel() {
+        cancelled = true
+        upstream?.cancel()
+    }
+}
+
+private class DebounceProcessor<T : Any>(
+    private val quietMs: Long,
+    private val scheduler: Scheduler
+) : EventProcessor<T, T>() {
+
+    private val lock = Any()
+    private var pending: T? = null
+
+    private val publishTask = Runnable { publishPending() }
+
+    init {
+        require(quietMs >= 0) { "quietMs must not be negative, was $quietMs" }
+    }
+
+    override fun onNext(item: T) {
+        synchronized(lock) {
+            if (pending != null) {
+                scheduler.cancel(publishTask)
+            }
+            pending = item
+            scheduler.schedule(quietMs, publishTask)
+        }
+    }
+
+    override fun onComplete() {
+        synchronized(lock) {
+            scheduler.cancel(publishTask)
+        }
+        publishPending()
+        super.onComplete()
+    }
+
+    override fun cancel() {
+        synchronized(lock) {
+            scheduler.cancel(publishTask)
+            pending = null
+        }
+        super.cancel()
+    }
+
+    private fun publishPending() {
+        synchronized(lock) {
+            val item = pending ?: return
+            pending = null
+            // emit only queues the item, so it is safe under the lock and keeps the order
+            output.emit(item)
+        }
+    }
+}
+
+private class WindowProcessor<T : Any>(
+    private val maxCount: Int,
+    private val maxAgeMs: Long,
+    private val scheduler: Scheduler
+) : EventProcessor<T, List<T>>() {
+
+    private val lock = Any()
+    private var window = ArrayList<T>()
+
+    private val publishTask = Runnable { publishWindow() }
+
+    init {
+        require(maxCount > 0) { "maxCount must be positive, was $maxCount" }
+        require(maxAgeMs >= 0) { "maxAgeMs must not be negative, was $maxAgeMs" }
+    }
+
+    override fun onNext(item: T) {
+        synchronized(lock) {
+            window.add(item)
+            if (window.size == maxCount) {
+                publishWindow()
+            } else if (window.size == 1) {
+                scheduler.schedule(maxAgeMs, publishTask)
+            }
+        }
+    }
+
+    override fun onComplete() {
+        publishWindow()
+        super.onComplete()
+    }
+
+    override fun cancel() {
+        synchronized(lock) {
+            scheduler.cancel(publishTask)
+            window = ArrayList()
+        }
+        super.cancel()
+    }
+
+    private fun publishWindow() {
+        synchronized(lock) {
+            if (window.isEmpty()) {
+                return
+            }
+            scheduler.cancel(publishTask)
+            val items = window
+            window = ArrayList(items.size)
+            // emit only queues the window, so it is safe under the lock and keeps the order
+            output.emit(items)
+        }
+    }
+}
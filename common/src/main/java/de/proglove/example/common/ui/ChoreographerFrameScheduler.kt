@@ -0,0 +1,18 @@
+package de.proglove.example.common.ui
+
+import android.view.Choreographer
+
+/**
+ * [FrameScheduler] backed by the main thread [Choreographer].
+ *
+ * Must be created on the main thread. [postFrame] may be called from any thread, the task always runs on the main
+ * thread.
+ */
+class ChoreographerFrameScheduler : FrameScheduler {
+
+    private val choreographer = Choreographer.getInstance()
+
+    override fun postFrame(task: Runnable) {
+        choreographer.postFrameCallback { task.run() }
+    }
+}
@@ -0,0 +1,9 @@
+package de.proglove.example.common.ui
+
+/**
+ * Runs a task at the start of the next UI frame.
+ */
+interface FrameScheduler {
+
+    fun postFrame(task: Runnable)
+}
@@ -0,0 +1,58 @@
+package de.proglove.example.common.ui
+
+/**
+ * The UI changes collected by [UiUpdateCoalescer] for one frame.
+ *
+ * Only the values whose flag is set via [has] changed since the previous frame. Scans, screen contexts and connection
+ * state changes posted within one frame are merged, the latest one wins. Messages are not merged, [messages] holds
+ * every message of the frame in the order they were posted.
+ */
+class UiUpdate internal constructor() {
+
+    /**
+     * Bit set of the changed values, see [SCAN], [SCREEN_CONTEXT], [CONNECTION_STATE] and [MESSAGE].
+     */
+    var flags: Int = 0
+        internal set
+
+    var barcode: String = ""
+        internal set
+
+    var symbology: String = ""
+        internal set
+
+    /**
+     * Screen ID of the latest screen context, null if the latest event had no screen context.
+     */
+    var screenId: String? = null
+        internal set
+
+    internal val messageList = ArrayList<String>()
+
+    /**
+     * The messages posted in this frame, oldest first. Only valid during [UiUpdateCoalescer.Renderer.render].
+     */
+    val messages: List<String>
+        get() = messageList
+
+    /**
+     * Returns true if the value(s) for [flag] changed in this frame.
+     */
+    fun has(flag: Int): Boolean = flags and flag != 0
+
+    internal fun clear() {
+        flags = 0
+        barcode = ""
+        symbology = ""
+        screenId = null
+        messageList.clear()
+    }
+
+    companion object {
+
+        const val SCAN = 1
+        const val SCREEN_CONTEXT = 1 shl 1
+        const val CONNECTION_STATE = 1 shl 2
+        const val MESSAGE = 1 shl 3
+    }
+}
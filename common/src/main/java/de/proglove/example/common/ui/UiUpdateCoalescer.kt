@@ -0,0 +1,111 @@
+package de.proglove.example.common.ui
+
+/**
+ * Merges UI updates posted from callback threads and applies them at most once per frame.
+ *
+ * Every post only records the new value and, if no frame is pending yet, requests one from the [frameScheduler].
+ * On the frame all values posted since the previous frame are handed to the [renderer] at once. A burst of scans
+ * therefore costs one main thread message per frame instead of several per scan. Messages are the exception to the
+ * merging: all messages of a frame are handed over, see [UiUpdate.messages].
+ *
+ * The merge logic does not depend on Android, only [ChoreographerFrameScheduler] does.
+ */
+class UiUpdateCoalescer(
+    private val frameScheduler: FrameScheduler,
+    private val renderer: Renderer
+) {
+
+    /**
+     * Applies a merged [UiUpdate] to the views. Called on the frame thread.
+     */
+    fun interface Renderer {
+
+        fun render(update: UiUpdate)
+    }
+
+    private val lock = Any()
+    private var pending = UiUpdate()
+    private var rendering = UiUpdate()
+    private var frameScheduled = false
+    private var postedUpdates = 0L
+    private var renderedFrames = 0L
+
+    private val frameTask = Runnable { onFrame() }
+
+    /**
+     * Number of updates posted so far.
+     */
+    val postedUpdateCount: Long
+        get() = synchronized(lock) { postedUpdates }
+
+    /**
+     * Number of frames in which updates were rendered so far.
+     */
+    val renderedFrameCount: Long
+        get() = synchronized(lock) { renderedFrames }
+
+    fun postScan(barcode: String, symbology: String) {
+        post(UiUpdate.SCAN) {
+            it.barcode = barcode
+            it.symbology = symbology
+        }
+    }
+
+    /**
+     * @param screenId the screen ID of the latest screen context, or null if there was none.
+     */
+    fun postScreenContext(screenId: String?) {
+        post(UiUpdate.SCREEN_CONTEXT) {
+            it.screenId = screenId
+        }
+    }
+
+    /**
+     * Marks the connection state as changed. The renderer is expected to read the current state itself.
+     */
+    fun postConnectionState() {
+        post(UiUpdate.CONNECTION_STATE) {}
+    }
+
+    /**
+     * Queues [message] for the next frame. Unlike the other updates, messages are never merged.
+     */
+    fun postMessage(message: String) {
+        post(UiUpdate.MESSAGE) {
+            it.messageList.add(message)
+        }
+    }
+
+    private inline fun post(flag: Int, apply: (UiUpdate) -> Unit) {
+        val scheduleFrame = synchronized(lock) {
+            postedUpdates++
+            apply(pending)
+            pending.flags = pending.flags or flag
+            if (frameScheduled) {
+                false
+            } else {
+                frameScheduled = true
+                true
+            }
+        }
+        if (scheduleFrame) {
+            frameScheduler.postFrame(frameTask)
+        }
+    }
+
+    private fun onFrame() {
+        val update = synchronized(lock) {
+            val ready = pending
+            pending = rendering
+            rendering = ready
+            frameScheduled = false
+            renderedFrames++
+            ready
+        }
+        try {
+            renderer.render(update)
+        } finally {
+            update.clear()
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.proglove.example.common.dispatch
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class CallbackDispatcherTest {
+
+    private val dispatcher = CallbackDispatcher("test", poolSize = 2, queueCapacity = 4, laneCapacity = LANE_CAPACITY)
+
+    @After
+    fun tearDown() {
+        dispatcher.shutdown()
+    }
+
+    @Test(timeout = 10_000)
+    fun laneRunsTasksInSubmissionOrder() {
+        val lane = dispatcher.lane(CallbackDispatcher.Lane.SDK)
+        val order = Collections.synchronizedList(ArrayList<Int>())
+        val done = CountDownLatch(TASKS)
+
+        for (i in 0 until TASKS) {
+            lane.execute {
+                order.add(i)
+                done.countDown()
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals((0 until TASKS).toList(), order)
+    }
+
+    @Test(timeout = 10_000)
+    fun lanesRunConcurrentlyAndKeepTheirOwnOrder() {
+        val display = dispatcher.lane(CallbackDispatcher.Lane.DISPLAY)
+        val scans = dispatcher.lane(CallbackDispatcher.Lane.SCANS)
+        val displayOrder = Collections.synchronizedList(ArrayList<Int>())
+        val scanOrder = Collections.synchronizedList(ArrayList<Int>())
+        val displayRunning = CountDownLatch(1)
+        val releaseDisplay = CountDownLatch(1)
+        val displayDone = CountDownLatch(LANE_CAPACITY)
+        val scansDone = CountDownLatch(TASKS)
+
+        display.execute {
+            displayRunning.countDown()
+            releaseDisplay.await()
+            displayOrder.add(0)
+            displayDone.countDown()
+        }
+        assertTrue(displayRunning.await(5, TimeUnit.SECONDS))
+        for (i in 1 until LANE_CAPACITY) {
+            display.execute {
+                displayOrder.add(i)
+                displayDone.countDown()
+            }
+        }
+        for (i in 0 until TASKS) {
+            scans.execute {
+                scanOrder.add(i)
+                scansDone.countDown()
+            }
+        }
+
+        assertTrue("scans run while the display lane is busy", scansDone.await(5, TimeUnit.SECONDS))
+        assertEquals((0 until TASKS).toList(), scanOrder)
+        assertEquals(emptyList<Int>(), displayOrder)
+
+        releaseDisplay.countDown()
+        assertTrue(displayDone.await(5, TimeUnit.SECONDS))
+        assertEquals((0 until LANE_CAPACITY).toList(), displayOrder)
+    }
+
+    @Test(timeout = 10_000)
+    fun fullLaneBlocksTheProducerAndCountsTheRejection() {
+        val lane = dispatcher.lane(CallbackDispatcher.Lane.SDK)
+        val running = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        lane.execute {
+            running.countDown()
+            release.await()
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS))
+        repeat(LANE_CAPACITY) { lane.execute { } }
+
+        val producer = Thread { lane.execute { } }.also { it.start() }
+        while (dispatcher.metrics().laneRejected == 0L) {
+            Thread.sleep(1)
+        }
+        assertTrue("the producer waits for room in the lane", producer.isAlive)
+
+        release.countDown()
+        producer.join()
+        assertEquals(1L, dispatcher.metrics().laneRejected)
+        assertEquals(LANE_CAPACITY, dispatcher.metrics().maxLaneDepth)
+    }
+
+    @Test(timeout = 10_000)
+    fun taskSubmittingToItsOwnFullLaneDoesNotDeadlock() {
+        val lane = dispatcher.lane(CallbackDispatcher.Lane.SDK)
+        val done = CountDownLatch(1)
+        lane.execute {
+            repeat(LANE_CAPACITY * 2) { lane.execute { } }
+            lane.execute { done.countDown() }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+    }
+
+    @Test(timeout = 10_000)
+    fun failingTaskDoesNotStallTheLane() {
+        val lane = dispatcher.lane(CallbackDispatcher.Lane.SDK)
+        val done = CountDownLatch(1)
+        val previous = Thread.getDefaultUncaughtExceptionHandler()
+        Thread.setDefaultUncaughtExceptionHandler { _, _ -> }
+        try {
+            lane.execute { throw IllegalStateException("expected") }
+            lane.execute { done.countDown() }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS))
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous)
+        }
+    }
+
+    companion object {
+        private const val TASKS = 10_000
+        private const val LANE_CAPACITY = 8
+    }
+}
@@ -0,0 +1,111 @@
+package de.proglove.example.common.dispatch
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicIntegerArray
+
+class ListenerRegistryTest {
+
+    private fun interface Listener {
+        fun onNotification(id: Int)
+    }
+
+    @Test
+    fun addsAndRemovesEachListenerOnce() {
+        val registry = ListenerRegistry<Listener>()
+        val listener = Listener { }
+
+        assertTrue(registry.add(listener))
+        assertFalse(registry.add(listener))
+        assertEquals(1, registry.size)
+        assertTrue(registry.remove(listener))
+        assertFalse(registry.remove(listener))
+        assertEquals(0, registry.size)
+    }
+
+    @Test
+    fun changesDuringNotificationTakeEffectForTheNextOne() {
+        val registry = ListenerRegistry<Listener>()
+        val received = ArrayList<String>()
+        val late = Listener { received.add("late $it") }
+        lateinit var first: Listener
+        first = Listener { id ->
+            received.add("first $id")
+            registry.remove(first)
+            registry.add(late)
+        }
+        registry.add(first)
+
+        registry.forEach { it.onNotification(1) }
+        registry.forEach { it.onNotification(2) }
+
+        assertEquals(listOf("first 1", "late 2"), received)
+    }
+
+    @Test(timeout = 60_000)
+    fun churnDoesNotLoseOrDuplicateNotifications() {
+        val registry = ListenerRegistry<Listener>()
+        val stableCounts = List(STABLE_LISTENERS) { AtomicIntegerArray(NOTIFICATIONS) }
+        stableCounts.forEach { counts -> registry.add(Listener { id -> counts.incrementAndGet(id) }) }
+
+        val duplicates = AtomicInteger()
+        val running = AtomicBoolean(true)
+        val start = CountDownLatch(1)
+        val churners = (0 until CHURN_THREADS).map {
+            Thread {
+                start.await()
+                while (running.get()) {
+                    val seen = Collections.synchronizedSet(HashSet<Int>())
+                    val transient = Listener { id ->
+                        if (!seen.add(id)) {
+                            duplicates.incrementAndGet()
+                        }
+                    }
+                    registry.add(transient)
+                    Thread.yield()
+                    registry.remove(transient)
+                }
+            }
+        }
+        val next = AtomicInteger()
+        val notifiers = (0 until NOTIFIER_THREADS).map {
+            Thread {
+                start.await()
+                while (true) {
+                    val id = next.getAndIncrement()
+                    if (id >= NOTIFICATIONS) {
+                        break
+                    }
+                    registry.forEach { it.onNotification(id) }
+                }
+            }
+        }
+
+        (churners + notifiers).forEach { it.start() }
+        start.countDown()
+        notifiers.forEach { it.join() }
+        running.set(false)
+        churners.forEach { it.join() }
+
+        for (counts in stableCounts) {
+            for (id in 0 until NOTIFICATIONS) {
+                assertEquals("notification $id", 1, counts.get(id))
+            }
+        }
+        assertEquals(0, duplicates.get())
+        assertEquals("only the stable listeners are left", STABLE_LISTENERS, registry.size)
+    }
+
+    companion object {
+        private const val NOTIFICATIONS = 100_000
+        private const val STABLE_LISTENERS = 8
+        private const val CHURN_THREADS = 4
+        private const val NOTIFIER_THREADS = 2
+    }
+}
@@ -0,0 +1,52 @@
+package de.proglove.example.common.dispatch
+
+/**
+ * [Scheduler] driven by the test: tasks run when [advanceBy] moves the fake clock past their due time.
+ */
+class ManualScheduler : Scheduler {
+
+    private class Entry(val dueAtMs: Long, val task: Runnable)
+
+    private val lock = Any()
+    private val entries = ArrayList<Entry>()
+    private var nowMs = 0L
+
+    /**
+     * Number of tasks scheduled and not run or cancelled yet.
+     */
+    val pending: Int
+        get() = synchronized(lock) { entries.size }
+
+    override fun schedule(delayMs: Long, task: Runnable) {
+        synchronized(lock) {
+            entries.add(Entry(nowMs + delayMs, task))
+        }
+    }
+
+    override fun cancel(task: Runnable) {
+        synchronized(lock) {
+            entries.removeAll { it.task === task }
+        }
+    }
+
+    /**
+     * Moves the clock forward by [ms] and runs the tasks that became due, in order of their due time, on the calling
+     * thread.
+     */
+    fun advanceBy(ms: Long) {
+        val target = synchronized(lock) { nowMs + ms }
+        while (true) {
+            val entry = synchronized(lock) {
+                val next = entries.filter { it.dueAtMs <= target }.minByOrNull { it.dueAtMs }
+                if (next == null) {
+                    nowMs = target
+                    return
+                }
+                entries.remove(next)
+                nowMs = next.dueAtMs
+                next
+            }
+            entry.task.run()
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.proglove.example.common.dispatch
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RequestTrackerTest {
+
+    private val scheduler = ManualScheduler()
+    private val timedOut = ArrayList<Long>()
+    private val tracker = RequestTracker(scheduler, TIMEOUT_MS) { requestId -> timedOut.add(requestId) }
+
+    @Test
+    fun matchesOnlyTheRequestInFlight() {
+        assertFalse(tracker.matches(RequestTracker.ANY_REQUEST))
+
+        val first = tracker.start()
+        assertTrue(tracker.isInFlight)
+        assertTrue(tracker.matches(first))
+        assertTrue(tracker.matches(RequestTracker.ANY_REQUEST))
+
+        tracker.answered()
+        val second = tracker.start()
+        assertFalse("a late answer to an earlier request", tracker.matches(first))
+        assertTrue(tracker.matches(second))
+    }
+
+    @Test
+    fun reportsTheIdOfAnUnansweredRequest() {
+        val requestId = tracker.start()
+
+        scheduler.advanceBy(TIMEOUT_MS - 1)
+        assertEquals(emptyList<Long>(), timedOut)
+        scheduler.advanceBy(1)
+
+        assertEquals(listOf(requestId), timedOut)
+        assertTrue("ended by the owner, not by the timeout", tracker.isInFlight)
+    }
+
+    @Test
+    fun answerAndClearCancelTheTimeout() {
+        tracker.start()
+        tracker.answered()
+        tracker.start()
+        tracker.clear()
+
+        assertFalse(tracker.isInFlight)
+        assertEquals(0, scheduler.pending)
+        scheduler.advanceBy(TIMEOUT_MS)
+        assertEquals(emptyList<Long>(), timedOut)
+    }
+
+    @Test
+    fun timesAnsweredRequestsOnly() {
+        tracker.start()
+        Thread.sleep(ROUND_TRIP_MS)
+        tracker.answered()
+        tracker.start()
+        tracker.clear()
+
+        assertTrue(tracker.lastRoundTripMs >= ROUND_TRIP_MS)
+        assertEquals(tracker.lastRoundTripMs, tracker.averageRoundTripMs)
+        assertEquals(tracker.lastRoundTripMs, tracker.maxRoundTripMs)
+    }
+
+    companion object {
+        private const val TIMEOUT_MS = 100L
+        private const val ROUND_TRIP_MS = 20L
+    }
+}
@@ -0,0 +1,105 @@
+package de.proglove.example.common.display
+
+import de.proglove.example.common.dispatch.ManualScheduler
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DisplayCommandQueueTest {
+
+    private class Sent(val requestId: Long, val command: String)
+
+    private val scheduler = ManualScheduler()
+    private val sent = ArrayList<Sent>()
+    private val queue = DisplayCommandQueue<String>(scheduler, TIMEOUT_MS) { requestId, command ->
+        sent.add(Sent(requestId, command))
+    }
+
+    @Test
+    fun sendsOneCommandAtATime() {
+        assertTrue(queue.submit("first"))
+        assertFalse(queue.submit("second"))
+
+        assertEquals(listOf("first"), sent.map { it.command })
+        assertEquals(2, queue.queueDepth)
+
+        queue.onResult(sent[0].requestId, true)
+
+        assertEquals(listOf("first", "second"), sent.map { it.command })
+        assertEquals(1, queue.queueDepth)
+    }
+
+    @Test
+    fun latestPendingCommandWins() {
+        queue.submit("first")
+        queue.submit("stale")
+        queue.submit("staler")
+        queue.submit("latest")
+
+        queue.onResult(sent[0].requestId, true)
+        queue.onResult(sent[1].requestId, true)
+
+        assertEquals(listOf("first", "latest"), sent.map { it.command })
+        assertEquals(0, queue.queueDepth)
+    }
+
+    @Test
+    fun timeoutHandsOverToThePendingCommand() {
+        queue.submit("lost")
+        queue.submit("next")
+
+        scheduler.advanceBy(TIMEOUT_MS - 1)
+        assertEquals(1, sent.size)
+        scheduler.advanceBy(1)
+
+        assertEquals(listOf("lost", "next"), sent.map { it.command })
+        assertEquals(1, queue.queueDepth)
+
+        // the answer to the timed out command arrives late and must not end the new one
+        queue.onResult(sent[0].requestId, true)
+        assertEquals(1, queue.queueDepth)
+        queue.onResult(sent[1].requestId, true)
+        assertEquals(0, queue.queueDepth)
+        assertEquals(0, scheduler.pending)
+    }
+
+    @Test
+    fun resultWithoutIdMatchesTheCommandInFlight() {
+        queue.onResult(false)
+        queue.submit("first")
+        queue.submit("second")
+
+        queue.onResult(true)
+
+        assertEquals(listOf("first", "second"), sent.map { it.command })
+        assertEquals(1, queue.queueDepth)
+        assertEquals(1, queue.metrics().ignoredResults)
+    }
+
+    @Test
+    fun countsEveryOutcome() {
+        queue.submit("ok")
+        queue.submit("superseded")
+        queue.submit("failing")
+        queue.onResult(sent[0].requestId, true)
+        queue.onResult(sent[1].requestId, false)
+        queue.submit("timing out")
+        scheduler.advanceBy(TIMEOUT_MS)
+        queue.onResult(sent[2].requestId, true)
+
+        val metrics = queue.metrics()
+        assertEquals(4, metrics.submitted)
+        assertEquals(3, metrics.sent)
+        assertEquals(1, metrics.superseded)
+        assertEquals(1, metrics.succeeded)
+        assertEquals(1, metrics.failed)
+        assertEquals(1, metrics.timedOut)
+        assertEquals(1, metrics.ignoredResults)
+        assertEquals(0, metrics.queueDepth)
+    }
+
+    companion object {
+        private const val TIMEOUT_MS = 100L
+    }
+}
@@ -0,0 +1,125 @@
+package de.proglove.example.common.outbox
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import de.proglove.example.common.storage.ScanJournal
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.file.Files
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.GZIPInputStream
+
+class ScanOutboxTest {
+
+    /**
+     * One request received by the stand-in.
+     */
+    private class Request(val batchId: String?, val sequences: List<Long>, val status: Int)
+
+    private val directory: File = Files.createTempDirectory("scan-outbox-test").toFile()
+    private lateinit var server: HttpServer
+    private lateinit var journal: ScanJournal
+    private lateinit var outbox: ScanOutbox
+
+    // stored batches by id, as a backend deduplicating by Idempotency-Key would keep them
+    private val batches = ConcurrentHashMap<String, List<Long>>()
+    private val requests = Collections.synchronizedList(ArrayList<Request>())
+    private val newRequests = AtomicInteger()
+
+    @Before
+    fun setUp() {
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/scans") { exchange -> receive(exchange) }
+        server.start()
+        journal = ScanJournal.open(directory)
+    }
+
+    @After
+    fun tearDown() {
+        // a test that failed before creating its outbox has none to close
+        if (::outbox.isInitialized) {
+            outbox.close()
+        }
+        journal.close()
+        server.stop(0)
+        directory.deleteRecursively()
+    }
+
+    @Test(timeout = 30_000)
+    fun deliversEveryScanOnceUnderOneIdempotencyKeyPerBatch() {
+        appendAll(SCAN_COUNT)
+        val url = URL("http://127.0.0.1:${server.address.port}/scans")
+        outbox = ScanOutbox(journal, HttpScanSink(url), MAX_BATCH_COUNT, backoff = Backoff(1L, 10L))
+
+        outbox.start()
+        while (outbox.metrics().acknowledgedSequence < SCAN_COUNT) {
+            Thread.sleep(1L)
+        }
+
+        val received = synchronized(requests) { requests.toList() }
+        received.forEach { assertNotNull("every request carries an Idempotency-Key", it.batchId) }
+        // every retry repeats the key and the scans of the first attempt
+        received.groupBy { it.batchId!! }.forEach { (batchId, attempts) ->
+            attempts.forEach { assertEquals("retry of $batchId", batches[batchId], it.sequences) }
+        }
+        assertTrue("some batches were retried", received.size > batches.size)
+        assertTrue("retries were answered as duplicates", received.any { it.status == HTTP_CONFLICT })
+
+        val stored = batches.values.flatten()
+        assertEquals((1L..SCAN_COUNT).toList(), stored.sorted())
+        assertEquals(batches.size.toLong(), outbox.metrics().deliveredBatches)
+        assertEquals(SCAN_COUNT.toLong(), outbox.metrics().deliveredScans)
+    }
+
+    /**
+     * Stores every batch, but answers every [FAILURE_INTERVAL]th new batch with 503 as if the answer got lost on the
+     * way. A batch id it already has is answered with 409.
+     */
+    private fun receive(exchange: HttpExchange) {
+        val batchId = exchange.requestHeaders.getFirst(HttpScanSink.BATCH_ID_HEADER)
+        val json = GZIPInputStream(exchange.requestBody).use { it.readBytes() }.toString(Charsets.UTF_8)
+        val scans = JSONObject(json).getJSONArray("scans")
+        val sequences = List(scans.length()) { scans.getJSONObject(it).getLong("sequence") }
+        val known = batchId != null && batches.putIfAbsent(batchId, sequences) != null
+        val status = when {
+            known -> HTTP_CONFLICT
+            newRequests.incrementAndGet() % FAILURE_INTERVAL == 0 -> HTTP_UNAVAILABLE
+            else -> HTTP_OK
+        }
+        requests.add(Request(batchId, sequences, status))
+        exchange.sendResponseHeaders(status, -1L)
+        exchange.close()
+    }
+
+    private fun appendAll(count: Int) {
+        var appended = 0
+        while (appended < count) {
+            if (journal.append("400638133${appended % 10}", SYMBOLOGY, SOURCE)) {
+                appended++
+            } else {
+                Thread.yield()
+            }
+        }
+    }
+
+    companion object {
+        private const val SYMBOLOGY = "EAN-13"
+        private const val SOURCE = "com.proglove.api.BARCODE"
+        private const val SCAN_COUNT = 1_000
+        private const val MAX_BATCH_COUNT = 50
+        private const val FAILURE_INTERVAL = 7
+        private const val HTTP_OK = 200
+        private const val HTTP_CONFLICT = 409
+        private const val HTTP_UNAVAILABLE = 503
+    }
+}
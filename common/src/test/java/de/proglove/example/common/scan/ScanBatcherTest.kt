@@ -0,0 +1,143 @@
+package de.proglove.example.common.scan
+
+import de.proglove.example.common.dispatch.ManualScheduler
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+class ScanBatcherTest {
+
+    private val scheduler = ManualScheduler()
+    private val pool = ScanEventPool(POOL_CAPACITY)
+
+    @Test
+    fun deliversFullBatchRightAway() {
+        val batches = ArrayList<List<String>>()
+        val batcher = ScanBatcher(3, DELAY_MS, scheduler) { batch -> batches.add(batch.map { it.barcode }) }
+
+        batcher.offer(scan("a"))
+        batcher.offer(scan("b"))
+        assertEquals(0, batches.size)
+        batcher.offer(scan("c"))
+
+        assertEquals(listOf(listOf("a", "b", "c")), batches)
+        assertEquals("the pending flush is cancelled", 0, scheduler.pending)
+    }
+
+    @Test
+    fun deliversPartialBatchAfterMaxDelay() {
+        val batches = ArrayList<List<String>>()
+        val batcher = ScanBatcher(10, DELAY_MS, scheduler) { batch -> batches.add(batch.map { it.barcode }) }
+
+        batcher.offer(scan("a"))
+        scheduler.advanceBy(DELAY_MS - 1)
+        batcher.offer(scan("b"))
+        assertEquals(0, batches.size)
+
+        scheduler.advanceBy(1)
+        assertEquals(listOf(listOf("a", "b")), batches)
+    }
+
+    @Test
+    fun flushFromReceiverIsDeliveredAfterTheCurrentBatch() {
+        val batches = ArrayList<List<String>>()
+        lateinit var batcher: ScanBatcher
+        batcher = ScanBatcher(2, DELAY_MS, scheduler) { batch ->
+            batches.add(batch.map { it.barcode })
+            if (batch[0].barcode == "a") {
+                batcher.offer(scan("c"))
+                batcher.flush()
+            }
+        }
+
+        batcher.offer(scan("a"))
+        batcher.offer(scan("b"))
+
+        assertEquals(listOf(listOf("a", "b"), listOf("c")), batches)
+    }
+
+    @Test(timeout = 10_000)
+    fun slowReceiverDoesNotBlockOffer() {
+        val receiving = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val delivered = ArrayList<String>()
+        val batcher = ScanBatcher(1, DELAY_MS, scheduler) { batch ->
+            synchronized(delivered) { delivered.add(batch[0].barcode) }
+            if (batch[0].barcode == "slow") {
+                receiving.countDown()
+                release.await()
+            }
+        }
+        val receiver = Thread { batcher.offer(scan("slow")) }.also { it.start() }
+        assertTrue(receiving.await(5, TimeUnit.SECONDS))
+
+        // returns although the receiver is still busy, the busy thread delivers the batch afterwards
+        batcher.offer(scan("next"))
+        assertEquals(listOf("slow"), synchronized(delivered) { delivered.toList() })
+
+        release.countDown()
+        receiver.join()
+        assertEquals(listOf("slow", "next"), delivered)
+    }
+
+    @Test(timeout = 60_000)
+    fun keepsTheOrderOfEveryScannerAtHighThroughput() {
+        val lastSequence = LongArray(SCANNERS) { -1L }
+        var delivered = 0L
+        val outOfOrder = AtomicBoolean()
+        val batcher = ScanBatcher(BATCH_SIZE, DELAY_MS, scheduler) { batch ->
+            // batches are delivered one at a time, no locking needed here
+            for (event in batch) {
+                val scanner = event.sourceAction.toInt()
+                val sequence = event.barcode.toLong()
+                if (sequence != lastSequence[scanner] + 1) {
+                    outOfOrder.set(true)
+                }
+                lastSequence[scanner] = sequence
+                delivered++
+                pool.release(event)
+            }
+        }
+
+        val running = AtomicBoolean(true)
+        val timer = Thread {
+            while (running.get()) {
+                scheduler.advanceBy(DELAY_MS)
+            }
+        }
+        val scanners = (0 until SCANNERS).map { scanner ->
+            Thread {
+                for (sequence in 0 until SCANS_PER_SCANNER) {
+                    val event = pool.acquire()
+                    event.set(sequence.toString(), "EAN-13", "", System.nanoTime(), scanner.toString())
+                    batcher.offer(event)
+                }
+            }
+        }
+
+        timer.start()
+        scanners.forEach { it.start() }
+        scanners.forEach { it.join() }
+        running.set(false)
+        timer.join()
+        // nothing else delivers anymore, the remaining scans are delivered on this thread
+        batcher.flush()
+
+        assertEquals(SCANNERS.toLong() * SCANS_PER_SCANNER, delivered)
+        assertTrue("scans of one scanner were reordered", !outOfOrder.get())
+        lastSequence.forEach { assertEquals(SCANS_PER_SCANNER - 1L, it) }
+    }
+
+    private fun scan(barcode: String): ScanEvent = pool.acquire().set(barcode, "EAN-13", "", 0L, "test")
+
+    companion object {
+        private const val DELAY_MS = 50L
+        private const val BATCH_SIZE = 32
+        private const val SCANNERS = 4
+        private const val SCANS_PER_SCANNER = 250_000
+        private const val POOL_CAPACITY = 1024
+    }
+}
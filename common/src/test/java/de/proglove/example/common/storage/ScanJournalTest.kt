@@ -0,0 +1,156 @@
+package de.proglove.example.common.storage
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.file.Files
+
+class ScanJournalTest {
+
+    private val directory: File = Files.createTempDirectory("scan-journal-test").toFile()
+
+    @After
+    fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun recoversAllCompleteRecordsBeforeATornTail() {
+        ScanJournal.open(directory).use { appendAll(it, RECORD_COUNT) }
+        tearTail(directory.listFiles()!!.single { it.name.endsWith(".journal") })
+
+        ScanJournal.open(directory).use { recovered ->
+            val sequences = replaySequences(recovered)
+
+            assertEquals((1L..RECORD_COUNT).toList(), sequences)
+            assertEquals(1L, recovered.metrics().tornTailsRecovered)
+        }
+    }
+
+    @Test
+    fun appendsAfterTheRecoveredTail() {
+        ScanJournal.open(directory).use { appendAll(it, RECORD_COUNT) }
+        tearTail(directory.listFiles()!!.single { it.name.endsWith(".journal") })
+        ScanJournal.open(directory).use { appendAll(it, 1) }
+
+        ScanJournal.open(directory).use { reopened ->
+            assertEquals((1L..RECORD_COUNT + 1).toList(), replaySequences(reopened))
+            assertEquals("the tail was cut off on the first reopen", 0L, reopened.metrics().tornTailsRecovered)
+        }
+    }
+
+    @Test
+    fun replayStartsAfterTheAcknowledgedSequence() {
+        ScanJournal.open(directory).use { journal ->
+            appendAll(journal, RECORD_COUNT)
+            journal.acknowledge(ACKNOWLEDGED)
+
+            assertEquals((ACKNOWLEDGED + 1..RECORD_COUNT).toList(), replaySequences(journal))
+        }
+        ScanJournal.open(directory).use { reopened ->
+            assertEquals(
+                "the acknowledged sequence survives a restart",
+                (ACKNOWLEDGED + 1..RECORD_COUNT).toList(),
+                replaySequences(reopened)
+            )
+            reopened.acknowledge(RECORD_COUNT.toLong())
+            assertEquals(0, reopened.replay { })
+        }
+    }
+
+    @Test
+    fun acknowledgingDeletesSegmentsOfHandledRecordsOnly() {
+        ScanJournal.open(directory, segmentSize = SMALL_SEGMENT_SIZE, maxSegments = 16).use { journal ->
+            appendAll(journal, RECORD_COUNT * 3)
+            val segments = journal.metrics().segments
+            assertTrue("records span several segments", segments > 2)
+
+            journal.acknowledge(RECORD_COUNT * 2L)
+
+            assertTrue(journal.metrics().segments < segments)
+            assertEquals((RECORD_COUNT * 2L + 1..RECORD_COUNT * 3L).toList(), replaySequences(journal))
+        }
+    }
+
+    @Test
+    fun countsUnacknowledgedRecordsLostToEviction() {
+        val total = RECORD_COUNT * 10
+        ScanJournal.open(directory, segmentSize = SMALL_SEGMENT_SIZE, maxSegments = 2).use { journal ->
+            appendAll(journal, total)
+
+            val sequences = replaySequences(journal)
+            val metrics = journal.metrics()
+            assertTrue("segments were evicted", metrics.evictedSegments > 0)
+            assertEquals(total - sequences.size.toLong(), metrics.lostRecords)
+            assertEquals("the newest records are kept", total.toLong(), sequences.last())
+        }
+    }
+
+    @Test
+    fun evictingAcknowledgedRecordsLosesNothing() {
+        ScanJournal.open(directory, segmentSize = SMALL_SEGMENT_SIZE, maxSegments = 2).use { journal ->
+            // every round fits into one segment, acknowledged segments are deleted before they need evicting
+            for (round in 1..20) {
+                appendAll(journal, BATCH_SIZE)
+                journal.acknowledge(round * BATCH_SIZE.toLong())
+            }
+
+            assertEquals(0L, journal.metrics().lostRecords)
+        }
+    }
+
+    private fun appendAll(journal: ScanJournal, count: Int) {
+        var appended = 0
+        while (appended < count) {
+            if (journal.append(BARCODE, SYMBOLOGY, SOURCE)) {
+                appended++
+            } else {
+                Thread.yield()
+            }
+        }
+        // waits for the writer
+        while (journal.metrics().written < journal.metrics().appended) {
+            Thread.sleep(1)
+        }
+    }
+
+    private fun replaySequences(journal: ScanJournal): List<Long> {
+        val sequences = ArrayList<Long>()
+        journal.replay { sequences.add(it.sequence) }
+        return sequences
+    }
+
+    /**
+     * Leaves the header of a record whose payload never made it to disk behind the last record, like a crash mid-write.
+     */
+    private fun tearTail(segment: File) {
+        RandomAccessFile(segment, "rw").use { file ->
+            var position = 0L
+            while (true) {
+                file.seek(position)
+                val length = file.readInt()
+                if (length == 0) {
+                    break
+                }
+                position += JournalSegment.HEADER_SIZE + length
+            }
+            file.seek(position)
+            file.writeInt(64)
+            file.writeInt(0x5ca1ab1e)
+            file.write(ByteArray(17) { 0x7f })
+        }
+    }
+
+    companion object {
+        private const val BARCODE = "4006381333931"
+        private const val SYMBOLOGY = "EAN-13"
+        private const val SOURCE = "com.proglove.api.BARCODE"
+        private const val RECORD_COUNT = 1_000
+        private const val ACKNOWLEDGED = 600L
+        private const val BATCH_SIZE = 200
+        private const val SMALL_SEGMENT_SIZE = 20 * 1024
+    }
+}
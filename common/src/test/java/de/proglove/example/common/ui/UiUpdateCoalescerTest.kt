@@ -0,0 +1,139 @@
+package de.proglove.example.common.ui
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class UiUpdateCoalescerTest {
+
+    /**
+     * Collects the posted frames, [runFrame] runs them like the next vsync would.
+     */
+    private class FakeFrameScheduler : FrameScheduler {
+
+        val frames = ArrayList<Runnable>()
+
+        override fun postFrame(task: Runnable) {
+            frames.add(task)
+        }
+
+        fun runFrame() {
+            val due = ArrayList(frames)
+            frames.clear()
+            due.forEach { it.run() }
+        }
+    }
+
+    /**
+     * Copy of what one render call saw, the [UiUpdate] itself is reused after rendering.
+     */
+    private data class Rendered(
+        val flags: Int,
+        val barcode: String,
+        val symbology: String,
+        val screenId: String?,
+        val messages: List<String>
+    )
+
+    private val frameScheduler = FakeFrameScheduler()
+    private val rendered = ArrayList<Rendered>()
+    private val coalescer = UiUpdateCoalescer(frameScheduler) { update ->
+        rendered.add(Rendered(update.flags, update.barcode, update.symbology, update.screenId, update.messages.toList()))
+    }
+
+    @Test
+    fun latestScanOfAFrameWins() {
+        coalescer.postScan("first", "EAN-13")
+        coalescer.postScan("second", "CODE-128")
+        frameScheduler.runFrame()
+
+        assertEquals(1, rendered.size)
+        assertEquals(UiUpdate.SCAN, rendered[0].flags)
+        assertEquals("second", rendered[0].barcode)
+        assertEquals("CODE-128", rendered[0].symbology)
+    }
+
+    @Test
+    fun latestScreenContextOfAFrameWins() {
+        coalescer.postScreenContext("screen-1")
+        coalescer.postScreenContext(null)
+        frameScheduler.runFrame()
+        coalescer.postScreenContext("screen-1")
+        coalescer.postScreenContext("screen-2")
+        frameScheduler.runFrame()
+
+        assertEquals(2, rendered.size)
+        assertEquals(UiUpdate.SCREEN_CONTEXT, rendered[0].flags)
+        assertNull(rendered[0].screenId)
+        assertEquals("screen-2", rendered[1].screenId)
+    }
+
+    @Test
+    fun connectionStateChangesOfAFrameMergeIntoOne() {
+        repeat(5) { coalescer.postConnectionState() }
+        frameScheduler.runFrame()
+
+        assertEquals(1, rendered.size)
+        assertEquals(UiUpdate.CONNECTION_STATE, rendered[0].flags)
+    }
+
+    @Test
+    fun everyMessageOfAFrameIsKeptInOrder() {
+        coalescer.postMessage("connected")
+        coalescer.postScan("4006381333931", "EAN-13")
+        coalescer.postMessage("scan failed")
+        coalescer.postMessage("scan failed")
+        frameScheduler.runFrame()
+
+        assertEquals(1, rendered.size)
+        assertEquals(listOf("connected", "scan failed", "scan failed"), rendered[0].messages)
+        assertEquals(UiUpdate.SCAN or UiUpdate.MESSAGE, rendered[0].flags)
+    }
+
+    @Test
+    fun onlyTheKindsPostedSinceThePreviousFrameAreFlagged() {
+        coalescer.postScan("a", "EAN-13")
+        coalescer.postMessage("hello")
+        frameScheduler.runFrame()
+        coalescer.postScreenContext("screen-1")
+        frameScheduler.runFrame()
+
+        assertEquals(2, rendered.size)
+        val second = rendered[1]
+        assertEquals(UiUpdate.SCREEN_CONTEXT, second.flags)
+        assertEquals("", second.barcode)
+        assertTrue(second.messages.isEmpty())
+    }
+
+    @Test
+    fun requestsOneFramePerBurst() {
+        repeat(100) { coalescer.postScan("$it", "EAN-13") }
+        assertEquals(1, frameScheduler.frames.size)
+        frameScheduler.runFrame()
+        assertEquals(0, frameScheduler.frames.size)
+
+        coalescer.postConnectionState()
+        assertEquals("a post after the frame requests the next one", 1, frameScheduler.frames.size)
+        assertEquals(101L, coalescer.postedUpdateCount)
+        assertEquals(1L, coalescer.renderedFrameCount)
+    }
+
+    @Test
+    fun postFromTheRendererIsRenderedInTheNextFrame() {
+        val messages = ArrayList<List<String>>()
+        lateinit var reentrant: UiUpdateCoalescer
+        reentrant = UiUpdateCoalescer(frameScheduler) { update ->
+            messages.add(update.messages.toList())
+            if (update.messages == listOf("first")) {
+                reentrant.postMessage("second")
+            }
+        }
+
+        reentrant.postMessage("first")
+        frameScheduler.runFrame()
+        frameScheduler.runFrame()
+
+        assertEquals(listOf(listOf("first"), listOf("second")), messages)
+    }
+}
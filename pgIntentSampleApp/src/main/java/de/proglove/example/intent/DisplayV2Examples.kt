@@ -10,6 +10,8 @@ import de.proglove.example.common.ApiConstants.EXTRA_DISPLAY_SCREEN_TIMER
 import de.proglove.example.common.ApiConstants.EXTRA_DISPLAY_SCREEN_VIEWS
 import de.proglove.example.common.ApiConstants.EXTRA_REPLACE_QUEUE
 import de.proglove.example.common.ApiConstants.ACTION_SET_SCREEN_V2_INTENT
+import de.proglove.example.common.display.ScreenTemplate
+import de.proglove.example.common.display.ScreenTemplateCache
 
 /**
  * Intent to set a screen with the new Display V2 API.
@@ -30,7 +32,8 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
         init {
             putExtra(EXTRA_DISPLAY_SCREEN_ID, "pg_ntf_t5")
             putExtra(
-                EXTRA_DISPLAY_SCREEN_VIEWS, """
+                EXTRA_DISPLAY_SCREEN_VIEWS, template("pg_ntf_t5") {
+                    """
                     [
                       {
                         "ref_id": "SCREEN_VIEW_1",
@@ -54,10 +57,12 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
                         }
                       }
                     ]
-                """.trimIndent()
+                    """
+                }.render()
             )
             putExtra(
-                EXTRA_ACTION_BUTTONS, """
+                EXTRA_ACTION_BUTTONS, template("pg_ntf_t5/action_buttons") {
+                    """
                     {
                       "front_outside": {
                         "ref_id": "ab1",
@@ -96,7 +101,8 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
                         }
                       }
                     }
-                """.trimIndent()
+                    """
+                }.render()
             )
             putExtra(EXTRA_REPLACE_QUEUE, true)
             putExtra(EXTRA_ORIENTATION, "LANDSCAPE")
@@ -105,90 +111,7 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
 
     object PgWork3Btn2T1 : DisplayV2Examples() {
         init {
-            putExtra(EXTRA_DISPLAY_ACTIVE_SCREEN_VIEW_ID, "SCREEN_VIEW_1")
-            putExtra(EXTRA_DISPLAY_SCREEN_ID, "pg_work3_btn2_t1")
-            putExtra(
-                EXTRA_DISPLAY_SCREEN_VIEWS, """
-                [
-                  {
-                    "ref_id": "SCREEN_VIEW_1",
-                    "pg_work3_btn2_t1": {
-                      "field_top": {
-                        "ref_id": "field_top",
-                        "text_content": "Top Content",
-                        "text_header": "Top Header"
-                      },
-                      "field_middle_right": {
-                        "ref_id": "field_middle_right",
-                        "text_content": "Middle Right Content",
-                        "text_header": "Middle Right Header",
-                        "input_method": {
-                          "num_pad": {}
-                        }
-                      },
-                      "field_middle_left": {
-                        "ref_id": "field_middle_left",
-                        "text_content": "Middle Left Content",
-                        "text_header": "Middle Left Header"
-                      },
-                      "button_1": {
-                        "action_on_click": {
-                          "basic": "NOTIFY"
-                        },
-                        "ref_id": "BUTTON_1",
-                        "text": "Ok"
-                      },
-                      "button_2": {
-                        "action_on_click": {
-                          "basic": "NOTIFY"
-                        },
-                        "ref_id": "BUTTON_2",
-                        "text": "Cancel"
-                      }
-                    }
-                  },
-                  {
-                    "ref_id": "SCREEN_VIEW_2",
-                    "pg_work2_t1": {
-                      "field_top": {
-                        "ref_id": "field_top",
-                        "text_content": "Top Content",
-                        "text_header": "Top Header"
-                      },
-                      "field_bottom": {
-                        "ref_id": "field_bottom",
-                        "text_content": "Bottom Content",
-                        "text_header": "Bottom Header"
-                      }
-                    }
-                  }
-                ]
-                """.trimIndent()
-            )
-            putExtra(
-                EXTRA_ACTION_BUTTONS, """
-                    {
-                      "front_outside": {
-                        "ref_id": "ab1",
-                        "text": "Notify",
-                        "action_on_single_click": {
-                          "basic": "NOTIFY"
-                        },
-                        "color": "YELLOW"
-                      },
-                      "back_outside": {
-                        "ref_id": "ab2",
-                        "text": "Back",
-                        "color": "RED",
-                        "action_on_single_click": {
-                          "basic": "NAVIGATE_BACK"
-                        }
-                      }
-                    }
-                """.trimIndent()
-            )
-            putExtra(EXTRA_REPLACE_QUEUE, true)
-            putExtra(EXTRA_ORIENTATION, "PORTRAIT")
+            putPgWork3Btn2T1Extras(this, "Middle Right Content")
         }
     }
 
@@ -197,7 +120,8 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
             putExtra(EXTRA_DISPLAY_ACTIVE_SCREEN_VIEW_ID, "SCREEN_VIEW_1")
             putExtra(EXTRA_DISPLAY_SCREEN_ID, "pg_list_t1")
             putExtra(
-                EXTRA_DISPLAY_SCREEN_VIEWS, """
+                EXTRA_DISPLAY_SCREEN_VIEWS, template("pg_list_t1") {
+                    """
                     [
                       {
                         "ref_id": "SCREEN_VIEW_1",
@@ -234,10 +158,12 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
                         }
                       }
                     ]
-                """.trimIndent()
+                    """
+                }.render()
             )
             putExtra(
-                EXTRA_ACTION_BUTTONS, """
+                EXTRA_ACTION_BUTTONS, template("pg_list_t1/action_buttons") {
+                    """
                     {
                       "front_outside": {
                         "ref_id": "ab1",
@@ -256,7 +182,8 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
                         }
                       }
                     }
-                """.trimIndent()
+                    """
+                }.render()
             )
             putExtra(EXTRA_REPLACE_QUEUE, true)
             putExtra(EXTRA_ORIENTATION, "PORTRAIT")
@@ -267,7 +194,8 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
         init {
             putExtra(EXTRA_DISPLAY_SCREEN_ID, "timer_screen")
             putExtra(
-                EXTRA_DISPLAY_SCREEN_VIEWS, """
+                EXTRA_DISPLAY_SCREEN_VIEWS, template("timer_screen") {
+                    """
                     [
                       {
                         "ref_id": "SCREEN_VIEW_1",
@@ -283,19 +211,135 @@ sealed class DisplayV2Examples : Intent(ACTION_SET_SCREEN_V2_INTENT) {
                         }
                       }
                     ]
-                """.trimIndent()
+                    """
+                }.render()
             )
             putExtra(EXTRA_REPLACE_QUEUE, true)
             putExtra(EXTRA_ORIENTATION, "PORTRAIT")
-            putExtra(EXTRA_DISPLAY_SCREEN_TIMER, """
-                {
-                  "timeout": 2000,
-                  "action_on_expire": {
-                    "basic": "NAVIGATE_BACK"
-                  }
-                }
-                """.trimIndent()
+            putExtra(
+                EXTRA_DISPLAY_SCREEN_TIMER, template("timer_screen/timer") {
+                    """
+                    {
+                      "timeout": 2000,
+                      "action_on_expire": {
+                        "basic": "NAVIGATE_BACK"
+                      }
+                    }
+                    """
+                }.render()
             )
         }
     }
+
+    companion object {
+
+        private const val PG_WORK3_BTN2_T1_ID = "pg_work3_btn2_t1"
+        private const val PARAM_QUANTITY = "quantity"
+
+        /**
+         * Creates the [PgWork3Btn2T1] screen with [quantity] as content of the middle right field.
+         * The payload is rendered from the cached template, so only the quantity is spliced in.
+         */
+        fun pgWork3Btn2T1(quantity: String): Intent =
+            Intent(ACTION_SET_SCREEN_V2_INTENT).also { putPgWork3Btn2T1Extras(it, quantity) }
+
+        private fun putPgWork3Btn2T1Extras(intent: Intent, quantity: String) {
+            intent.apply {
+                putExtra(EXTRA_DISPLAY_ACTIVE_SCREEN_VIEW_ID, "SCREEN_VIEW_1")
+                putExtra(EXTRA_DISPLAY_SCREEN_ID, PG_WORK3_BTN2_T1_ID)
+                putExtra(
+                    EXTRA_DISPLAY_SCREEN_VIEWS, template(PG_WORK3_BTN2_T1_ID) {
+                        """
+                        [
+                          {
+                            "ref_id": "SCREEN_VIEW_1",
+                            "pg_work3_btn2_t1": {
+                              "field_top": {
+                                "ref_id": "field_top",
+                                "text_content": "Top Content",
+                                "text_header": "Top Header"
+                              },
+                              "field_middle_right": {
+                                "ref_id": "field_middle_right",
+                                "text_content": "{{quantity}}",
+                                "text_header": "Middle Right Header",
+                                "input_method": {
+                                  "num_pad": {}
+                                }
+                              },
+                              "field_middle_left": {
+                                "ref_id": "field_middle_left",
+                                "text_content": "Middle Left Content",
+                                "text_header": "Middle Left Header"
+                              },
+                              "button_1": {
+                                "action_on_click": {
+                                  "basic": "NOTIFY"
+                                },
+                                "ref_id": "BUTTON_1",
+                                "text": "Ok"
+                              },
+                              "button_2": {
+                                "action_on_click": {
+                                  "basic": "NOTIFY"
+                                },
+                                "ref_id": "BUTTON_2",
+                                "text": "Cancel"
+                              }
+                            }
+                          },
+                          {
+                            "ref_id": "SCREEN_VIEW_2",
+                            "pg_work2_t1": {
+                              "field_top": {
+                                "ref_id": "field_top",
+                                "text_content": "Top Content",
+                                "text_header": "Top Header"
+                              },
+                              "field_bottom": {
+                                "ref_id": "field_bottom",
+                                "text_content": "Bottom Content",
+                                "text_header": "Bottom Header"
+                              }
+                            }
+                          }
+                        ]
+                        """
+                    }.render(PARAM_QUANTITY, quantity)
+                )
+                putExtra(
+                    EXTRA_ACTION_BUTTONS, template("pg_work3_btn2_t1/action_buttons") {
+                        """
+                        {
+                          "front_outside": {
+                            "ref_id": "ab1",
+                            "text": "Notify",
+                            "action_on_single_click": {
+                              "basic": "NOTIFY"
+                            },
+                            "color": "YELLOW"
+                          },
+                          "back_outside": {
+                            "ref_id": "ab2",
+                            "text": "Back",
+                            "color": "RED",
+                            "action_on_single_click": {
+                              "basic": "NAVIGATE_BACK"
+                            }
+                          }
+                        }
+                        """
+                    }.render()
+                )
+                putExtra(EXTRA_REPLACE_QUEUE, true)
+                putExtra(EXTRA_ORIENTATION, "PORTRAIT")
+            }
+        }
+
+        /**
+         * Returns the template cached for [key], compiling the JSON returned by [definition] on first use.
+         */
+        private fun template(key: String, definition: () -> String): ScreenTemplate =
+            ScreenTemplateCache.shared.getOrCompile(key, definition)
+    }
 }
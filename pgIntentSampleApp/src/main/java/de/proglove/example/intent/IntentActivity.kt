@@ -11,6 +11,19 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.recyclerview.widget.LinearLayoutManager
 import de.proglove.example.common.ApiConstants
 import de.proglove.example.common.DisplaySampleData
+import de.proglove.example.common.dispatch.IoExecutor
+import de.proglove.example.common.feedback.FeedbackRuleEngine
+import de.proglove.example.common.feedback.ScanOutcome
+import de.proglove.example.common.outbox.HttpScanSink
+import de.proglove.example.common.outbox.ScanOutbox
+import de.proglove.example.common.pipeline.CheckDigitStage
+import de.proglove.example.common.pipeline.Gs1ParseStage
+import de.proglove.example.common.pipeline.PipelineScan
+import de.proglove.example.common.pipeline.ScanPipeline
+import de.proglove.example.common.profile.ProfileUiData
+import de.proglove.example.common.profile.ProfilesAdapter
+import de.proglove.example.common.scan.ScanEvent
+import de.proglove.example.common.storage.ScanJournal
 import de.proglove.example.intent.enums.DeviceConnectionStatus
 import de.proglove.example.intent.enums.DisplayConnectionStatus
 import de.proglove.example.intent.enums.DisplayDeviceType
@@ -64,7 +77,11 @@ import kotlinx.android.synthetic.main.feedback_selection_layout.triggerFeedbackB
 import kotlinx.android.synthetic.main.profiles_layout.changeProfileLabel
 import kotlinx.android.synthetic.main.profiles_layout.profilesRecycler
 import kotlinx.android.synthetic.main.profiles_layout.refreshConfigProfilesButton
-import org.json.JSONObject
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.net.MalformedURLException
+import java.net.URL
 import java.text.DateFormat
 import java.util.Date
 
@@ -86,6 +103,15 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
     private var displayType = DisplayDeviceType.UNKNOWN
     private val messageHandler: MessageHandler = MessageHandler(this)
 
+    // parses and validates scanned barcodes off the main thread
+    private val scanPipeline = ScanPipeline(listOf(Gs1ParseStage(), CheckDigitStage())) { scan ->
+        onScanProcessed(scan)
+    }
+
+    // received scans survive a process death here until they are handled
+    private var scanJournal: ScanJournal? = null
+    private var scanOutbox: ScanOutbox? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_intent)
@@ -95,6 +121,13 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         messageHandler.registerScannerOutput(this)
         messageHandler.setStatusListener(this)
         messageHandler.setScannerConfigurationChangeListener(this)
+        // deliver scan bursts as one batch, so the UI is updated once per batch instead of once per scan
+        messageHandler.enableScanBatching()
+        messageHandler.setFeedbackRules(createFeedbackRules())
+        if (BuildConfig.DUPLICATE_SCAN_WINDOW_MS > 0) {
+            messageHandler.enableDuplicateSuppression(BuildConfig.DUPLICATE_SCAN_WINDOW_MS)
+        }
+        openScanJournal()
 
         // Handle intent sent with start activity action which created this activity.
         // That Intent will not trigger #onNewIntent.
@@ -117,8 +150,19 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         triggerFeedbackButton.setOnClickListener {
             val selectedFeedbackId = getFeedbackId()
             val shouldReplaceQueue = sendFeedbackWithReplaceQueueSwitch.isChecked
+            // triggered by hand, it answers no scan and is not timed
             messageHandler.triggerFeedback(selectedFeedbackId, shouldReplaceQueue)
         }
+        triggerFeedbackButton.setOnLongClickListener {
+            val reportFile = File(filesDir, LATENCY_REPORT_FILE_NAME)
+            val message = if (messageHandler.dumpLatencyReport(reportFile)) {
+                "Latency report written to ${reportFile.path}"
+            } else {
+                "Writing the latency report failed"
+            }
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show()
+            true
+        }
         //setting first Item as selected by default
         radioGroup.check(feedbackId1RB.id)
 
@@ -163,7 +207,7 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 "${index + 1}$separator${pair.first}$separator${pair.second.random()}"
             }.joinToString(separator)
-            messageHandler.sendTestScreen(templateId, templateFields, null, separator)
+            sendSessionTestScreen(templateId, templateFields, separator)
         }
 
         sendPartialRefreshTestScreenBtn.setOnClickListener {
@@ -172,7 +216,8 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 "${index + 1}$separator${pair.first}$separator${pair.second.random()}"
             }.joinToString(separator)
-            messageHandler.sendTestScreen(templateId, templateFields, null, separator, 0, "PARTIAL_REFRESH")
+            // repeated PG3 screens are sent with a partial refresh by the display session
+            sendSessionTestScreen(templateId, templateFields, separator)
         }
 
         sendNotificationTestScreenBtn.setOnClickListener {
@@ -234,7 +279,7 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         }
 
         sendPgWork3Btn2T1.setOnClickListener {
-            messageHandler.sendPgWork3Btn2T1()
+            messageHandler.sendPgWork3Btn2T1(DisplaySampleData.SAMPLE_QUANTITY.second.random())
         }
 
         sendPgListT1Btn.setOnClickListener {
@@ -290,10 +335,102 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         super.onDestroy()
 
         unregisterReceiver(messageHandler)
+        Log.i(TAG, "Config profiles: ${messageHandler.profiles.metrics()}")
+        messageHandler.disableScanBatching()
+        scanPipeline.close()
+        scanPipeline.logReport()
+        messageHandler.setScanJournal(null)
+        // the outbox before the journal it reads from
+        closeInBackground(scanOutbox, scanJournal)
+        scanOutbox = null
+        scanJournal = null
         messageHandler.unregisterDisplayOutput(this)
         messageHandler.unregisterScannerOutput(this)
     }
 
+    /**
+     * Closes [closeables] one after another on the I/O executor. Closing an outbox waits for an upload in progress,
+     * which can take as long as the timeouts of its sink.
+     */
+    private fun closeInBackground(vararg closeables: Closeable?) {
+        IoExecutor.shared.execute {
+            for (closeable in closeables) {
+                try {
+                    closeable?.close()
+                } catch (e: IOException) {
+                    Log.w(TAG, "Could not close $closeable", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the scan journal and reports the scans a previous run left unhandled, without blocking the main thread
+     * for the recovery and the replay. Scans are journaled once the replay is done. With a configured
+     * [BuildConfig.SCAN_OUTBOX_URL], journaled scans are posted there as well.
+     */
+    private fun openScanJournal() {
+        val directory = File(filesDir, SCAN_JOURNAL_DIRECTORY_NAME)
+        IoExecutor.shared.execute {
+            val journal = try {
+                ScanJournal.open(directory)
+            } catch (e: IOException) {
+                Log.e(TAG, "Could not open the scan journal, scans are not journaled", e)
+                return@execute
+            }
+            var lastSequence = 0L
+            val count = journal.replay { record ->
+                lastSequence = record.sequence
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "journaled scan: $record")
+                }
+            }
+            if (count > 0) {
+                acknowledgeWithoutOutbox(journal, lastSequence)
+            }
+            runOnUiThread {
+                if (isDestroyed) {
+                    journal.close()
+                    return@runOnUiThread
+                }
+                scanJournal = journal
+                messageHandler.setScanJournal(journal)
+                startScanOutbox(journal)
+                if (count > 0) {
+                    Toast.makeText(this, "$count scans recovered from the journal", Toast.LENGTH_LONG).show()
+                }
+            }
+        }
+    }
+
+    /**
+     * Without a [BuildConfig.SCAN_OUTBOX_URL] nothing else handles the recovered scans, reporting them was all there
+     * is to do. Acknowledges them, so the next start does not report them again.
+     */
+    private fun acknowledgeWithoutOutbox(journal: ScanJournal, sequence: Long) {
+        if (BuildConfig.SCAN_OUTBOX_URL.isNotEmpty()) {
+            return
+        }
+        try {
+            journal.acknowledge(sequence)
+        } catch (e: IOException) {
+            Log.e(TAG, "Could not acknowledge the recovered scans", e)
+        }
+    }
+
+    private fun startScanOutbox(journal: ScanJournal) {
+        if (BuildConfig.SCAN_OUTBOX_URL.isEmpty()) {
+            return
+        }
+        val sink = try {
+            HttpScanSink(URL(BuildConfig.SCAN_OUTBOX_URL))
+        } catch (e: MalformedURLException) {
+            Log.e(TAG, "Invalid scan outbox URL, scans are not uploaded", e)
+            return
+        }
+        scanOutbox = ScanOutbox(journal, sink).also { it.start() }
+    }
+
     private fun updateConnectionLabel() {
         runOnUiThread {
             if (scannerConnectionState == ScannerConnectionStatus.CONNECTED) {
@@ -329,6 +466,12 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         }
     }
 
+    private fun sendSessionTestScreen(templateId: String, templateFields: String, separator: String) {
+        if (!messageHandler.sendTestScreen(templateId, templateFields, null, separator)) {
+            Toast.makeText(this, "Screen unchanged, not sent", Toast.LENGTH_SHORT).show()
+        }
+    }
+
     private fun updateScreenContextOutput(screenContext: String) {
         val screenContextJsonObject = screenContext.getJSONObject()
         if (screenContextJsonObject.has(ApiConstants.EVENT_REFERENCE_ID)) {
@@ -343,12 +486,6 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         }
     }
 
-    private fun String.getJSONObject() = if (isNullOrEmpty()) {
-        JSONObject()
-    } else {
-        JSONObject(this)
-    }
-
     override fun onDeviceVisibilityInfoReceived(
             serialNumber: String,
             firmwareRevision: String,
@@ -379,7 +516,8 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         }
     }
 
-    override fun onBarcodeScanned(barcode: String, symbology: String, screenContext: String) {
+    override fun onBarcodeScanned(barcode: String, symbology: String, screenContext: String, scanToken: Long) {
+        scanPipeline.submit(barcode, symbology, SCAN_SOURCE, scanToken)
         runOnUiThread {
             intentInputField?.text = barcode
             Toast.makeText(this, "Got barcode: $barcode", Toast.LENGTH_LONG).show()
@@ -389,6 +527,68 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
         updateLastContact()
     }
 
+    override fun onBarcodesScanned(scans: List<ScanEvent>) {
+        val lastScan = scans.lastOrNull() ?: return
+        for (i in scans.indices) {
+            val scan = scans[i]
+            scanPipeline.submit(scan.barcode, scan.symbology, scan.sourceAction, scan.scanToken)
+        }
+        // the events are recycled after this call, copy what the UI needs
+        val count = scans.size
+        val barcode = lastScan.barcode
+        val symbology = lastScan.symbology
+        val screenContext = lastScan.screenContext
+        runOnUiThread {
+            intentInputField?.text = barcode
+            val message = if (count == 1) {
+                "Got barcode: $barcode"
+            } else {
+                "Got $count barcodes, last: $barcode"
+            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show()
+            lastSymbologyOutput.text = symbology
+        }
+        updateScreenContextOutput(screenContext)
+        updateLastContact()
+    }
+
+    /**
+     * Rules answering rejected and duplicate scans, success feedback is left to the scanner.
+     */
+    private fun createFeedbackRules(): FeedbackRuleEngine<Int> {
+        return FeedbackRuleEngine.Builder<Int>()
+            .add(FeedbackRuleEngine.Rule(
+                feedback = FEEDBACK_SEQUENCE_ERROR,
+                priority = FeedbackRuleEngine.PRIORITY_HIGH,
+                requiredOutcomes = ScanOutcome.REJECTED,
+                name = "rejected"
+            ))
+            .add(FeedbackRuleEngine.Rule(
+                feedback = FEEDBACK_SEQUENCE_INFO,
+                priority = FeedbackRuleEngine.PRIORITY_NORMAL,
+                requiredOutcomes = ScanOutcome.DUPLICATE,
+                name = "duplicate"
+            ))
+            .replaceQueueFrom(FeedbackRuleEngine.PRIORITY_HIGH)
+            .build()
+    }
+
+    /**
+     * Shows what the scan pipeline found out about a scan and plays the feedback the rules pick for it. Called on
+     * the pipeline thread.
+     */
+    private fun onScanProcessed(scan: PipelineScan) {
+        messageHandler.triggerRuleFeedback(scan.symbology, scan.barcode, ScanOutcome.of(scan), scan.scanToken)
+        val message = when {
+            scan.isRejected -> "Barcode ${scan.barcode} rejected: ${scan.rejectReason}"
+            scan.gs1.count > 0 -> "GS1 elements: ${scan.gs1}"
+            else -> return
+        }
+        runOnUiThread {
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show()
+        }
+    }
+
     override fun onScannerStateChanged(status: DeviceConnectionStatus) {
         Log.i(TAG, "Did receive scanner status: $status")
         scannerConnectionState = when (status) {
@@ -509,10 +709,14 @@ class IntentActivity : AppCompatActivity(), IIntentDisplayOutput, IIntentScanner
     companion object {
 
         const val TAG = "PGIntentActivity"
-    }
-}
 
-/**
- * Profile data for displaying on UI.
- */
-data class ProfileUiData(val profileId: String, var active: Boolean)
\ No newline at end of file
+        private const val LATENCY_REPORT_FILE_NAME = "scan_latency.txt"
+        private const val SCAN_JOURNAL_DIRECTORY_NAME = "scan-journal"
+        // feedback sequence ids of the Error and Info radio buttons
+        private const val FEEDBACK_SEQUENCE_ERROR = 2
+        private const val FEEDBACK_SEQUENCE_INFO = 3
+
+        // source of scans delivered without batching, which do not carry their intent action
+        private const val SCAN_SOURCE = "intent"
+    }
+}
\ No newline at end of file
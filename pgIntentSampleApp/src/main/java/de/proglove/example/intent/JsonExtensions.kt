@@ -0,0 +1,14 @@
+package de.proglove.example.intent
+
+import org.json.JSONObject
+
+/**
+ * Parses a screen context or screen event string received from Insight Mobile.
+ *
+ * @return the parsed object, an empty object if the string is empty.
+ */
+internal fun String.getJSONObject() = if (isNullOrEmpty()) {
+    JSONObject()
+} else {
+    JSONObject(this)
+}
@@ -10,13 +10,28 @@ import android.os.Bundle
 import android.util.Log
 import android.widget.Toast
 import de.proglove.example.common.ApiConstants
+import de.proglove.example.common.dispatch.HandlerScheduler
+import de.proglove.example.common.dispatch.ListenerRegistry
+import de.proglove.example.common.display.DisplayCommandQueue
+import de.proglove.example.common.display.DisplaySession
+import de.proglove.example.common.feedback.FeedbackRuleEngine
+import de.proglove.example.common.feedback.ScanOutcome
+import de.proglove.example.common.metrics.ScanLatencyTracker
+import de.proglove.example.common.profile.ProfileRepository
+import de.proglove.example.common.scan.ScanBatcher
+import de.proglove.example.common.scan.ScanDeduplicator
+import de.proglove.example.common.scan.ScanEvent
+import de.proglove.example.common.scan.ScanEventPool
+import de.proglove.example.common.storage.ScanJournal
+import de.proglove.example.common.stream.DeviceEventStreams
 import de.proglove.example.intent.enums.DeviceConnectionStatus
 import de.proglove.example.intent.enums.DisplayDeviceType
 import de.proglove.example.intent.interfaces.IIntentDisplayOutput
 import de.proglove.example.intent.interfaces.IIntentScannerOutput
 import de.proglove.example.intent.interfaces.IScannerConfigurationChangeOutput
 import de.proglove.example.intent.interfaces.IStatusOutput
-import java.util.Collections
+import java.io.File
+import java.io.IOException
 
 /**
  * Message handler is a helper class to work with broadcasts.
@@ -24,8 +39,8 @@ import java.util.Collections
 class MessageHandler(private val context: Context) : BroadcastReceiver() {
 
     // callbacks for scanner and display functions
-    private val scannerReceivers = Collections.synchronizedCollection(mutableSetOf<IIntentScannerOutput>())
-    private val displayReceivers = Collections.synchronizedCollection(mutableSetOf<IIntentDisplayOutput>())
+    private val scannerReceivers = ListenerRegistry<IIntentScannerOutput>()
+    private val displayReceivers = ListenerRegistry<IIntentDisplayOutput>()
 
     // intent filer to filer out PG Intent API actions
     val filter = IntentFilter().also {
@@ -48,6 +63,41 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
     private var statusListener: IStatusOutput? = null
     private var scannerConfigurationChangeListener: IScannerConfigurationChangeOutput? = null
 
+    // batches scans for IIntentScannerOutput.onBarcodesScanned, null while batching is disabled
+    private var scanBatcher: ScanBatcher? = null
+    private val scanEventPool = ScanEventPool.shared
+
+    // times each scan from its broadcast to processing and feedback
+    private val latencyTracker = ScanLatencyTracker.shared
+
+    // drops repeated scans of the same label, null while duplicate suppression is disabled
+    @Volatile
+    private var scanDeduplicator: ScanDeduplicator? = null
+
+    // picks feedback sequence ids for scans automatically, null while no rules are set
+    @Volatile
+    private var feedbackRules: FeedbackRuleEngine<Int>? = null
+
+    // keeps received scans across process deaths, null while no journal is set
+    @Volatile
+    private var scanJournal: ScanJournal? = null
+
+    // remembers the template screens sent, to skip unchanged screens and refresh changed ones partially
+    private val displaySession = DisplaySession()
+
+    /**
+     * Scans and connection changes of the Intent API as streams, for logic that should not depend on the API.
+     */
+    val streams = DeviceEventStreams()
+
+    /**
+     * The configuration profiles, requested from Insight Mobile on first use and again only after they changed.
+     */
+    val profiles = ProfileRepository<String>(HandlerScheduler()) { _, _ -> requestConfigProfiles() }
+
+    // keeps at most one Display V2 screen in flight, newer screens replace the one waiting behind it
+    private val displayQueue = DisplayCommandQueue<Intent>(HandlerScheduler()) { _, intent -> sendBroadcast(intent) }
+
     /**
      * A method overridden from the [BroadcastReceiver] to intercept caught intents.
      */
@@ -88,6 +138,8 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
 
                 ApiConstants.ACTION_SCANNER_CONFIG_CHANGE -> {
                     log("got ACTION_SCANNER_CONFIG_CHANGE")
+                    profiles.invalidate()
+                    refreshConfigProfiles()
                     val statusCode = intent.getStringExtra(ApiConstants.EXTRA_SCANNER_CONFIG_CHANGE_STATUS)
                             ?: "No scanner config status"
                     val errorMessage: String? = intent.getStringExtra(ApiConstants.EXTRA_SCANNER_CONFIG_CHANGE_ERROR_TEXT)
@@ -99,6 +151,8 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
                     log("got ACTION_DISPLAY_STATE_INTENT")
                     intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_STATE)?.let { s ->
                         log("got display $s")
+                        displaySession.invalidate()
+                        displayQueue.reset()
                         notifyOnDisplayStateChange(DeviceConnectionStatus.valueOf(s))
                     }
                 }
@@ -115,6 +169,7 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
                     var errorMessage: String? = null
                     if (!success) {
                         errorMessage = intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_SET_SCREEN_ERROR_TEXT)
+                        displaySession.invalidate()
                         statusListener?.onStatusReceived("set screen error")
                     } else {
                         statusListener?.onStatusReceived("set screen success")
@@ -132,7 +187,11 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
                     val activeProfileId = intent.getStringExtra(ApiConstants.EXTRA_CONFIG_PROFILE_ACTIVE_ID)
                             ?: ""
 
-                    notifyOnConfigProfilesReceived(configProfilesIds, activeProfileId)
+                    // the answer carries no request id, it completes the fetch in flight, if any
+                    if (!profiles.onFetched(configProfilesIds.asList(), activeProfileId.ifEmpty { null })) {
+                        // nobody here asked for them, still show the current profiles
+                        notifyOnConfigProfilesReceived(configProfilesIds, activeProfileId)
+                    }
                 }
                 ApiConstants.ACTION_RECEIVE_DEVICE_VISIBILITY_INFO -> {
                     log("got ACTION_RECEIVE_DEVICE_VISIBILITY_INFO")
@@ -148,9 +207,15 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
                 ApiConstants.ACTION_SET_DISPLAY_SCREEN_V2_RESULT_INTENT -> {
                     log("got ACTION_SET_DISPLAY_SCREEN_V2_RESULT_INTENT")
                     val success = intent.getBooleanExtra(ApiConstants.EXTRA_DISPLAY_SET_SCREEN_SUCCESS, false)
+                    // the result carries no request id, it always answers the one screen in flight
+                    displayQueue.onResult(success)
+                    if (BuildConfig.DEBUG) {
+                        log("display queue: ${displayQueue.metrics()}")
+                    }
                     var errorMessage: String? = null
                     if (!success) {
                         errorMessage = intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_SET_SCREEN_ERROR_TEXT)
+                        displaySession.invalidate()
                         statusListener?.onStatusReceived("set screen v2 error")
                     } else {
                         statusListener?.onStatusReceived("set screen v2 success")
@@ -188,6 +253,88 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
         this.scannerConfigurationChangeListener = scannerConfigurationChangeListener
     }
 
+    /**
+     * Enables batched scan delivery. Scans are then delivered through [IIntentScannerOutput.onBarcodesScanned] on
+     * the main thread, at most [maxBatchSize] at a time and no later than [maxDelayMs] after they were received.
+     * The delivered events are pooled and recycled once all receivers returned.
+     *
+     * @param maxBatchSize maximum number of scans in one batch.
+     * @param maxDelayMs maximum time a scan is held back before its batch is delivered.
+     */
+    fun enableScanBatching(maxBatchSize: Int = DEFAULT_SCAN_BATCH_SIZE, maxDelayMs: Long = DEFAULT_SCAN_BATCH_DELAY_MS) {
+        scanBatcher?.flush()
+        scanBatcher = ScanBatcher(maxBatchSize, maxDelayMs, HandlerScheduler()) { scans ->
+            notifyOnReceivedBarcodes(scans)
+            // receivers must not keep the events, hand them back for the next batch
+            for (i in scans.indices) {
+                scanEventPool.release(scans[i])
+            }
+        }
+        log("scan batching enabled, maxBatchSize: $maxBatchSize, maxDelayMs: $maxDelayMs")
+    }
+
+    /**
+     * Enables duplicate suppression. A scan of the same barcode and symbology through the same action within
+     * [windowMs] of the last delivered one is dropped before it reaches the journal and the receivers.
+     *
+     * @param windowMs time after a delivered scan during which the same scan is dropped.
+     */
+    fun enableDuplicateSuppression(windowMs: Long = ScanDeduplicator.DEFAULT_WINDOW_MS) {
+        scanDeduplicator = ScanDeduplicator(windowMs)
+        log("duplicate suppression enabled, windowMs: $windowMs")
+    }
+
+    /**
+     * Disables duplicate suppression, every received scan is delivered again.
+     */
+    fun disableDuplicateSuppression() {
+        scanDeduplicator = null
+    }
+
+    /**
+     * Returns the counters of the duplicate suppression, or null while it is disabled.
+     */
+    fun duplicateSuppressionMetrics(): ScanDeduplicator.Metrics? = scanDeduplicator?.metrics()
+
+    /**
+     * Sets the rules picking feedback sequence ids for scans, or stops automatic feedback if [rules] is null.
+     * Duplicate scans are answered right away, other outcomes through [triggerRuleFeedback].
+     */
+    fun setFeedbackRules(rules: FeedbackRuleEngine<Int>?) {
+        feedbackRules = rules
+    }
+
+    /**
+     * Plays the feedback sequence of the rule matching a scan, if any.
+     *
+     * @param outcomes [ScanOutcome] flags of the scan.
+     * @param scanToken latency token of the scan, see [ScanEvent.scanToken].
+     * @return false if no rule matched.
+     */
+    fun triggerRuleFeedback(symbology: String, barcode: String, outcomes: Int, scanToken: Long): Boolean {
+        val rules = feedbackRules ?: return false
+        val rule = rules.evaluate(symbology, barcode, outcomes) ?: return false
+        triggerFeedback(rule.feedback, rules.replacesQueue(rule), scanToken)
+        return true
+    }
+
+    /**
+     * Appends every received scan to [journal] before it is delivered to the receivers, or stops journaling if it
+     * is null. The caller owns the journal and closes it.
+     */
+    fun setScanJournal(journal: ScanJournal?) {
+        scanJournal = journal
+    }
+
+    /**
+     * Disables batched scan delivery. Scans still buffered are delivered right away.
+     */
+    fun disableScanBatching() {
+        scanBatcher?.flush()
+        scanBatcher = null
+        log("scan batching disabled")
+    }
+
     /**
      * Register a callback for scanner actions.
      *
@@ -305,6 +452,9 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
     /**
      * Send a test screen to the display.
      *
+     * Without [refreshType] and [durationMs] the screen is sent through the display session: a screen equal to the
+     * one shown is not sent at all, and a screen for the template already shown is sent with a partial refresh.
+     *
      * @param id template ID.
      * @param content data for display.
      * @param rightHeaders additional data for display to be shown in upper right corner(s) of the field(s).
@@ -312,6 +462,7 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
      * @param durationMs the duration for which this screen should be displayed. 0 means indefinite display
      * @param refreshType the refresh type to be used for this screen setting.
      *      Valid values are: ["DEFAULT", "FULL_REFRESH", "PARTIAL_REFRESH"]
+     * @return false if the screen was skipped because the display already shows it.
      */
     fun sendTestScreen(
         id: String,
@@ -320,7 +471,20 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
         separator: String,
         durationMs: Int = 0,
         refreshType: String? = null
-    ) {
+    ): Boolean {
+        var effectiveRefreshType = refreshType
+        if (refreshType == null && durationMs == 0) {
+            val decision = displaySession.decide(id, listOf(content, rightHeaders, separator))
+            if (decision == DisplaySession.Decision.SKIP) {
+                log("screen $id unchanged, not sent")
+                return false
+            }
+            effectiveRefreshType = decision.refreshType
+        } else {
+            // screens sent around the session leave the display content unknown
+            displaySession.invalidate()
+        }
+
         val intent = Intent().also {
             it.action = ApiConstants.ACTION_SET_SCREEN_INTENT
             it.putExtra(ApiConstants.EXTRA_DISPLAY_TEMPLATE_ID, id)
@@ -330,24 +494,30 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
             }
             it.putExtra(ApiConstants.EXTRA_DISPLAY_SEPARATOR, separator)
             it.putExtra(ApiConstants.EXTRA_DISPLAY_DURATION, durationMs)
-            refreshType?.let { refreshType ->
+            effectiveRefreshType?.let { refreshType ->
                 it.putExtra(ApiConstants.EXTRA_DISPLAY_REFRESH_TYPE, refreshType)
             }
         }
         sendBroadcast(intent)
+        return true
     }
 
     /**
      * Gets scanned barcode data from received [Intent] and notifies [scannerReceivers].
      */
     private fun handleScannedBarcode(intent: Intent) {
+        val scanToken = latencyTracker.scanReceived()
         val barcodeContent = intent.getStringExtra(ApiConstants.EXTRA_DATA_STRING_PG)
         val symbology = intent.getStringExtra(ApiConstants.EXTRA_SYMBOLOGY_STRING_PG) ?: ""
         val screenContext = intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_SCREEN_CONTEXT) ?: ""
 
         barcodeContent?.let { s ->
-            log("received Barcode pg: $s")
-            notifyOnReceivedBarcode(s, symbology, screenContext)
+            if (BuildConfig.DEBUG) {
+                log("received Barcode pg: $s")
+            }
+            if (notifyOnReceivedBarcode(s, symbology, screenContext, intent.action ?: "", scanToken)) {
+                latencyTracker.record(scanToken, ScanLatencyTracker.Stage.PROCESSED)
+            }
         }
     }
 
@@ -355,6 +525,7 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
      * Gets barcode data and button ID from received [Intent] and notifies [scannerReceivers].
      */
     private fun handleIvantiBarcode(intent: Intent) {
+        val scanToken = latencyTracker.scanReceived()
         val barcodeContent = intent.getStringExtra(ApiConstants.EXTRA_DATA_STRING_PG)
         val symbology = intent.getStringExtra(ApiConstants.EXTRA_SYMBOLOGY_STRING_PG) ?: ""
         val screenContext = intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_SCREEN_CONTEXT) ?: ""
@@ -364,8 +535,13 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
         val buttonId = intent.getStringExtra(ApiConstants.EXTRA_DISPLAY_BUTTON)
 
         barcodeContent?.let { s ->
-            log("received Ivanti Barcode: $s")
-            notifyOnReceivedBarcode(s, symbology, screenContext)
+            if (BuildConfig.DEBUG) {
+                log("received Ivanti Barcode: $s")
+            }
+            val sourceAction = ApiConstants.ACTION_BARCODE_INTENT_IVANTI
+            if (notifyOnReceivedBarcode(s, symbology, screenContext, sourceAction, scanToken)) {
+                latencyTracker.record(scanToken, ScanLatencyTracker.Stage.PROCESSED)
+            }
         }
 
         buttonId?.let {
@@ -407,6 +583,7 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
      */
     private fun notifyOnDisplayStateChange(newState: DeviceConnectionStatus) {
         log("received displayState $newState")
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, newState == DeviceConnectionStatus.CONNECTED)
         displayReceivers.forEach {
             it.onDisplayStateChanged(newState)
         }
@@ -458,15 +635,62 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
 
     /**
      * Notify scanner receivers when a barcode scan has been received.
+     * If scan batching is enabled, the scan is added to the current batch instead.
      *
      * @param value scanned barcode string.
      * @param symbology symbology of that barcode, if supported.
+     * @param sourceAction the intent action the scan was received with.
+     * @param scanToken latency token of the scan.
+     * @return false if the scan was dropped as a duplicate.
+     */
+    private fun notifyOnReceivedBarcode(
+        value: String,
+        symbology: String,
+        screenContext: String,
+        sourceAction: String,
+        scanToken: Long
+    ): Boolean {
+        if (scanDeduplicator?.isDuplicate(value, symbology, sourceAction) == true) {
+            if (BuildConfig.DEBUG) {
+                log("dropped duplicate Barcode $value")
+            }
+            triggerRuleFeedback(symbology, value, ScanOutcome.DUPLICATE, scanToken)
+            return false
+        }
+
+        scanJournal?.append(value, symbology, sourceAction)
+        streams.onScan(value, symbology, screenContext, sourceAction)
+
+        val batcher = scanBatcher
+        if (batcher != null) {
+            val scan = scanEventPool.acquire()
+                .set(value, symbology, screenContext, System.nanoTime(), sourceAction, scanToken)
+            batcher.offer(scan)
+            return true
+        }
+
+        if (BuildConfig.DEBUG) {
+            log("notify on Barcode $value")
+        }
+
+        scannerReceivers.forEach {
+            it.onBarcodeScanned(value, symbology, screenContext, scanToken)
+        }
+        return true
+    }
+
+    /**
+     * Notify scanner receivers of a batch of scans.
+     *
+     * @param scans the scans in the order they were received.
      */
-    private fun notifyOnReceivedBarcode(value: String, symbology: String, screenContext: String) {
-        log("notify on Barcode $value")
+    private fun notifyOnReceivedBarcodes(scans: List<ScanEvent>) {
+        if (BuildConfig.DEBUG) {
+            log("notify on ${scans.size} Barcodes")
+        }
 
         scannerReceivers.forEach {
-            it.onBarcodeScanned(value, symbology, screenContext)
+            it.onBarcodesScanned(scans)
         }
     }
 
@@ -477,6 +701,7 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
      */
     private fun notifyOnScannerStateChange(newState: DeviceConnectionStatus) {
         log("received scannerState $newState")
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, newState == DeviceConnectionStatus.CONNECTED)
         scannerReceivers.forEach {
             it.onScannerStateChanged(newState)
         }
@@ -547,14 +772,38 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
      * @param feedbackSequenceId desired feedback sequence ID.
      * @param shouldReplaceQueue (optional) If true all currently queued up commands are canceled and only this command
      *  will be enqueued
+     * @param scanToken (optional) latency token of the scan this feedback answers. Feedback that answers no scan, like
+     *  feedback triggered by hand, keeps [ScanLatencyTracker.NO_SCAN] and is not timed.
      */
-    fun triggerFeedback(feedbackSequenceId: Int, shouldReplaceQueue: Boolean = false) {
+    fun triggerFeedback(
+        feedbackSequenceId: Int,
+        shouldReplaceQueue: Boolean = false,
+        scanToken: Long = ScanLatencyTracker.NO_SCAN
+    ) {
         val intent = Intent().also {
             it.action = ApiConstants.ACTION_FEEDBACK_PLAY_SEQUENCE_INTENT
             it.putExtra(ApiConstants.EXTRA_FEEDBACK_SEQUENCE_ID, feedbackSequenceId)
             it.putExtra(ApiConstants.EXTRA_REPLACE_QUEUE, shouldReplaceQueue)
         }
         sendBroadcast(intent)
+        // the Intent API does not acknowledge played feedback, so the send is the last measurable stage
+        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.FEEDBACK_SENT)
+    }
+
+    /**
+     * Dumps p50, p99 and p999 of the scan-to-feedback latencies to logcat and to [file].
+     *
+     * @return false if the file could not be written.
+     */
+    fun dumpLatencyReport(file: File): Boolean {
+        latencyTracker.logReport()
+        return try {
+            latencyTracker.writeReport(file)
+            true
+        } catch (e: IOException) {
+            Log.e(TAG, "Writing the latency report to $file failed", e)
+            false
+        }
     }
 
     /**
@@ -588,7 +837,32 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
         }
     }
 
+    /**
+     * Passes the configuration profiles to the scanner receivers, from memory if they did not change since they were
+     * last requested.
+     */
     fun getActiveConfigProfile() {
+        profiles.get(object : ProfileRepository.Callback<String> {
+            override fun onProfiles(profiles: ProfileRepository.Profiles<String>) {
+                notifyOnConfigProfilesReceived(profiles.profiles.toTypedArray(), profiles.activeProfileId ?: "")
+            }
+
+            override fun onError(message: String) {
+                log("getting the config profiles failed: $message")
+            }
+        })
+    }
+
+    /**
+     * Fetches the configuration profiles again after they were invalidated, if any scanner receiver shows them.
+     */
+    private fun refreshConfigProfiles() {
+        if (scannerReceivers.size > 0) {
+            getActiveConfigProfile()
+        }
+    }
+
+    private fun requestConfigProfiles() {
         val intent = Intent().apply {
             action = ApiConstants.ACTION_GET_CONFIG_PROFILES
         }
@@ -606,6 +880,9 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
             putExtra(ApiConstants.EXTRA_CONFIG_PROFILE_ID, profileId)
         }
         sendBroadcast(intent)
+        // the Intent API does not report whether the change succeeded, assume it did
+        profiles.invalidate()
+        refreshConfigProfiles()
     }
 
     /**
@@ -657,19 +934,37 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
     }
 
     fun sendPgNtfT5() {
-        sendBroadcast(DisplayV2Examples.PgNtfT5)
+        sendScreenV2(DisplayV2Examples.PgNtfT5)
     }
 
     fun sendPgWork3Btn2T1() {
-        sendBroadcast(DisplayV2Examples.PgWork3Btn2T1)
+        sendScreenV2(DisplayV2Examples.PgWork3Btn2T1)
+    }
+
+    /**
+     * Sends the PgWork3Btn2T1 screen with [quantity] in its middle right field, rendered from the cached template.
+     */
+    fun sendPgWork3Btn2T1(quantity: String) {
+        sendScreenV2(DisplayV2Examples.pgWork3Btn2T1(quantity))
     }
 
     fun sendPgListT1() {
-        sendBroadcast(DisplayV2Examples.PgListT1)
+        sendScreenV2(DisplayV2Examples.PgListT1)
     }
 
     fun sendTimerScreen() {
-        sendBroadcast(DisplayV2Examples.TimerScreen)
+        sendScreenV2(DisplayV2Examples.TimerScreen)
+    }
+
+    /**
+     * Returns the counters of the Display V2 screen queue, including its depth and the screen round trip times.
+     */
+    fun displayQueueMetrics(): DisplayCommandQueue.Metrics = displayQueue.metrics()
+
+    private fun sendScreenV2(intent: Intent) {
+        // Display V2 screens replace the template screen tracked by the display session
+        displaySession.invalidate()
+        displayQueue.submit(intent)
     }
 
     fun updateGoals(totalStepsGoal: Int, totalScansGoal: Int, averageScantimeGoal: Float) {
@@ -686,6 +981,9 @@ class MessageHandler(private val context: Context) : BroadcastReceiver() {
 
         private const val TAG = "IntentApiApp:MsgHandler"
 
+        const val DEFAULT_SCAN_BATCH_SIZE = 32
+        const val DEFAULT_SCAN_BATCH_DELAY_MS = 50L
+
         private const val PAIRING_ACTIVITY_PACKAGE_NAME = "de.proglove.connect"
         private const val PAIRING_ACTIVITY_CLASS_NAME = "de.proglove.coreui.activities.PairingActivity"
     }
@@ -1,5 +1,6 @@
 package de.proglove.example.intent.interfaces
 
+import de.proglove.example.common.scan.ScanEvent
 import de.proglove.example.intent.enums.DeviceConnectionStatus
 
 /**
@@ -19,8 +20,25 @@ interface IIntentScannerOutput {
      * settings.
      * @param symbology (Optional) Symbology of the scanned barcode.
      * @param screenContext The screen context from which the barcode was scanned.
+     * @param scanToken Latency token of the scan, hand it on to [MessageHandler.triggerRuleFeedback] to time the
+     * feedback answering this scan.
      */
-    fun onBarcodeScanned(barcode: String, symbology: String, screenContext: String)
+    fun onBarcodeScanned(barcode: String, symbology: String, screenContext: String, scanToken: Long)
+
+    /**
+     * A callback method, that is called with a batch of scans when scan batching is enabled in [MessageHandler].
+     *
+     * By default every scan of the batch is forwarded to [onBarcodeScanned] in the order it was received.
+     * The list and its events are recycled once this method returns, copy any values needed later.
+     *
+     * @param scans The scans of this batch, oldest first.
+     */
+    fun onBarcodesScanned(scans: List<ScanEvent>) {
+        for (i in scans.indices) {
+            val scan = scans[i]
+            onBarcodeScanned(scan.barcode, scan.symbology, scan.screenContext, scan.scanToken)
+        }
+    }
 
     /**
      * A more detailed callback for the scanner status.
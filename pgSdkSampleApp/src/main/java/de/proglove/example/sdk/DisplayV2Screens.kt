@@ -0,0 +1,221 @@
+package de.proglove.example.sdk
+
+import de.proglove.sdk.display.model.v2.PgActionButton.Assigned
+import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor
+import de.proglove.sdk.display.model.v2.PgActionButton.Unassigned
+import de.proglove.sdk.display.model.v2.PgActionButtons
+import de.proglove.sdk.display.model.v2.PgListViewItem
+import de.proglove.sdk.display.model.v2.PgScreen
+import de.proglove.sdk.display.model.v2.PgScreenAction
+import de.proglove.sdk.display.model.v2.PgScreenComponent
+import de.proglove.sdk.display.model.v2.PgScreenInputMethod
+import de.proglove.sdk.display.model.v2.PgScreenOrientation
+import de.proglove.sdk.display.model.v2.PgScreenResources
+import de.proglove.sdk.display.model.v2.PgScreenTimer
+import de.proglove.sdk.display.model.v2.PgScreenView
+
+/**
+ * The Display V2 example screens.
+ *
+ * The screens are static, so each one is built on first use and the same instance is sent on every click instead of
+ * rebuilding the whole object graph.
+ */
+object DisplayV2Screens {
+
+    /**
+     * Notification view with two buttons and all four action buttons assigned.
+     */
+    val pgNtfT5: PgScreen by lazy {
+        PgScreen(
+            referenceId = "pgNtfT5Screen",
+            screenView = PgScreenView.TemplateV2.NotificationView.PgNtfT5(
+                referenceId = "",
+                tagline = "Notification",
+                message = "This is a message with two buttons",
+                primaryButton = PgScreenComponent.Button(
+                    referenceId = "BUTTON_PRIMARY",
+                    text = "OK",
+                    onSingleClick = PgScreenAction.Notify
+                ),
+                secondaryButton = PgScreenComponent.Button(
+                    referenceId = "BUTTON_SECONDARY",
+                    text = "Cancel",
+                    onSingleClick = PgScreenAction.Notify
+                ),
+            ),
+            actionButtons = PgActionButtons(
+                frontOutside = Assigned(
+                    referenceId = "actionButton1",
+                    indicatorLabelText = "Notify",
+                    indicatorColor = IndicatorColor.Yellow,
+                    onSingleClick = PgScreenAction.Notify,
+                ),
+                backOutside = Assigned(
+                    referenceId = "actionButton2",
+                    indicatorLabelText = "Back",
+                    indicatorColor = IndicatorColor.Red,
+                    onSingleClick = PgScreenAction.NavigateBack,
+                ),
+                frontInside = Assigned(
+                    referenceId = "actionButton3",
+                    indicatorLabelText = "Ok",
+                    indicatorColor = IndicatorColor.Cyan,
+                    onSingleClick = PgScreenAction.ClickOnPgScreenComponent(
+                        "BUTTON_PRIMARY"
+                    ),
+                ),
+                backInside = Assigned(
+                    referenceId = "actionButton4",
+                    indicatorLabelText = "Cancel",
+                    indicatorColor = IndicatorColor.Green,
+                    onSingleClick = PgScreenAction.ClickOnPgScreenComponent(
+                        "BUTTON_SECONDARY"
+                    ),
+                ),
+            ),
+            forcedOrientation = PgScreenOrientation.LANDSCAPE
+        )
+    }
+
+    /**
+     * Workflow view with three fields and two buttons, followed by a single field view.
+     */
+    val pgWork3Btn2T1: PgScreen by lazy {
+        PgScreen(
+            referenceId = "work3Btn2T1Screen",
+            screenViews = arrayOf(PgScreenView.TemplateV2.WorkflowView.PgWork3Btn2T1(
+                fieldTop = PgScreenComponent.TextField(
+                    referenceId = "fieldTop",
+                    headerText = "Top Field",
+                    contentText = "Workflow View with 2 buttons and 1 text field"
+                ),
+                fieldMiddleLeft = PgScreenComponent.TextField(
+                    headerText = "Middle Left Field",
+                    contentText = "This is the left field in the middle section"
+                ),
+                fieldMiddleRight = PgScreenComponent.TextField(
+                    referenceId = "fieldMiddleRight",
+                    headerText = "Middle Right Field",
+                    contentText = "This is the right field in the middle section",
+                    inputMethod = PgScreenInputMethod.NumPad()
+                ),
+                button1 = PgScreenComponent.Button(
+                    referenceId = "button1",
+                    text = "Ok",
+                    onSingleClick = PgScreenAction.Notify
+                ),
+                button2 = PgScreenComponent.Button(
+                    referenceId = "button2",
+                    text = "Cancel",
+                    onSingleClick = PgScreenAction.Notify
+                )),
+                PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
+                    fieldMain = PgScreenComponent.TextField(
+                        headerText = "Main Field",
+                        contentText = "This is the main text field"
+                    ),
+                )),
+            actionButtons = PgActionButtons(
+                frontOutside = Unassigned,
+                backOutside = Unassigned,
+                frontInside = Assigned(
+                    referenceId = "actionButton1",
+                    indicatorLabelText = "Action 1",
+                    indicatorColor = IndicatorColor.Green,
+                    onSingleClick = PgScreenAction.Notify
+                ),
+                backInside = Assigned(
+                    referenceId = "actionButton2",
+                    indicatorLabelText = "Back",
+                    indicatorColor = IndicatorColor.Red,
+                    onSingleClick = PgScreenAction.NavigateBack
+                )
+            ),
+            forcedOrientation = PgScreenOrientation.PORTRAIT
+        )
+    }
+
+    /**
+     * List view with five items.
+     */
+    val pgListT1: PgScreen by lazy {
+        PgScreen(
+            referenceId = "listScreen",
+            screenView = PgScreenView.TemplateV2.ListView.PgListT1(
+                referenceId = "",
+                header = "List View Example",
+                items = listOf(
+                    PgListViewItem.PgListT1Item(
+                        mainText = "Item 1",
+                        underlineText = "Description 1",
+                        trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
+                        trailingText = "1"
+                    ),
+                    PgListViewItem.PgListT1Item(
+                        mainText = "Item 2",
+                        underlineText = "Description 2",
+                        trailingIcon = PgScreenResources.ListItemTrailingIcon.Arrow,
+                        trailingText = "2"
+                    ),
+                    PgListViewItem.PgListT1Item(
+                        mainText = "Item 3",
+                        underlineText = "Description 3",
+                        trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
+                        trailingText = "3"
+                    ),
+                    PgListViewItem.PgListT1Item(
+                        mainText = "Item 4",
+                        underlineText = "Description 4",
+                        trailingIcon = PgScreenResources.ListItemTrailingIcon.Arrow,
+                        trailingText = "4"
+                    ),
+                    PgListViewItem.PgListT1Item(
+                        mainText = "Item 5",
+                        underlineText = "Description 5",
+                        trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
+                        trailingText = "5"
+                    )
+                )
+            ),
+            actionButtons = PgActionButtons(
+                frontOutside = Unassigned,
+                backOutside = Unassigned,
+                frontInside = Assigned(
+                    referenceId = "actionButton1",
+                    indicatorLabelText = "Notify",
+                    indicatorColor = IndicatorColor.Yellow,
+                    onSingleClick = PgScreenAction.Notify
+                ),
+                backInside = Assigned(
+                    referenceId = "actionButton2",
+                    indicatorLabelText = "Back",
+                    indicatorColor = IndicatorColor.Red,
+                    onSingleClick = PgScreenAction.NavigateBack
+                )
+            ),
+            forcedOrientation = PgScreenOrientation.PORTRAIT
+        )
+    }
+
+    /**
+     * Single field screen that navigates back after two seconds.
+     */
+    val timerScreen: PgScreen by lazy {
+        PgScreen(
+            referenceId = "timerScreen",
+            screenView = PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
+                referenceId = "",
+                fieldMain = PgScreenComponent.TextField(
+                    headerText = "Timer Example",
+                    contentText = "This screen will automatically navigate back after 2 seconds.",
+                    state = PgScreenComponent.TextField.State.Focused(true)
+                )
+            ),
+            timer = PgScreenTimer.Enabled(
+                timeoutMs = 2000,
+                onExpire = PgScreenAction.NavigateBack
+            ),
+            forcedOrientation = PgScreenOrientation.PORTRAIT
+        )
+    }
+}
@@ -0,0 +1,290 @@
+package de.proglove.example.sdk
+
+import android.content.Context
+import android.os.Build
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import de.proglove.example.common.dispatch.CallbackDispatcher
+import de.proglove.example.common.dispatch.HandlerScheduler
+import de.proglove.example.common.dispatch.WeakListenerRegistry
+import de.proglove.example.common.metrics.StartupTrace
+import de.proglove.example.common.profile.ProfileRepository
+import de.proglove.example.common.stream.DeviceEventStreams
+import de.proglove.sdk.ConnectionStatus
+import de.proglove.sdk.IServiceOutput
+import de.proglove.sdk.PgError
+import de.proglove.sdk.PgManager
+import de.proglove.sdk.button.ButtonPress
+import de.proglove.sdk.button.IButtonOutput
+import de.proglove.sdk.button.IPgTriggersUnblockedOutput
+import de.proglove.sdk.configuration.IPgGetConfigProfilesCallback
+import de.proglove.sdk.configuration.IPgScannerConfigurationChangeOutput
+import de.proglove.sdk.configuration.PgConfigProfile
+import de.proglove.sdk.configuration.PgScannerConfigurationChangeResult
+import de.proglove.sdk.display.IDisplayOutput
+import de.proglove.sdk.display.model.v2.PgScreenEvent
+import de.proglove.sdk.scanner.BarcodeScanResults
+import de.proglove.sdk.scanner.IScannerOutput
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Process wide owner of the [PgManager] and fan-out hub for its events, created by the [SdkSampleApplication].
+ *
+ * [connect] binds to the Connect service from `Application.onCreate`, so binding runs while the first activity is
+ * still inflating its views. The manager subscribes itself to every kind of SDK event exactly once and passes the
+ * events on to its observers. Observers [subscribe] for all output interfaces they implement in one step and are
+ * held through weak references, so a forgotten [unsubscribe] does not leak an activity. Subscribing with a
+ * [LifecycleOwner] removes the observer when the owner is destroyed. Recreating an activity therefore does not
+ * subscribe to or unsubscribe from the SDK at all.
+ *
+ * The SDK delivers its callbacks on the [CallbackDispatcher.Lane.SDK] lane. Scanner, display and button events are
+ * passed on to the observers on lanes of their own, so a slow display or button observer does not hold up scans.
+ *
+ * The manager remembers the connection states it was told about and reports the connections that are up to a new
+ * observer right away.
+ *
+ * The [trace] records when the service is bound, the scanner connected and the first scan received.
+ *
+ * Scans and connection changes are also published as [streams], for logic that should not depend on the SDK.
+ *
+ * The configuration [profiles] are cached for all activities and invalidated when the scanner configuration changes.
+ */
+class PgConnectionManager(
+    private val context: Context,
+    val trace: StartupTrace = StartupTrace.shared
+) : IServiceOutput, IScannerOutput, IDisplayOutput, IButtonOutput, IPgTriggersUnblockedOutput,
+    IPgScannerConfigurationChangeOutput {
+
+    private val logger = Logger.getLogger("sample-logger")
+    private val subscribedToSdk = AtomicBoolean()
+
+    private val serviceObservers = WeakListenerRegistry<IServiceOutput>()
+    private val scannerObservers = WeakListenerRegistry<IScannerOutput>()
+    private val displayObservers = WeakListenerRegistry<IDisplayOutput>()
+    private val buttonObservers = WeakListenerRegistry<IButtonOutput>()
+    private val triggersUnblockedObservers = WeakListenerRegistry<IPgTriggersUnblockedOutput>()
+    private val configurationChangeObservers = WeakListenerRegistry<IPgScannerConfigurationChangeOutput>()
+
+    private val scanLane = CallbackDispatcher.shared.lane(CallbackDispatcher.Lane.SCANS)
+    private val displayLane = CallbackDispatcher.shared.lane(CallbackDispatcher.Lane.DISPLAY)
+    private val buttonLane = CallbackDispatcher.shared.lane(CallbackDispatcher.Lane.BUTTONS)
+
+    @Volatile
+    private var serviceConnected = false
+
+    @Volatile
+    private var scannerConnected = false
+
+    @Volatile
+    private var displayConnected = false
+
+    /**
+     * Scans and connection changes of the SDK as streams.
+     */
+    val streams = DeviceEventStreams()
+
+    /**
+     * The SDK entry point shared by all activities, created on first use. SDK callbacks are delivered in order on the
+     * SDK lane of the bounded, shared background pool.
+     */
+    val pgManager: PgManager by lazy {
+        PgManager(logger, CallbackDispatcher.shared.lane(CallbackDispatcher.Lane.SDK))
+    }
+
+    /**
+     * The configuration profiles, fetched from the service on first use and again only after they changed.
+     */
+    val profiles: ProfileRepository<PgConfigProfile> by lazy {
+        ProfileRepository(HandlerScheduler()) { requestId, repository ->
+            pgManager.getConfigProfiles(object : IPgGetConfigProfilesCallback {
+                override fun onConfigProfilesReceived(profiles: Array<PgConfigProfile>) {
+                    val activeProfileId = profiles.firstOrNull { it.isActive }?.profileId
+                    repository.onFetched(requestId, profiles.asList(), activeProfileId)
+                }
+
+                override fun onError(error: PgError) {
+                    repository.onFetchFailed(requestId, error.toString())
+                }
+            })
+        }
+    }
+
+    /**
+     * Binds to the Connect service if not bound yet. Safe to call repeatedly, e.g. from `onResume`.
+     */
+    fun connect() {
+        if (subscribedToSdk.compareAndSet(false, true)) {
+            pgManager.subscribeToServiceEvents(this)
+            pgManager.subscribeToScans(this)
+            pgManager.subscribeToDisplayEvents(this)
+            pgManager.subscribeToButtonPresses(this)
+            pgManager.subscribeToPgTriggersUnblocked(this)
+            pgManager.subscribeToPgScannerConfigurationChanges(this)
+        }
+        if (trace.mark(StartupTrace.Milestone.SERVICE_BIND_REQUESTED)) {
+            logger.log(Level.INFO, "Binding to the Connect service")
+        }
+        pgManager.ensureConnectionToService(context)
+    }
+
+    /**
+     * Passes SDK events to [observer] for every output interface it implements, until [owner] is destroyed.
+     */
+    fun subscribe(owner: LifecycleOwner, observer: Any) {
+        owner.lifecycle.addObserver(object : LifecycleEventObserver {
+            override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.lifecycle.removeObserver(this)
+                    unsubscribe(observer)
+                }
+            }
+        })
+        subscribe(observer)
+    }
+
+    /**
+     * Passes SDK events to [observer] for every output interface it implements, and reports the connections that are
+     * up already. The observer is only weakly referenced.
+     */
+    fun subscribe(observer: Any) {
+        if (observer is IServiceOutput) {
+            serviceObservers.add(observer)
+        }
+        if (observer is IScannerOutput) {
+            scannerObservers.add(observer)
+        }
+        if (observer is IDisplayOutput) {
+            displayObservers.add(observer)
+        }
+        if (observer is IButtonOutput) {
+            buttonObservers.add(observer)
+        }
+        if (observer is IPgTriggersUnblockedOutput) {
+            triggersUnblockedObservers.add(observer)
+        }
+        if (observer is IPgScannerConfigurationChangeOutput) {
+            configurationChangeObservers.add(observer)
+        }
+        // the connections may have come up before the observer subscribed
+        if (serviceConnected) {
+            (observer as? IServiceOutput)?.onServiceConnected()
+        }
+        if (scannerConnected) {
+            (observer as? IScannerOutput)?.onScannerConnected()
+        }
+        if (displayConnected) {
+            (observer as? IDisplayOutput)?.onDisplayConnected()
+        }
+    }
+
+    /**
+     * Stops passing SDK events to [observer].
+     */
+    fun unsubscribe(observer: Any) {
+        if (observer is IServiceOutput) {
+            serviceObservers.remove(observer)
+        }
+        if (observer is IScannerOutput) {
+            scannerObservers.remove(observer)
+        }
+        if (observer is IDisplayOutput) {
+            displayObservers.remove(observer)
+        }
+        if (observer is IButtonOutput) {
+            buttonObservers.remove(observer)
+        }
+        if (observer is IPgTriggersUnblockedOutput) {
+            triggersUnblockedObservers.remove(observer)
+        }
+        if (observer is IPgScannerConfigurationChangeOutput) {
+            configurationChangeObservers.remove(observer)
+        }
+    }
+
+    override fun onServiceConnected() {
+        serviceConnected = true
+        trace.mark(StartupTrace.Milestone.SERVICE_BOUND)
+        serviceObservers.forEach { it.onServiceConnected() }
+    }
+
+    override fun onServiceDisconnected() {
+        serviceConnected = false
+        scannerConnected = false
+        displayConnected = false
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, false)
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, false)
+        serviceObservers.forEach { it.onServiceDisconnected() }
+    }
+
+    override fun onBarcodeScanned(barcodeScanResults: BarcodeScanResults) {
+        if (trace.mark(StartupTrace.Milestone.FIRST_SCAN)) {
+            trace.logReport(DEVICE_LABEL)
+        }
+        streams.onScan(
+            barcodeScanResults.barcodeContent,
+            barcodeScanResults.symbology ?: "",
+            barcodeScanResults.screenContext?.screenId ?: "",
+            STREAM_SOURCE
+        )
+        scanLane.execute { scannerObservers.forEach { it.onBarcodeScanned(barcodeScanResults) } }
+    }
+
+    override fun onScannerConnected() {
+        scannerConnected = true
+        trace.mark(StartupTrace.Milestone.SCANNER_CONNECTED)
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, true)
+        scanLane.execute { scannerObservers.forEach { it.onScannerConnected() } }
+    }
+
+    override fun onScannerDisconnected() {
+        scannerConnected = false
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, false)
+        scanLane.execute { scannerObservers.forEach { it.onScannerDisconnected() } }
+    }
+
+    override fun onScannerStateChanged(status: ConnectionStatus) {
+        scanLane.execute { scannerObservers.forEach { it.onScannerStateChanged(status) } }
+    }
+
+    override fun onDisplayConnected() {
+        displayConnected = true
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, true)
+        displayLane.execute { displayObservers.forEach { it.onDisplayConnected() } }
+    }
+
+    override fun onDisplayDisconnected() {
+        displayConnected = false
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, false)
+        displayLane.execute { displayObservers.forEach { it.onDisplayDisconnected() } }
+    }
+
+    override fun onDisplayStateChanged(status: ConnectionStatus) {
+        displayLane.execute { displayObservers.forEach { it.onDisplayStateChanged(status) } }
+    }
+
+    override fun onScreenEvent(screenEvent: PgScreenEvent) {
+        displayLane.execute { displayObservers.forEach { it.onScreenEvent(screenEvent) } }
+    }
+
+    override fun onButtonPressed(buttonPressed: ButtonPress) {
+        buttonLane.execute { buttonObservers.forEach { it.onButtonPressed(buttonPressed) } }
+    }
+
+    override fun onPgTriggersUnblocked() {
+        triggersUnblockedObservers.forEach { it.onPgTriggersUnblocked() }
+    }
+
+    override fun onScannerConfigurationChange(scannerConfigurationChangeResult: PgScannerConfigurationChangeResult) {
+        // before the observers, so they read the new profiles
+        profiles.invalidate()
+        configurationChangeObservers.forEach { it.onScannerConfigurationChange(scannerConfigurationChangeResult) }
+    }
+
+    companion object {
+        private val DEVICE_LABEL = "${Build.MANUFACTURER} ${Build.MODEL}"
+        private const val STREAM_SOURCE = "sdk"
+    }
+}
@@ -1,6 +1,6 @@
 package de.proglove.example.sdk
 
-import android.graphics.BitmapFactory
+import android.graphics.Bitmap
 import android.os.Bundle
 import android.util.Log
 import android.view.View.GONE
@@ -10,6 +10,41 @@ import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.recyclerview.widget.LinearLayoutManager
 import de.proglove.example.common.DisplaySampleData
+import de.proglove.example.common.dispatch.CallbackDispatcher
+import de.proglove.example.common.dispatch.HandlerScheduler
+import de.proglove.example.common.dispatch.IoExecutor
+import de.proglove.example.common.display.DisplayCommandQueue
+import de.proglove.example.common.display.DisplaySession
+import de.proglove.example.common.feedback.FeedbackRuleEngine
+import de.proglove.example.common.feedback.ScanOutcome
+import de.proglove.example.common.image.AdaptiveCaptureController
+import de.proglove.example.common.image.ScaledBitmapDecoder
+import de.proglove.example.common.metrics.ScanLatencyTracker
+import de.proglove.example.common.metrics.StartupTrace
+import de.proglove.example.common.outbox.HttpImageSink
+import de.proglove.example.common.outbox.HttpScanSink
+import de.proglove.example.common.outbox.ImageOutbox
+import de.proglove.example.common.outbox.ScanOutbox
+import de.proglove.example.common.picking.PickListLoader
+import de.proglove.example.common.picking.PickListStage
+import de.proglove.example.common.pipeline.CheckDigitStage
+import de.proglove.example.common.pipeline.Gs1ParseStage
+import de.proglove.example.common.pipeline.PipelineScan
+import de.proglove.example.common.pipeline.ScanPipeline
+import de.proglove.example.common.profile.ProfileRepository
+import de.proglove.example.common.profile.ProfileUiData
+import de.proglove.example.common.profile.ProfilesAdapter
+import de.proglove.example.common.scan.ScanDeduplicator
+import de.proglove.example.common.storage.ImageStore
+import de.proglove.example.common.storage.MasterDataStore
+import de.proglove.example.common.storage.ScanJournal
+import de.proglove.example.common.stream.DeviceEventStreams
+import de.proglove.example.common.stream.EventProcessor
+import de.proglove.example.common.stream.asFlow
+import de.proglove.example.common.stream.debounce
+import de.proglove.example.common.ui.ChoreographerFrameScheduler
+import de.proglove.example.common.ui.UiUpdate
+import de.proglove.example.common.ui.UiUpdateCoalescer
 import de.proglove.sdk.ConnectionStatus
 import de.proglove.sdk.IServiceOutput
 import de.proglove.sdk.PgError
@@ -23,7 +58,6 @@ import de.proglove.sdk.button.PredefinedPgTrigger
 import de.proglove.sdk.commands.PgCommand
 import de.proglove.sdk.commands.PgCommandParams
 import de.proglove.sdk.configuration.IPgConfigProfileCallback
-import de.proglove.sdk.configuration.IPgGetConfigProfilesCallback
 import de.proglove.sdk.configuration.IPgScannerConfigurationChangeOutput
 import de.proglove.sdk.configuration.PgConfigProfile
 import de.proglove.sdk.configuration.PgScannerConfigurationChangeResult
@@ -48,20 +82,8 @@ import de.proglove.sdk.scanner.PgScannerConfig
 import de.proglove.sdk.utils.IPgSetActivityGoalsCallback
 import de.proglove.sdk.workerperformance.PgActivityGoals
 import de.proglove.sdk.display.model.v2.DisplayType
-import de.proglove.sdk.display.model.v2.PgActionButton.Assigned
-import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor
-import de.proglove.sdk.display.model.v2.PgActionButton.Unassigned
-import de.proglove.sdk.display.model.v2.PgActionButtons
-import de.proglove.sdk.display.model.v2.PgListViewItem
 import de.proglove.sdk.display.model.v2.PgScreen
-import de.proglove.sdk.display.model.v2.PgScreenAction
-import de.proglove.sdk.display.model.v2.PgScreenComponent
 import de.proglove.sdk.display.model.v2.PgScreenEvent
-import de.proglove.sdk.display.model.v2.PgScreenInputMethod
-import de.proglove.sdk.display.model.v2.PgScreenOrientation
-import de.proglove.sdk.display.model.v2.PgScreenResources
-import de.proglove.sdk.display.model.v2.PgScreenTimer
-import de.proglove.sdk.display.model.v2.PgScreenView
 import kotlinx.android.synthetic.main.activity_goals.activityGoalsAverageScansGoalEdit
 import kotlinx.android.synthetic.main.activity_goals.activityGoalsScansGoalEdit
 import kotlinx.android.synthetic.main.activity_goals.activityGoalsStepsGoalEdit
@@ -109,6 +131,14 @@ import kotlinx.android.synthetic.main.take_image_layout.jpegQualityEditText
 import kotlinx.android.synthetic.main.take_image_layout.resolutionRadioGroup
 import kotlinx.android.synthetic.main.take_image_layout.takeImageButton
 import kotlinx.android.synthetic.main.take_image_layout.timeoutEditText
+import kotlinx.coroutines.MainScope
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.net.MalformedURLException
+import java.net.URL
 import java.util.logging.Level
 import java.util.logging.Logger
 
@@ -118,24 +148,131 @@ import java.util.logging.Logger
 class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDisplayOutput, IButtonOutput, IPgTriggersUnblockedOutput, IPgScannerConfigurationChangeOutput {
 
     private val logger = Logger.getLogger("sample-logger")
-    private val pgManager = PgManager(logger)
+    // the connection to the service is set up by the application before the activity starts
+    private val connectionManager by lazy { (application as SdkSampleApplication).connectionManager }
+    private val pgManager: PgManager by lazy { connectionManager.pgManager }
 
     private var serviceConnectionState = ServiceConnectionStatus.DISCONNECTED
     private var scannerConnected = false
+    @Volatile
     private var displayConnected = false
 
     private lateinit var profilesAdapter: ProfilesAdapter
 
+    // remembers the template screens sent, to skip unchanged screens and refresh changed ones partially
+    private val displaySession = DisplaySession()
+
+    // keeps at most one Display V2 screen in flight, newer screens replace the one waiting behind it
+    private lateinit var displayQueue: DisplayCommandQueue<ScreenRequest>
+
+    // times each scan from onBarcodeScanned to processing and the acknowledged feedback
+    private val latencyTracker = ScanLatencyTracker.shared
+
+    // drops repeated scans of the same label when enabled for the build
+    private val scanDeduplicator = if (BuildConfig.DUPLICATE_SCAN_WINDOW_MS > 0) {
+        ScanDeduplicator(BuildConfig.DUPLICATE_SCAN_WINDOW_MS)
+    } else {
+        null
+    }
+
+    // picks the feedback for rejected and duplicate scans, success feedback is left to the scanner
+    private val feedbackRules = FeedbackRuleEngine.Builder<PgPredefinedFeedback>()
+        .add(FeedbackRuleEngine.Rule(
+            feedback = PgPredefinedFeedback.ERROR,
+            priority = FeedbackRuleEngine.PRIORITY_HIGH,
+            requiredOutcomes = ScanOutcome.REJECTED,
+            name = "rejected"
+        ))
+        .add(FeedbackRuleEngine.Rule(
+            feedback = PgPredefinedFeedback.ERROR,
+            priority = FeedbackRuleEngine.PRIORITY_HIGH,
+            requiredOutcomes = ScanOutcome.LOOKUP_MISS,
+            name = "not on pick list"
+        ))
+        .add(FeedbackRuleEngine.Rule(
+            feedback = PgPredefinedFeedback.SPECIAL_1,
+            priority = FeedbackRuleEngine.PRIORITY_NORMAL,
+            requiredOutcomes = ScanOutcome.DUPLICATE,
+            name = "duplicate"
+        ))
+        .replaceQueueFrom(FeedbackRuleEngine.PRIORITY_HIGH)
+        .build()
+
+    // verifies scans against the pick list loaded by loadPickList
+    private val pickListStage = PickListStage()
+
+    // decodes captured images downsampled to the view on a thread of its own, reusing the pixels of earlier captures
+    private val imageDecoder = ScaledBitmapDecoder()
+
+    // the image currently shown in imageTaken, released to the decoder once it is replaced
+    private var shownImage: Bitmap? = null
+
+    // item details shown on the display for scanned barcodes, opened by openMasterData
+    @Volatile
+    private var masterData: MasterDataStore? = null
+
+    // bound by lookups on the pipeline thread only
+    private var masterDataRecord: MasterDataStore.Record? = null
+
+    // reports the item screens sent by showItemDetails
+    private val itemScreenCallback = object : IPgSetScreenCallback {
+
+        override fun onSuccess() {
+            logger.log(Level.INFO, "Item details shown on the display")
+        }
+
+        override fun onError(error: PgError) {
+            displaySession.invalidate()
+            logger.log(Level.WARNING, "Could not show the item details: $error")
+        }
+    }
+
+    // parses and validates scanned barcodes off the callback threads
+    private lateinit var scanPipeline: ScanPipeline
+
+    // received scans survive a process death here until they are handled
+    @Volatile
+    private var scanJournal: ScanJournal? = null
+    private var scanOutbox: ScanOutbox? = null
+
+    // captured images wait here until they are uploaded
+    @Volatile
+    private var imageStore: ImageStore? = null
+    private var imageOutbox: ImageOutbox? = null
+
+    // merges scan results and status changes from SDK callbacks into one UI update per frame
+    private lateinit var uiUpdater: UiUpdateCoalescer
+
+    // collects the device event streams on the main thread, cancelled in onDestroy
+    private val streamScope = MainScope()
+
+    // counts the scans of a burst, reported once no scan followed for SCAN_BURST_QUIET_MS
+    private var burstScanCount = 0
+    private var scanBurstEnd: EventProcessor<DeviceEventStreams.Scan, DeviceEventStreams.Scan>? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
+        connectionManager.trace.mark(StartupTrace.Milestone.ACTIVITY_CREATED)
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_main)
 
-        pgManager.subscribeToServiceEvents(this)
-        pgManager.subscribeToScans(this)
-        pgManager.subscribeToDisplayEvents(this)
-        pgManager.subscribeToButtonPresses(this)
-        pgManager.subscribeToPgTriggersUnblocked(this)
-        pgManager.subscribeToPgScannerConfigurationChanges(this)
+        uiUpdater = UiUpdateCoalescer(ChoreographerFrameScheduler()) { update ->
+            renderUiUpdate(update)
+        }
+        displayQueue = DisplayCommandQueue<ScreenRequest>(HandlerScheduler()) { requestId, request ->
+            sendQueuedScreen(requestId, request)
+        }
+
+        scanPipeline = ScanPipeline(listOf(Gs1ParseStage(), CheckDigitStage(), pickListStage)) { scan ->
+            onScanProcessed(scan)
+        }
+        openScanJournal()
+        openImageStore()
+        loadPickList()
+        openMasterData()
+
+        // the subscription ends with the activity, the SDK subscriptions of the connection manager stay
+        connectionManager.subscribe(this, this)
+        observeScanBursts()
 
         versionOutput.text = BuildConfig.VERSION_CODE.toString()
 
@@ -161,35 +298,12 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
 
         triggerFeedbackButton.setOnClickListener {
-            val selectedFeedbackId = getFeedbackId()
-
-            // Creating new PgCommandParams setting the queueing behaviour
-            val pgCommandParams = PgCommandParams(sendFeedbackWithReplaceQueueSwitch.isChecked)
-
-            // Wrapping the feedback data in a PgCommand with the PgCommandData
-            val triggerFeedbackCommand = selectedFeedbackId.toCommand(pgCommandParams)
-
-            pgManager.triggerFeedback(
-                    command = triggerFeedbackCommand,
-                    callback = object : IPgFeedbackCallback {
-
-                        override fun onSuccess() {
-                            logger.log(Level.INFO, "Feedback successfully played.")
-                            runOnUiThread {
-                                lastResponseValue.text = getString(R.string.feedback_success)
-                            }
-                        }
-
-                        override fun onError(error: PgError) {
-                            val errorMessage = "An Error occurred during triggerFeedback: $error"
-                            logger.log(Level.WARNING, errorMessage)
-                            runOnUiThread {
-                                Toast.makeText(this@SdkActivity, errorMessage, Toast.LENGTH_SHORT).show()
-                                lastResponseValue.text = error.toString()
-                            }
-                        }
-                    }
-            )
+            // triggered by hand, it answers no scan and is not timed
+            triggerFeedback(getFeedbackId(), sendFeedbackWithReplaceQueueSwitch.isChecked, ScanLatencyTracker.NO_SCAN)
+        }
+        triggerFeedbackButton.setOnLongClickListener {
+            dumpLatencyReport()
+            true
         }
         // setting first Item as selected by default
         radioGroup.check(feedbackId1RB.id)
@@ -276,6 +390,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         val loggingCallback = object : IPgSetScreenCallback {
 
             override fun onError(error: PgError) {
+                displaySession.invalidate()
                 runOnUiThread {
                     Toast.makeText(this@SdkActivity, "Got error setting text: $error", Toast.LENGTH_SHORT)
                             .show()
@@ -300,10 +415,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 PgTemplateField(index + 1, pair.first, pair.second.random())
             }
-            pgManager.setScreen(
-                    data = PgScreenData(templateId, templateFields),
-                    callback = loggingCallback
-            )
+            sendTemplateScreen(templateId, templateFields, loggingCallback)
         }
 
         sendPartialRefreshTestScreenBtn.setOnClickListener {
@@ -311,10 +423,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 PgTemplateField(index + 1, pair.first, pair.second.random())
             }
-            pgManager.setScreen(
-                    data = PgScreenData(templateId, templateFields, RefreshType.PARTIAL_REFRESH),
-                    callback = loggingCallback
-            )
+            // repeated PG3 screens are sent with a partial refresh by the display session
+            sendTemplateScreen(templateId, templateFields, loggingCallback)
         }
 
         sendNotificationTestScreenBtn.setOnClickListener {
@@ -322,6 +432,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 PgTemplateField(index + 1, pair.first, pair.second.random())
             }
+            // the notification replaces the screen known to the display session
+            displaySession.invalidate()
             pgManager.setNotificationScreen(
                     data = PgScreenData("PG2", templateFields),
                     callback = loggingCallback,
@@ -330,17 +442,16 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
 
         sendTestScreenBtnFailing.setOnClickListener {
-            pgManager.setScreen(
-                    data = PgScreenData(
-                            "PG1",
-                            listOf(
-                                    PgTemplateField(1, "not going to be displayed", "not going to be displayed"),
-                                    PgTemplateField(2, "not going to be displayed", "not going to be displayed"),
-                                    PgTemplateField(3, "not going to be displayed", "not going to be displayed"),
-                                    PgTemplateField(4, "not going to be displayed", "not going to be displayed")
-                            )
+            // the display rejects this screen, the error invalidates the display session
+            sendTemplateScreen(
+                    "PG1",
+                    listOf(
+                            PgTemplateField(1, "not going to be displayed", "not going to be displayed"),
+                            PgTemplateField(2, "not going to be displayed", "not going to be displayed"),
+                            PgTemplateField(3, "not going to be displayed", "not going to be displayed"),
+                            PgTemplateField(4, "not going to be displayed", "not going to be displayed")
                     ),
-                    callback = loggingCallback
+                    loggingCallback
             )
         }
 
@@ -349,10 +460,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 PgTemplateField(index + 1, pair.first, pair.second.random())
             }
-            pgManager.setScreen(
-                    PgScreenData(templateId, templateFields).toCommand(),
-                    loggingCallback
-            )
+            sendTemplateScreen(templateId, templateFields, loggingCallback)
         }
 
         sendPg1ATestScreenBtn.setOnClickListener {
@@ -360,10 +468,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             val templateFields = getSampleDataForTemplate(templateId).mapIndexed { index, pair ->
                 PgTemplateField(index + 1, pair.first, pair.second.random())
             }
-            pgManager.setScreen(
-                    PgScreenData(templateId, templateFields).toCommand(),
-                    loggingCallback
-            )
+            sendTemplateScreen(templateId, templateFields, loggingCallback)
         }
 
         sendPg3WithRightHeadersTestScreenBtn.setOnClickListener {
@@ -372,65 +477,90 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
                 val rightHeader = DisplaySampleData.SAMPLE_RIGHT_HEADERS.random()
                 PgTemplateField(index + 1, pair.first, pair.second.random(), rightHeader)
             }
-            pgManager.setScreen(
-                    PgScreenData(templateId, templateFields).toCommand(),
-                    loggingCallback
-            )
+            sendTemplateScreen(templateId, templateFields, loggingCallback)
+        }
+    }
+
+    /**
+     * Queues a template screen on the [displayQueue]. The [callback] is not called if a newer screen replaces this one
+     * before it was sent.
+     */
+    private fun sendTemplateScreen(
+            templateId: String,
+            templateFields: List<PgTemplateField>,
+            callback: IPgSetScreenCallback
+    ) {
+        displayQueue.submit(ScreenRequest.Template(templateId, templateFields, callback))
+    }
+
+    /**
+     * Queues a Display V2 [screen] on the [displayQueue]. The [callback] is not called if a newer screen replaces this
+     * one before it was sent.
+     */
+    private fun sendScreenV2(screen: PgScreen, callback: IPgSetScreenCallback) {
+        displayQueue.submit(ScreenRequest.V2(screen, callback))
+    }
+
+    /**
+     * Sends a screen taken from the [displayQueue]. Template screens go through the [displaySession] only now, so it
+     * decides against the screen actually shown and not against one that was replaced in the queue. It skips unchanged
+     * screens and picks the partial refresh for a changed screen of the template already shown.
+     */
+    private fun sendQueuedScreen(requestId: Long, request: ScreenRequest) {
+        val resultCallback = object : IPgSetScreenCallback {
+            override fun onSuccess() {
+                displayQueue.onResult(requestId, true)
+                request.callback.onSuccess()
+            }
+
+            override fun onError(error: PgError) {
+                displayQueue.onResult(requestId, false)
+                request.callback.onError(error)
+            }
+        }
+        when (request) {
+            is ScreenRequest.Template -> {
+                val refreshType = when (displaySession.decide(request.templateId, request.templateFields)) {
+                    DisplaySession.Decision.SKIP -> {
+                        displayQueue.onResult(requestId, true)
+                        uiUpdater.postMessage("Screen unchanged, not sent")
+                        return
+                    }
+                    DisplaySession.Decision.PARTIAL_REFRESH -> RefreshType.PARTIAL_REFRESH
+                    DisplaySession.Decision.DEFAULT -> RefreshType.DEFAULT
+                }
+                pgManager.setScreen(
+                        data = PgScreenData(request.templateId, request.templateFields, refreshType),
+                        callback = resultCallback
+                )
+            }
+            is ScreenRequest.V2 -> {
+                // Display V2 screens replace the template screen tracked by the display session
+                displaySession.invalidate()
+                pgManager.setScreen(request.screen.toCommand(), resultCallback)
+            }
         }
     }
 
+    /**
+     * Dumps p50, p99 and p999 of the scan-to-feedback latencies to logcat and to a file in the app storage.
+     */
+    private fun dumpLatencyReport() {
+        val reportFile = File(filesDir, LATENCY_REPORT_FILE_NAME)
+        latencyTracker.logReport()
+        val message = try {
+            latencyTracker.writeReport(reportFile)
+            "Latency report written to ${reportFile.path}"
+        } catch (e: IOException) {
+            "Writing the latency report failed: ${e.message}"
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show()
+    }
+
     private fun addDisplayV2ClickListeners() {
         sendPgNtfT5Btn.setOnClickListener {
-            pgManager.setScreen(
-                PgScreen(
-                    referenceId = "pgNtfT5Screen",
-                    screenView = PgScreenView.TemplateV2.NotificationView.PgNtfT5(
-                        referenceId = "",
-                        tagline = "Notification",
-                        message = "This is a message with two buttons",
-                        primaryButton = PgScreenComponent.Button(
-                            referenceId = "BUTTON_PRIMARY",
-                            text = "OK",
-                            onSingleClick = PgScreenAction.Notify
-                        ),
-                        secondaryButton = PgScreenComponent.Button(
-                            referenceId = "BUTTON_SECONDARY",
-                            text = "Cancel",
-                            onSingleClick = PgScreenAction.Notify
-                        ),
-                    ),
-                    actionButtons = PgActionButtons(
-                        frontOutside = Assigned(
-                            referenceId = "actionButton1",
-                            indicatorLabelText = "Notify",
-                            indicatorColor = IndicatorColor.Yellow,
-                            onSingleClick = PgScreenAction.Notify,
-                        ),
-                        backOutside = Assigned(
-                            referenceId = "actionButton2",
-                            indicatorLabelText = "Back",
-                            indicatorColor = IndicatorColor.Red,
-                            onSingleClick = PgScreenAction.NavigateBack,
-                        ),
-                        frontInside = Assigned(
-                            referenceId = "actionButton3",
-                            indicatorLabelText = "Ok",
-                            indicatorColor = IndicatorColor.Cyan,
-                            onSingleClick = PgScreenAction.ClickOnPgScreenComponent(
-                                "BUTTON_PRIMARY"
-                            ),
-                        ),
-                        backInside = Assigned(
-                            referenceId = "actionButton4",
-                            indicatorLabelText = "Cancel",
-                            indicatorColor = IndicatorColor.Green,
-                            onSingleClick = PgScreenAction.ClickOnPgScreenComponent(
-                                "BUTTON_SECONDARY"
-                            ),
-                        ),
-                    ),
-                    forcedOrientation = PgScreenOrientation.LANDSCAPE
-                ).toCommand(),
+            sendScreenV2(
+                DisplayV2Screens.pgNtfT5,
                 object : IPgSetScreenCallback {
                     override fun onSuccess() {
                         runOnUiThread {
@@ -458,60 +588,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
         
         sendPgWork3Btn2T1.setOnClickListener {
-            pgManager.setScreen(
-                PgScreen(
-                    referenceId = "work3Btn2T1Screen",
-                    screenViews = arrayOf(PgScreenView.TemplateV2.WorkflowView.PgWork3Btn2T1(
-                        fieldTop = PgScreenComponent.TextField(
-                            referenceId = "fieldTop",
-                            headerText = "Top Field",
-                            contentText = "Workflow View with 2 buttons and 1 text field"
-                        ),
-                        fieldMiddleLeft = PgScreenComponent.TextField(
-                            headerText = "Middle Left Field",
-                            contentText = "This is the left field in the middle section"
-                        ),
-                        fieldMiddleRight = PgScreenComponent.TextField(
-                            referenceId = "fieldMiddleRight",
-                            headerText = "Middle Right Field",
-                            contentText = "This is the right field in the middle section",
-                            inputMethod = PgScreenInputMethod.NumPad()
-                        ),
-                        button1 = PgScreenComponent.Button(
-                            referenceId = "button1",
-                            text = "Ok",
-                            onSingleClick = PgScreenAction.Notify
-                        ),
-                        button2 = PgScreenComponent.Button(
-                            referenceId = "button2",
-                            text = "Cancel",
-                            onSingleClick = PgScreenAction.Notify
-                        )),
-                        PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
-                            fieldMain = PgScreenComponent.TextField(
-                                headerText = "Main Field",
-                                contentText = "This is the main text field"
-                            ),
-                        )),
-                    actionButtons = PgActionButtons(
-                        frontOutside = Unassigned,
-                        backOutside = Unassigned,
-                        frontInside = Assigned(
-                            referenceId = "actionButton1",
-                            indicatorLabelText = "Action 1",
-                            indicatorColor = IndicatorColor.Green,
-                            onSingleClick = PgScreenAction.Notify
-                        ),
-                        backInside = Assigned(
-                            referenceId = "actionButton2",
-                            indicatorLabelText = "Back",
-                            indicatorColor = IndicatorColor.Red,
-                            onSingleClick = PgScreenAction.NavigateBack
-                        )
-                    ),
-                    forcedOrientation = PgScreenOrientation.PORTRAIT
-                ).toCommand(),
-
+            sendScreenV2(
+                DisplayV2Screens.pgWork3Btn2T1,
                 object : IPgSetScreenCallback {
                     override fun onSuccess() {
                         runOnUiThread {
@@ -539,66 +617,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
 
         sendPgListT1Btn.setOnClickListener {
-            val listItems = listOf(
-                PgListViewItem.PgListT1Item(
-                    mainText = "Item 1",
-                    underlineText = "Description 1",
-                    trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
-                    trailingText = "1"
-                ),
-                PgListViewItem.PgListT1Item(
-                    mainText = "Item 2",
-                    underlineText = "Description 2",
-                    trailingIcon = PgScreenResources.ListItemTrailingIcon.Arrow,
-                    trailingText = "2"
-                ),
-                PgListViewItem.PgListT1Item(
-                    mainText = "Item 3",
-                    underlineText = "Description 3",
-                    trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
-                    trailingText = "3"
-                ),
-                PgListViewItem.PgListT1Item(
-                    mainText = "Item 4",
-                    underlineText = "Description 4",
-                    trailingIcon = PgScreenResources.ListItemTrailingIcon.Arrow,
-                    trailingText = "4"
-                ),
-                PgListViewItem.PgListT1Item(
-                    mainText = "Item 5",
-                    underlineText = "Description 5",
-                    trailingIcon = PgScreenResources.ListItemTrailingIcon.None,
-                    trailingText = "5"
-                )
-            )
-
-            pgManager.setScreen(
-                PgScreen(
-                    referenceId = "listScreen",
-                    screenView = PgScreenView.TemplateV2.ListView.PgListT1(
-                        referenceId = "",
-                        header = "List View Example",
-                        items = listItems
-                    ),
-                    actionButtons = PgActionButtons(
-                        frontOutside = Unassigned,
-                        backOutside = Unassigned,
-                        frontInside = Assigned(
-                            referenceId = "actionButton1",
-                            indicatorLabelText = "Notify",
-                            indicatorColor = IndicatorColor.Yellow,
-                            onSingleClick = PgScreenAction.Notify
-                        ),
-                        backInside = Assigned(
-                            referenceId = "actionButton2",
-                            indicatorLabelText = "Back",
-                            indicatorColor = IndicatorColor.Red,
-                            onSingleClick = PgScreenAction.NavigateBack
-                        )
-                    ),
-                    forcedOrientation = PgScreenOrientation.PORTRAIT
-                ).toCommand(),
-
+            sendScreenV2(
+                DisplayV2Screens.pgListT1,
                 object : IPgSetScreenCallback {
                     override fun onSuccess() {
                         runOnUiThread {
@@ -626,24 +646,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
 
         sendTimerScreenBtn.setOnClickListener {
-            pgManager.setScreen(
-                PgScreen(
-                    referenceId = "timerScreen",
-                    screenView = PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
-                        referenceId = "",
-                        fieldMain = PgScreenComponent.TextField(
-                        headerText = "Timer Example",
-                        contentText = "This screen will automatically navigate back after 2 seconds.",
-                            state = PgScreenComponent.TextField.State.Focused(true)
-                        )
-                    ),
-                    timer = PgScreenTimer.Enabled(
-                        timeoutMs = 2000,
-                        onExpire = PgScreenAction.NavigateBack
-                    ),
-                    forcedOrientation = PgScreenOrientation.PORTRAIT
-                ).toCommand(),
-
+            sendScreenV2(
+                DisplayV2Screens.timerScreen,
                 object : IPgSetScreenCallback {
                     override fun onSuccess() {
                         runOnUiThread {
@@ -694,6 +698,181 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
     }
 
+    /**
+     * Opens the scan journal and reports the scans a previous run left unhandled, without blocking the main thread
+     * for the recovery and the replay. Scans are journaled once the replay is done. With a configured
+     * [BuildConfig.SCAN_OUTBOX_URL], journaled scans are posted there as well.
+     */
+    private fun openScanJournal() {
+        val directory = File(filesDir, SCAN_JOURNAL_DIRECTORY_NAME)
+        IoExecutor.shared.execute {
+            val journal = try {
+                ScanJournal.open(directory)
+            } catch (e: IOException) {
+                logger.log(Level.WARNING, "Could not open the scan journal, scans are not journaled", e)
+                return@execute
+            }
+            var lastSequence = 0L
+            val count = journal.replay { record ->
+                lastSequence = record.sequence
+                if (BuildConfig.DEBUG) {
+                    logger.log(Level.INFO, "journaled scan: $record")
+                }
+            }
+            if (count > 0) {
+                uiUpdater.postMessage("$count scans recovered from the journal")
+                acknowledgeWithoutOutbox(journal, lastSequence)
+            }
+            runOnUiThread {
+                if (isDestroyed) {
+                    journal.close()
+                    return@runOnUiThread
+                }
+                scanJournal = journal
+                startScanOutbox(journal)
+            }
+        }
+    }
+
+    /**
+     * Opens the store of captured images without blocking the main thread for the recovery of the store. With a
+     * configured [BuildConfig.IMAGE_OUTBOX_URL], the captures are uploaded there. Captures arriving before the store is
+     * open are not kept.
+     */
+    private fun openImageStore() {
+        val directory = File(filesDir, IMAGE_STORE_DIRECTORY_NAME)
+        IoExecutor.shared.execute {
+            val store = try {
+                ImageStore.open(directory)
+            } catch (e: IOException) {
+                logger.log(Level.WARNING, "Could not open the image store, captured images are not kept", e)
+                return@execute
+            }
+            val outbox = startImageOutbox(store)
+            runOnUiThread {
+                if (isDestroyed) {
+                    closeInBackground(outbox, store)
+                    return@runOnUiThread
+                }
+                imageStore = store
+                imageOutbox = outbox
+            }
+        }
+    }
+
+    /**
+     * Starts uploading the captures of [store] to the configured [BuildConfig.IMAGE_OUTBOX_URL], if there is one.
+     */
+    private fun startImageOutbox(store: ImageStore): ImageOutbox? {
+        if (BuildConfig.IMAGE_OUTBOX_URL.isEmpty()) {
+            return null
+        }
+        val sink = try {
+            HttpImageSink(URL(BuildConfig.IMAGE_OUTBOX_URL))
+        } catch (e: MalformedURLException) {
+            logger.log(Level.WARNING, "Invalid image outbox URL, captured images are not uploaded", e)
+            return null
+        }
+        return ImageOutbox(store, sink).also { it.start() }
+    }
+
+    /**
+     * Closes [closeables] one after another on the I/O executor. Closing an outbox waits for an upload in progress,
+     * which can take as long as the timeouts of its sink.
+     */
+    private fun closeInBackground(vararg closeables: Closeable?) {
+        IoExecutor.shared.execute {
+            for (closeable in closeables) {
+                try {
+                    closeable?.close()
+                } catch (e: IOException) {
+                    logger.log(Level.WARNING, "Could not close $closeable", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a captured image to the image store in the background.
+     */
+    private fun storeImage(bytes: ByteArray) {
+        val store = imageStore ?: return
+        IoExecutor.shared.execute {
+            try {
+                val capture = store.save(bytes)
+                logger.log(Level.INFO, "Image stored as ${capture.name}, ${capture.size} bytes")
+            } catch (e: IOException) {
+                logger.log(Level.WARNING, "Could not store the captured image", e)
+            } catch (e: IllegalStateException) {
+                logger.log(Level.WARNING, "Could not store the captured image", e)
+            }
+        }
+    }
+
+    /**
+     * Loads the pick list manifest from the files directory in the background, if one was provided. Scans are
+     * verified against it once it is loaded.
+     */
+    private fun loadPickList() {
+        val manifest = PICK_LIST_FILE_NAMES.map { File(filesDir, it) }.firstOrNull { it.isFile } ?: return
+        IoExecutor.shared.execute {
+            try {
+                val index = PickListLoader.load(manifest)
+                pickListStage.index = index
+                uiUpdater.postMessage("Pick list loaded: ${index.size} items")
+            } catch (e: IOException) {
+                logger.log(Level.WARNING, "Could not load the pick list ${manifest.name}", e)
+            }
+        }
+    }
+
+    /**
+     * Maps the master data file from the files directory in the background, if one was provided.
+     */
+    private fun openMasterData() {
+        val file = File(filesDir, MASTER_DATA_FILE_NAME)
+        if (!file.isFile) {
+            return
+        }
+        IoExecutor.shared.execute {
+            try {
+                val store = MasterDataStore.open(file)
+                masterData = store
+                logger.log(Level.INFO, "Master data opened: ${store.recordCount} items, fields ${store.fieldNames}")
+            } catch (e: IOException) {
+                logger.log(Level.WARNING, "Could not open the master data", e)
+            }
+        }
+    }
+
+    /**
+     * Without a [BuildConfig.SCAN_OUTBOX_URL] nothing else handles the recovered scans, reporting them was all there
+     * is to do. Acknowledges them, so the next start does not report them again.
+     */
+    private fun acknowledgeWithoutOutbox(journal: ScanJournal, sequence: Long) {
+        if (BuildConfig.SCAN_OUTBOX_URL.isNotEmpty()) {
+            return
+        }
+        try {
+            journal.acknowledge(sequence)
+        } catch (e: IOException) {
+            logger.log(Level.WARNING, "Could not acknowledge the recovered scans", e)
+        }
+    }
+
+    private fun startScanOutbox(journal: ScanJournal) {
+        if (BuildConfig.SCAN_OUTBOX_URL.isEmpty()) {
+            return
+        }
+        val sink = try {
+            HttpScanSink(URL(BuildConfig.SCAN_OUTBOX_URL))
+        } catch (e: MalformedURLException) {
+            logger.log(Level.WARNING, "Invalid scan outbox URL, scans are not uploaded", e)
+            return
+        }
+        scanOutbox = ScanOutbox(journal, sink).also { it.start() }
+    }
+
     private fun setDefaultImageConfigurations() {
         val imageConfig = PgImageConfig()
         jpegQualityEditText.setText(imageConfig.jpegQuality.toString())
@@ -729,17 +908,40 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
             else -> ImageResolution.values()[1]
         }
 
-        val config = PgImageConfig(quality, resolution)
+        // the adaptive setting picks resolution, quality and timeout from the transfer times measured so far
+        val attempt = if (resolutionRadioGroup.checkedRadioButtonId == R.id.adaptiveResolution) {
+            captureController.next().also {
+                quality = it.setting.quality
+                timeout = it.timeoutMs.toInt()
+                jpegQualityEditText.setText(quality.toString())
+                timeoutEditText.setText(timeout.toString())
+            }
+        } else {
+            null
+        }
+
+        val config = PgImageConfig(quality, attempt?.setting?.resolution ?: resolution)
+        // the image arrives on an SDK thread, read the view size here on the main thread
+        val targetWidth = imageTargetWidth()
+        val targetHeight = imageTargetHeight()
         val imageCallback = object : IPgImageCallback {
             override fun onImageReceived(image: PgImage) {
-                val bmp = BitmapFactory.decodeByteArray(image.bytes, 0, image.bytes.size)
-                runOnUiThread {
-                    imageTaken.setImageBitmap(bmp)
-                    lastResponseValue.text = getString(R.string.image_success)
+                // getBytes may copy, read it once
+                val bytes = image.bytes
+                attempt?.let {
+                    captureController.onReceived(it, bytes.size)
+                    logger.log(Level.INFO, "Adaptive capture of ${bytes.size} bytes with ${it.setting}")
+                }
+                storeImage(bytes)
+                imageDecoder.decode(bytes, targetWidth, targetHeight) { bitmap ->
+                    if (bitmap != null) {
+                        runOnUiThread { showTakenImage(bitmap) }
+                    }
                 }
             }
 
             override fun onError(error: PgError) {
+                attempt?.let { captureController.onFailed(it) }
                 runOnUiThread {
                     Toast.makeText(this@SdkActivity, "error code is $error", Toast.LENGTH_LONG).show()
                     lastResponseValue.text = error.toString()
@@ -749,6 +951,26 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         pgManager.takeImage(config, timeout, imageCallback)
     }
 
+    private fun showTakenImage(bitmap: Bitmap) {
+        if (isDestroyed) {
+            imageDecoder.release(bitmap)
+            return
+        }
+        val previous = shownImage
+        imageTaken.setImageBitmap(bitmap)
+        shownImage = bitmap
+        // the view no longer draws the previous image, its pixels can take the next capture
+        previous?.let { imageDecoder.release(it) }
+        lastResponseValue.text = getString(R.string.image_success)
+    }
+
+    private fun imageTargetWidth(): Int {
+        return if (imageTaken.width > 0) imageTaken.width else resources.displayMetrics.widthPixels
+    }
+
+    private fun imageTargetHeight(): Int {
+        return if (imageTaken.height > 0) imageTaken.height else resources.displayMetrics.heightPixels
+    }
 
     private fun getFeedbackId(): PgPredefinedFeedback {
         return when (radioGroup.checkedRadioButtonId) {
@@ -762,7 +984,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
     override fun onResume() {
         super.onResume()
 
-        pgManager.ensureConnectionToService(this.applicationContext)
+        connectionManager.connect()
         updateButtonStates()
     }
 
@@ -774,6 +996,27 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
         }
     }
 
+    /**
+     * Applies all scan results and status changes received since the last frame.
+     */
+    private fun renderUiUpdate(update: UiUpdate) {
+        if (update.has(UiUpdate.SCAN)) {
+            inputField.text = update.barcode
+            symbologyResult.text = update.symbology
+        }
+        if (update.has(UiUpdate.SCREEN_CONTEXT)) {
+            lastScreenContextOutput.text = update.screenId?.let { "Screen ID: $it" } ?: ""
+        }
+        if (update.has(UiUpdate.CONNECTION_STATE)) {
+            updateServiceConnectionButtonState()
+            updateScannerConnectionButtonState()
+            updateDisplayConnectionUiState()
+        }
+        for (message in update.messages) {
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show()
+        }
+    }
+
     private fun updateDisplayConnectionUiState() {
         when {
             serviceConnectionState != ServiceConnectionStatus.CONNECTED -> displayStateOutput.setText(R.string.display_disconnected)
@@ -833,6 +1076,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
                 PgCommand(PgConfigProfile(profileId)),
                 object : IPgConfigProfileCallback {
                     override fun onConfigProfileChanged(profile: PgConfigProfile) {
+                        // the next refresh fetches the profiles with the new active one
+                        connectionManager.profiles.invalidate()
                         runOnUiThread {
                             Toast.makeText(
                                     applicationContext,
@@ -858,29 +1103,29 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
     }
 
     private fun getConfigProfiles() {
-        pgManager.getConfigProfiles(
-                object : IPgGetConfigProfilesCallback {
-                    override fun onConfigProfilesReceived(profiles: Array<PgConfigProfile>) {
-                        logger.log(Level.INFO, "received ${profiles.size} config profiles")
-                        val uiProfiles: List<ProfileUiData> = profiles.map { profile ->
+        connectionManager.profiles.get(
+                object : ProfileRepository.Callback<PgConfigProfile> {
+                    override fun onProfiles(profiles: ProfileRepository.Profiles<PgConfigProfile>) {
+                        logger.log(Level.INFO, "received ${profiles.profiles.size} config profiles")
+                        val uiProfiles: List<ProfileUiData> = profiles.profiles.map { profile ->
                             ProfileUiData(profile.profileId, profile.isActive)
                         }
 
                         runOnUiThread {
-                            changeProfileLabel.visibility = if (profiles.isEmpty()) GONE else VISIBLE
+                            changeProfileLabel.visibility = if (uiProfiles.isEmpty()) GONE else VISIBLE
                             profilesAdapter.updateProfiles(uiProfiles)
                             lastResponseValue.text = getString(R.string.get_profiles_success)
                         }
                     }
 
-                    override fun onError(error: PgError) {
+                    override fun onError(message: String) {
                         runOnUiThread {
                             Toast.makeText(
                                     applicationContext,
-                                    "Failed to get profiles - $error",
+                                    "Failed to get profiles - $message",
                                     Toast.LENGTH_LONG
                             ).show()
-                            lastResponseValue.text = error.toString()
+                            lastResponseValue.text = message
                         }
                     }
                 }
@@ -1046,12 +1291,51 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
     override fun onDestroy() {
         super.onDestroy()
 
-        pgManager.unsubscribeFromScans(this)
-        pgManager.unsubscribeFromDisplayEvents(this)
-        pgManager.unsubscribeFromServiceEvents(this)
-        pgManager.unsubscribeFromButtonPresses(this)
-        pgManager.unsubscribeFromPgTriggersUnblocked(this)
-        pgManager.unsubscribeFromPgScannerConfigurationChanges(this)
+        streamScope.cancel()
+        scanBurstEnd?.cancel()
+        scanBurstEnd = null
+        logger.log(Level.INFO, "Callback dispatcher: ${CallbackDispatcher.shared.metrics()}")
+        logger.log(Level.INFO, "Config profiles: ${connectionManager.profiles.metrics()}")
+        scanDeduplicator?.let { logger.log(Level.INFO, "Duplicate suppression: ${it.metrics()}") }
+        pickListStage.index?.let { logger.log(Level.INFO, "Pick list: ${it.metrics()}") }
+        scanPipeline.close()
+        logger.log(Level.INFO, "Scan pipeline: ${scanPipeline.metrics()}")
+        scanPipeline.logReport()
+        imageOutbox?.let { logger.log(Level.INFO, "Image outbox: ${it.metrics()}") }
+        logger.log(Level.INFO, "Adaptive capture: ${captureController.metrics()}")
+        imageStore?.let { logger.log(Level.INFO, "Image store: ${it.metrics()}") }
+        // every outbox before the storage it reads from
+        closeInBackground(scanOutbox, scanJournal, imageOutbox, imageStore)
+        scanOutbox = null
+        scanJournal = null
+        imageOutbox = null
+        imageStore = null
+        logger.log(Level.INFO, "Image decoder: ${imageDecoder.metrics()}")
+        imageTaken.setImageDrawable(null)
+        shownImage = null
+        imageDecoder.clear()
+    }
+
+    /**
+     * Reports the number of scans of each burst once the burst is over, collecting the scan stream of the connection
+     * manager as a flow.
+     */
+    private fun observeScanBursts() {
+        val scans = connectionManager.streams.scans
+        val burstEnd = scans.debounce(SCAN_BURST_QUIET_MS, HandlerScheduler())
+        scanBurstEnd = burstEnd
+        streamScope.launch {
+            scans.asFlow().collect { burstScanCount++ }
+        }
+        streamScope.launch {
+            burstEnd.asFlow().collect { lastScan ->
+                val count = burstScanCount
+                burstScanCount = 0
+                if (count > 1) {
+                    uiUpdater.postMessage("$count scans in the last burst, last: ${lastScan.barcode}")
+                }
+            }
+        }
     }
 
     /*
@@ -1078,33 +1362,136 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
      * IServiceOutput Implementation END
      */
 
+    /**
+     * Shows what the scan pipeline found out about a scan and sends the feedback the rules pick for it. Called on
+     * the pipeline thread.
+     */
+    private fun onScanProcessed(scan: PipelineScan) {
+        when {
+            scan.isRejected -> uiUpdater.postMessage("Barcode ${scan.barcode} rejected: ${scan.rejectReason}")
+            scan.lookup != PipelineScan.Lookup.NONE -> postPickResult(scan)
+            scan.gs1.count > 0 -> uiUpdater.postMessage("GS1 elements: ${scan.gs1}")
+        }
+        triggerRuleFeedback(scan.symbology, scan.barcode, ScanOutcome.of(scan), scan.scanToken)
+        if (!scan.isRejected) {
+            showItemDetails(scan)
+        }
+    }
+
+    /**
+     * Looks the scanned item up in the [masterData] and shows its fields on the display. GS1 barcodes are looked up by
+     * their GTIN.
+     */
+    private fun showItemDetails(scan: PipelineScan) {
+        val store = masterData ?: return
+        if (!displayConnected) {
+            return
+        }
+        val record = masterDataRecord ?: store.newRecord().also { masterDataRecord = it }
+        val gtin = scan.gs1.indexOf(GTIN_AI)
+        val found = if (gtin >= 0) {
+            store.find(scan.gs1.data, record, scan.gs1.valueStart(gtin), scan.gs1.valueEnd(gtin))
+        } else {
+            store.find(scan.barcode, record)
+        }
+        if (!found) {
+            return
+        }
+        val fieldCount = minOf(store.fieldCount, MAX_TEMPLATE_FIELDS)
+        if (fieldCount == 0) {
+            return
+        }
+        val templateFields = (0 until fieldCount).map { index ->
+            PgTemplateField(index + 1, store.fieldNames[index], record.field(index))
+        }
+        runOnUiThread {
+            sendTemplateScreen("PG$fieldCount", templateFields, itemScreenCallback)
+        }
+    }
+
+    private fun postPickResult(scan: PipelineScan) {
+        val index = pickListStage.index ?: return
+        val remaining = pickListStage.remaining(scan)
+        val picked = scan.lookup == PipelineScan.Lookup.HIT
+        uiUpdater.postMessage(
+            when {
+                picked && index.isComplete -> "Picked ${scan.barcode}, pick list complete"
+                picked -> "Picked ${scan.barcode}, $remaining left"
+                remaining == 0 -> "${scan.barcode} is picked completely already"
+                else -> "${scan.barcode} is not on the pick list"
+            }
+        )
+    }
+
+    /**
+     * Sends the feedback of the rule matching a scan, if any.
+     *
+     * @param scanToken latency token of the scan.
+     */
+    private fun triggerRuleFeedback(symbology: String, barcode: String, outcomes: Int, scanToken: Long) {
+        val rule = feedbackRules.evaluate(symbology, barcode, outcomes) ?: return
+        triggerFeedback(rule.feedback, feedbackRules.replacesQueue(rule), scanToken)
+    }
+
+    /**
+     * Sends [feedback] to the scanner and times it against the scan with [scanToken], if it answers one.
+     *
+     * @param scanToken latency token of the scan, [ScanLatencyTracker.NO_SCAN] for feedback that answers no scan.
+     */
+    private fun triggerFeedback(feedback: PgPredefinedFeedback, replaceQueue: Boolean, scanToken: Long) {
+        // Creating new PgCommandParams setting the queueing behaviour
+        val pgCommandParams = PgCommandParams(replaceQueue)
+
+        // Wrapping the feedback data in a PgCommand with the PgCommandData
+        val triggerFeedbackCommand = feedback.toCommand(pgCommandParams)
+
+        pgManager.triggerFeedback(
+                command = triggerFeedbackCommand,
+                callback = object : IPgFeedbackCallback {
+
+                    override fun onSuccess() {
+                        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.FEEDBACK_ACKED)
+                        logger.log(Level.INFO, "Feedback successfully played.")
+                        runOnUiThread {
+                            lastResponseValue.text = getString(R.string.feedback_success)
+                        }
+                    }
+
+                    override fun onError(error: PgError) {
+                        val errorMessage = "An Error occurred during triggerFeedback: $error"
+                        logger.log(Level.WARNING, errorMessage)
+                        runOnUiThread {
+                            Toast.makeText(this@SdkActivity, errorMessage, Toast.LENGTH_SHORT).show()
+                            lastResponseValue.text = error.toString()
+                        }
+                    }
+                }
+        )
+        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.FEEDBACK_SENT)
+    }
+
     /*
      * IScannerOutput Implementation:
      */
 
     override fun onBarcodeScanned(barcodeScanResults: BarcodeScanResults) {
-        runOnUiThread {
-            inputField.text = barcodeScanResults.barcodeContent
-            symbologyResult.text = barcodeScanResults.symbology ?: ""
-            barcodeScanResults.screenContext?.let {
-                lastScreenContextOutput.text = "Screen ID: ${barcodeScanResults.screenContext?.screenId}"
-            } ?: run {
-                lastScreenContextOutput.text = ""
-            }
-            if (barcodeScanResults.symbology?.isNotEmpty() == true) {
-                Toast.makeText(
-                        this,
-                        "Got barcode: ${barcodeScanResults.barcodeContent} with symbology ${barcodeScanResults.symbology}",
-                        Toast.LENGTH_LONG
-                ).show()
-            } else {
-                Toast.makeText(
-                        this,
-                        "Got barcode: ${barcodeScanResults.barcodeContent} with no symbology",
-                        Toast.LENGTH_LONG
-                ).show()
-            }
+        val scanToken = latencyTracker.scanReceived()
+        val symbology = barcodeScanResults.symbology ?: ""
+        if (scanDeduplicator?.isDuplicate(barcodeScanResults.barcodeContent, symbology, SCAN_SOURCE) == true) {
+            logger.log(Level.INFO, "Dropped duplicate barcode: ${barcodeScanResults.barcodeContent}")
+            triggerRuleFeedback(symbology, barcodeScanResults.barcodeContent, ScanOutcome.DUPLICATE, scanToken)
+            return
+        }
+        scanJournal?.append(barcodeScanResults.barcodeContent, symbology, SCAN_SOURCE)
+        scanPipeline.submit(barcodeScanResults.barcodeContent, symbology, SCAN_SOURCE, scanToken)
+        uiUpdater.postScan(barcodeScanResults.barcodeContent, symbology)
+        uiUpdater.postScreenContext(barcodeScanResults.screenContext?.screenId)
+        if (symbology.isNotEmpty()) {
+            uiUpdater.postMessage("Got barcode: ${barcodeScanResults.barcodeContent} with symbology $symbology")
+        } else {
+            uiUpdater.postMessage("Got barcode: ${barcodeScanResults.barcodeContent} with no symbology")
         }
+        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.PROCESSED)
     }
 
     override fun onScannerConnected() {
@@ -1125,9 +1512,7 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
     }
 
     override fun onScannerStateChanged(status: ConnectionStatus) {
-        runOnUiThread {
-            Toast.makeText(this, "Scanner State: $status", Toast.LENGTH_SHORT).show()
-        }
+        uiUpdater.postMessage("Scanner State: $status")
     }
 
     /*
@@ -1141,20 +1526,22 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
     override fun onDisplayConnected() {
         Log.i("DISPLAY", "connected")
         displayConnected = true
-        updateButtonStates()
+        displaySession.invalidate()
+        displayQueue.reset()
+        uiUpdater.postConnectionState()
     }
 
     override fun onDisplayDisconnected() {
         Log.i("DISPLAY", "disconnected")
         displayConnected = false
-        updateButtonStates()
+        displaySession.invalidate()
+        displayQueue.reset()
+        uiUpdater.postConnectionState()
     }
 
     override fun onDisplayStateChanged(status: ConnectionStatus) {
         Log.i("DISPLAY", "newState: $status")
-        runOnUiThread {
-            Toast.makeText(this, "Display State: $status", Toast.LENGTH_SHORT).show()
-        }
+        uiUpdater.postMessage("Display State: $status")
     }
 
     override fun onScreenEvent(screenEvent: PgScreenEvent) {
@@ -1181,14 +1568,8 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
      * IButtonOutput Implementation:
      */
     override fun onButtonPressed(buttonPressed: ButtonPress) {
-        runOnUiThread {
-            Toast.makeText(this, "Button Pressed: ${buttonPressed.id}", Toast.LENGTH_SHORT).show()
-            buttonPressed.screenContext?.let {
-                lastScreenContextOutput.text = "Screen ID: ${buttonPressed.screenContext?.screenId}"
-            } ?: run {
-                lastScreenContextOutput.text = ""
-            }
-        }
+        uiUpdater.postMessage("Button Pressed: ${buttonPressed.id}")
+        uiUpdater.postScreenContext(buttonPressed.screenContext?.screenId)
     }
     /*
      * End of IButtonOutput Implementation
@@ -1231,14 +1612,49 @@ class SdkActivity : AppCompatActivity(), IScannerOutput, IServiceOutput, IDispla
      * End of IScannerConfigurationChangeOutput Implementation
      */
 
+    /**
+     * Screen waiting in the [displayQueue] together with the callback of its sender.
+     */
+    private sealed class ScreenRequest(val callback: IPgSetScreenCallback) {
+
+        class Template(
+                val templateId: String,
+                val templateFields: List<PgTemplateField>,
+                callback: IPgSetScreenCallback
+        ) : ScreenRequest(callback)
+
+        class V2(val screen: PgScreen, callback: IPgSetScreenCallback) : ScreenRequest(callback)
+    }
+
     companion object {
 
         const val DEFAULT_IMAGE_TIMEOUT = 10000
+
+        private const val LATENCY_REPORT_FILE_NAME = "scan_latency.txt"
+        private const val SCAN_JOURNAL_DIRECTORY_NAME = "scan-journal"
+        private const val IMAGE_STORE_DIRECTORY_NAME = "captured-images"
+        private const val CAPTURE_LATENCY_BUDGET_MS = 3_000L
+        private const val SCAN_BURST_QUIET_MS = 1_000L
+
+        // transfer times of image captures, kept across activity restarts
+        private val captureController by lazy {
+            AdaptiveCaptureController(
+                listOf(
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_1280_960, 80),
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_1280_960, 50),
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_640_480, 80),
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_640_480, 50),
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_320_240, 80),
+                    AdaptiveCaptureController.Setting(ImageResolution.RESOLUTION_320_240, 20)
+                ),
+                CAPTURE_LATENCY_BUDGET_MS,
+                DEFAULT_IMAGE_TIMEOUT.toLong()
+            )
+        }
+        private const val SCAN_SOURCE = "sdk"
+        private const val MASTER_DATA_FILE_NAME = "master-data.bin"
+        private const val GTIN_AI = 1
+        private const val MAX_TEMPLATE_FIELDS = 3
+        private val PICK_LIST_FILE_NAMES = listOf("pick-list.csv", "pick-list.json")
     }
 }
-
-/**
- * Profile data for displaying on UI.
- */
-data class ProfileUiData(val profileId: String, var active: Boolean)
-
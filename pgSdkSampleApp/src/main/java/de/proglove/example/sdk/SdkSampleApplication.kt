@@ -0,0 +1,21 @@
+package de.proglove.example.sdk
+
+import android.app.Application
+import de.proglove.example.common.metrics.StartupTrace
+
+/**
+ * Starts the connection to the Connect service as early as the process starts.
+ */
+class SdkSampleApplication : Application() {
+
+    /**
+     * Connection to the Connect service shared by all activities.
+     */
+    val connectionManager: PgConnectionManager by lazy { PgConnectionManager(this) }
+
+    override fun onCreate() {
+        StartupTrace.shared.mark(StartupTrace.Milestone.APPLICATION_CREATED)
+        super.onCreate()
+        connectionManager.connect()
+    }
+}
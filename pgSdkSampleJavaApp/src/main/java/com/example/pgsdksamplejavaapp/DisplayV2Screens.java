@@ -0,0 +1,288 @@
+package com.example.pgsdksamplejavaapp;
+
+import de.proglove.sdk.display.model.v2.PgActionButton.Assigned;
+import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Cyan;
+import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Green;
+import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Red;
+import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Yellow;
+import de.proglove.sdk.display.model.v2.PgActionButton.Unassigned;
+import de.proglove.sdk.display.model.v2.PgActionButtons;
+import de.proglove.sdk.display.model.v2.PgListViewItem;
+import de.proglove.sdk.display.model.v2.PgListViewItem.PgListT1Item;
+import de.proglove.sdk.display.model.v2.PgScreen;
+import de.proglove.sdk.display.model.v2.PgScreenAction;
+import de.proglove.sdk.display.model.v2.PgScreenAction.NavigateBack;
+import de.proglove.sdk.display.model.v2.PgScreenAction.Notify;
+import de.proglove.sdk.display.model.v2.PgScreenComponent;
+import de.proglove.sdk.display.model.v2.PgScreenComponent.TextField;
+import de.proglove.sdk.display.model.v2.PgScreenComponent.TextField.State.NoState;
+import de.proglove.sdk.display.model.v2.PgScreenInputMethod.NumPad;
+import de.proglove.sdk.display.model.v2.PgScreenOrientation;
+import de.proglove.sdk.display.model.v2.PgScreenResources.ListItemTrailingIcon.Arrow;
+import de.proglove.sdk.display.model.v2.PgScreenResources.ListItemTrailingIcon.None;
+import de.proglove.sdk.display.model.v2.PgScreenTimer;
+import de.proglove.sdk.display.model.v2.PgScreenTimer.Disabled;
+import de.proglove.sdk.display.model.v2.PgScreenView;
+import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView;
+import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView.PgWork1T1;
+import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView.PgWork3Btn2T1;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Display V2 example screens.
+ *
+ * The screens are static, so each one is built on first use and the same instance is sent on every click instead of
+ * rebuilding the whole object graph.
+ */
+final class DisplayV2Screens {
+
+    private static PgScreen pgNtfT5;
+    private static PgScreen pgWork3Btn2T1;
+    private static PgScreen pgListT1;
+    private static PgScreen timerScreen;
+
+    private DisplayV2Screens() {
+    }
+
+    /**
+     * Notification view with two buttons and all four action buttons assigned.
+     */
+    static synchronized PgScreen getPgNtfT5() {
+        if (pgNtfT5 == null) {
+            pgNtfT5 = new PgScreen(
+                "screenId",
+                new PgScreenView.TemplateV2.NotificationView.PgNtfT5(
+                    "",
+                    "Notification",
+                    "This is a message with two buttons",
+                    new PgScreenComponent.Button(
+                        "BUTTON_PRIMARY",
+                        "OK",
+                        Notify.INSTANCE
+                    ),
+                    new PgScreenComponent.Button(
+                        "BUTTON_SECONDARY",
+                        "Cancel",
+                        Notify.INSTANCE
+                    )
+                ),
+                new PgActionButtons(
+                    new Assigned(
+                        "actionButton1",
+                        "Notify",
+                        Yellow.INSTANCE,
+                        Notify.INSTANCE
+                    ),
+                    new Assigned(
+                        "actionButton3",
+                        "Ok",
+                        Cyan.INSTANCE,
+                        new PgScreenAction.ClickOnPgScreenComponent("BUTTON_PRIMARY")
+                    ),
+                    new Assigned(
+                        "actionButton4",
+                        "Cancel",
+                        Green.INSTANCE,
+                        new PgScreenAction.ClickOnPgScreenComponent("BUTTON_SECONDARY")
+                    ),
+                    new Assigned(
+                        "actionButton2",
+                        "Back",
+                        Red.INSTANCE,
+                        NavigateBack.INSTANCE
+                    )
+                ),
+                Disabled.INSTANCE,
+                PgScreenOrientation.LANDSCAPE
+            );
+        }
+        return pgNtfT5;
+    }
+
+    /**
+     * Workflow view with three fields and two buttons, followed by a single field view.
+     */
+    static synchronized PgScreen getPgWork3Btn2T1() {
+        if (pgWork3Btn2T1 == null) {
+            pgWork3Btn2T1 = new PgScreen(
+                "screenId",
+                new WorkflowView[] {
+                    new PgWork3Btn2T1(
+                        "",
+                        new TextField(
+                            "fieldTop",
+                            "Top Field",
+                            "Workflow View with 2 buttons and 1 text field",
+                            NoState.INSTANCE
+                        ),
+                        new TextField(
+                            "",
+                            "Middle Left Field",
+                            "This is the left field in the middle section",
+                            NoState.INSTANCE
+                        ),
+                        new TextField(
+                            "fieldMiddleRight",
+                            "Middle Right Field",
+                            "This is the right field in the middle section",
+                            NoState.INSTANCE,
+                            new NumPad()
+                        ),
+                        new PgScreenComponent.Button(
+                            "button1",
+                            "Ok",
+                            Notify.INSTANCE
+                        ),
+                        new PgScreenComponent.Button(
+                            "button2",
+                            "Cancel",
+                            Notify.INSTANCE
+                        )
+                    ),
+                    new PgWork1T1(
+                        "",
+                        new TextField(
+                            "",
+                            "Main Field",
+                            "This is the main text field",
+                            NoState.INSTANCE
+                        )
+                    )
+                },
+                "",
+                new PgActionButtons(
+                    Unassigned.INSTANCE,
+                    Unassigned.INSTANCE,
+                    new Assigned(
+                        "actionButton1",
+                        "Notify",
+                        Green.INSTANCE,
+                        Notify.INSTANCE
+                    ),
+                    new Assigned(
+                        "actionButton2",
+                        "Back",
+                        Red.INSTANCE,
+                        NavigateBack.INSTANCE
+                    )
+                ),
+                Disabled.INSTANCE,
+                PgScreenOrientation.PORTRAIT
+            );
+        }
+        return pgWork3Btn2T1;
+    }
+
+    /**
+     * List view with five items.
+     */
+    static synchronized PgScreen getPgListT1() {
+        if (pgListT1 == null) {
+            pgListT1 = new PgScreen(
+                "screenId",
+                new PgScreenView.TemplateV2.ListView.PgListT1(
+                    "",
+                    "List View Example",
+                    createListItems()
+                ),
+                new PgActionButtons(
+                    Unassigned.INSTANCE,
+                    Unassigned.INSTANCE,
+                    new Assigned(
+                        "actionButton1",
+                        "Notify",
+                        Yellow.INSTANCE,
+                        Notify.INSTANCE
+                    ),
+                    new Assigned(
+                        "actionButton2",
+                        "Back",
+                        Red.INSTANCE,
+                        NavigateBack.INSTANCE
+                    )
+                ),
+                Disabled.INSTANCE,
+                PgScreenOrientation.PORTRAIT
+            );
+        }
+        return pgListT1;
+    }
+
+    /**
+     * Single field screen that navigates back after two seconds.
+     */
+    static synchronized PgScreen getTimerScreen() {
+        if (timerScreen == null) {
+            timerScreen = new PgScreen(
+                "timerScreen",
+                new PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
+                    "",
+                    new PgScreenComponent.TextField(
+                        "",
+                        "Timer Example",
+                        "This screen will automatically navigate back after 2 seconds.",
+                        new PgScreenComponent.TextField.State.Focused(true)
+                    )
+                ),
+                new PgActionButtons(
+                    Unassigned.INSTANCE,
+                    Unassigned.INSTANCE,
+                    Unassigned.INSTANCE,
+                    Unassigned.INSTANCE
+                ),
+                new PgScreenTimer.Enabled(
+                    2000,
+                    NavigateBack.INSTANCE
+                ),
+                PgScreenOrientation.PORTRAIT
+            );
+        }
+        return timerScreen;
+    }
+
+    private static List<PgListT1Item> createListItems() {
+        return Arrays.asList(
+            new PgListViewItem.PgListT1Item(
+                "",
+                Notify.INSTANCE,
+                "Item 1",
+                "Description 1",
+                None.INSTANCE,
+                "1"
+            ),
+            new PgListViewItem.PgListT1Item(
+                "",
+                Notify.INSTANCE,
+                "Item 2",
+                "Description 2",
+                Arrow.INSTANCE,
+                "2"
+            ),
+            new PgListViewItem.PgListT1Item(
+                "",
+                Notify.INSTANCE,
+                "Item 3",
+                "Description 3",
+                None.INSTANCE,
+                "3"
+            ),
+            new PgListViewItem.PgListT1Item(
+                "",
+                Notify.INSTANCE,
+                "Item 4",
+                "Description 4",
+                Arrow.INSTANCE,
+                "4"
+            ),
+            new PgListViewItem.PgListT1Item(
+                "",
+                Notify.INSTANCE,
+                "Item 5",
+                "Description 5",
+                None.INSTANCE,
+                "5"
+            )
+        );
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.pgsdksamplejavaapp;
+
+import android.content.Context;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import de.proglove.example.common.dispatch.CallbackDispatcher;
+import de.proglove.example.common.dispatch.HandlerScheduler;
+import de.proglove.example.common.dispatch.WeakListenerRegistry;
+import de.proglove.example.common.metrics.StartupTrace;
+import de.proglove.example.common.profile.ProfileRepository;
+import de.proglove.example.common.stream.DeviceEventStreams;
+import de.proglove.sdk.ConnectionStatus;
+import de.proglove.sdk.IPgManager;
+import de.proglove.sdk.IServiceOutput;
+import de.proglove.sdk.PgError;
+import de.proglove.sdk.PgManager;
+import de.proglove.sdk.button.ButtonPress;
+import de.proglove.sdk.button.IButtonOutput;
+import de.proglove.sdk.button.IPgTriggersUnblockedOutput;
+import de.proglove.sdk.configuration.IPgGetConfigProfilesCallback;
+import de.proglove.sdk.configuration.IPgScannerConfigurationChangeOutput;
+import de.proglove.sdk.configuration.PgConfigProfile;
+import de.proglove.sdk.configuration.PgScannerConfigurationChangeResult;
+import de.proglove.sdk.display.IDisplayOutput;
+import de.proglove.sdk.display.model.v2.PgScreenContext;
+import de.proglove.sdk.display.model.v2.PgScreenEvent;
+import de.proglove.sdk.scanner.BarcodeScanResults;
+import de.proglove.sdk.scanner.IScannerOutput;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process wide owner of the {@link IPgManager} and fan-out hub for its events, created by the
+ * {@link SdkSampleApplication}.
+ * <p>
+ * {@link #connect()} binds to the Connect service from {@code Application.onCreate}, so binding runs while the first
+ * activity is still inflating its views. The manager subscribes itself to every kind of SDK event exactly once and
+ * passes the events on to its observers. Observers {@link #subscribe(Object)} for all output interfaces they
+ * implement in one step and are held through weak references, so a forgotten {@link #unsubscribe(Object)} does not
+ * leak an activity. Subscribing with a {@link LifecycleOwner} removes the observer when the owner is destroyed.
+ * Recreating an activity therefore does not subscribe to or unsubscribe from the SDK at all.
+ * <p>
+ * The SDK delivers its callbacks on the {@link CallbackDispatcher.Lane#SDK} lane. Scanner, display and button events
+ * are passed on to the observers on lanes of their own, so a slow display or button observer does not hold up scans.
+ * <p>
+ * The manager remembers the connection states it was told about and reports the connections that are up to a new
+ * observer right away.
+ * <p>
+ * The {@link #getTrace() trace} records when the service is bound, the scanner connected and the first scan received.
+ * <p>
+ * Scans and connection changes are also published as {@link #getStreams() streams}, for logic that should not depend
+ * on the SDK.
+ * <p>
+ * The configuration {@link #getProfiles() profiles} are cached for all activities and invalidated when the scanner
+ * configuration changes.
+ */
+public class PgConnectionManager implements IServiceOutput, IScannerOutput, IDisplayOutput, IButtonOutput,
+        IPgTriggersUnblockedOutput, IPgScannerConfigurationChangeOutput {
+
+    private static final String TAG = PgConnectionManager.class.getSimpleName();
+    private static final String DEVICE_LABEL = Build.MANUFACTURER + " " + Build.MODEL;
+    private static final String STREAM_SOURCE = "sdk";
+
+    private final Logger logger = Logger.getLogger(TAG);
+    private final Context context;
+    private final StartupTrace trace;
+    private final DeviceEventStreams streams = new DeviceEventStreams();
+    private IPgManager pgManager;
+    private ProfileRepository<PgConfigProfile> profiles;
+    private boolean subscribedToSdk;
+
+    private final WeakListenerRegistry<IServiceOutput> serviceObservers = new WeakListenerRegistry<>();
+    private final WeakListenerRegistry<IScannerOutput> scannerObservers = new WeakListenerRegistry<>();
+    private final WeakListenerRegistry<IDisplayOutput> displayObservers = new WeakListenerRegistry<>();
+    private final WeakListenerRegistry<IButtonOutput> buttonObservers = new WeakListenerRegistry<>();
+    private final WeakListenerRegistry<IPgTriggersUnblockedOutput> triggersUnblockedObservers =
+            new WeakListenerRegistry<>();
+    private final WeakListenerRegistry<IPgScannerConfigurationChangeOutput> configurationChangeObservers =
+            new WeakListenerRegistry<>();
+
+    private final Executor scanLane = CallbackDispatcher.getShared().lane(CallbackDispatcher.Lane.SCANS);
+    private final Executor displayLane = CallbackDispatcher.getShared().lane(CallbackDispatcher.Lane.DISPLAY);
+    private final Executor buttonLane = CallbackDispatcher.getShared().lane(CallbackDispatcher.Lane.BUTTONS);
+
+    private volatile boolean serviceConnected;
+    private volatile boolean scannerConnected;
+    private volatile boolean displayConnected;
+
+    public PgConnectionManager(Context context, StartupTrace trace) {
+        this.context = context.getApplicationContext();
+        this.trace = trace;
+    }
+
+    public StartupTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Returns the scans and connection changes of the SDK as streams.
+     */
+    public DeviceEventStreams getStreams() {
+        return streams;
+    }
+
+    /**
+     * Returns the SDK entry point shared by all activities, created on first use. SDK callbacks are delivered in
+     * order on the SDK lane of the bounded, shared background pool.
+     */
+    public synchronized IPgManager getPgManager() {
+        if (pgManager == null) {
+            pgManager = new PgManager(logger, CallbackDispatcher.getShared().lane(CallbackDispatcher.Lane.SDK));
+        }
+        return pgManager;
+    }
+
+    /**
+     * Returns the configuration profiles, fetched from the service on first use and again only after they changed.
+     */
+    public synchronized ProfileRepository<PgConfigProfile> getProfiles() {
+        if (profiles == null) {
+            profiles = new ProfileRepository<>(new HandlerScheduler(), this::fetchProfiles);
+        }
+        return profiles;
+    }
+
+    /**
+     * Binds to the Connect service if not bound yet. Safe to call repeatedly, e.g. from {@code onResume}.
+     */
+    public void connect() {
+        IPgManager pgManager = getPgManager();
+        synchronized (this) {
+            if (!subscribedToSdk) {
+                subscribedToSdk = true;
+                pgManager.subscribeToServiceEvents(this);
+                pgManager.subscribeToScans(this);
+                pgManager.subscribeToDisplayEvents(this);
+                pgManager.subscribeToButtonPresses(this);
+                pgManager.subscribeToPgTriggersUnblocked(this);
+                pgManager.subscribeToPgScannerConfigurationChanges(this);
+            }
+        }
+        if (trace.mark(StartupTrace.Milestone.SERVICE_BIND_REQUESTED)) {
+            logger.log(Level.INFO, "Binding to the Connect service");
+        }
+        pgManager.ensureConnectionToService(context);
+    }
+
+    /**
+     * Passes SDK events to {@code observer} for every output interface it implements, until {@code owner} is
+     * destroyed.
+     */
+    public void subscribe(LifecycleOwner owner, final Object observer) {
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                    unsubscribe(observer);
+                }
+            }
+        });
+        subscribe(observer);
+    }
+
+    /**
+     * Passes SDK events to {@code observer} for every output interface it implements, and reports the connections
+     * that are up already. The observer is only weakly referenced.
+     */
+    public void subscribe(Object observer) {
+        if (observer instanceof IServiceOutput) {
+            serviceObservers.add((IServiceOutput) observer);
+        }
+        if (observer instanceof IScannerOutput) {
+            scannerObservers.add((IScannerOutput) observer);
+        }
+        if (observer instanceof IDisplayOutput) {
+            displayObservers.add((IDisplayOutput) observer);
+        }
+        if (observer instanceof IButtonOutput) {
+            buttonObservers.add((IButtonOutput) observer);
+        }
+        if (observer instanceof IPgTriggersUnblockedOutput) {
+            triggersUnblockedObservers.add((IPgTriggersUnblockedOutput) observer);
+        }
+        if (observer instanceof IPgScannerConfigurationChangeOutput) {
+            configurationChangeObservers.add((IPgScannerConfigurationChangeOutput) observer);
+        }
+        // the connections may have come up before the observer subscribed
+        if (serviceConnected && observer instanceof IServiceOutput) {
+            ((IServiceOutput) observer).onServiceConnected();
+        }
+        if (scannerConnected && observer instanceof IScannerOutput) {
+            ((IScannerOutput) observer).onScannerConnected();
+        }
+        if (displayConnected && observer instanceof IDisplayOutput) {
+            ((IDisplayOutput) observer).onDisplayConnected();
+        }
+    }
+
+    /**
+     * Stops passing SDK events to {@code observer}.
+     */
+    public void unsubscribe(Object observer) {
+        if (observer instanceof IServiceOutput) {
+            serviceObservers.remove((IServiceOutput) observer);
+        }
+        if (observer instanceof IScannerOutput) {
+            scannerObservers.remove((IScannerOutput) observer);
+        }
+        if (observer instanceof IDisplayOutput) {
+            displayObservers.remove((IDisplayOutput) observer);
+        }
+        if (observer instanceof IButtonOutput) {
+            buttonObservers.remove((IButtonOutput) observer);
+        }
+        if (observer instanceof IPgTriggersUnblockedOutput) {
+            triggersUnblockedObservers.remove((IPgTriggersUnblockedOutput) observer);
+        }
+        if (observer instanceof IPgScannerConfigurationChangeOutput) {
+            configurationChangeObservers.remove((IPgScannerConfigurationChangeOutput) observer);
+        }
+    }
+
+    @Override
+    public void onServiceConnected() {
+        serviceConnected = true;
+        trace.mark(StartupTrace.Milestone.SERVICE_BOUND);
+        serviceObservers.dispatch(IServiceOutput::onServiceConnected);
+    }
+
+    @Override
+    public void onServiceDisconnected() {
+        serviceConnected = false;
+        scannerConnected = false;
+        displayConnected = false;
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, false);
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, false);
+        serviceObservers.dispatch(IServiceOutput::onServiceDisconnected);
+    }
+
+    @Override
+    public void onBarcodeScanned(@NonNull BarcodeScanResults barcodeScanResults) {
+        if (trace.mark(StartupTrace.Milestone.FIRST_SCAN)) {
+            trace.logReport(DEVICE_LABEL);
+        }
+        String symbology = barcodeScanResults.getSymbology();
+        PgScreenContext screenContext = barcodeScanResults.getScreenContext();
+        streams.onScan(
+                barcodeScanResults.getBarcodeContent(),
+                symbology == null ? "" : symbology,
+                screenContext == null ? "" : screenContext.getScreenId(),
+                STREAM_SOURCE
+        );
+        scanLane.execute(() -> scannerObservers.dispatch(observer -> observer.onBarcodeScanned(barcodeScanResults)));
+    }
+
+    @Override
+    public void onScannerConnected() {
+        scannerConnected = true;
+        trace.mark(StartupTrace.Milestone.SCANNER_CONNECTED);
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, true);
+        scanLane.execute(() -> scannerObservers.dispatch(IScannerOutput::onScannerConnected));
+    }
+
+    @Override
+    public void onScannerDisconnected() {
+        scannerConnected = false;
+        streams.onConnectionChanged(DeviceEventStreams.Device.SCANNER, false);
+        scanLane.execute(() -> scannerObservers.dispatch(IScannerOutput::onScannerDisconnected));
+    }
+
+    @Override
+    public void onScannerStateChanged(@NonNull ConnectionStatus connectionStatus) {
+        scanLane.execute(() -> scannerObservers.dispatch(observer -> observer.onScannerStateChanged(connectionStatus)));
+    }
+
+    @Override
+    public void onDisplayConnected() {
+        displayConnected = true;
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, true);
+        displayLane.execute(() -> displayObservers.dispatch(IDisplayOutput::onDisplayConnected));
+    }
+
+    @Override
+    public void onDisplayDisconnected() {
+        displayConnected = false;
+        streams.onConnectionChanged(DeviceEventStreams.Device.DISPLAY, false);
+        displayLane.execute(() -> displayObservers.dispatch(IDisplayOutput::onDisplayDisconnected));
+    }
+
+    @Override
+    public void onDisplayStateChanged(@NonNull ConnectionStatus connectionStatus) {
+        displayLane.execute(
+                () -> displayObservers.dispatch(observer -> observer.onDisplayStateChanged(connectionStatus))
+        );
+    }
+
+    @Override
+    public void onScreenEvent(@NonNull PgScreenEvent screenEvent) {
+        displayLane.execute(() -> displayObservers.dispatch(observer -> observer.onScreenEvent(screenEvent)));
+    }
+
+    @Override
+    public void onButtonPressed(@NonNull ButtonPress buttonPress) {
+        buttonLane.execute(() -> buttonObservers.dispatch(observer -> observer.onButtonPressed(buttonPress)));
+    }
+
+    @Override
+    public void onPgTriggersUnblocked() {
+        triggersUnblockedObservers.dispatch(IPgTriggersUnblockedOutput::onPgTriggersUnblocked);
+    }
+
+    @Override
+    public void onScannerConfigurationChange(PgScannerConfigurationChangeResult scannerConfigurationChangeResult) {
+        // before the observers, so they read the new profiles
+        getProfiles().invalidate();
+        configurationChangeObservers.dispatch(
+                observer -> observer.onScannerConfigurationChange(scannerConfigurationChangeResult)
+        );
+    }
+
+    private void fetchProfiles(final long requestId, final ProfileRepository<PgConfigProfile> repository) {
+        getPgManager().getConfigProfiles(new IPgGetConfigProfilesCallback() {
+            @Override
+            public void onConfigProfilesReceived(@NonNull PgConfigProfile[] profiles) {
+                String activeProfileId = null;
+                for (PgConfigProfile profile : profiles) {
+                    if (profile.isActive()) {
+                        activeProfileId = profile.getProfileId();
+                        break;
+                    }
+                }
+                repository.onFetched(requestId, Arrays.asList(profiles), activeProfileId);
+            }
+
+            @Override
+            public void onError(@NonNull PgError pgError) {
+                repository.onFetchFailed(requestId, pgError.toString());
+            }
+        });
+    }
+}
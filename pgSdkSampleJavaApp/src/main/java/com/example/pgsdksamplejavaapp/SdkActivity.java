@@ -2,7 +2,6 @@ package com.example.pgsdksamplejavaapp;
 
 import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
@@ -19,11 +18,47 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import de.proglove.example.common.dispatch.CallbackDispatcher;
+import de.proglove.example.common.dispatch.HandlerScheduler;
+import de.proglove.example.common.dispatch.IoExecutor;
+import de.proglove.example.common.display.DisplayCommandQueue;
+import de.proglove.example.common.display.DisplaySession;
+import de.proglove.example.common.feedback.FeedbackRuleEngine;
+import de.proglove.example.common.feedback.ScanOutcome;
+import de.proglove.example.common.image.AdaptiveCaptureController;
+import de.proglove.example.common.image.ScaledBitmapDecoder;
+import de.proglove.example.common.metrics.ScanLatencyTracker;
+import de.proglove.example.common.metrics.StartupTrace;
+import de.proglove.example.common.outbox.HttpImageSink;
+import de.proglove.example.common.outbox.HttpScanSink;
+import de.proglove.example.common.outbox.ImageOutbox;
+import de.proglove.example.common.outbox.ScanOutbox;
+import de.proglove.example.common.picking.PickListIndex;
+import de.proglove.example.common.picking.PickListLoader;
+import de.proglove.example.common.picking.PickListStage;
+import de.proglove.example.common.pipeline.CheckDigitStage;
+import de.proglove.example.common.pipeline.Gs1ParseStage;
+import de.proglove.example.common.pipeline.PipelineScan;
+import de.proglove.example.common.pipeline.ScanPipeline;
+import de.proglove.example.common.profile.ProfileRepository;
+import de.proglove.example.common.profile.ProfileUiData;
+import de.proglove.example.common.profile.ProfilesAdapter;
+import de.proglove.example.common.scan.ScanDeduplicator;
+import de.proglove.example.common.storage.ImageStore;
+import de.proglove.example.common.storage.MasterDataStore;
+import de.proglove.example.common.storage.ScanJournal;
+import de.proglove.example.common.stream.DeviceEventStreams;
+import de.proglove.example.common.stream.EventProcessor;
+import de.proglove.example.common.stream.EventStream;
+import de.proglove.example.common.stream.EventStreams;
+import de.proglove.example.common.stream.EventSubscription;
+import de.proglove.example.common.ui.ChoreographerFrameScheduler;
+import de.proglove.example.common.ui.UiUpdate;
+import de.proglove.example.common.ui.UiUpdateCoalescer;
 import de.proglove.sdk.ConnectionStatus;
 import de.proglove.sdk.IPgManager;
 import de.proglove.sdk.IServiceOutput;
 import de.proglove.sdk.PgError;
-import de.proglove.sdk.PgManager;
 import de.proglove.sdk.button.BlockPgTriggersParams;
 import de.proglove.sdk.button.ButtonPress;
 import de.proglove.sdk.button.IBlockPgTriggersCallback;
@@ -33,7 +68,6 @@ import de.proglove.sdk.button.PredefinedPgTrigger;
 import de.proglove.sdk.commands.PgCommand;
 import de.proglove.sdk.commands.PgCommandParams;
 import de.proglove.sdk.configuration.IPgConfigProfileCallback;
-import de.proglove.sdk.configuration.IPgGetConfigProfilesCallback;
 import de.proglove.sdk.configuration.IPgScannerConfigurationChangeOutput;
 import de.proglove.sdk.configuration.PgConfigProfile;
 import de.proglove.sdk.configuration.PgScannerConfigurationChangeResult;
@@ -44,34 +78,9 @@ import de.proglove.sdk.display.PgScreenData;
 import de.proglove.sdk.display.PgTemplateField;
 import de.proglove.sdk.display.RefreshType;
 import de.proglove.sdk.display.model.v2.DisplayType;
-import de.proglove.sdk.display.model.v2.PgActionButton.Assigned;
-import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Cyan;
-import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Green;
-import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Red;
-import de.proglove.sdk.display.model.v2.PgActionButton.IndicatorColor.Yellow;
-import de.proglove.sdk.display.model.v2.PgActionButton.Unassigned;
-import de.proglove.sdk.display.model.v2.PgActionButtons;
-import de.proglove.sdk.display.model.v2.PgListViewItem;
-import de.proglove.sdk.display.model.v2.PgListViewItem.PgListT1Item;
 import de.proglove.sdk.display.model.v2.PgScreen;
-import de.proglove.sdk.display.model.v2.PgScreenAction;
-import de.proglove.sdk.display.model.v2.PgScreenAction.NavigateBack;
-import de.proglove.sdk.display.model.v2.PgScreenAction.Notify;
-import de.proglove.sdk.display.model.v2.PgScreenComponent;
-import de.proglove.sdk.display.model.v2.PgScreenComponent.TextField;
-import de.proglove.sdk.display.model.v2.PgScreenComponent.TextField.State.NoState;
 import de.proglove.sdk.display.model.v2.PgScreenContext;
 import de.proglove.sdk.display.model.v2.PgScreenEvent;
-import de.proglove.sdk.display.model.v2.PgScreenInputMethod.NumPad;
-import de.proglove.sdk.display.model.v2.PgScreenOrientation;
-import de.proglove.sdk.display.model.v2.PgScreenResources.ListItemTrailingIcon.Arrow;
-import de.proglove.sdk.display.model.v2.PgScreenResources.ListItemTrailingIcon.None;
-import de.proglove.sdk.display.model.v2.PgScreenTimer;
-import de.proglove.sdk.display.model.v2.PgScreenTimer.Disabled;
-import de.proglove.sdk.display.model.v2.PgScreenView;
-import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView;
-import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView.PgWork1T1;
-import de.proglove.sdk.display.model.v2.PgScreenView.TemplateV2.WorkflowView.PgWork3Btn2T1;
 import de.proglove.sdk.scanner.BarcodeScanResults;
 import de.proglove.sdk.scanner.DeviceVisibilityInfo;
 import de.proglove.sdk.scanner.IPgDeviceVisibilityCallback;
@@ -84,11 +93,16 @@ import de.proglove.sdk.scanner.PgImage;
 import de.proglove.sdk.scanner.PgImageConfig;
 import de.proglove.sdk.scanner.PgPredefinedFeedback;
 import de.proglove.sdk.scanner.PgScannerConfig;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -97,12 +111,108 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
 
     private static final String TAG = SdkActivity.class.getSimpleName();
     private static int DEFAULT_IMAGE_TIMEOUT = 10000;
+    private static final String LATENCY_REPORT_FILE_NAME = "scan_latency.txt";
+    private static final String SCAN_JOURNAL_DIRECTORY_NAME = "scan-journal";
+    private static final String IMAGE_STORE_DIRECTORY_NAME = "captured-images";
+    private static final long CAPTURE_LATENCY_BUDGET_MS = 3_000L;
+    private static final long SCAN_BURST_QUIET_MS = 1_000L;
+
+    // transfer times of image captures, kept across activity restarts
+    private static final AdaptiveCaptureController<ImageResolution> CAPTURE_CONTROLLER =
+            new AdaptiveCaptureController<>(
+                    Arrays.asList(
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_1280_960, 80),
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_1280_960, 50),
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_640_480, 80),
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_640_480, 50),
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_320_240, 80),
+                            new AdaptiveCaptureController.Setting<>(ImageResolution.RESOLUTION_320_240, 20)
+                    ),
+                    CAPTURE_LATENCY_BUDGET_MS,
+                    DEFAULT_IMAGE_TIMEOUT
+            );
+    private static final String SCAN_SOURCE = "sdk";
+    private static final String MASTER_DATA_FILE_NAME = "master-data.bin";
+    private static final int GTIN_AI = 1;
+    private static final int MAX_TEMPLATE_FIELDS = 3;
+    private static final String[] PICK_LIST_FILE_NAMES = {"pick-list.csv", "pick-list.json"};
 
     private final Logger logger = Logger.getLogger(TAG);
-    private final IPgManager pgManager = new PgManager(logger, Executors.newCachedThreadPool());
+    // the connection to the service is set up by the application before the activity starts
+    private PgConnectionManager connectionManager;
+    private IPgManager pgManager;
 
     private int defaultImageQuality;
 
+    // remembers the template screen last shown to skip unchanged sends and pick partial refreshes
+    private final DisplaySession displaySession = new DisplaySession();
+
+    // keeps at most one Display V2 screen in flight, newer screens replace the one waiting behind it
+    private DisplayCommandQueue<ScreenRequest> displayQueue;
+
+    // times each scan from onBarcodeScanned to processing and the acknowledged feedback
+    private final ScanLatencyTracker latencyTracker = ScanLatencyTracker.getShared();
+
+    // drops repeated scans of the same label when enabled for the build, null otherwise
+    private final ScanDeduplicator scanDeduplicator = BuildConfig.DUPLICATE_SCAN_WINDOW_MS > 0
+            ? new ScanDeduplicator(BuildConfig.DUPLICATE_SCAN_WINDOW_MS)
+            : null;
+
+    // picks the feedback for rejected and duplicate scans, success feedback is left to the scanner
+    private final FeedbackRuleEngine<PgPredefinedFeedback> feedbackRules =
+            new FeedbackRuleEngine.Builder<PgPredefinedFeedback>()
+                    .add(new FeedbackRuleEngine.Rule<>(
+                            PgPredefinedFeedback.ERROR,
+                            FeedbackRuleEngine.PRIORITY_HIGH,
+                            ScanOutcome.REJECTED
+                    ))
+                    .add(new FeedbackRuleEngine.Rule<>(
+                            PgPredefinedFeedback.ERROR,
+                            FeedbackRuleEngine.PRIORITY_HIGH,
+                            ScanOutcome.LOOKUP_MISS
+                    ))
+                    .add(new FeedbackRuleEngine.Rule<>(
+                            PgPredefinedFeedback.SPECIAL_1,
+                            FeedbackRuleEngine.PRIORITY_NORMAL,
+                            ScanOutcome.DUPLICATE
+                    ))
+                    .replaceQueueFrom(FeedbackRuleEngine.PRIORITY_HIGH)
+                    .build();
+
+    // verifies scans against the pick list loaded by loadPickList
+    private final PickListStage pickListStage = new PickListStage();
+
+    // decodes captured images downsampled to the view on a thread of its own, reusing the pixels of earlier captures
+    private final ScaledBitmapDecoder imageDecoder = new ScaledBitmapDecoder();
+
+    // the image currently shown in imageTakenIV, released to the decoder once it is replaced
+    private Bitmap shownImage;
+
+    // item details shown on the display for scanned barcodes, opened by openMasterData
+    private volatile MasterDataStore masterData;
+
+    // bound by lookups on the pipeline thread only
+    private MasterDataStore.Record masterDataRecord;
+
+    // parses and validates scanned barcodes off the callback threads
+    private ScanPipeline scanPipeline;
+
+    // received scans survive a process death here until they are handled
+    private volatile ScanJournal scanJournal;
+    private ScanOutbox scanOutbox;
+
+    // captured images wait here until they are uploaded
+    private volatile ImageStore imageStore;
+    private ImageOutbox imageOutbox;
+
+    // merges scan results and status changes from SDK callbacks into one UI update per frame
+    private UiUpdateCoalescer uiUpdater;
+
+    // counts the scans of a burst, reported once no scan followed for SCAN_BURST_QUIET_MS
+    private final AtomicInteger burstScanCount = new AtomicInteger();
+    private EventSubscription burstScanCounter;
+    private EventProcessor<DeviceEventStreams.Scan, DeviceEventStreams.Scan> scanBurstEnd;
+
     // Connection
     private Button serviceConnectBtn;
     private Button scannerConnectBtn;
@@ -155,10 +265,15 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        connectionManager = ((SdkSampleApplication) getApplication()).getConnectionManager();
+        connectionManager.getTrace().mark(StartupTrace.Milestone.ACTIVITY_CREATED);
+        pgManager = connectionManager.getPgManager();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_sdk_sample);
 
         initViews();
+        uiUpdater = new UiUpdateCoalescer(new ChoreographerFrameScheduler(), this::renderUiUpdate);
+        displayQueue = new DisplayCommandQueue<>(new HandlerScheduler(), this::sendQueuedScreen);
         initData();
         initClickListeners();
         addDisplayV2ClickListeners();
@@ -168,12 +283,18 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         updateButtonStates();
         setDefaultImageConfiguration();
 
-        pgManager.subscribeToServiceEvents(this);
-        pgManager.subscribeToScans(this);
-        pgManager.subscribeToButtonPresses(this);
-        pgManager.subscribeToPgTriggersUnblocked(this);
-        pgManager.subscribeToPgScannerConfigurationChanges(this);
-        pgManager.subscribeToDisplayEvents(this);
+        scanPipeline = new ScanPipeline(
+                Arrays.asList(new Gs1ParseStage(), new CheckDigitStage(), pickListStage),
+                this::onScanProcessed
+        );
+        openScanJournal();
+        openImageStore();
+        loadPickList();
+        openMasterData();
+
+        // the subscription ends with the activity, the SDK subscriptions of the connection manager stay
+        connectionManager.subscribe(this, this);
+        observeScanBursts();
     }
 
     @Override
@@ -181,56 +302,167 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         super.onResume();
 
         // Make sure that app is connected to the service to be able to use other SDK functions
-        pgManager.ensureConnectionToService(getApplicationContext());
+        connectionManager.connect();
     }
 
     @Override
     protected void onDestroy() {
-        pgManager.unsubscribeFromServiceEvents(this);
-        pgManager.unsubscribeFromScans(this);
-        pgManager.unsubscribeFromButtonPresses(this);
-        pgManager.unsubscribeFromPgTriggersUnblocked(this);
-        pgManager.unsubscribeFromPgScannerConfigurationChanges(this);
+        if (burstScanCounter != null) {
+            burstScanCounter.cancel();
+            burstScanCounter = null;
+        }
+        if (scanBurstEnd != null) {
+            scanBurstEnd.cancel();
+            scanBurstEnd = null;
+        }
+        logger.log(Level.INFO, "Callback dispatcher: " + CallbackDispatcher.getShared().metrics());
+        logger.log(Level.INFO, "Config profiles: " + connectionManager.getProfiles().metrics());
+        if (scanDeduplicator != null) {
+            logger.log(Level.INFO, "Duplicate suppression: " + scanDeduplicator.metrics());
+        }
+        PickListIndex pickList = pickListStage.getIndex();
+        if (pickList != null) {
+            logger.log(Level.INFO, "Pick list: " + pickList.metrics());
+        }
+        scanPipeline.close();
+        logger.log(Level.INFO, "Scan pipeline: " + scanPipeline.metrics());
+        scanPipeline.logReport();
+        if (imageOutbox != null) {
+            logger.log(Level.INFO, "Image outbox: " + imageOutbox.metrics());
+        }
+        logger.log(Level.INFO, "Adaptive capture: " + CAPTURE_CONTROLLER.metrics());
+        if (imageStore != null) {
+            logger.log(Level.INFO, "Image store: " + imageStore.metrics());
+        }
+        // every outbox before the storage it reads from
+        closeInBackground(scanOutbox, scanJournal, imageOutbox, imageStore);
+        scanOutbox = null;
+        scanJournal = null;
+        imageOutbox = null;
+        imageStore = null;
+        logger.log(Level.INFO, "Image decoder: " + imageDecoder.metrics());
+        imageTakenIV.setImageDrawable(null);
+        shownImage = null;
+        imageDecoder.clear();
         super.onDestroy();
     }
 
+    /**
+     * Reports the number of scans of each burst once the burst is over, using the scan stream of the connection
+     * manager.
+     */
+    private void observeScanBursts() {
+        EventStream<DeviceEventStreams.Scan> scans = connectionManager.getStreams().getScans();
+        burstScanCounter = EventStreams.observe(scans, scan -> burstScanCount.incrementAndGet());
+        scanBurstEnd = EventStreams.debounce(scans, SCAN_BURST_QUIET_MS, new HandlerScheduler());
+        EventStreams.observe(scanBurstEnd, lastScan -> {
+            int count = burstScanCount.getAndSet(0);
+            if (count > 1) {
+                uiUpdater.postMessage(count + " scans in the last burst, last: " + lastScan.getBarcode());
+            }
+        });
+    }
+
     /*
      * IServiceOutput Implementation:
      */
     @Override
     public void onServiceConnected() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                updateButtonStates();
-            }
-        });
+        uiUpdater.postConnectionState();
     }
 
     @Override
     public void onServiceDisconnected() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                updateButtonStates();
-            }
-        });
+        uiUpdater.postConnectionState();
     }
     /*
      * End of IServiceOutput Implementation
      */
 
+    /**
+     * Shows what the scan pipeline found out about a scan and sends the feedback the rules pick for it. Called on
+     * the pipeline thread.
+     */
+    private void onScanProcessed(PipelineScan scan) {
+        if (scan.isRejected()) {
+            uiUpdater.postMessage("Barcode " + scan.getBarcode() + " rejected: " + scan.getRejectReason());
+        } else if (scan.getLookup() != PipelineScan.Lookup.NONE) {
+            postPickResult(scan);
+        } else if (scan.getGs1().getCount() > 0) {
+            uiUpdater.postMessage("GS1 elements: " + scan.getGs1());
+        }
+        triggerRuleFeedback(scan.getSymbology(), scan.getBarcode(), ScanOutcome.of(scan), scan.getScanToken());
+        if (!scan.isRejected()) {
+            showItemDetails(scan);
+        }
+    }
+
+    /**
+     * Looks the scanned item up in the master data and shows its fields on the display. GS1 barcodes are looked up by
+     * their GTIN.
+     */
+    private void showItemDetails(PipelineScan scan) {
+        MasterDataStore store = masterData;
+        if (store == null || !pgManager.isConnectedToDisplay()) {
+            return;
+        }
+        if (masterDataRecord == null) {
+            masterDataRecord = store.newRecord();
+        }
+        int gtin = scan.getGs1().indexOf(GTIN_AI);
+        boolean found = gtin >= 0
+                ? store.find(scan.getGs1().getData(), masterDataRecord, scan.getGs1().valueStart(gtin),
+                        scan.getGs1().valueEnd(gtin))
+                : store.find(scan.getBarcode(), masterDataRecord);
+        int fieldCount = Math.min(store.getFieldCount(), MAX_TEMPLATE_FIELDS);
+        if (!found || fieldCount == 0) {
+            return;
+        }
+        PgTemplateField[] templateFields = new PgTemplateField[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            templateFields[i] = new PgTemplateField(i + 1, store.getFieldNames().get(i), masterDataRecord.field(i));
+        }
+        runOnUiThread(() -> sendScreen("PG" + fieldCount, templateFields));
+    }
+
+    private void postPickResult(PipelineScan scan) {
+        PickListIndex index = pickListStage.getIndex();
+        if (index == null) {
+            return;
+        }
+        int remaining = pickListStage.remaining(scan);
+        boolean picked = scan.getLookup() == PipelineScan.Lookup.HIT;
+        if (picked && index.isComplete()) {
+            uiUpdater.postMessage("Picked " + scan.getBarcode() + ", pick list complete");
+        } else if (picked) {
+            uiUpdater.postMessage("Picked " + scan.getBarcode() + ", " + remaining + " left");
+        } else if (remaining == 0) {
+            uiUpdater.postMessage(scan.getBarcode() + " is picked completely already");
+        } else {
+            uiUpdater.postMessage(scan.getBarcode() + " is not on the pick list");
+        }
+    }
+
     /*
      * IScannerOutput Implementation:
      */
     @Override
     public void onBarcodeScanned(@NonNull final BarcodeScanResults barcodeScanResults) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                updateScannedResults(barcodeScanResults);
-            }
-        });
+        long scanToken = latencyTracker.scanReceived();
+        String symbology = barcodeScanResults.getSymbology() == null ? "" : barcodeScanResults.getSymbology();
+        if (scanDeduplicator != null
+                && scanDeduplicator.isDuplicate(barcodeScanResults.getBarcodeContent(), symbology, SCAN_SOURCE)) {
+            Log.d(TAG, "Dropped duplicate barcode: " + barcodeScanResults.getBarcodeContent());
+            triggerRuleFeedback(symbology, barcodeScanResults.getBarcodeContent(), ScanOutcome.DUPLICATE, scanToken);
+            return;
+        }
+        ScanJournal journal = scanJournal;
+        if (journal != null) {
+            journal.append(barcodeScanResults.getBarcodeContent(), symbology, SCAN_SOURCE);
+        }
+        scanPipeline.submit(barcodeScanResults.getBarcodeContent(), symbology, SCAN_SOURCE, scanToken);
+        updateScannedResults(barcodeScanResults);
+        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.PROCESSED);
     }
 
     @Override
@@ -245,12 +477,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
 
     @Override
     public void onScannerStateChanged(@NonNull ConnectionStatus connectionStatus) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                updateButtonStates();
-            }
-        });
+        uiUpdater.postConnectionState();
     }
     /*
      * End of IScannerOutput Implementation
@@ -262,8 +489,9 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
     @Override
     public void onButtonPressed(@NonNull final ButtonPress buttonPress) {
         String msg = getString(R.string.button_pressed, buttonPress.getId());
-        updateScreenContextOutput(buttonPress.getScreenContext());
-        showMessage(msg, false);
+        Log.d(TAG, msg);
+        uiUpdater.postScreenContext(getScreenId(buttonPress.getScreenContext()));
+        uiUpdater.postMessage(msg);
     }
     /*
      * End of IButtonOutput Implementation
@@ -275,21 +503,20 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
     @Override
     public void onDisplayConnected() {
         // Buttons already updated in #onDisplayStateChanged
+        displaySession.invalidate();
+        displayQueue.reset();
     }
 
     @Override
     public void onDisplayDisconnected() {
         // Buttons already updated in #onDisplayStateChanged
+        displaySession.invalidate();
+        displayQueue.reset();
     }
 
     @Override
     public void onDisplayStateChanged(@NonNull ConnectionStatus connectionStatus) {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                updateButtonStates();
-            }
-        });
+        uiUpdater.postConnectionState();
     }
     /*
      * End of IDisplayOutput Implementation
@@ -341,7 +568,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                 ).show();
             }
         });
-        // Refresh the profiles list
+        // Refresh the profiles list, the connection manager invalidated the cached ones already
         getConfigProfiles();
     }
     /*
@@ -423,7 +650,19 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         triggerFeedbackBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                triggerFeedback();
+                // triggered by hand, it answers no scan and is not timed
+                triggerFeedback(
+                        getSelectedFeedback(),
+                        sendFeedbackWithReplaceQueueSwitch.isChecked(),
+                        ScanLatencyTracker.NO_SCAN
+                );
+            }
+        });
+        triggerFeedbackBtn.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                dumpLatencyReport();
+                return true;
             }
         });
 
@@ -522,8 +761,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                         new PgTemplateField(2, "Fahrzeug-Typ", "Hatchback"),
                         new PgTemplateField(3, "Teilenummer", "K867 86 027 H3")
                 };
-                PgScreenData screenData = new PgScreenData("PG3", data, RefreshType.DEFAULT);
-                sendScreen(screenData);
+                sendScreen("PG3", data);
             }
         });
 
@@ -534,8 +772,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                         new PgTemplateField(1, "Bezeichnung", "Gemüsemischung"),
                         new PgTemplateField(2, "Bezeichnung", "Früchte Müsli")
                 };
-                PgScreenData screenData = new PgScreenData("PG2", data, RefreshType.PARTIAL_REFRESH);
-                sendScreen(screenData);
+                sendScreen("PG2", data);
             }
         });
 
@@ -545,8 +782,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                 PgTemplateField[] data = {
                         new PgTemplateField(1, "LOGIN", "Scan to login and select a process")
                 };
-                PgScreenData screenData = new PgScreenData("PG1", data, RefreshType.DEFAULT);
-                sendScreen(screenData);
+                sendScreen("PG1", data);
             }
         });
 
@@ -556,8 +792,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                 PgTemplateField[] data = {
                         new PgTemplateField(1, "", "Scan order to begin")
                 };
-                PgScreenData screenData = new PgScreenData("PG1A", data, RefreshType.DEFAULT);
-                sendScreen(screenData);
+                sendScreen("PG1A", data);
             }
         });
 
@@ -569,8 +804,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                         new PgTemplateField(2, "Ziel", "V69SS561"),
                         new PgTemplateField(3, "Sachnummer", "A 910 689 61 00", "9051")
                 };
-                PgScreenData screenData = new PgScreenData("PG3", data, RefreshType.DEFAULT);
-                sendScreen(screenData);
+                sendScreen("PG3", data);
             }
         });
 
@@ -583,8 +817,7 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                         new PgTemplateField(3, "and I'd like to take", "a minute just sit right there"),
                         new PgTemplateField(4, "I'll tell you how I become", "the prince of a town called Bel Air")
                 };
-                PgScreenData screenData = new PgScreenData("PG1", data, RefreshType.DEFAULT);
-                sendScreen(screenData);
+                sendScreen("PG1", data);
             }
         });
 
@@ -606,55 +839,56 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         });
     }
 
+    /**
+     * Queues a Display V2 screen on the {@link #displayQueue}. The callback is not called if a newer screen replaces
+     * this one before it was sent.
+     */
+    private void sendScreenV2(PgScreen screen, IPgSetScreenCallback callback) {
+        displayQueue.submit(ScreenRequest.forScreen(screen, callback));
+    }
+
+    /**
+     * Sends a screen taken from the {@link #displayQueue}. Template screens go through the {@link DisplaySession} only
+     * now, so it decides against the screen actually shown and not against one that was replaced in the queue. It
+     * skips unchanged screens and picks the partial refresh for a changed screen of the template already shown.
+     */
+    private void sendQueuedScreen(final long requestId, final ScreenRequest request) {
+        IPgSetScreenCallback resultCallback = new IPgSetScreenCallback() {
+            @Override
+            public void onSuccess() {
+                displayQueue.onResult(requestId, true);
+                request.callback.onSuccess();
+            }
+
+            @Override
+            public void onError(@NonNull PgError error) {
+                displayQueue.onResult(requestId, false);
+                request.callback.onError(error);
+            }
+        };
+        if (request.screen != null) {
+            // Display V2 screens replace the template screen tracked by the display session
+            displaySession.invalidate();
+            pgManager.setScreen(request.screen.toCommand(), resultCallback);
+            return;
+        }
+        DisplaySession.Decision decision =
+                displaySession.decide(request.templateId, Arrays.asList(request.templateFields));
+        if (decision == DisplaySession.Decision.SKIP) {
+            displayQueue.onResult(requestId, true);
+            showMessage("Screen unchanged, not sent", false);
+            return;
+        }
+        RefreshType refreshType = decision == DisplaySession.Decision.PARTIAL_REFRESH
+                ? RefreshType.PARTIAL_REFRESH
+                : RefreshType.DEFAULT;
+        pgManager.setScreen(new PgScreenData(request.templateId, request.templateFields, refreshType), resultCallback);
+    }
+
     private void addDisplayV2ClickListeners() {
         sendPgNtfT5Btn.setOnClickListener(view -> {
-            pgManager.setScreen(
-                new PgScreen(
-                    "screenId",
-                    new PgScreenView.TemplateV2.NotificationView.PgNtfT5(
-                        "",
-                        "Notification",
-                        "This is a message with two buttons",
-                        new PgScreenComponent.Button(
-                            "BUTTON_PRIMARY",
-                            "OK",
-                            Notify.INSTANCE
-                        ),
-                        new PgScreenComponent.Button(
-                            "BUTTON_SECONDARY",
-                            "Cancel",
-                            Notify.INSTANCE
-                        )
-                    ),
-                    new PgActionButtons(
-                        new Assigned(
-                            "actionButton1",
-                            "Notify",
-                            Yellow.INSTANCE,
-                            Notify.INSTANCE
-                        ),
-                        new Assigned(
-                            "actionButton3",
-                            "Ok",
-                            Cyan.INSTANCE,
-                            new PgScreenAction.ClickOnPgScreenComponent("BUTTON_PRIMARY")
-                        ),
-                        new Assigned(
-                            "actionButton4",
-                            "Cancel",
-                            Green.INSTANCE,
-                            new PgScreenAction.ClickOnPgScreenComponent("BUTTON_SECONDARY")
-                        ),
-                        new Assigned(
-                            "actionButton2",
-                            "Back",
-                            Red.INSTANCE,
-                            NavigateBack.INSTANCE
-                        )
-                    ),
-                    Disabled.INSTANCE,
-                    PgScreenOrientation.LANDSCAPE
-                ).toCommand(),
+            sendScreenV2(
+                DisplayV2Screens.getPgNtfT5(),
                 new IPgSetScreenCallback() {
                     @Override
                     public void onSuccess() {
@@ -682,72 +916,8 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         });
 
         sendPgWork3Btn2T1.setOnClickListener(view -> {
-            pgManager.setScreen(
-                new PgScreen(
-                    "screenId",
-                    new WorkflowView[] {
-                        new PgWork3Btn2T1(
-                            "",
-                            new TextField(
-                                "fieldTop",
-                                "Top Field",
-                                "Workflow View with 2 buttons and 1 text field",
-                                NoState.INSTANCE
-                            ),
-                            new TextField(
-                                "",
-                                "Middle Left Field",
-                                "This is the left field in the middle section",
-                                NoState.INSTANCE
-                            ),
-                            new TextField(
-                                "fieldMiddleRight",
-                                "Middle Right Field",
-                                "This is the right field in the middle section",
-                                NoState.INSTANCE,
-                                new NumPad()
-                            ),
-                            new PgScreenComponent.Button(
-                                "button1",
-                                "Ok",
-                                Notify.INSTANCE
-                            ),
-                            new PgScreenComponent.Button(
-                                "button2",
-                                "Cancel",
-                                Notify.INSTANCE
-                            )
-                        ),
-                        new PgWork1T1(
-                            "",
-                            new TextField(
-                                "",
-                                "Main Field",
-                                "This is the main text field",
-                                NoState.INSTANCE
-                            )
-                        )
-                    },
-                    "",
-                    new PgActionButtons(
-                        Unassigned.INSTANCE,
-                        Unassigned.INSTANCE,
-                        new Assigned(
-                            "actionButton1",
-                            "Notify",
-                            Green.INSTANCE,
-                            Notify.INSTANCE
-                        ),
-                        new Assigned(
-                            "actionButton2",
-                            "Back",
-                            Red.INSTANCE,
-                            NavigateBack.INSTANCE
-                        )
-                    ),
-                    Disabled.INSTANCE,
-                    PgScreenOrientation.PORTRAIT
-                ).toCommand(),
+            sendScreenV2(
+                DisplayV2Screens.getPgWork3Btn2T1(),
                 new IPgSetScreenCallback() {
                     @Override
                     public void onSuccess() {
@@ -775,76 +945,8 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         });
 
         sendPgListT1Btn.setOnClickListener(view -> {
-            List<PgListT1Item> listItems = Arrays.asList(
-                new PgListViewItem.PgListT1Item(
-                    "",
-                    Notify.INSTANCE,
-                    "Item 1",
-                    "Description 1",
-                    None.INSTANCE,
-                    "1"
-                ),
-                new PgListViewItem.PgListT1Item(
-                    "",
-                    Notify.INSTANCE,
-                    "Item 2",
-                    "Description 2",
-                    Arrow.INSTANCE,
-                    "2"
-                ),
-                new PgListViewItem.PgListT1Item(
-                    "",
-                    Notify.INSTANCE,
-                    "Item 3",
-                    "Description 3",
-                    None.INSTANCE,
-                    "3"
-                ),
-                new PgListViewItem.PgListT1Item(
-                    "",
-                    Notify.INSTANCE,
-                    "Item 4",
-                    "Description 4",
-                    Arrow.INSTANCE,
-                    "4"
-                ),
-                new PgListViewItem.PgListT1Item(
-                    "",
-                    Notify.INSTANCE,
-                    "Item 5",
-                    "Description 5",
-                    None.INSTANCE,
-                    "5"
-                )
-            );
-
-            pgManager.setScreen(
-                new PgScreen(
-                    "screenId",
-                    new PgScreenView.TemplateV2.ListView.PgListT1(
-                        "",
-                        "List View Example",
-                        listItems
-                    ),
-                    new PgActionButtons(
-                        Unassigned.INSTANCE,
-                        Unassigned.INSTANCE,
-                        new Assigned(
-                            "actionButton1",
-                            "Notify",
-                            Yellow.INSTANCE,
-                            Notify.INSTANCE
-                        ),
-                        new Assigned(
-                            "actionButton2",
-                            "Back",
-                            Red.INSTANCE,
-                            NavigateBack.INSTANCE
-                        )
-                    ),
-                    Disabled.INSTANCE,
-                    PgScreenOrientation.PORTRAIT
-                ).toCommand(),
+            sendScreenV2(
+                DisplayV2Screens.getPgListT1(),
                 new IPgSetScreenCallback() {
                     @Override
                     public void onSuccess() {
@@ -872,29 +974,8 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         });
 
         sendTimerScreenBtn.setOnClickListener(view -> {
-            pgManager.setScreen(
-                new PgScreen(
-                    "timerScreen",
-                    new PgScreenView.TemplateV2.WorkflowView.PgWork1T1(
-                        "",
-                        new PgScreenComponent.TextField(
-                            "",
-                            "Timer Example",
-                            "This screen will automatically navigate back after 2 seconds.",
-                            new PgScreenComponent.TextField.State.Focused(true)
-                        )
-                    ),
-										new PgActionButtons(
-												Unassigned.INSTANCE,
-												Unassigned.INSTANCE,
-												Unassigned.INSTANCE,
-												Unassigned.INSTANCE),
-                    new PgScreenTimer.Enabled(
-                        2000,
-                        NavigateBack.INSTANCE
-                    ),
-                    PgScreenOrientation.PORTRAIT
-                ).toCommand(),
+            sendScreenV2(
+                DisplayV2Screens.getTimerScreen(),
                 new IPgSetScreenCallback() {
                     @Override
                     public void onSuccess() {
@@ -938,15 +1019,33 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         }
     }
 
-    private void triggerFeedback() {
-        boolean replaceQueueSwitchChecked = sendFeedbackWithReplaceQueueSwitch.isChecked();
+    /**
+     * Sends the feedback of the rule matching a scan, if any.
+     *
+     * @param scanToken latency token of the scan.
+     */
+    private void triggerRuleFeedback(String symbology, String barcode, int outcomes, long scanToken) {
+        FeedbackRuleEngine.Rule<PgPredefinedFeedback> rule = feedbackRules.evaluate(symbology, barcode, outcomes);
+        if (rule != null) {
+            triggerFeedback(rule.getFeedback(), feedbackRules.replacesQueue(rule), scanToken);
+        }
+    }
+
+    /**
+     * Sends {@code feedback} to the scanner and times it against the scan with {@code scanToken}, if it answers one.
+     *
+     * @param scanToken latency token of the scan, {@link ScanLatencyTracker#NO_SCAN} for feedback that answers no
+     *                  scan.
+     */
+    private void triggerFeedback(PgPredefinedFeedback feedback, boolean replaceQueue, final long scanToken) {
         // Creating new PgCommandParams setting the queueing behaviour
-        PgCommandParams params = new PgCommandParams(replaceQueueSwitchChecked);
+        PgCommandParams params = new PgCommandParams(replaceQueue);
         // Wrapping the feedback data in a PgCommand with the PgCommandData
-        PgCommand<PgPredefinedFeedback> feedbackCommand = getSelectedFeedback().toCommand(params);
+        PgCommand<PgPredefinedFeedback> feedbackCommand = feedback.toCommand(params);
         pgManager.triggerFeedback(feedbackCommand, new IPgFeedbackCallback() {
             @Override
             public void onSuccess() {
+                latencyTracker.record(scanToken, ScanLatencyTracker.Stage.FEEDBACK_ACKED);
                 Log.d(TAG, "Feedback successfully played.");
             }
 
@@ -956,6 +1055,21 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                 showMessage(msg, true);
             }
         });
+        latencyTracker.record(scanToken, ScanLatencyTracker.Stage.FEEDBACK_SENT);
+    }
+
+    /**
+     * Dumps p50, p99 and p999 of the scan-to-feedback latencies to logcat and to a file in the app storage.
+     */
+    private void dumpLatencyReport() {
+        File reportFile = new File(getFilesDir(), LATENCY_REPORT_FILE_NAME);
+        latencyTracker.logReport();
+        try {
+            latencyTracker.writeReport(reportFile);
+            showMessage("Latency report written to " + reportFile.getPath(), false);
+        } catch (IOException e) {
+            showMessage("Writing the latency report failed: " + e.getMessage(), true);
+        }
     }
 
     private void changeScannerConfig(final boolean isDefault) {
@@ -994,22 +1108,47 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
         String timeoutString = timeoutET.getText().toString();
         int timeout = timeoutString.isEmpty() ? DEFAULT_IMAGE_TIMEOUT : Integer.parseInt(timeoutString);
 
-        PgImageConfig imageConfig = new PgImageConfig(quality, getSelectedImageResolution());
+        ImageResolution resolution = getSelectedImageResolution();
+        // the adaptive setting picks resolution, quality and timeout from the transfer times measured so far
+        final AdaptiveCaptureController.Attempt<ImageResolution> attempt;
+        if (resolutionRadioGroup.getCheckedRadioButtonId() == R.id.adaptiveResolution) {
+            attempt = CAPTURE_CONTROLLER.next();
+            resolution = attempt.getSetting().getResolution();
+            quality = attempt.getSetting().getQuality();
+            timeout = (int) attempt.getTimeoutMs();
+            imageQualityET.setText(String.valueOf(quality));
+            timeoutET.setText(String.valueOf(timeout));
+        } else {
+            attempt = null;
+        }
+
+        PgImageConfig imageConfig = new PgImageConfig(quality, resolution);
+        // the image arrives on an SDK thread, read the view size here on the main thread
+        final int targetWidth = getImageTargetWidth();
+        final int targetHeight = getImageTargetHeight();
 
         pgManager.takeImage(imageConfig, timeout, new IPgImageCallback() {
             @Override
             public void onImageReceived(@NonNull final PgImage pgImage) {
-                final Bitmap bmp = BitmapFactory.decodeByteArray(pgImage.getBytes(), 0, pgImage.getBytes().length);
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        imageTakenIV.setImageBitmap(bmp);
+                // getBytes may copy, read it once
+                byte[] bytes = pgImage.getBytes();
+                if (attempt != null) {
+                    CAPTURE_CONTROLLER.onReceived(attempt, bytes.length);
+                    Log.d(TAG, "Adaptive capture of " + bytes.length + " bytes with " + attempt.getSetting());
+                }
+                storeImage(bytes);
+                imageDecoder.decode(bytes, targetWidth, targetHeight, bitmap -> {
+                    if (bitmap != null) {
+                        runOnUiThread(() -> showTakenImage(bitmap));
                     }
                 });
             }
 
             @Override
             public void onError(@NonNull final PgError pgError) {
+                if (attempt != null) {
+                    CAPTURE_CONTROLLER.onFailed(attempt);
+                }
                 final String msg = "Taking an image failed. Error code is: " + pgError;
                 showMessage(msg, true);
             }
@@ -1017,9 +1156,37 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
 
     }
 
-    private void sendScreen(PgScreenData screenData) {
+    private void showTakenImage(Bitmap bitmap) {
+        if (isDestroyed()) {
+            imageDecoder.release(bitmap);
+            return;
+        }
+        Bitmap previous = shownImage;
+        imageTakenIV.setImageBitmap(bitmap);
+        shownImage = bitmap;
+        // the view no longer draws the previous image, its pixels can take the next capture
+        if (previous != null) {
+            imageDecoder.release(previous);
+        }
+    }
+
+    private int getImageTargetWidth() {
+        int width = imageTakenIV.getWidth();
+        return width > 0 ? width : getResources().getDisplayMetrics().widthPixels;
+    }
+
+    private int getImageTargetHeight() {
+        int height = imageTakenIV.getHeight();
+        return height > 0 ? height : getResources().getDisplayMetrics().heightPixels;
+    }
+
+    /**
+     * Queues a template screen on the {@link #displayQueue}. A screen replaced by a newer one before it was sent is
+     * dropped without a message.
+     */
+    private void sendScreen(String templateId, PgTemplateField[] data) {
         if (pgManager.isConnectedToService() && pgManager.isConnectedToDisplay()) {
-            pgManager.setScreen(screenData, new IPgSetScreenCallback() {
+            displayQueue.submit(ScreenRequest.forTemplate(templateId, data, new IPgSetScreenCallback() {
                 @Override
                 public void onSuccess() {
                     String msg = "Screen set successfully";
@@ -1028,10 +1195,11 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
 
                 @Override
                 public void onError(@NonNull final PgError pgError) {
+                    displaySession.invalidate();
                     String msg = "Setting the screen failed. Error: " + pgError;
                     showMessage(msg, true);
                 }
-            });
+            }));
         }
     }
 
@@ -1116,31 +1284,46 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
     }
 
     private void updateScannedResults(@NonNull BarcodeScanResults barcodeScanResults) {
-        scannerResultTV.setText(barcodeScanResults.getBarcodeContent());
         String symbology = barcodeScanResults.getSymbology();
         if (symbology == null) {
             symbology = "";
         }
-        updateScreenContextOutput(barcodeScanResults.getScreenContext());
-
-        resultSymbologyTV.setText(symbology);
+        uiUpdater.postScan(barcodeScanResults.getBarcodeContent(), symbology);
+        uiUpdater.postScreenContext(getScreenId(barcodeScanResults.getScreenContext()));
 
         String msg = !symbology.isEmpty() ?
                 getString(R.string.new_scan_notification, barcodeScanResults.getBarcodeContent(), symbology) :
                 getString(R.string.new_scan_no_symbology_notification, barcodeScanResults.getBarcodeContent());
-        showMessage(msg, false);
+        Log.d(TAG, msg);
+        uiUpdater.postMessage(msg);
     }
 
-    private void updateScreenContextOutput(PgScreenContext screenContext) {
-        runOnUiThread(() -> {
-            String screenId = screenContext == null ? "" : screenContext.getScreenId();
-            String outputText = "Screen ID: " + screenId;
-            screenContextOutput.setText(screenId.isEmpty() ? "" : outputText);
-        });
+    private static String getScreenId(PgScreenContext screenContext) {
+        return screenContext == null ? null : screenContext.getScreenId();
+    }
+
+    /**
+     * Applies all scan results and status changes received since the last frame.
+     */
+    private void renderUiUpdate(UiUpdate update) {
+        if (update.has(UiUpdate.SCAN)) {
+            scannerResultTV.setText(update.getBarcode());
+            resultSymbologyTV.setText(update.getSymbology());
+        }
+        if (update.has(UiUpdate.SCREEN_CONTEXT)) {
+            String screenId = update.getScreenId();
+            screenContextOutput.setText(screenId == null || screenId.isEmpty() ? "" : "Screen ID: " + screenId);
+        }
+        if (update.has(UiUpdate.CONNECTION_STATE)) {
+            updateButtonStates();
+        }
+        for (String message : update.getMessages()) {
+            Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
+        }
     }
 
     private void setupProfilesRecycler() {
-        profilesAdapter = new ProfilesAdapter(new ArrayList<ProfileUiData>(), new ProfileClickListener() {
+        profilesAdapter = new ProfilesAdapter(new ProfilesAdapter.OnProfileClickListener() {
             @Override
             public void onProfileClicked(String profileId) {
                 changeConfigProfile(profileId);
@@ -1151,6 +1334,201 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
     }
 
     @SuppressLint("SetTextI18n")
+    /**
+     * Opens the scan journal and reports the scans a previous run left unhandled, without blocking the main thread
+     * for the recovery and the replay. Scans are journaled once the replay is done. With a configured
+     * {@link BuildConfig#SCAN_OUTBOX_URL}, journaled scans are posted there as well.
+     */
+    private void openScanJournal() {
+        final File directory = new File(getFilesDir(), SCAN_JOURNAL_DIRECTORY_NAME);
+        IoExecutor.getShared().execute(() -> {
+            final ScanJournal journal;
+            try {
+                journal = ScanJournal.open(directory);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open the scan journal, scans are not journaled", e);
+                return;
+            }
+            final long[] lastSequence = new long[1];
+            int count = journal.replay(record -> {
+                lastSequence[0] = record.getSequence();
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "journaled scan: " + record);
+                }
+            });
+            if (count > 0) {
+                uiUpdater.postMessage(count + " scans recovered from the journal");
+                acknowledgeWithoutOutbox(journal, lastSequence[0]);
+            }
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    journal.close();
+                    return;
+                }
+                scanJournal = journal;
+                startScanOutbox(journal);
+            });
+        });
+    }
+
+    /**
+     * Opens the store of captured images without blocking the main thread for the recovery of the store. With a
+     * configured {@link BuildConfig#IMAGE_OUTBOX_URL}, the captures are uploaded there. Captures arriving before the
+     * store is open are not kept.
+     */
+    private void openImageStore() {
+        final File directory = new File(getFilesDir(), IMAGE_STORE_DIRECTORY_NAME);
+        IoExecutor.getShared().execute(() -> {
+            final ImageStore store;
+            try {
+                store = ImageStore.open(directory);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open the image store, captured images are not kept", e);
+                return;
+            }
+            final ImageOutbox outbox = startImageOutbox(store);
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    closeInBackground(outbox, store);
+                    return;
+                }
+                imageStore = store;
+                imageOutbox = outbox;
+            });
+        });
+    }
+
+    /**
+     * Starts uploading the captures of {@code store} to the configured {@link BuildConfig#IMAGE_OUTBOX_URL}, if there
+     * is one.
+     *
+     * @return the started outbox, null if captures are not uploaded.
+     */
+    private ImageOutbox startImageOutbox(ImageStore store) {
+        if (BuildConfig.IMAGE_OUTBOX_URL.isEmpty()) {
+            return null;
+        }
+        HttpImageSink sink;
+        try {
+            sink = new HttpImageSink(new URL(BuildConfig.IMAGE_OUTBOX_URL));
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid image outbox URL, captured images are not uploaded", e);
+            return null;
+        }
+        ImageOutbox outbox = new ImageOutbox(store, sink);
+        outbox.start();
+        return outbox;
+    }
+
+    /**
+     * Closes {@code closeables} one after another on the I/O executor. Closing an outbox waits for an upload in
+     * progress, which can take as long as the timeouts of its sink.
+     */
+    private void closeInBackground(final Closeable... closeables) {
+        IoExecutor.getShared().execute(() -> {
+            for (Closeable closeable : closeables) {
+                if (closeable == null) {
+                    continue;
+                }
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not close " + closeable, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a captured image to the image store in the background.
+     */
+    private void storeImage(final byte[] bytes) {
+        final ImageStore store = imageStore;
+        if (store == null) {
+            return;
+        }
+        IoExecutor.getShared().execute(() -> {
+            try {
+                ImageStore.Capture capture = store.save(bytes);
+                Log.d(TAG, "Image stored as " + capture.getName() + ", " + capture.getSize() + " bytes");
+            } catch (IOException | IllegalStateException e) {
+                Log.e(TAG, "Could not store the captured image", e);
+            }
+        });
+    }
+
+    /**
+     * Loads the pick list manifest from the files directory in the background, if one was provided. Scans are
+     * verified against it once it is loaded.
+     */
+    private void loadPickList() {
+        for (String fileName : PICK_LIST_FILE_NAMES) {
+            final File manifest = new File(getFilesDir(), fileName);
+            if (!manifest.isFile()) {
+                continue;
+            }
+            IoExecutor.getShared().execute(() -> {
+                try {
+                    PickListIndex index = PickListLoader.load(manifest);
+                    pickListStage.setIndex(index);
+                    uiUpdater.postMessage("Pick list loaded: " + index.getSize() + " items");
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not load the pick list " + manifest.getName(), e);
+                }
+            });
+            return;
+        }
+    }
+
+    /**
+     * Maps the master data file from the files directory in the background, if one was provided.
+     */
+    private void openMasterData() {
+        final File file = new File(getFilesDir(), MASTER_DATA_FILE_NAME);
+        if (!file.isFile()) {
+            return;
+        }
+        IoExecutor.getShared().execute(() -> {
+            try {
+                MasterDataStore store = MasterDataStore.open(file);
+                masterData = store;
+                Log.d(TAG, "Master data opened: " + store.getRecordCount() + " items, fields " + store.getFieldNames());
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open the master data", e);
+            }
+        });
+    }
+
+    /**
+     * Without a {@link BuildConfig#SCAN_OUTBOX_URL} nothing else handles the recovered scans, reporting them was all
+     * there is to do. Acknowledges them, so the next start does not report them again.
+     */
+    private void acknowledgeWithoutOutbox(ScanJournal journal, long sequence) {
+        if (!BuildConfig.SCAN_OUTBOX_URL.isEmpty()) {
+            return;
+        }
+        try {
+            journal.acknowledge(sequence);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not acknowledge the recovered scans", e);
+        }
+    }
+
+    private void startScanOutbox(ScanJournal journal) {
+        if (BuildConfig.SCAN_OUTBOX_URL.isEmpty()) {
+            return;
+        }
+        HttpScanSink sink;
+        try {
+            sink = new HttpScanSink(new URL(BuildConfig.SCAN_OUTBOX_URL));
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid scan outbox URL, scans are not uploaded", e);
+            return;
+        }
+        scanOutbox = new ScanOutbox(journal, sink);
+        scanOutbox.start();
+    }
+
     private void setDefaultImageConfiguration() {
         PgImageConfig defaultImageConfig = new PgImageConfig();
         defaultImageQuality = defaultImageConfig.getJpegQuality();
@@ -1178,6 +1556,8 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                 new IPgConfigProfileCallback() {
                     @Override
                     public void onConfigProfileChanged(@NonNull PgConfigProfile pgConfigProfile) {
+                        // the next refresh fetches the profiles with the new active one
+                        connectionManager.getProfiles().invalidate();
                         runOnUiThread(new Runnable() {
                             @Override
                             public void run() {
@@ -1208,14 +1588,14 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
     }
 
     private void getConfigProfiles() {
-        pgManager.getConfigProfiles(
-                new IPgGetConfigProfilesCallback() {
+        connectionManager.getProfiles().get(
+                new ProfileRepository.Callback<PgConfigProfile>() {
                     @Override
-                    public void onConfigProfilesReceived(@NonNull PgConfigProfile[] profiles) {
-                        Log.d(TAG, "received " + profiles.length + " config profiles");
+                    public void onProfiles(@NonNull ProfileRepository.Profiles<PgConfigProfile> profiles) {
+                        Log.d(TAG, "received " + profiles.getProfiles().size() + " config profiles");
 
                         final ArrayList<ProfileUiData> uiProfiles = new ArrayList<>();
-                        for (PgConfigProfile profile : profiles) {
+                        for (PgConfigProfile profile : profiles.getProfiles()) {
                             uiProfiles.add(new ProfileUiData(profile.getProfileId(), profile.isActive()));
                         }
 
@@ -1233,13 +1613,13 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
                     }
 
                     @Override
-                    public void onError(@NonNull final PgError pgError) {
+                    public void onError(@NonNull final String message) {
                         runOnUiThread(new Runnable() {
                             @Override
                             public void run() {
                                 Toast.makeText(
                                         getApplicationContext(),
-                                        "Failed to get configuration profiles: " + pgError.toString(),
+                                        "Failed to get configuration profiles: " + message,
                                         Toast.LENGTH_LONG
                                 ).show();
                             }
@@ -1429,21 +1809,32 @@ public class SdkActivity extends AppCompatActivity implements IServiceOutput, IS
             }
         });
     }
-}
 
-interface ProfileClickListener {
-    void onProfileClicked(String profileId);
-}
+    /**
+     * Screen waiting in the {@link #displayQueue} together with the callback of its sender. Either a Display V2
+     * {@link #screen} or a template screen.
+     */
+    private static final class ScreenRequest {
+        final PgScreen screen;
+        final String templateId;
+        final PgTemplateField[] templateFields;
+        final IPgSetScreenCallback callback;
+
+        private ScreenRequest(PgScreen screen, String templateId, PgTemplateField[] templateFields,
+                              IPgSetScreenCallback callback) {
+            this.screen = screen;
+            this.templateId = templateId;
+            this.templateFields = templateFields;
+            this.callback = callback;
+        }
 
-/**
- * Profile data for displaying on UI.
- */
-final class ProfileUiData {
-    String profileId;
-    Boolean active;
+        static ScreenRequest forScreen(PgScreen screen, IPgSetScreenCallback callback) {
+            return new ScreenRequest(screen, null, null, callback);
+        }
 
-    ProfileUiData(String profileId, Boolean active) {
-        this.profileId = profileId;
-        this.active = active;
+        static ScreenRequest forTemplate(String templateId, PgTemplateField[] templateFields,
+                                         IPgSetScreenCallback callback) {
+            return new ScreenRequest(null, templateId, templateFields, callback);
+        }
     }
 }
@@ -0,0 +1,29 @@
+package com.example.pgsdksamplejavaapp;
+
+import android.app.Application;
+import de.proglove.example.common.metrics.StartupTrace;
+
+/**
+ * Starts the connection to the Connect service as early as the process starts.
+ */
+public class SdkSampleApplication extends Application {
+
+    private PgConnectionManager connectionManager;
+
+    @Override
+    public void onCreate() {
+        StartupTrace.getShared().mark(StartupTrace.Milestone.APPLICATION_CREATED);
+        super.onCreate();
+        getConnectionManager().connect();
+    }
+
+    /**
+     * Returns the connection to the Connect service shared by all activities.
+     */
+    public synchronized PgConnectionManager getConnectionManager() {
+        if (connectionManager == null) {
+            connectionManager = new PgConnectionManager(this, StartupTrace.getShared());
+        }
+        return connectionManager;
+    }
+}
@@ -11,6 +11,9 @@ import android.widget.TextView;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import de.proglove.example.common.scan.ScanEvent;
+import de.proglove.example.common.scan.ScanEventPool;
+
 public class SlimJavaActivity extends AppCompatActivity {
 
     // PG Connect Intent API constants used
@@ -23,6 +26,9 @@ public class SlimJavaActivity extends AppCompatActivity {
 
     private static String LOG_TAG = SlimJavaActivity.class.getSimpleName();
 
+    // recycles the scan events, so receiving a barcode does not allocate a new event object
+    private final ScanEventPool scanEventPool = ScanEventPool.getShared();
+
     // a variable to keep track of the broadcast receiver's registration state
     private boolean registeredBroadcastReceiver = false;
 
@@ -99,13 +105,15 @@ public class SlimJavaActivity extends AppCompatActivity {
                     case ACTION_BARCODE_INTENT:
                     case ACTION_BARCODE_VIA_START_ACTIVITY_INTENT: {
                         handleScannedBarcode(intent);
+                        break;
                     }
                     case ACTION_SCANNER_STATE_INTENT: {
                         String scannerStateString = intent.getStringExtra(EXTRA_SCANNER_STATE);
-                        Log.i(LOG_TAG, "received scanner status: $scannerStateString");
+                        Log.i(LOG_TAG, "received scanner status: " + scannerStateString);
                         if (scannerState != null) {
                             scannerState.setText(scannerStateString);
                         }
+                        break;
                     }
                     default: {
                         // do nothing
@@ -124,14 +132,24 @@ public class SlimJavaActivity extends AppCompatActivity {
     private void handleScannedBarcode(Intent intent) {
         String barcodeContentString = intent.getStringExtra(EXTRA_DATA_STRING);
         String symbologyString = intent.getStringExtra(EXTRA_SYMBOLOGY_STRING);
-        Log.i(LOG_TAG, "received Barcode: " + barcodeContentString + " with symbology: " + symbologyString);
-        if (scannedBarcode != null) {
-            scannedBarcode.setText(barcodeContentString);
-        }
-        if (scannedBarcodeSymbology != null) {
-            scannedBarcodeSymbology.setText(symbologyString);
-        } else {
-            scannedBarcodeSymbology.setText("");
+        ScanEvent scan = scanEventPool.acquire().set(
+                barcodeContentString != null ? barcodeContentString : "",
+                symbologyString != null ? symbologyString : "",
+                "",
+                System.nanoTime(),
+                intent.getAction() != null ? intent.getAction() : "");
+        try {
+            if (BuildConfig.DEBUG) {
+                Log.i(LOG_TAG, "received Barcode: " + scan.getBarcode() + " with symbology: " + scan.getSymbology());
+            }
+            if (scannedBarcode != null) {
+                scannedBarcode.setText(scan.getBarcode());
+            }
+            if (scannedBarcodeSymbology != null) {
+                scannedBarcodeSymbology.setText(scan.getSymbology());
+            }
+        } finally {
+            scanEventPool.release(scan);
         }
     }
 }